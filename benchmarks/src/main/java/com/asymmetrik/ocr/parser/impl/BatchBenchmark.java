@@ -0,0 +1,105 @@
+package com.asymmetrik.ocr.parser.impl;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * getContactInfoBatch compared with a loop over getContactInfo, on a batch built by cycling
+ * through the realistic cards of the benchmark corpus.  Scores are per card.
+ * <p>
+ * The adversarial cards are left out: the long-line card takes tens of seconds to annotate with
+ * the accurate profile on either path and would dominate the batch.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( value = 1, jvmArgsAppend = { "-Xmx3g", "-Dlog4j.configuration=log4j-benchmark.properties" } )
+@State( Scope.Benchmark )
+public class BatchBenchmark
+{
+    /**
+     * Number of cards per batch, also the operations per invocation so scores are per card.
+     */
+    private static final int BATCH_SIZE = 64;
+
+    /**
+     * Parser under test.
+     */
+    private DefaultBusinessCardParser parser;
+
+    /**
+     * The batch of cards.
+     */
+    private List<String> documents;
+
+    /**
+     * Loads the models and builds the batch once per trial.
+     *
+     * @throws IOException thrown if a card is not found.
+     */
+    @Setup( Level.Trial )
+    public void setUp( ) throws IOException
+    {
+        parser = new DefaultBusinessCardParser( );
+        documents = new ArrayList<>( BATCH_SIZE );
+
+        List<String> corpus = new ArrayList<>( );
+
+        for ( String card : BenchmarkCorpus.REALISTIC )
+        {
+            corpus.add( BenchmarkCorpus.load( card ) );
+        }
+
+        for ( int i = 0; i < BATCH_SIZE; i++ )
+        {
+            documents.add( corpus.get( i % corpus.size( ) ) );
+        }
+    }
+
+    /**
+     * Measures parsing the batch one card at a time.
+     *
+     * @return the parsed results, returned so they are not optimized away.
+     */
+    @Benchmark
+    @OperationsPerInvocation( BATCH_SIZE )
+    public List<ContactInfo> perCardLoop( )
+    {
+        List<ContactInfo> results = new ArrayList<>( documents.size( ) );
+
+        for ( String document : documents )
+        {
+            results.add( parser.getContactInfo( document ) );
+        }
+
+        return results;
+    }
+
+    /**
+     * Measures parsing the batch with getContactInfoBatch.
+     *
+     * @return the parsed results, returned so they are not optimized away.
+     */
+    @Benchmark
+    @OperationsPerInvocation( BATCH_SIZE )
+    public List<ContactInfo> batch( )
+    {
+        return parser.getContactInfoBatch( documents );
+    }
+}
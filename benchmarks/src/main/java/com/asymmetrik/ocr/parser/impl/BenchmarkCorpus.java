@@ -0,0 +1,55 @@
+package com.asymmetrik.ocr.parser.impl;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Collectors;
+
+/**
+ * Business cards used by the benchmarks.
+ * <p>
+ * The realistic cards are the examples from the parser's test resources, which the pom copies into
+ * the corpus folder, plus an international card.
+ * The adversarial cards are OCR garbage, long runs of symbols around '@', digit noise that
+ * never forms a phone number, a single very long line and a card with no contact details.
+ */
+public final class BenchmarkCorpus
+{
+    /**
+     * Names of the realistic cards in the corpus folder.
+     */
+    public static final String[] REALISTIC = { "example1", "example2", "example3", "international" };
+
+    /**
+     * Names of the adversarial cards in the corpus folder.
+     */
+    public static final String[] ADVERSARIAL = { "ocr-garbage", "symbol-runs", "digit-noise", "long-line", "no-contact" };
+
+    private BenchmarkCorpus( )
+    {
+    }
+
+    /**
+     * Loads a card from the corpus folder on the classpath.
+     *
+     * @param name name of the card, without the .txt extension.
+     * @return the text of the card with lines joined by '\n'.
+     * @throws IOException thrown if the card is not found.
+     */
+    public static String load( String name ) throws IOException
+    {
+        InputStream inStream = BenchmarkCorpus.class.getResourceAsStream( "/corpus/" + name + ".txt" );
+
+        if( inStream == null )
+        {
+            throw new IOException( "Unknown corpus card: " + name );
+        }
+
+        try ( BufferedReader reader = new BufferedReader( new InputStreamReader( inStream, StandardCharsets.UTF_8 ) ) )
+        {
+            return reader.lines( ).collect( Collectors.joining( "\n" ) );
+        }
+    }
+}
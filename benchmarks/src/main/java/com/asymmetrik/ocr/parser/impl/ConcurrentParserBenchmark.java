@@ -0,0 +1,20 @@
+package com.asymmetrik.ocr.parser.impl;
+
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of one shared DefaultBusinessCardParser called from as many threads as there are
+ * processors.  The benchmark methods are inherited from ParserBenchmark; run with -t to pick
+ * another thread count.
+ */
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Threads( Threads.MAX )
+public class ConcurrentParserBenchmark extends ParserBenchmark
+{
+}
@@ -0,0 +1,63 @@
+package com.asymmetrik.ocr.parser.impl;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of BusinessCardParserFactory.create().
+ * <p>
+ * When coldModels is true the ModelRegistry is cleared before every call, so each call reloads
+ * the models.  Otherwise the pipeline loaded by earlier calls is shared.  The fork turns off
+ * pipeline.lazyLoad, which would otherwise leave loading the models to the first card.
+ */
+@BenchmarkMode( Mode.SingleShotTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 1 )
+@Measurement( iterations = 5 )
+@Fork( value = 1, jvmArgsAppend = { "-Xmx3g", "-Dlog4j.configuration=log4j-benchmark.properties",
+    "-Dpipeline.lazyLoad=false" } )
+@State( Scope.Benchmark )
+public class FactoryBenchmark
+{
+    /**
+     * Whether the annotator pool is cleared before each call.
+     */
+    @Param( { "true", "false" } )
+    public boolean coldModels;
+
+    /**
+     * Drops the loaded pipelines before each call when coldModels is true.
+     */
+    @Setup( Level.Iteration )
+    public void clearAnnotatorPool( )
+    {
+        if( coldModels )
+        {
+            ModelRegistry.clear( );
+            System.gc( );
+        }
+    }
+
+    /**
+     * Measures a single call to the factory.
+     *
+     * @return the new parser, returned so it is not optimized away.
+     */
+    @Benchmark
+    public BusinessCardParser create( )
+    {
+        return BusinessCardParserFactory.create( );
+    }
+}
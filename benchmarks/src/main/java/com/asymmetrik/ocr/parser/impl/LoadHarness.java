@@ -0,0 +1,290 @@
+package com.asymmetrik.ocr.parser.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Load harness that drives a BusinessCardParser with synthetic cards and reports throughput,
+ * latency percentiles and per-field accuracy of the same run.
+ * <p>
+ * Options, all optional:
+ * <ul>
+ * <li>-n - number of cards, 1000 by default.</li>
+ * <li>-seed - seed of the SyntheticCardGenerator, 42 by default.</li>
+ * <li>-noise - chance of OCR noise per character, 0 by default.</li>
+ * <li>-t - number of threads calling the parser, 1 by default.</li>
+ * <li>-w - warm-up passes over the ModelRegistry warm-up cards, 10 by default.</li>
+ * <li>-parser - BusinessCardParser class, the businesscardparser.type property by default.</li>
+ * <li>-mismatches - number of wrong results to print, 5 by default.</li>
+ * </ul>
+ * Names are compared ignoring case and repeated whitespace, phone numbers as digits and email
+ * addresses ignoring case.
+ */
+public final class LoadHarness
+{
+    private LoadHarness( )
+    {
+    }
+
+    /**
+     * Runs the harness and prints the report.
+     *
+     * @param args command line options.
+     * @throws Exception thrown if a card fails to parse.
+     */
+    public static void main( String[] args ) throws Exception
+    {
+        List<String> argumentList = Arrays.asList( args );
+        int count = Integer.parseInt( getOption( argumentList, "-n", "1000" ) );
+        long seed = Long.parseLong( getOption( argumentList, "-seed", "42" ) );
+        double noise = Double.parseDouble( getOption( argumentList, "-noise", "0" ) );
+        int threads = Integer.parseInt( getOption( argumentList, "-t", "1" ) );
+        int warmUp = Integer.parseInt( getOption( argumentList, "-w", "10" ) );
+        String parserClass = getOption( argumentList, "-parser", null );
+        int mismatches = Integer.parseInt( getOption( argumentList, "-mismatches", "5" ) );
+
+        BusinessCardParser parser = parserClass == null
+            ? BusinessCardParserFactory.create( ) : BusinessCardParserFactory.create( parserClass );
+        List<SyntheticCardGenerator.SyntheticCard> cards = new SyntheticCardGenerator( seed, noise ).generate( count );
+
+        ModelRegistry.warmUp( parser, warmUp );
+
+        Report report = run( parser, cards, threads );
+
+        System.out.println( String.format( "%s, %d cards, seed %d, noise %.3f", parser.getClass( ).getSimpleName( ), count, seed, noise ) );
+        System.out.println( report );
+
+        for ( int i = 0; i < Math.min( mismatches, report.mismatches.size( ) ); i++ )
+        {
+            System.out.println( report.mismatches.get( i ) );
+        }
+    }
+
+    /**
+     * Parses the cards and measures the run.
+     *
+     * @param parser  the parser under test.
+     * @param cards   the cards.
+     * @param threads number of threads calling the parser.
+     * @return the report.
+     * @throws Exception thrown if a card fails to parse.
+     */
+    public static Report run( BusinessCardParser parser, List<SyntheticCardGenerator.SyntheticCard> cards, int threads ) throws Exception
+    {
+        LatencyHistogram latencies = new LatencyHistogram( );
+        ExecutorService executor = Executors.newFixedThreadPool( threads );
+        List<Future<ContactInfo>> futures = new ArrayList<>( cards.size( ) );
+        long start = System.nanoTime( );
+
+        try
+        {
+            for ( SyntheticCardGenerator.SyntheticCard card : cards )
+            {
+                futures.add( executor.submit( ( ) -> {
+                    long cardStart = System.nanoTime( );
+                    ContactInfo contactInfo = parser.getContactInfo( card.getText( ) );
+                    latencies.record( System.nanoTime( ) - cardStart );
+                    return contactInfo;
+                } ) );
+            }
+
+            Report report = new Report( threads, latencies );
+
+            for ( int i = 0; i < cards.size( ); i++ )
+            {
+                report.add( cards.get( i ), futures.get( i ).get( ) );
+            }
+
+            report.elapsedNanos = System.nanoTime( ) - start;
+
+            return report;
+        } finally
+        {
+            executor.shutdownNow( );
+        }
+    }
+
+    /**
+     * Helper method that returns the value after an option, or a default value.
+     *
+     * @param argumentList command line arguments.
+     * @param option       the option.
+     * @param defaultValue value if the option is not given.
+     * @return the value.
+     */
+    private static String getOption( List<String> argumentList, String option, String defaultValue )
+    {
+        int index = argumentList.indexOf( option );
+
+        return index > -1 && index + 1 < argumentList.size( ) ? argumentList.get( index + 1 ) : defaultValue;
+    }
+
+    /**
+     * Throughput, latency and accuracy of a run.
+     */
+    public static class Report
+    {
+        /**
+         * Number of threads calling the parser.
+         */
+        private final int threads;
+
+        /**
+         * Parse latency of every card.
+         */
+        private final LatencyHistogram latencies;
+
+        /**
+         * Descriptions of the cards with a wrong field.
+         */
+        private final List<String> mismatches = new ArrayList<>( );
+
+        /**
+         * Number of cards.
+         */
+        private int cards;
+
+        /**
+         * Number of correct names.
+         */
+        private int names;
+
+        /**
+         * Number of correct phone numbers.
+         */
+        private int phones;
+
+        /**
+         * Number of correct email addresses.
+         */
+        private int emails;
+
+        /**
+         * Number of cards with every field correct.
+         */
+        private int allFields;
+
+        /**
+         * Wall clock time of the run.
+         */
+        private long elapsedNanos;
+
+        Report( int threads, LatencyHistogram latencies )
+        {
+            this.threads = threads;
+            this.latencies = latencies;
+        }
+
+        /**
+         * Scores one result.
+         *
+         * @param card   the card.
+         * @param actual the parsed contact info.
+         */
+        void add( SyntheticCardGenerator.SyntheticCard card, ContactInfo actual )
+        {
+            ContactInfo expected = card.getExpected( );
+            boolean name = normalizeName( expected.getName( ) ).equals( normalizeName( actual.getName( ) ) );
+            boolean phone = Objects.equals( expected.getPhoneNumber( ), actual.getPhoneNumber( ) );
+            boolean email = expected.getEmailAddress( ).equalsIgnoreCase( String.valueOf( actual.getEmailAddress( ) ) );
+
+            cards++;
+            names += name ? 1 : 0;
+            phones += phone ? 1 : 0;
+            emails += email ? 1 : 0;
+
+            if( name && phone && email )
+            {
+                allFields++;
+            } else
+            {
+                mismatches.add( "--- expected " + expected.getName( ) + " | " + expected.getPhoneNumber( ) + " | "
+                    + expected.getEmailAddress( ) + ", got " + actual.getName( ) + " | " + actual.getPhoneNumber( )
+                    + " | " + actual.getEmailAddress( ) + "\n" + card.getText( ) );
+            }
+        }
+
+        /**
+         * Returns the throughput.
+         *
+         * @return cards per second.
+         */
+        public double getCardsPerSecond( )
+        {
+            return cards / ( elapsedNanos / 1e9 );
+        }
+
+        /**
+         * Returns the share of correct names.
+         *
+         * @return the accuracy, between 0 and 1.
+         */
+        public double getNameAccuracy( )
+        {
+            return names / ( double ) cards;
+        }
+
+        /**
+         * Returns the share of correct phone numbers.
+         *
+         * @return the accuracy, between 0 and 1.
+         */
+        public double getPhoneAccuracy( )
+        {
+            return phones / ( double ) cards;
+        }
+
+        /**
+         * Returns the share of correct email addresses.
+         *
+         * @return the accuracy, between 0 and 1.
+         */
+        public double getEmailAccuracy( )
+        {
+            return emails / ( double ) cards;
+        }
+
+        /**
+         * Returns the latencies of the run.
+         *
+         * @return the histogram.
+         */
+        public LatencyHistogram getLatencies( )
+        {
+            return latencies;
+        }
+
+        /**
+         * Returns a three line summary of throughput, latency and accuracy.
+         *
+         * @return the summary.
+         */
+        @Override
+        public String toString( )
+        {
+            return String.format( "Throughput: %.1f cards/sec on %d threads, %.2f s%n", getCardsPerSecond( ), threads, elapsedNanos / 1e9 )
+                + String.format( "Latency: p50=%.2f ms p90=%.2f ms p99=%.2f ms max=%.2f ms%n",
+                latencies.getPercentileNanos( 50 ) / 1e6, latencies.getPercentileNanos( 90 ) / 1e6,
+                latencies.getPercentileNanos( 99 ) / 1e6, latencies.getMaxMicros( ) / 1e3 )
+                + String.format( "Accuracy: name %.1f%%, phone %.1f%%, email %.1f%%, all fields %.1f%%",
+                getNameAccuracy( ) * 100, getPhoneAccuracy( ) * 100, getEmailAccuracy( ) * 100, allFields * 100.0 / cards );
+        }
+
+        /**
+         * Helper method that lower cases a name and collapses its whitespace.
+         *
+         * @param name the name, can be null.
+         * @return the normalized name, empty for null.
+         */
+        private static String normalizeName( String name )
+        {
+            return name == null ? "" : name.trim( ).replaceAll( "\\s+", " " ).toLowerCase( Locale.ROOT );
+        }
+    }
+}
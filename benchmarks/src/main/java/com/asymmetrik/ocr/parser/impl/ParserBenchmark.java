@@ -0,0 +1,104 @@
+package com.asymmetrik.ocr.parser.impl;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-threaded latency of the DefaultBusinessCardParser hot paths over the benchmark corpus.
+ * <p>
+ * The benchmarks live in the parser package so they can call the protected parse methods directly.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( value = 1, jvmArgsAppend = { "-Xmx3g", "-Dlog4j.configuration=log4j-benchmark.properties" } )
+@State( Scope.Benchmark )
+public class ParserBenchmark
+{
+    /**
+     * Name of the corpus card to parse.
+     */
+    @Param( { "example1", "example2", "example3", "international",
+        "ocr-garbage", "symbol-runs", "digit-noise", "long-line", "no-contact" } )
+    public String card;
+
+    /**
+     * Parser under test, shared by all benchmark threads.
+     */
+    protected DefaultBusinessCardParser parser;
+
+    /**
+     * Text of the card.
+     */
+    protected String document;
+
+    /**
+     * Loads the models and the card once per trial.
+     *
+     * @throws IOException thrown if the card is not found.
+     */
+    @Setup( Level.Trial )
+    public void setUp( ) throws IOException
+    {
+        parser = new DefaultBusinessCardParser( );
+        document = BenchmarkCorpus.load( card );
+    }
+
+    /**
+     * Measures the full parse of a card.
+     *
+     * @return the parsed result, returned so it is not optimized away.
+     */
+    @Benchmark
+    public ContactInfo getContactInfo( )
+    {
+        return parser.getContactInfo( document );
+    }
+
+    /**
+     * Measures name extraction alone.
+     *
+     * @return the parsed result, returned so it is not optimized away.
+     */
+    @Benchmark
+    public String parseName( )
+    {
+        return parser.parseName( document );
+    }
+
+    /**
+     * Measures phone number extraction alone.
+     *
+     * @return the parsed result, returned so it is not optimized away.
+     */
+    @Benchmark
+    public String parsePhone( )
+    {
+        return parser.parsePhone( document );
+    }
+
+    /**
+     * Measures email address extraction alone.
+     *
+     * @return the parsed result, returned so it is not optimized away.
+     */
+    @Benchmark
+    public String parseEmailAddress( )
+    {
+        return parser.parseEmailAddress( document );
+    }
+}
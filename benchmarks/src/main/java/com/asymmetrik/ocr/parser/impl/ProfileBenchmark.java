@@ -0,0 +1,79 @@
+package com.asymmetrik.ocr.parser.impl;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Name extraction on the example cards with each PipelineProfile, the timings of the profile table
+ * in the README.
+ * <p>
+ * The NameGazetteer is turned off, otherwise it would resolve two of the three example names
+ * without NER and the profiles would only be compared on one card.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( value = 1, jvmArgsAppend = { "-Xmx3g", "-Dlog4j.configuration=log4j-benchmark.properties" } )
+@State( Scope.Benchmark )
+public class ProfileBenchmark
+{
+    /**
+     * Profile under test.
+     */
+    @Param( { "ACCURATE", "FAST", "MINIMAL" } )
+    public PipelineProfile profile;
+
+    /**
+     * Name of the example card to parse.
+     */
+    @Param( { "example1", "example2", "example3" } )
+    public String card;
+
+    /**
+     * Parser under test.
+     */
+    private DefaultBusinessCardParser parser;
+
+    /**
+     * Text of the card.
+     */
+    private String document;
+
+    /**
+     * Loads the models of the profile and the card once per trial.
+     *
+     * @throws IOException thrown if the card is not found.
+     */
+    @Setup( Level.Trial )
+    public void setUp( ) throws IOException
+    {
+        parser = new DefaultBusinessCardParser( profile );
+        parser.nameGazetteer = null;
+        document = BenchmarkCorpus.load( card );
+    }
+
+    /**
+     * Measures name extraction with NER alone.
+     *
+     * @return the parsed result, returned so it is not optimized away.
+     */
+    @Benchmark
+    public String parseName( )
+    {
+        return parser.parseName( document );
+    }
+}
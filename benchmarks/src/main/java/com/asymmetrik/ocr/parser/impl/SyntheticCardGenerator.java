@@ -0,0 +1,484 @@
+package com.asymmetrik.ocr.parser.impl;
+
+import com.google.i18n.phonenumbers.PhoneNumberUtil;
+import com.google.i18n.phonenumbers.Phonenumber;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Deterministic generator of synthetic business cards with known contact info.
+ * <p>
+ * Every card has a name, a phone number and an email address, surrounded by a company, a job
+ * title, an address and other lines in one of several layouts.  Names come with and without
+ * honorifics, middle initials, degrees and in all capitals.  Phone numbers are valid numbers for
+ * the US and a handful of other countries, written in national and international formats with
+ * various labels, and may be followed by a fax number.
+ * <p>
+ * OCR noise is applied to the finished card: characters are swapped for look-alikes ('O' and '0',
+ * 'l' and '1', "rn" and 'm', ...), dropped or split by stray spaces, and junk lines are added.
+ * The expected contact info is what the card said before the noise, so noise shows up as lost
+ * accuracy.
+ * <p>
+ * The same seed and noise level always produce the same sequence of cards.
+ */
+public class SyntheticCardGenerator
+{
+    /**
+     * Given names, a mix of common names the NameGazetteer knows and names only NER can find.
+     */
+    private static final String[] FIRST_NAMES = {
+        "John", "Mary", "Michael", "Jennifer", "David", "Linda", "Robert", "Susan", "James", "Karen",
+        "Wei", "Priya", "Hiroshi", "Fatima", "Olusegun", "Siobhan", "Mateo", "Ingrid", "Dmitri", "Aaliyah",
+        "Thanh", "Bogdan", "Leilani", "Kwame", "Anneliese" };
+
+    /**
+     * Family names, including hyphenated and apostrophe names.
+     */
+    private static final String[] LAST_NAMES = {
+        "Smith", "Johnson", "Williams", "Brown", "Garcia", "Miller", "Davis", "Wilson", "Anderson", "Taylor",
+        "Zhang", "Patel", "Tanaka", "Haddad", "Adeyemi", "O'Sullivan", "Fernandez", "Lindqvist", "Volkov",
+        "Nguyen", "Kowalczyk", "Kahananui", "Mensah", "Schmidt-Weber", "Haung" };
+
+    /**
+     * Honorifics written before some names.
+     */
+    private static final String[] HONORIFICS = { "Dr.", "Mr.", "Ms.", "Prof." };
+
+    /**
+     * Degrees written after some names.
+     */
+    private static final String[] DEGREES = { "PhD", "MBA", "CPA", "P.E.", "MD" };
+
+    /**
+     * Company names.
+     */
+    private static final String[] COMPANIES = {
+        "Acme Corporation", "Foobar Technologies", "Northwind Traders", "Globex Inc.", "Initech LLC",
+        "Blue Harbor Logistics", "Summit Analytics Group", "Kestrel Biotech", "Riverside Legal Partners",
+        "Helios Energy GmbH", "Sakura Design Studio", "Maple Leaf Consulting" };
+
+    /**
+     * Job titles.
+     */
+    private static final String[] TITLES = {
+        "Software Engineer", "Director of Sales", "Chief Executive Officer", "Senior Accountant",
+        "Analytic Developer", "Head of Operations", "Marketing Manager", "Attorney at Law",
+        "Regional Account Executive", "VP, Business Development", "Research Scientist" };
+
+    /**
+     * Street names.
+     */
+    private static final String[] STREETS = {
+        "Main Street", "Sentry Road", "Oak Avenue", "Market St.", "Friedrichstrasse", "Harbor Blvd",
+        "King's Road", "Rue de Rivoli", "Elm Court, Suite 400" };
+
+    /**
+     * City, state or postal code lines.
+     */
+    private static final String[] CITIES = {
+        "Columbia, MD 21044", "Springfield, IL 62701", "Austin, TX 78701", "10117 Berlin",
+        "London SW1A 1AA", "75001 Paris", "Tokyo 100-0005", "Toronto, ON M5H 2N2" };
+
+    /**
+     * Lines with no contact details that some layouts add.
+     */
+    private static final String[] EXTRAS = {
+        "www.example.com", "Since 1987", "Innovation Delivered", "Member FDIC", "LinkedIn: /in/contact",
+        "Please recycle" };
+
+    /**
+     * Regions of the generated phone numbers.  Only US and Canadian numbers are written in national format,
+     * the parser reads other countries' numbers in international format only.
+     */
+    private static final String[] PHONE_REGIONS = { "US", "US", "US", "GB", "DE", "FR", "JP", "IN", "CA", "AU" };
+
+    /**
+     * Labels written before the phone number.
+     */
+    private static final String[] PHONE_LABELS = { "", "Phone: ", "Tel: ", "T ", "Mobile: ", "Cell ", "Office: ", "P: " };
+
+    /**
+     * Labels written before the email address.
+     */
+    private static final String[] EMAIL_LABELS = { "", "Email: ", "E-mail: ", "E: " };
+
+    /**
+     * Top level domains of the email addresses.
+     */
+    private static final String[] DOMAINS = { "com", "net", "org", "co.uk", "de", "io" };
+
+    /**
+     * Pairs of characters OCR engines confuse, each can be replaced by the other.
+     */
+    private static final String[][] CONFUSIONS = {
+        { "O", "0" }, { "o", "0" }, { "l", "1" }, { "I", "l" }, { "S", "5" }, { "B", "8" }, { "rn", "m" },
+        { "e", "c" }, { "a", "o" }, { "@", "(a)" }, { ".", "," }, { "-", "~" } };
+
+    /**
+     * Junk lines OCR makes out of logos and borders.
+     */
+    private static final String[] JUNK_LINES = { "|||", "~ ~", "_____", "#%&", "l1l1", ". . ." };
+
+    /**
+     * Source of randomness, seeded so the cards are reproducible.
+     */
+    private final Random random;
+
+    /**
+     * Chance of noise per character, between 0 and 1.
+     */
+    private final double noise;
+
+    /**
+     * Instantiates a SyntheticCardGenerator.
+     *
+     * @param seed  seed of the card sequence.
+     * @param noise chance of OCR noise per character, 0 for clean cards.
+     */
+    public SyntheticCardGenerator( long seed, double noise )
+    {
+        if( noise < 0 || noise > 1 )
+        {
+            throw new IllegalArgumentException( "Noise must be between 0 and 1, was " + noise );
+        }
+
+        this.random = new Random( seed );
+        this.noise = noise;
+    }
+
+    /**
+     * Generates a number of cards.
+     *
+     * @param count number of cards.
+     * @return the cards.
+     */
+    public List<SyntheticCard> generate( int count )
+    {
+        List<SyntheticCard> cards = new ArrayList<>( count );
+
+        for ( int i = 0; i < count; i++ )
+        {
+            cards.add( next( ) );
+        }
+
+        return cards;
+    }
+
+    /**
+     * Generates the next card.
+     *
+     * @return the card and its expected contact info.
+     */
+    public SyntheticCard next( )
+    {
+        String first = pick( FIRST_NAMES );
+        String last = pick( LAST_NAMES );
+        String middle = random.nextInt( 5 ) == 0 ? ( char ) ( 'A' + random.nextInt( 26 ) ) + "." : null;
+        String name = middle == null ? first + " " + last : first + " " + middle + " " + last;
+        String company = pick( COMPANIES );
+
+        String phoneLine = pick( PHONE_LABELS ) + formatPhone( pick( PHONE_REGIONS ) );
+        String phone = digits( phoneLine );
+        String email = email( first, last, company );
+
+        List<String> header = new ArrayList<>( );
+        header.add( company );
+        header.add( nameLine( name ) );
+        header.add( pick( TITLES ) );
+
+        // Put the name first, after the company or after the title
+        if( random.nextBoolean( ) )
+        {
+            Collections.swap( header, 0, 1 );
+        } else if( random.nextInt( 4 ) == 0 )
+        {
+            Collections.swap( header, 1, 2 );
+        }
+
+        List<String> contact = new ArrayList<>( );
+        contact.add( phoneLine );
+
+        if( random.nextInt( 3 ) == 0 )
+        {
+            contact.add( "Fax: " + formatPhone( "US" ) );
+        }
+
+        contact.add( pick( EMAIL_LABELS ) + email );
+
+        List<String> address = new ArrayList<>( );
+        address.add( ( 1 + random.nextInt( 9999 ) ) + " " + pick( STREETS ) );
+        address.add( pick( CITIES ) );
+
+        List<String> lines = new ArrayList<>( header );
+
+        // Contact details before or after the address
+        if( random.nextBoolean( ) )
+        {
+            lines.addAll( address );
+            lines.addAll( contact );
+        } else
+        {
+            lines.addAll( contact );
+            lines.addAll( address );
+        }
+
+        if( random.nextInt( 3 ) == 0 )
+        {
+            lines.add( random.nextInt( lines.size( ) + 1 ), pick( EXTRAS ) );
+        }
+
+        String text = addNoise( String.join( "\n", lines ) );
+
+        return new SyntheticCard( text, new ContactInfo( name, phone, email ) );
+    }
+
+    /**
+     * Helper method that writes a name in one of the name forms.
+     *
+     * @param name the name.
+     * @return the name line.
+     */
+    private String nameLine( String name )
+    {
+        switch ( random.nextInt( 8 ) )
+        {
+            case 0:
+                return pick( HONORIFICS ) + " " + name;
+            case 1:
+                return name + ", " + pick( DEGREES );
+            case 2:
+                return name.toUpperCase( Locale.ROOT );
+            default:
+                return name;
+        }
+    }
+
+    /**
+     * Helper method that generates a valid phone number for a region and formats it.
+     *
+     * @param region the region code.
+     * @return the formatted number.
+     */
+    private String formatPhone( String region )
+    {
+        PhoneNumberUtil util = PhoneNumberUtil.getInstance( );
+        PhoneNumberUtil.PhoneNumberType type = random.nextBoolean( )
+            ? PhoneNumberUtil.PhoneNumberType.FIXED_LINE : PhoneNumberUtil.PhoneNumberType.MOBILE;
+        Phonenumber.PhoneNumber example = util.getExampleNumberForType( region, type );
+        Phonenumber.PhoneNumber number = new Phonenumber.PhoneNumber( ).mergeFrom( example );
+
+        // Vary the subscriber digits, keeping the example if no valid variation is found
+        for ( int attempt = 0; attempt < 10; attempt++ )
+        {
+            long nationalNumber = example.getNationalNumber( ) / 10000 * 10000 + random.nextInt( 10000 );
+            Phonenumber.PhoneNumber candidate = new Phonenumber.PhoneNumber( ).mergeFrom( example ).setNationalNumber( nationalNumber );
+
+            if( util.isValidNumber( candidate ) )
+            {
+                number = candidate;
+                break;
+            }
+        }
+
+        if( "US".equals( region ) || "CA".equals( region ) )
+        {
+            String national = util.format( number, PhoneNumberUtil.PhoneNumberFormat.NATIONAL );
+
+            switch ( random.nextInt( 4 ) )
+            {
+                case 0:
+                    return national;
+                case 1:
+                    return national.replaceAll( "[()]", "" ).replace( ' ', '-' );
+                case 2:
+                    return national.replaceAll( "[()]", "" ).replace( ' ', '.' ).replace( '-', '.' );
+                default:
+                    return util.format( number, PhoneNumberUtil.PhoneNumberFormat.INTERNATIONAL );
+            }
+        }
+
+        String international = util.format( number, PhoneNumberUtil.PhoneNumberFormat.INTERNATIONAL );
+
+        return random.nextBoolean( ) ? international : international.replace( '-', ' ' );
+    }
+
+    /**
+     * Helper method that builds an email address from the name and company.
+     *
+     * @param first   the given name.
+     * @param last    the family name.
+     * @param company the company.
+     * @return the email address.
+     */
+    private String email( String first, String last, String company )
+    {
+        String given = first.toLowerCase( Locale.ROOT );
+        String family = last.toLowerCase( Locale.ROOT ).replaceAll( "[^a-z]", "" );
+        String domain = company.toLowerCase( Locale.ROOT ).replaceAll( "\\b(inc|llc|gmbh|corporation|group)\\b", "" )
+            .replaceAll( "[^a-z]+", "-" ).replaceAll( "^-|-$", "" );
+
+        String local;
+
+        switch ( random.nextInt( 4 ) )
+        {
+            case 0:
+                local = given + "." + family;
+                break;
+            case 1:
+                local = given.charAt( 0 ) + family;
+                break;
+            case 2:
+                local = given + "_" + family;
+                break;
+            default:
+                local = given;
+        }
+
+        return local + "@" + domain + "." + pick( DOMAINS );
+    }
+
+    /**
+     * Helper method that applies OCR noise to a card.
+     *
+     * @param text the clean card.
+     * @return the noisy card.
+     */
+    private String addNoise( String text )
+    {
+        if( noise == 0 )
+        {
+            return text;
+        }
+
+        StringBuilder noisy = new StringBuilder( text.length( ) + 16 );
+
+        for ( int i = 0; i < text.length( ); i++ )
+        {
+            char c = text.charAt( i );
+
+            if( c == '\n' || random.nextDouble( ) >= noise )
+            {
+                noisy.append( c );
+
+                if( c == '\n' && random.nextDouble( ) < noise * 5 )
+                {
+                    noisy.append( pick( JUNK_LINES ) ).append( '\n' );
+                }
+
+                continue;
+            }
+
+            switch ( random.nextInt( 4 ) )
+            {
+                case 0:
+                    // Dropped character
+                    break;
+                case 1:
+                    noisy.append( c ).append( ' ' );
+                    break;
+                default:
+                    i += confuse( text, i, noisy ) - 1;
+            }
+        }
+
+        return noisy.toString( );
+    }
+
+    /**
+     * Helper method that replaces the characters at a position with a look-alike, if there is one.
+     *
+     * @param text     the clean card.
+     * @param position the position.
+     * @param out      the noisy card.
+     * @return number of characters of the clean card consumed.
+     */
+    private int confuse( String text, int position, StringBuilder out )
+    {
+        int start = random.nextInt( CONFUSIONS.length );
+
+        for ( int i = 0; i < CONFUSIONS.length; i++ )
+        {
+            String[] pair = CONFUSIONS[ ( start + i ) % CONFUSIONS.length ];
+
+            for ( int side = 0; side < 2; side++ )
+            {
+                if( text.startsWith( pair[ side ], position ) )
+                {
+                    out.append( pair[ 1 - side ] );
+                    return pair[ side ].length( );
+                }
+            }
+        }
+
+        out.append( text.charAt( position ) );
+        return 1;
+    }
+
+    /**
+     * Helper method that picks a random element.
+     *
+     * @param values the values.
+     * @return one of the values.
+     */
+    private String pick( String[] values )
+    {
+        return values[ random.nextInt( values.length ) ];
+    }
+
+    /**
+     * Helper method that keeps only the digits of a string, the way the parser reports phone numbers.
+     *
+     * @param text the text.
+     * @return the digits.
+     */
+    private static String digits( String text )
+    {
+        return text.replaceAll( "[^0-9]", "" );
+    }
+
+    /**
+     * A synthetic card and the contact info written on it.
+     */
+    public static class SyntheticCard
+    {
+        /**
+         * Text of the card, including noise.
+         */
+        private final String text;
+
+        /**
+         * Contact info written on the card before the noise.
+         */
+        private final ContactInfo expected;
+
+        SyntheticCard( String text, ContactInfo expected )
+        {
+            this.text = text;
+            this.expected = expected;
+        }
+
+        /**
+         * Returns the text of the card.
+         *
+         * @return the card text.
+         */
+        public String getText( )
+        {
+            return text;
+        }
+
+        /**
+         * Returns the contact info written on the card.
+         *
+         * @return the expected contact info.
+         */
+        public ContactInfo getExpected( )
+        {
+            return expected;
+        }
+    }
+}
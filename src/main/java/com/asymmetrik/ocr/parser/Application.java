@@ -3,16 +3,26 @@ package com.asymmetrik.ocr.parser;
 import com.asymmetrik.ocr.parser.impl.BusinessCardParser;
 import com.asymmetrik.ocr.parser.impl.BusinessCardParserFactory;
 import com.asymmetrik.ocr.parser.impl.ContactInfo;
+import com.asymmetrik.ocr.parser.impl.ReloadingBusinessCardParser;
+import com.asymmetrik.ocr.parser.output.ResultWriter;
+import org.apache.log4j.ConsoleAppender;
 import org.apache.log4j.Logger;
 
+import java.io.BufferedReader;
 import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Arrays;
+import java.util.Enumeration;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -20,6 +30,25 @@ import java.util.stream.Collectors;
  * <p>
  * Accepts a file name as input with an optional output file for results.
  * Returns contact info results in console.
+ * <p>
+ * Batch mode is enabled with -b followed by a directory, a glob pattern or '@' and the path
+ * to a file list.  The number of worker threads can be set with -t.  With -w followed by a number
+ * of worker processes, the batch is split into shards that several JVMs parse through the work
+ * queue directory given with -q, and a crashed or stopped run resumes where it left off, see
+ * ShardedBatchRunner.
+ * <p>
+ * Streaming mode is enabled with -s followed by an NDJSON file with one card per line, or '-' for
+ * standard input.  Results are written as NDJSON to the -o file, or to standard output, in which
+ * case the console log is written to standard error.
+ * Archive mode, -a followed by a file of cards separated by delimiter lines, memory maps the file
+ * and writes its results the same way.
+ * <p>
+ * Server mode, -p followed by a port, keeps the parser resident and serves it over HTTP, see ParserServer.
+ * When the configuration is read from an external file (-Dconfig.file=...), the server reloads it
+ * on every change and swaps in a warmed up parser, see ReloadingBusinessCardParser.
+ * <p>
+ * In single file and batch mode the -o file is written as CSV or JSON lines when it ends in .csv,
+ * .jsonl or .ndjson, optionally followed by .gz, see ResultWriter.
  */
 public final class Application
 {
@@ -32,9 +61,34 @@ public final class Application
      */
     public static void main( String[] args )
     {
-        BusinessCardParser businessCardParser = BusinessCardParserFactory.create( );
+        run( args, BusinessCardParserFactory::create );
+    }
+
+    /**
+     * Runs the application with a parser from the given factory.  When the streaming or archive
+     * results go to standard output, the console log is moved to standard error before the parser
+     * is created, so the warm-up, warning and summary lines never mix with the NDJSON results.
+     * A sharded batch is run without creating a parser at all, since its workers load the models.
+     *
+     * @param args          command line arguments.
+     * @param parserFactory creates the BusinessCardParser.
+     */
+    static void run( String[] args, Supplier<BusinessCardParser> parserFactory )
+    {
+        List<String> argumentList = Arrays.asList( args );
+
+        if( ( argumentList.contains( "-s" ) || argumentList.contains( "-a" ) ) && getOptionValue( argumentList, "-o" ) == null )
+        {
+            redirectConsoleLogging( );
+        }
+
+        if( argumentList.contains( "-b" ) && argumentList.contains( "-w" ) )
+        {
+            handleShardedBatchArgs( argumentList );
+            return;
+        }
 
-        handleArgs( args, businessCardParser );
+        handleArgs( args, parserFactory.get( ) );
     }
 
     /**
@@ -50,6 +104,31 @@ public final class Application
         if( args.length > 0 )
         {
             List<String> argumentList = Arrays.asList( args );
+
+            if( argumentList.contains( "-b" ) )
+            {
+                handleBatchArgs( argumentList, businessCardParser );
+                return;
+            }
+
+            if( argumentList.contains( "-s" ) )
+            {
+                handleStreamArgs( argumentList, businessCardParser );
+                return;
+            }
+
+            if( argumentList.contains( "-p" ) )
+            {
+                handleServerArgs( argumentList, businessCardParser );
+                return;
+            }
+
+            if( argumentList.contains( "-a" ) )
+            {
+                handleArchiveArgs( argumentList, businessCardParser );
+                return;
+            }
+
             String fileName = argumentList.get( 0 );
 
             try
@@ -80,6 +159,271 @@ public final class Application
         }
     }
 
+    /**
+     * Parses the command line arguments for batch mode and runs the batch.
+     *
+     * @param argumentList       command line arguments
+     * @param businessCardParser BusinessCardParser shared by the batch workers.
+     */
+    private static void handleBatchArgs( List<String> argumentList, BusinessCardParser businessCardParser )
+    {
+        String input = getOptionValue( argumentList, "-b" );
+        String threads = getOptionValue( argumentList, "-t" );
+
+        if( input == null )
+        {
+            log.error( "No batch input specified, please specify a directory, glob or @file list after -b." );
+            return;
+        }
+
+        try
+        {
+            List<Path> files = BatchProcessor.resolveInputs( input );
+            int threadCount = threads == null ? BatchProcessor.getDefaultThreads( ) : Integer.parseInt( threads );
+
+            log.info( "Parsing " + files.size( ) + " business card files with " + threadCount + " threads." );
+
+            BatchProcessor.BatchResult result = new BatchProcessor( businessCardParser, threadCount ).process( files );
+
+            log.info( String.format( "Parsed %d cards (%d failed) in %.2f s, %.1f cards/sec",
+                result.getResults( ).size( ), result.getFailures( ),
+                result.getElapsedNanos( ) / 1e9, result.getCardsPerSecond( ) ) );
+
+            if( argumentList.contains( "-o" ) )
+            {
+                String outputFileName = getOptionValue( argumentList, "-o" );
+
+                if( outputFileName != null )
+                {
+                    writeBatchResultsToDisk( result.getResults( ), outputFileName );
+                } else
+                {
+                    log.error( "No output file path specified, please specify a file path after -o." );
+                }
+            }
+        } catch ( IOException e )
+        {
+            log.error( "Unable to resolve batch input: " + input );
+        } catch ( NumberFormatException e )
+        {
+            log.error( "Invalid thread count: " + threads );
+        }
+    }
+
+    /**
+     * Parses the command line arguments for a batch run in several worker processes and runs it.
+     * The models are loaded by the workers, not by this process.  The batch input given with -b
+     * is only read if the queue does not exist yet.
+     *
+     * @param argumentList command line arguments
+     */
+    private static void handleShardedBatchArgs( List<String> argumentList )
+    {
+        String input = getOptionValue( argumentList, "-b" );
+        String workers = getOptionValue( argumentList, "-w" );
+        String queueDirectory = getOptionValue( argumentList, "-q" );
+        String output = getOptionValue( argumentList, "-o" );
+
+        if( input == null )
+        {
+            log.error( "No batch input specified, please specify a directory, glob or @file list after -b." );
+            return;
+        }
+
+        try
+        {
+            Path directory = Paths.get( queueDirectory == null ? "batch-queue" : queueDirectory );
+            List<Path> files = Files.exists( directory.resolve( "manifest.txt" ) )
+                ? null : BatchProcessor.resolveInputs( input );
+            ShardQueue queue = ShardQueue.createOrOpen( directory, files,
+                Integer.parseInt( Configuration.getProperty( "shard.size", "500" ) ) );
+            ShardedBatchRunner runner = new ShardedBatchRunner( queue, Integer.parseInt( workers ) );
+            long start = System.nanoTime( );
+
+            log.info( "Parsing " + queue.getFiles( ).size( ) + " business card files in " + queue.getShardCount( )
+                + " shards with " + workers + " worker processes, queue " + directory );
+
+            runner.run( );
+
+            log.info( String.format( "Parsed %d shards in %.2f s", queue.getShardCount( ), ( System.nanoTime( ) - start ) / 1e9 ) );
+
+            if( output != null )
+            {
+                log.info( "Merged " + runner.merge( Paths.get( output ) ) + " results into " + output );
+            }
+        } catch ( IOException | IllegalStateException e )
+        {
+            log.error( "Unable to run sharded batch.", e );
+        } catch ( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+            log.error( "Sharded batch was interrupted, rerun to resume." );
+        } catch ( NumberFormatException e )
+        {
+            log.error( "Invalid worker count: " + workers );
+        }
+    }
+
+    /**
+     * Parses the command line arguments for streaming mode and parses the NDJSON stream.
+     *
+     * @param argumentList       command line arguments
+     * @param businessCardParser BusinessCardParser shared by the stream workers.
+     */
+    private static void handleStreamArgs( List<String> argumentList, BusinessCardParser businessCardParser )
+    {
+        String input = getOptionValue( argumentList, "-s" );
+        String output = getOptionValue( argumentList, "-o" );
+        String threads = getOptionValue( argumentList, "-t" );
+
+        if( input == null )
+        {
+            log.error( "No stream input specified, please specify an NDJSON file or - after -s." );
+            return;
+        }
+
+        try ( BufferedReader reader = "-".equals( input )
+                  ? new BufferedReader( new InputStreamReader( System.in, StandardCharsets.UTF_8 ) )
+                  : Files.newBufferedReader( Paths.get( input ), StandardCharsets.UTF_8 );
+              Writer writer = openOutput( output ) )
+        {
+            int threadCount = threads == null ? BatchProcessor.getDefaultThreads( ) : Integer.parseInt( threads );
+
+            StreamingProcessor.StreamResult result = new StreamingProcessor( businessCardParser, threadCount ).process( reader, writer );
+
+            log.info( String.format( "Parsed %d records (%d failed) in %.2f s, %.1f records/sec",
+                result.getRecords( ), result.getFailures( ),
+                result.getElapsedNanos( ) / 1e9, result.getRecordsPerSecond( ) ) );
+        } catch ( IOException e )
+        {
+            log.error( "Unable to stream " + input, e );
+        } catch ( NumberFormatException e )
+        {
+            log.error( "Invalid thread count: " + threads );
+        }
+    }
+
+    /**
+     * Parses the command line arguments for archive mode and parses the memory mapped archive.
+     *
+     * @param argumentList       command line arguments
+     * @param businessCardParser BusinessCardParser shared by the stream workers.
+     */
+    private static void handleArchiveArgs( List<String> argumentList, BusinessCardParser businessCardParser )
+    {
+        String input = getOptionValue( argumentList, "-a" );
+        String output = getOptionValue( argumentList, "-o" );
+        String threads = getOptionValue( argumentList, "-t" );
+
+        if( input == null )
+        {
+            log.error( "No archive specified, please specify an archive file after -a." );
+            return;
+        }
+
+        try ( MappedCardArchive archive = new MappedCardArchive( Paths.get( input ) );
+              Writer writer = openOutput( output ) )
+        {
+            int threadCount = threads == null ? BatchProcessor.getDefaultThreads( ) : Integer.parseInt( threads );
+
+            StreamingProcessor.StreamResult result = new StreamingProcessor( businessCardParser, threadCount ).process( archive, writer );
+
+            log.info( String.format( "Parsed %d cards in %.2f s, %.1f cards/sec",
+                result.getRecords( ), result.getElapsedNanos( ) / 1e9, result.getRecordsPerSecond( ) ) );
+        } catch ( IOException e )
+        {
+            log.error( "Unable to read archive " + input, e );
+        } catch ( NumberFormatException e )
+        {
+            log.error( "Invalid thread count: " + threads );
+        }
+    }
+
+    /**
+     * Parses the command line arguments for server mode and starts the server.  The server runs
+     * until the process is stopped.
+     *
+     * @param argumentList       command line arguments
+     * @param businessCardParser BusinessCardParser shared by every request.
+     */
+    private static void handleServerArgs( List<String> argumentList, BusinessCardParser businessCardParser )
+    {
+        String port = getOptionValue( argumentList, "-p" );
+
+        try
+        {
+            BusinessCardParser parser = businessCardParser;
+
+            if( Configuration.getFile( ) != null )
+            {
+                ReloadingBusinessCardParser reloadingParser = new ReloadingBusinessCardParser( businessCardParser );
+                reloadingParser.watch( );
+                Runtime.getRuntime( ).addShutdownHook( new Thread( reloadingParser::close ) );
+                parser = reloadingParser;
+            }
+
+            ParserServer server = new ParserServer( parser, port == null
+                ? Integer.parseInt( Configuration.getProperty( "server.port", "8080" ) ) : Integer.parseInt( port ) );
+
+            Runtime.getRuntime( ).addShutdownHook( new Thread( server::close ) );
+            server.start( );
+        } catch ( IOException e )
+        {
+            log.error( "Unable to start server on port " + port, e );
+        } catch ( NumberFormatException e )
+        {
+            log.error( "Invalid port: " + port );
+        }
+    }
+
+    /**
+     * Helper method that opens the output file for the streaming modes, or standard output.
+     *
+     * @param output the output file path, null for standard output.
+     * @return the writer.
+     * @throws IOException thrown if the file cannot be opened.
+     */
+    private static Writer openOutput( String output ) throws IOException
+    {
+        return output == null
+            ? new BufferedWriter( new OutputStreamWriter( System.out, StandardCharsets.UTF_8 ) )
+            : Files.newBufferedWriter( Paths.get( output ), StandardCharsets.UTF_8 );
+    }
+
+    /**
+     * Helper method that points every console appender of the root logger at standard error.
+     */
+    private static void redirectConsoleLogging( )
+    {
+        Enumeration<?> appenders = Logger.getRootLogger( ).getAllAppenders( );
+
+        while ( appenders.hasMoreElements( ) )
+        {
+            Object appender = appenders.nextElement( );
+
+            if( appender instanceof ConsoleAppender )
+            {
+                ConsoleAppender console = ( ConsoleAppender ) appender;
+                console.setTarget( ConsoleAppender.SYSTEM_ERR );
+                console.activateOptions( );
+            }
+        }
+    }
+
+    /**
+     * Helper method that returns the value following a command line option.
+     *
+     * @param argumentList command line arguments
+     * @param option       the option, e.g. -o
+     * @return the value after the option, null if the option or its value is missing.
+     */
+    private static String getOptionValue( List<String> argumentList, String option )
+    {
+        int index = argumentList.indexOf( option );
+
+        return index > -1 && index + 1 < argumentList.size( ) ? argumentList.get( index + 1 ) : null;
+    }
+
     /**
      * @param fileName
      * @param businessCardParser
@@ -97,40 +441,44 @@ public final class Application
 
     /**
      * Attempts to write the results of the parser to disk.
-     * The method will create the file if it doesn't already exist.
+     * The format is picked from the file extension, see ResultWriter.open().
      *
      * @param results        ContactInfo results object
      * @param outputFileName The path to the ouput file.
      */
     private static void writeResultsToDisk( ContactInfo results, String outputFileName )
     {
-        File file = new File( outputFileName );
-        BufferedWriter writer = null;
-
-        try
+        try ( ResultWriter writer = ResultWriter.open( Paths.get( outputFileName ) ) )
         {
-            file.createNewFile( );
-
-            writer = new BufferedWriter( new FileWriter( file ) );
-
-            writer.write( results.toString( ) );
+            writer.write( null, results );
 
             log.info( "Results written to " + outputFileName );
         } catch ( IOException e )
         {
             log.error( "Unable to write to file.", e );
-        } finally
+        }
+    }
+
+    /**
+     * Attempts to write the results of a batch run to disk, one record per input file.
+     * The format is picked from the file extension, see ResultWriter.open().
+     *
+     * @param results        ContactInfo results with their input file
+     * @param outputFileName The path to the ouput file.
+     */
+    private static void writeBatchResultsToDisk( List<Map.Entry<Path, ContactInfo>> results, String outputFileName )
+    {
+        try ( ResultWriter writer = ResultWriter.open( Paths.get( outputFileName ) ) )
         {
-            try
-            {
-                if( writer != null )
-                {
-                    writer.close( );
-                }
-            } catch ( Exception e )
+            for ( Map.Entry<Path, ContactInfo> entry : results )
             {
-                log.debug( "Error closing writer." );
+                writer.write( entry.getKey( ).toString( ), entry.getValue( ) );
             }
+
+            log.info( "Results written to " + outputFileName );
+        } catch ( IOException e )
+        {
+            log.error( "Unable to write to file.", e );
         }
     }
 }
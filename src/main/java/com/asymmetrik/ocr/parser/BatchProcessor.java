@@ -0,0 +1,313 @@
+package com.asymmetrik.ocr.parser;
+
+import com.asymmetrik.ocr.parser.impl.BusinessCardParser;
+import com.asymmetrik.ocr.parser.impl.ContactInfo;
+import com.asymmetrik.ocr.parser.impl.ModelRegistry;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Parses many business card files with a single, shared BusinessCardParser.
+ * <p>
+ * The input can be a directory, a glob pattern (e.g. cards/*.txt) or a file list
+ * prefixed with '@' that contains one path per line.  Files are parsed on a fixed
+ * size worker pool so the cost of loading the models is only paid once per run.  A file that
+ * cannot be read or parsed is logged and counted as a failure, and the batch carries on.
+ */
+public class BatchProcessor
+{
+    private static final Logger log = Logger.getLogger( BatchProcessor.class );
+
+    /**
+     * Number of times the warm-up cards are parsed before the batch is timed.
+     */
+    private static final int WARM_UP_ITERATIONS = 10;
+
+    /**
+     * Parser shared by all of the workers.
+     */
+    private final BusinessCardParser businessCardParser;
+
+    /**
+     * Number of worker threads.
+     */
+    private final int threads;
+
+    /**
+     * Instantiates a BatchProcessor.
+     *
+     * @param businessCardParser BusinessCardParser shared by all of the workers.
+     * @param threads            number of worker threads, must be at least 1.
+     */
+    public BatchProcessor( BusinessCardParser businessCardParser, int threads )
+    {
+        if( threads < 1 )
+        {
+            throw new IllegalArgumentException( "Batch thread count must be at least 1, was " + threads );
+        }
+
+        this.businessCardParser = businessCardParser;
+        this.threads = threads;
+    }
+
+    /**
+     * Returns the number of worker threads configured by the batch.threads property,
+     * or the number of available processors if it is not set.
+     *
+     * @return default number of worker threads.
+     */
+    public static int getDefaultThreads( )
+    {
+        return Integer.parseInt( Configuration.getProperty( "batch.threads",
+            String.valueOf( Runtime.getRuntime( ).availableProcessors( ) ) ) );
+    }
+
+    /**
+     * Resolves the batch input specification to a sorted list of files.
+     *
+     * @param input a directory, a glob pattern, or '@' followed by the path to a file list.
+     * @return the files to parse.
+     * @throws IOException thrown if the directory or file list cannot be read.
+     */
+    public static List<Path> resolveInputs( String input ) throws IOException
+    {
+        if( input.startsWith( "@" ) )
+        {
+            try ( Stream<String> lines = Files.lines( Paths.get( input.substring( 1 ) ) ) )
+            {
+                return lines.map( String::trim )
+                    .filter( line -> !line.isEmpty( ) )
+                    .map( Paths::get )
+                    .collect( Collectors.toList( ) );
+            }
+        }
+
+        int wildcard = indexOfWildcard( input );
+
+        if( wildcard < 0 )
+        {
+            Path path = Paths.get( input );
+
+            return Files.isDirectory( path ) ? listFiles( path, null ) : Collections.singletonList( path );
+        }
+
+        // Everything up to the last separator before the first wildcard is the directory to search from.
+        int separator = input.lastIndexOf( '/', wildcard );
+        Path root = Paths.get( separator < 0 ? "." : input.substring( 0, separator + 1 ) );
+
+        return listFiles( root, FileSystems.getDefault( ).getPathMatcher( "glob:" + input ) );
+    }
+
+    /**
+     * Helper method that returns the index of the first glob wildcard character.
+     *
+     * @param input the batch input specification.
+     * @return index of the first wildcard, -1 if there is none.
+     */
+    private static int indexOfWildcard( String input )
+    {
+        for ( int i = 0; i < input.length( ); i++ )
+        {
+            if( "*?[{".indexOf( input.charAt( i ) ) > -1 )
+            {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Helper method that walks a directory and collects the regular files that match the matcher.
+     *
+     * @param root    the directory to walk.
+     * @param matcher glob matcher, null to accept every file.
+     * @return sorted list of files.
+     * @throws IOException thrown if the directory cannot be walked.
+     */
+    private static List<Path> listFiles( Path root, PathMatcher matcher ) throws IOException
+    {
+        try ( Stream<Path> paths = Files.walk( root ) )
+        {
+            return paths.filter( Files::isRegularFile )
+                .filter( file -> matcher == null || matcher.matches( file ) || matcher.matches( root.relativize( file ) ) )
+                .sorted( )
+                .collect( Collectors.toList( ) );
+        }
+    }
+
+    /**
+     * Parses every file on the worker pool.
+     * <p>
+     * Files that cannot be read, or whose parsing throws, are logged, counted as failures and left
+     * out of the results.  A file listed more than once is parsed and returned once per listing.
+     *
+     * @param files the files to parse.
+     * @return the results, in the same order as the input files.
+     */
+    public BatchResult process( List<Path> files )
+    {
+        ModelRegistry.warmUp( businessCardParser, WARM_UP_ITERATIONS );
+
+        ExecutorService executor = Executors.newFixedThreadPool( threads );
+        AtomicInteger failures = new AtomicInteger( );
+        long start = System.nanoTime( );
+
+        try
+        {
+            List<Future<ContactInfo>> futures = new ArrayList<>( files.size( ) );
+
+            for ( Path file : files )
+            {
+                futures.add( executor.submit( ( ) -> parseFile( file, failures ) ) );
+            }
+
+            List<Map.Entry<Path, ContactInfo>> results = new ArrayList<>( files.size( ) );
+
+            for ( int i = 0; i < files.size( ); i++ )
+            {
+                ContactInfo contactInfo = futures.get( i ).get( );
+
+                if( contactInfo != null )
+                {
+                    results.add( new AbstractMap.SimpleImmutableEntry<>( files.get( i ), contactInfo ) );
+                }
+            }
+
+            return new BatchResult( results, failures.get( ), System.nanoTime( ) - start );
+        } catch ( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+            throw new IllegalStateException( "Batch was interrupted.", e );
+        } catch ( ExecutionException e )
+        {
+            throw new IllegalStateException( "Error parsing batch.", e.getCause( ) );
+        } finally
+        {
+            executor.shutdownNow( );
+        }
+    }
+
+    /**
+     * Helper method that loads and parses a single file.
+     *
+     * @param file     the file to parse.
+     * @param failures counter incremented if the file cannot be read or parsed.
+     * @return the ContactInfo, or null if the file could not be read or parsed.
+     */
+    private ContactInfo parseFile( Path file, AtomicInteger failures )
+    {
+        try
+        {
+            String document = Files.readAllLines( file ).stream( ).collect( Collectors.joining( "\n" ) );
+            ContactInfo contactInfo = businessCardParser.getContactInfo( document );
+
+            log.debug( "Parsed " + file + "\n" + contactInfo );
+
+            return contactInfo;
+        } catch ( IOException e )
+        {
+            log.error( "Unable to load file: " + file );
+            failures.incrementAndGet( );
+        } catch ( RuntimeException e )
+        {
+            log.error( "Unable to parse file: " + file, e );
+            failures.incrementAndGet( );
+        }
+
+        return null;
+    }
+
+    /**
+     * Results and timings of a batch run.
+     */
+    public static class BatchResult
+    {
+        /**
+         * Parsed contact info and its input file, in input order.
+         */
+        private final List<Map.Entry<Path, ContactInfo>> results;
+
+        /**
+         * Number of files that could not be read or parsed.
+         */
+        private final int failures;
+
+        /**
+         * Wall clock time of the run in nanoseconds.
+         */
+        private final long elapsedNanos;
+
+        /**
+         * Instantiates a BatchResult.
+         *
+         * @param results      parsed contact info and its input file.
+         * @param failures     number of files that could not be read or parsed.
+         * @param elapsedNanos wall clock time of the run in nanoseconds.
+         */
+        BatchResult( List<Map.Entry<Path, ContactInfo>> results, int failures, long elapsedNanos )
+        {
+            this.results = results;
+            this.failures = failures;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * Returns the parsed contact info with its input file.
+         *
+         * @return the results in input order, a file listed twice has two entries.
+         */
+        public List<Map.Entry<Path, ContactInfo>> getResults( )
+        {
+            return results;
+        }
+
+        /**
+         * Returns the number of files that could not be read or parsed.
+         *
+         * @return the failure count.
+         */
+        public int getFailures( )
+        {
+            return failures;
+        }
+
+        /**
+         * Returns the wall clock time of the run.
+         *
+         * @return elapsed time in nanoseconds.
+         */
+        public long getElapsedNanos( )
+        {
+            return elapsedNanos;
+        }
+
+        /**
+         * Returns the throughput of the run.
+         *
+         * @return parsed cards per second.
+         */
+        public double getCardsPerSecond( )
+        {
+            return elapsedNanos == 0 ? 0 : results.size( ) / ( elapsedNanos / 1e9 );
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.asymmetrik.ocr.parser;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A CharSequence view over a range of a ByteBuffer holding single-byte (ASCII or ISO-8859-1) text.
+ * <p>
+ * Characters are read straight from the buffer, and subSequence() returns another view over the same
+ * buffer, so nothing is copied until toString() is called.  Only absolute reads are used, so a view
+ * can be read by many threads at once and does not change the position of the buffer.
+ */
+public final class ByteBufferCharSequence implements CharSequence
+{
+    /**
+     * Buffer holding the text.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * Index of the first character in the buffer.
+     */
+    private final int offset;
+
+    /**
+     * Number of characters.
+     */
+    private final int length;
+
+    /**
+     * Instantiates a ByteBufferCharSequence.
+     *
+     * @param buffer buffer holding the text.
+     * @param offset index of the first character in the buffer.
+     * @param length number of characters.
+     */
+    public ByteBufferCharSequence( ByteBuffer buffer, int offset, int length )
+    {
+        if( offset < 0 || length < 0 || offset + length > buffer.limit( ) )
+        {
+            throw new IndexOutOfBoundsException( "Range " + offset + "+" + length + " outside buffer of " + buffer.limit( ) );
+        }
+
+        this.buffer = buffer;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    @Override
+    public int length( )
+    {
+        return length;
+    }
+
+    @Override
+    public char charAt( int index )
+    {
+        if( index < 0 || index >= length )
+        {
+            throw new IndexOutOfBoundsException( "Index " + index + " outside sequence of " + length );
+        }
+
+        return ( char ) ( buffer.get( offset + index ) & 0xFF );
+    }
+
+    @Override
+    public CharSequence subSequence( int start, int end )
+    {
+        if( start < 0 || end > length || start > end )
+        {
+            throw new IndexOutOfBoundsException( "Range " + start + "-" + end + " outside sequence of " + length );
+        }
+
+        return new ByteBufferCharSequence( buffer, offset + start, end - start );
+    }
+
+    /**
+     * Copies the characters into a new String.
+     *
+     * @return the text of the view.
+     */
+    @Override
+    public String toString( )
+    {
+        byte[] bytes = new byte[ length ];
+
+        for ( int i = 0; i < length; i++ )
+        {
+            bytes[ i ] = buffer.get( offset + i );
+        }
+
+        return new String( bytes, StandardCharsets.ISO_8859_1 );
+    }
+}
@@ -3,10 +3,24 @@ package com.asymmetrik.ocr.parser;
 import org.apache.log4j.Logger;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashSet;
 import java.util.Properties;
+import java.util.Set;
 
 /**
  * Class that handles program configuration.
+ * <p>
+ * A JVM system property with the same name overrides a property of the config.properties file,
+ * e.g. -Dmodels.path=models, so a packaged jar can be configured without rebuilding it.
+ * <p>
+ * The config.file system property points at a properties file to use instead of the bundled
+ * config.properties.  reload() reads the configuration again and swaps it in atomically, so a
+ * caller always sees either the old or the new set of properties, never a mix.  Values that were
+ * already read keep their effect until the code reading them runs again, see ReloadingBusinessCardParser.
  */
 public final class Configuration
 {
@@ -15,22 +29,22 @@ public final class Configuration
     /**
      * Holds properties found in config.properties file.
      */
-    private static Properties properties = new Properties( );
+    private static volatile Properties properties = new Properties( );
 
     static
     {
         try
         {
-            properties.load( Thread.currentThread( ).getContextClassLoader( ).getResourceAsStream( "config.properties" ) );
+            properties = load( );
         } catch ( IOException e )
         {
-            log.error( "Unable to load configuration file: config.properties", e );
+            log.error( "Unable to load configuration file: " + getSource( ), e );
         }
     }
 
     /**
-     * Returns the value of the property found in the configuration file.  If no property is found,
-     * returns the default value.
+     * Returns the value of the system property or, if it is not set, of the property found in the
+     * configuration file.  If no property is found, returns the default value.
      *
      * @param property     string key of the property.
      * @param defaultValue default value for the property.
@@ -38,6 +52,95 @@ public final class Configuration
      */
     public static String getProperty( String property, String defaultValue )
     {
-        return properties.getProperty( property, defaultValue );
+        return System.getProperty( property, properties.getProperty( property, defaultValue ) );
+    }
+
+    /**
+     * Returns the external configuration file set by the config.file system property.
+     *
+     * @return the file, or null if the bundled config.properties is used.
+     */
+    public static Path getFile( )
+    {
+        String file = System.getProperty( "config.file" );
+
+        return file == null ? null : Paths.get( file );
+    }
+
+    /**
+     * Reads the configuration again and replaces the current properties.  If the file cannot be
+     * read, the current properties are kept.
+     *
+     * @return the names of the properties that were added, removed or changed.
+     * @throws IOException thrown if the configuration cannot be read.
+     */
+    public static synchronized Set<String> reload( ) throws IOException
+    {
+        Properties loaded = load( );
+        Properties current = properties;
+        Set<String> changed = new HashSet<>( );
+
+        for ( String key : loaded.stringPropertyNames( ) )
+        {
+            if( !loaded.getProperty( key ).equals( current.getProperty( key ) ) )
+            {
+                changed.add( key );
+            }
+        }
+
+        for ( String key : current.stringPropertyNames( ) )
+        {
+            if( loaded.getProperty( key ) == null )
+            {
+                changed.add( key );
+            }
+        }
+
+        properties = loaded;
+
+        if( !changed.isEmpty( ) )
+        {
+            log.info( "Reloaded configuration from " + getSource( ) + ", changed: " + changed );
+        }
+
+        return changed;
+    }
+
+    /**
+     * Helper method that reads the external configuration file, or the bundled config.properties.
+     *
+     * @return the properties.
+     * @throws IOException thrown if the configuration cannot be read.
+     */
+    private static Properties load( ) throws IOException
+    {
+        Path file = getFile( );
+        Properties loaded = new Properties( );
+
+        try ( InputStream in = file != null
+            ? Files.newInputStream( file )
+            : Thread.currentThread( ).getContextClassLoader( ).getResourceAsStream( "config.properties" ) )
+        {
+            if( in == null )
+            {
+                throw new IOException( "Configuration resource not found: config.properties" );
+            }
+
+            loaded.load( in );
+        }
+
+        return loaded;
+    }
+
+    /**
+     * Helper method that describes where the configuration is read from, for log messages.
+     *
+     * @return the file path or the resource name.
+     */
+    private static String getSource( )
+    {
+        Path file = getFile( );
+
+        return file == null ? "config.properties" : file.toString( );
     }
 }
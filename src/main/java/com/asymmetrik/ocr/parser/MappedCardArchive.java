@@ -0,0 +1,315 @@
+package com.asymmetrik.ocr.parser;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A flat archive file of business cards separated by delimiter lines, read through a memory mapping.
+ * <p>
+ * The file is mapped in regions of at most regionSize bytes, since a single mapping is limited to 2 GB.
+ * Card boundaries are found by scanning the mapped bytes, and each card is returned as a
+ * ByteBufferCharSequence view over the mapping, so the card text is not copied onto the heap.
+ * Cards that contain bytes outside of ASCII are decoded as UTF-8 into a String instead.
+ * <p>
+ * A delimiter line is a line that is exactly the delimiter, ignoring a trailing carriage return.
+ * Cards that are blank are skipped.  The mappings are released when they are garbage collected,
+ * closing the archive only closes the file.
+ */
+public class MappedCardArchive implements Iterable<CharSequence>, Closeable
+{
+    /**
+     * Default size of a mapped region, 1 GB.
+     */
+    private static final int DEFAULT_REGION_SIZE = 1 << 30;
+
+    /**
+     * The archive file.
+     */
+    private final FileChannel channel;
+
+    /**
+     * Size of the archive file in bytes.
+     */
+    private final long size;
+
+    /**
+     * Delimiter line as bytes.
+     */
+    private final byte[] delimiter;
+
+    /**
+     * Maximum size of a mapped region.  A card and the delimiter line after it must fit in one region.
+     */
+    private final int regionSize;
+
+    /**
+     * Opens an archive with the delimiter set by the archive.delimiter property, "---" by default.
+     *
+     * @param file the archive file.
+     * @throws IOException thrown if the file cannot be opened.
+     */
+    public MappedCardArchive( Path file ) throws IOException
+    {
+        this( file, Configuration.getProperty( "archive.delimiter", "---" ), DEFAULT_REGION_SIZE );
+    }
+
+    /**
+     * Opens an archive.
+     *
+     * @param file       the archive file.
+     * @param delimiter  the delimiter line.
+     * @param regionSize maximum size of a mapped region in bytes.
+     * @throws IOException thrown if the file cannot be opened.
+     */
+    public MappedCardArchive( Path file, String delimiter, int regionSize ) throws IOException
+    {
+        if( delimiter.isEmpty( ) )
+        {
+            throw new IllegalArgumentException( "Archive delimiter must not be empty." );
+        }
+
+        this.channel = FileChannel.open( file, StandardOpenOption.READ );
+        this.size = channel.size( );
+        this.delimiter = delimiter.getBytes( StandardCharsets.UTF_8 );
+        this.regionSize = regionSize;
+    }
+
+    /**
+     * Returns an iterator over the cards of the archive, in file order.
+     *
+     * @return the card iterator.
+     */
+    @Override
+    public Iterator<CharSequence> iterator( )
+    {
+        return new CardIterator( );
+    }
+
+    /**
+     * Closes the archive file.
+     *
+     * @throws IOException thrown if the file cannot be closed.
+     */
+    @Override
+    public void close( ) throws IOException
+    {
+        channel.close( );
+    }
+
+    /**
+     * Helper method that checks whether a line of the region is the delimiter.
+     *
+     * @param region the mapped region.
+     * @param start  index of the first byte of the line.
+     * @param end    index after the last byte of the line, without the line break.
+     * @return true if the line is the delimiter.
+     */
+    private boolean isDelimiter( ByteBuffer region, int start, int end )
+    {
+        if( end - start != delimiter.length )
+        {
+            return false;
+        }
+
+        for ( int i = 0; i < delimiter.length; i++ )
+        {
+            if( region.get( start + i ) != delimiter[ i ] )
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Helper method that checks whether a range of the region only holds whitespace.
+     *
+     * @param region the mapped region.
+     * @param start  index of the first byte.
+     * @param end    index after the last byte.
+     * @return true if the range is blank.
+     */
+    private static boolean isBlank( ByteBuffer region, int start, int end )
+    {
+        for ( int i = start; i < end; i++ )
+        {
+            if( region.get( i ) > ' ' || region.get( i ) < 0 )
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Iterates over the cards, mapping the next region when a card runs past the end of the current one.
+     */
+    private class CardIterator implements Iterator<CharSequence>
+    {
+        /**
+         * Position of the current region in the file.
+         */
+        private long regionStart;
+
+        /**
+         * The current region, null before the first card is read.
+         */
+        private MappedByteBuffer region;
+
+        /**
+         * Index in the current region where the next card starts.
+         */
+        private int position;
+
+        /**
+         * The next card, null if it has not been read yet.
+         */
+        private CharSequence next;
+
+        @Override
+        public boolean hasNext( )
+        {
+            while ( next == null && regionStart + position < size )
+            {
+                next = readCard( );
+            }
+
+            return next != null;
+        }
+
+        @Override
+        public CharSequence next( )
+        {
+            if( !hasNext( ) )
+            {
+                throw new NoSuchElementException( );
+            }
+
+            CharSequence card = next;
+            next = null;
+
+            return card;
+        }
+
+        /**
+         * Helper method that reads the card starting at the current position.
+         *
+         * @return the card, or null if it is blank.
+         */
+        private CharSequence readCard( )
+        {
+            if( region == null || position == region.limit( ) )
+            {
+                map( regionStart + position );
+            }
+
+            int cardStart = position;
+            int lineStart = position;
+            boolean ascii = true;
+
+            while ( true )
+            {
+                int lineEnd = lineStart;
+
+                while ( lineEnd < region.limit( ) && region.get( lineEnd ) != '\n' )
+                {
+                    ascii &= region.get( lineEnd ) >= 0;
+                    lineEnd++;
+                }
+
+                boolean endOfRegion = lineEnd == region.limit( );
+
+                if( endOfRegion && regionStart + lineEnd < size )
+                {
+                    // The card runs past the end of the region, map again starting at the card.
+                    if( cardStart == 0 )
+                    {
+                        throw new IllegalStateException( "Card at byte " + regionStart + " is larger than the region size " + regionSize );
+                    }
+
+                    map( regionStart + cardStart );
+                    return null;
+                }
+
+                int contentEnd = lineEnd > lineStart && region.get( lineEnd - 1 ) == '\r' ? lineEnd - 1 : lineEnd;
+
+                if( isDelimiter( region, lineStart, contentEnd ) )
+                {
+                    position = endOfRegion ? lineEnd : lineEnd + 1;
+                    return toCard( cardStart, Math.max( cardStart, lineStart - 1 ), ascii );
+                }
+
+                if( endOfRegion )
+                {
+                    position = lineEnd;
+                    return toCard( cardStart, lineEnd, ascii );
+                }
+
+                lineStart = lineEnd + 1;
+            }
+        }
+
+        /**
+         * Helper method that returns a range of the region as a card.
+         *
+         * @param start index of the first byte.
+         * @param end   index after the last byte.
+         * @param ascii whether the range only holds ASCII bytes.
+         * @return the card, or null if it is blank.
+         */
+        private CharSequence toCard( int start, int end, boolean ascii )
+        {
+            if( end > start && region.get( end - 1 ) == '\r' )
+            {
+                end--;
+            }
+
+            if( isBlank( region, start, end ) )
+            {
+                return null;
+            }
+
+            if( ascii )
+            {
+                return new ByteBufferCharSequence( region, start, end - start );
+            }
+
+            byte[] bytes = new byte[ end - start ];
+
+            for ( int i = start; i < end; i++ )
+            {
+                bytes[ i - start ] = region.get( i );
+            }
+
+            return new String( bytes, StandardCharsets.UTF_8 );
+        }
+
+        /**
+         * Helper method that maps the region starting at a position in the file.
+         *
+         * @param start position in the file.
+         */
+        private void map( long start )
+        {
+            try
+            {
+                region = channel.map( FileChannel.MapMode.READ_ONLY, start, Math.min( regionSize, size - start ) );
+                regionStart = start;
+                position = 0;
+            } catch ( IOException e )
+            {
+                throw new IllegalStateException( "Unable to map archive at byte " + start, e );
+            }
+        }
+    }
+}
@@ -0,0 +1,401 @@
+package com.asymmetrik.ocr.parser;
+
+import com.asymmetrik.ocr.parser.impl.AsyncBusinessCardParser;
+import com.asymmetrik.ocr.parser.impl.BusinessCardParser;
+import com.asymmetrik.ocr.parser.impl.ContactInfo;
+import com.asymmetrik.ocr.parser.impl.ModelRegistry;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.log4j.Logger;
+
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonException;
+import javax.json.JsonReader;
+import javax.json.JsonString;
+import javax.json.JsonStructure;
+import javax.json.JsonValue;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * A local HTTP server that keeps one warmed BusinessCardParser resident, built on the JDK's
+ * HttpServer so no other dependencies are needed.
+ * <p>
+ * Endpoints:
+ * <ul>
+ * <li>POST /parse - the body is the text of one card, the response is a JSON object with the name,
+ * phone and email.</li>
+ * <li>POST /parse/batch - the body is a JSON array of card texts, the response is a JSON array of
+ * results in the same order.  The cards are parsed concurrently by an AsyncBusinessCardParser.</li>
+ * <li>GET /health - returns {"status":"ok"} once the parser is warmed up.</li>
+ * </ul>
+ * <p>
+ * The server listens on the loopback interface unless server.host is set, e.g. to 0.0.0.0 for every
+ * interface.  It is configured with the server.threads, server.maxBodyBytes and
+ * server.maxBatchCards properties, and the batch parsing with the async.* properties.
+ */
+public class ParserServer implements AutoCloseable
+{
+    private static final Logger log = Logger.getLogger( ParserServer.class );
+
+    /**
+     * Number of times the warm-up cards are parsed before the server starts.
+     */
+    private static final int WARM_UP_ITERATIONS = 10;
+
+    /**
+     * The HTTP server.
+     */
+    private final HttpServer server;
+
+    /**
+     * Executor the HTTP requests are handled on.
+     */
+    private final ExecutorService requestExecutor;
+
+    /**
+     * Parser for the single card endpoint.
+     */
+    private final BusinessCardParser businessCardParser;
+
+    /**
+     * Parser for the batch endpoint.
+     */
+    private final AsyncBusinessCardParser asyncParser;
+
+    /**
+     * Largest request body accepted, in bytes.
+     */
+    private final int maxBodyBytes;
+
+    /**
+     * Largest number of cards accepted in one batch.
+     */
+    private final int maxBatchCards;
+
+    /**
+     * Instantiates a ParserServer configured by the server.* and async.* properties.
+     *
+     * @param businessCardParser BusinessCardParser shared by every request.
+     * @param port               port to listen on, 0 for any free port.
+     * @throws IOException thrown if the port cannot be bound.
+     */
+    public ParserServer( BusinessCardParser businessCardParser, int port ) throws IOException
+    {
+        this( businessCardParser, new AsyncBusinessCardParser( businessCardParser ), port,
+            Integer.parseInt( Configuration.getProperty( "server.threads",
+                String.valueOf( Runtime.getRuntime( ).availableProcessors( ) ) ) ) );
+    }
+
+    /**
+     * Instantiates a ParserServer.
+     *
+     * @param businessCardParser BusinessCardParser for the single card endpoint.
+     * @param asyncParser        AsyncBusinessCardParser for the batch endpoint, closed with the server.
+     * @param port               port to listen on, 0 for any free port.
+     * @param threads            number of threads handling requests.
+     * @throws IOException thrown if the port cannot be bound.
+     */
+    public ParserServer( BusinessCardParser businessCardParser, AsyncBusinessCardParser asyncParser,
+                         int port, int threads ) throws IOException
+    {
+        this.businessCardParser = businessCardParser;
+        this.asyncParser = asyncParser;
+        this.maxBodyBytes = Integer.parseInt( Configuration.getProperty( "server.maxBodyBytes", "1048576" ) );
+        this.maxBatchCards = Integer.parseInt( Configuration.getProperty( "server.maxBatchCards", "1000" ) );
+        this.requestExecutor = Executors.newFixedThreadPool( threads );
+
+        server = HttpServer.create( new InetSocketAddress( Configuration.getProperty( "server.host", "127.0.0.1" ), port ), 0 );
+        server.setExecutor( requestExecutor );
+        server.createContext( "/parse", new Endpoint( "POST", this::parse ) );
+        server.createContext( "/parse/batch", new Endpoint( "POST", this::parseBatch ) );
+        server.createContext( "/health", new Endpoint( "GET", body -> "{\"status\":\"ok\"}" ) );
+    }
+
+    /**
+     * Warms up the parser and starts accepting requests.
+     */
+    public void start( )
+    {
+        ModelRegistry.warmUp( businessCardParser, WARM_UP_ITERATIONS );
+        server.start( );
+
+        log.info( "Parser server listening on port " + getPort( ) );
+    }
+
+    /**
+     * Returns the port the server listens on.
+     *
+     * @return the port.
+     */
+    public int getPort( )
+    {
+        return server.getAddress( ).getPort( );
+    }
+
+    /**
+     * Stops the server, waiting up to a second for requests in progress.
+     */
+    @Override
+    public void close( )
+    {
+        server.stop( 1 );
+        requestExecutor.shutdown( );
+        asyncParser.close( );
+    }
+
+    /**
+     * Handles the single card endpoint.
+     *
+     * @param body the card text.
+     * @return the result as JSON.
+     */
+    private String parse( String body )
+    {
+        return toJson( businessCardParser.getContactInfo( body ) ).toString( );
+    }
+
+    /**
+     * Handles the batch endpoint.  Every card is checked before any is submitted, and every card is
+     * submitted before waiting for the first result.
+     *
+     * @param body a JSON array of card texts.
+     * @return the results as a JSON array.
+     * @throws BadRequestException thrown if the body is not a JSON array of strings.
+     */
+    private String parseBatch( String body ) throws BadRequestException
+    {
+        JsonArray cards;
+
+        try ( JsonReader reader = Json.createReader( new StringReader( body ) ) )
+        {
+            JsonStructure structure = reader.read( );
+
+            if( !( structure instanceof JsonArray ) )
+            {
+                throw new BadRequestException( 400, "Expected a JSON array of card texts." );
+            }
+
+            cards = ( JsonArray ) structure;
+        } catch ( JsonException e )
+        {
+            throw new BadRequestException( 400, "Invalid JSON: " + e.getMessage( ) );
+        }
+
+        if( cards.size( ) > maxBatchCards )
+        {
+            throw new BadRequestException( 413, "Batch of " + cards.size( ) + " cards exceeds the limit of " + maxBatchCards + "." );
+        }
+
+        for ( JsonValue card : cards )
+        {
+            if( !( card instanceof JsonString ) )
+            {
+                throw new BadRequestException( 400, "Expected a JSON array of card texts." );
+            }
+        }
+
+        List<CompletableFuture<ContactInfo>> futures = new ArrayList<>( cards.size( ) );
+
+        for ( JsonValue card : cards )
+        {
+            futures.add( asyncParser.getContactInfoAsync( ( ( JsonString ) card ).getString( ) ) );
+        }
+
+        JsonArrayBuilder results = Json.createArrayBuilder( );
+
+        try
+        {
+            for ( CompletableFuture<ContactInfo> future : futures )
+            {
+                results.add( toJson( future.get( ) ) );
+            }
+        } catch ( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+            throw new BadRequestException( 503, "Interrupted." );
+        } catch ( ExecutionException e )
+        {
+            if( e.getCause( ) instanceof RejectedExecutionException )
+            {
+                throw new BadRequestException( 503, "Server is busy, try again later." );
+            }
+
+            throw new IllegalStateException( "Error parsing batch.", e.getCause( ) );
+        }
+
+        return results.build( ).toString( );
+    }
+
+    /**
+     * Helper method that converts a ContactInfo to JSON.
+     *
+     * @param contactInfo the parsed contact info.
+     * @return the JSON object.
+     */
+    private static JsonValue toJson( ContactInfo contactInfo )
+    {
+        return StreamingProcessor.toResult( Json.createObjectBuilder( ), contactInfo );
+    }
+
+    /**
+     * Handler for one request body, returning the JSON response body.
+     */
+    private interface RequestHandler
+    {
+        /**
+         * Handles a request.
+         *
+         * @param body the request body.
+         * @return the JSON response body.
+         * @throws BadRequestException thrown if the request cannot be handled.
+         */
+        String handle( String body ) throws BadRequestException;
+    }
+
+    /**
+     * A request the server cannot handle, with the HTTP status to answer with.
+     */
+    private static class BadRequestException extends Exception
+    {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The HTTP status code.
+         */
+        private final int status;
+
+        BadRequestException( int status, String message )
+        {
+            super( message );
+            this.status = status;
+        }
+    }
+
+    /**
+     * An HttpHandler that checks the method and path, reads the body and writes the JSON response
+     * or an error.
+     */
+    private class Endpoint implements HttpHandler
+    {
+        /**
+         * The accepted HTTP method.
+         */
+        private final String method;
+
+        /**
+         * Handler for the request body.
+         */
+        private final RequestHandler handler;
+
+        Endpoint( String method, RequestHandler handler )
+        {
+            this.method = method;
+            this.handler = handler;
+        }
+
+        @Override
+        public void handle( HttpExchange exchange ) throws IOException
+        {
+            try
+            {
+                if( !exchange.getRequestURI( ).getPath( ).equals( exchange.getHttpContext( ).getPath( ) ) )
+                {
+                    throw new BadRequestException( 404, "Not found." );
+                }
+
+                if( !method.equals( exchange.getRequestMethod( ) ) )
+                {
+                    exchange.getResponseHeaders( ).set( "Allow", method );
+                    throw new BadRequestException( 405, "Use " + method + "." );
+                }
+
+                respond( exchange, 200, handler.handle( readBody( exchange.getRequestBody( ) ) ) );
+            } catch ( BadRequestException e )
+            {
+                respond( exchange, e.status, error( e.getMessage( ) ) );
+            } catch ( RuntimeException e )
+            {
+                log.error( "Error handling " + exchange.getRequestURI( ), e );
+                respond( exchange, 500, error( "Internal error." ) );
+            } finally
+            {
+                exchange.close( );
+            }
+        }
+
+        /**
+         * Helper method that reads the request body as UTF-8.
+         *
+         * @param in the request body stream.
+         * @return the body.
+         * @throws IOException         thrown if the body cannot be read.
+         * @throws BadRequestException thrown if the body is larger than server.maxBodyBytes.
+         */
+        private String readBody( InputStream in ) throws IOException, BadRequestException
+        {
+            ByteArrayOutputStream body = new ByteArrayOutputStream( );
+            byte[] buffer = new byte[ 8192 ];
+            int read;
+
+            while ( ( read = in.read( buffer ) ) != -1 )
+            {
+                if( body.size( ) + read > maxBodyBytes )
+                {
+                    throw new BadRequestException( 413, "Request body exceeds " + maxBodyBytes + " bytes." );
+                }
+
+                body.write( buffer, 0, read );
+            }
+
+            return new String( body.toByteArray( ), StandardCharsets.UTF_8 );
+        }
+
+        /**
+         * Helper method that builds an error response body.
+         *
+         * @param message the error message.
+         * @return the JSON error.
+         */
+        private String error( String message )
+        {
+            return Json.createObjectBuilder( ).add( "error", message ).build( ).toString( );
+        }
+
+        /**
+         * Helper method that writes a JSON response.
+         *
+         * @param exchange the exchange.
+         * @param status   the HTTP status code.
+         * @param body     the JSON response body.
+         * @throws IOException thrown if the response cannot be written.
+         */
+        private void respond( HttpExchange exchange, int status, String body ) throws IOException
+        {
+            byte[] bytes = body.getBytes( StandardCharsets.UTF_8 );
+
+            exchange.getResponseHeaders( ).set( "Content-Type", "application/json; charset=utf-8" );
+            exchange.sendResponseHeaders( status, bytes.length );
+
+            try ( OutputStream out = exchange.getResponseBody( ) )
+            {
+                out.write( bytes );
+            }
+        }
+    }
+}
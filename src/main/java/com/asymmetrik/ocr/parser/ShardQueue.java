@@ -0,0 +1,490 @@
+package com.asymmetrik.ocr.parser;
+
+import org.apache.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A work queue of batch shards kept in a directory on the local filesystem, shared by the worker
+ * processes of a ShardedBatchRunner.
+ * <p>
+ * The input files are frozen in a manifest when the queue is created and split into shards of
+ * consecutive files.  Every shard has a marker file that moves from pending/ to running/ to done/.
+ * A worker claims a shard by locking its result file and then renaming its marker, so exactly one
+ * worker wins, and holds the lock until the shard is done.  The operating system releases the lock
+ * when a worker dies, which is how requeueAbandoned() tells crashed shards from running ones.
+ * <p>
+ * Results are written to results/shard-N.jsonl.  After every few cards the worker records in
+ * checkpoints/shard-N.properties how many cards of the shard are done and how long the result file
+ * was at that point.  A shard that is claimed again truncates its result file to that length and
+ * carries on from the next card, so no card is parsed twice and no result is written twice.
+ */
+public class ShardQueue
+{
+    private static final Logger log = Logger.getLogger( ShardQueue.class );
+
+    /**
+     * Directory of the queue.
+     */
+    private final Path directory;
+
+    /**
+     * Input files, in shard order.
+     */
+    private final List<Path> files;
+
+    /**
+     * Number of files per shard.
+     */
+    private final int shardSize;
+
+    /**
+     * Instantiates a ShardQueue.
+     *
+     * @param directory directory of the queue.
+     * @param files     input files, in shard order.
+     * @param shardSize number of files per shard.
+     */
+    private ShardQueue( Path directory, List<Path> files, int shardSize )
+    {
+        this.directory = directory;
+        this.files = files;
+        this.shardSize = shardSize;
+    }
+
+    /**
+     * Creates a queue of the files, or opens the existing queue in the directory.  An existing
+     * queue keeps its own files and shard size, so a restarted run resumes the same shards.
+     *
+     * @param directory directory of the queue, created if needed.
+     * @param files     input files, only used for a new queue.
+     * @param shardSize number of files per shard, only used for a new queue.
+     * @return the queue.
+     * @throws IOException thrown if the queue cannot be created or read.
+     */
+    public static ShardQueue createOrOpen( Path directory, List<Path> files, int shardSize ) throws IOException
+    {
+        if( Files.exists( directory.resolve( "manifest.txt" ) ) )
+        {
+            return open( directory );
+        }
+
+        if( shardSize < 1 )
+        {
+            throw new IllegalArgumentException( "Shard size must be at least 1, was " + shardSize );
+        }
+
+        for ( String state : new String[] { "pending", "running", "done", "results", "checkpoints" } )
+        {
+            Files.createDirectories( directory.resolve( state ) );
+        }
+
+        ShardQueue queue = new ShardQueue( directory, files, shardSize );
+
+        for ( int shard = 0; shard < queue.getShardCount( ); shard++ )
+        {
+            Files.createFile( directory.resolve( "pending" ).resolve( shardName( shard ) ) );
+        }
+
+        Properties properties = new Properties( );
+        properties.setProperty( "shardSize", String.valueOf( shardSize ) );
+        writeAtomically( directory.resolve( "queue.properties" ), properties );
+
+        // Written last: a queue without a manifest is incomplete and is created again
+        Path manifest = Files.createTempFile( directory, "manifest", ".tmp" );
+        Files.write( manifest, files.stream( ).map( Path::toString ).collect( Collectors.toList( ) ) );
+        Files.move( manifest, directory.resolve( "manifest.txt" ), StandardCopyOption.ATOMIC_MOVE );
+
+        log.info( "Created queue of " + queue.getShardCount( ) + " shards for " + files.size( ) + " files in " + directory );
+
+        return queue;
+    }
+
+    /**
+     * Opens an existing queue.
+     *
+     * @param directory directory of the queue.
+     * @return the queue.
+     * @throws IOException thrown if the queue cannot be read.
+     */
+    public static ShardQueue open( Path directory ) throws IOException
+    {
+        List<Path> files;
+
+        try ( Stream<String> lines = Files.lines( directory.resolve( "manifest.txt" ) ) )
+        {
+            files = lines.map( Paths::get ).collect( Collectors.toList( ) );
+        }
+
+        return new ShardQueue( directory, files, Integer.parseInt( readProperties( directory.resolve( "queue.properties" ) ).getProperty( "shardSize" ) ) );
+    }
+
+    /**
+     * Returns the directory of the queue.
+     *
+     * @return the directory.
+     */
+    public Path getDirectory( )
+    {
+        return directory;
+    }
+
+    /**
+     * Returns the input files.
+     *
+     * @return the files, in shard order.
+     */
+    public List<Path> getFiles( )
+    {
+        return Collections.unmodifiableList( files );
+    }
+
+    /**
+     * Returns the number of shards.
+     *
+     * @return the shard count.
+     */
+    public int getShardCount( )
+    {
+        return ( files.size( ) + shardSize - 1 ) / shardSize;
+    }
+
+    /**
+     * Returns the number of shards that are done.
+     *
+     * @return the done count.
+     * @throws IOException thrown if the queue cannot be read.
+     */
+    public int getDoneCount( ) throws IOException
+    {
+        return list( "done" ).size( );
+    }
+
+    /**
+     * Returns whether there are shards waiting for a worker.
+     *
+     * @return true if a shard is pending.
+     * @throws IOException thrown if the queue cannot be read.
+     */
+    public boolean hasPending( ) throws IOException
+    {
+        return !list( "pending" ).isEmpty( );
+    }
+
+    /**
+     * Returns the result file of a shard.
+     *
+     * @param shard the shard index.
+     * @return the JSON lines result file.
+     */
+    public Path getResultFile( int shard )
+    {
+        return directory.resolve( "results" ).resolve( shardName( shard ) + ".jsonl" );
+    }
+
+    /**
+     * Claims the next pending shard.
+     *
+     * @param workerId name of the worker, recorded in the running marker.
+     * @return the claimed shard, which must be closed, or null if no shard is pending.
+     * @throws IOException thrown if the queue cannot be read.
+     */
+    public Shard claim( String workerId ) throws IOException
+    {
+        for ( String name : list( "pending" ) )
+        {
+            int shard = Integer.parseInt( name.substring( "shard-".length( ) ) );
+            FileChannel channel = FileChannel.open( getResultFile( shard ), StandardOpenOption.CREATE, StandardOpenOption.WRITE );
+            FileLock lock = tryLock( channel );
+
+            try
+            {
+                if( lock != null )
+                {
+                    Files.move( directory.resolve( "pending" ).resolve( name ),
+                        directory.resolve( "running" ).resolve( name + "@" + workerId ), StandardCopyOption.ATOMIC_MOVE );
+
+                    return new Shard( shard, channel );
+                }
+            } catch ( NoSuchFileException | FileAlreadyExistsException e )
+            {
+                log.debug( "Shard " + shard + " was claimed by another worker." );
+            }
+
+            channel.close( );
+        }
+
+        return null;
+    }
+
+    /**
+     * Moves the running shards whose worker is gone back to pending.
+     *
+     * @return the number of shards requeued.
+     * @throws IOException thrown if the queue cannot be read.
+     */
+    public int requeueAbandoned( ) throws IOException
+    {
+        int requeued = 0;
+
+        for ( String name : list( "running" ) )
+        {
+            String shardName = name.substring( 0, name.indexOf( '@' ) );
+            int shard = Integer.parseInt( shardName.substring( "shard-".length( ) ) );
+
+            try ( FileChannel channel = FileChannel.open( getResultFile( shard ), StandardOpenOption.CREATE, StandardOpenOption.WRITE ) )
+            {
+                if( tryLock( channel ) != null )
+                {
+                    Files.move( directory.resolve( "running" ).resolve( name ),
+                        directory.resolve( "pending" ).resolve( shardName ), StandardCopyOption.ATOMIC_MOVE );
+
+                    log.warn( "Requeued abandoned shard " + shard + " from " + name.substring( name.indexOf( '@' ) + 1 ) );
+                    requeued++;
+                }
+            } catch ( NoSuchFileException e )
+            {
+                log.debug( "Shard " + shard + " finished while requeueing." );
+            }
+        }
+
+        return requeued;
+    }
+
+    /**
+     * Helper method that lists the marker files in a state directory.
+     *
+     * @param state pending, running or done.
+     * @return the sorted file names.
+     * @throws IOException thrown if the directory cannot be read.
+     */
+    private List<String> list( String state ) throws IOException
+    {
+        List<String> names = new ArrayList<>( );
+
+        try ( DirectoryStream<Path> stream = Files.newDirectoryStream( directory.resolve( state ) ) )
+        {
+            for ( Path path : stream )
+            {
+                names.add( path.getFileName( ).toString( ) );
+            }
+        }
+
+        Collections.sort( names );
+
+        return names;
+    }
+
+    /**
+     * Helper method that takes an exclusive lock on a channel without waiting.
+     *
+     * @param channel the channel.
+     * @return the lock, null if another process or another channel of this process holds it.
+     * @throws IOException thrown if the lock cannot be attempted.
+     */
+    private static FileLock tryLock( FileChannel channel ) throws IOException
+    {
+        try
+        {
+            return channel.tryLock( );
+        } catch ( OverlappingFileLockException e )
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Helper method that returns the marker name of a shard.
+     *
+     * @param shard the shard index.
+     * @return the name, zero padded so names sort in shard order.
+     */
+    private static String shardName( int shard )
+    {
+        return String.format( "shard-%05d", shard );
+    }
+
+    /**
+     * Helper method that reads a properties file.
+     *
+     * @param file the file.
+     * @return the properties.
+     * @throws IOException thrown if the file cannot be read.
+     */
+    private static Properties readProperties( Path file ) throws IOException
+    {
+        Properties properties = new Properties( );
+
+        try ( InputStream in = Files.newInputStream( file ) )
+        {
+            properties.load( in );
+        }
+
+        return properties;
+    }
+
+    /**
+     * Helper method that writes a properties file to a temporary file first and then moves it into
+     * place, so readers never see a partial file.
+     *
+     * @param file       the file.
+     * @param properties the properties.
+     * @throws IOException thrown if the file cannot be written.
+     */
+    private static void writeAtomically( Path file, Properties properties ) throws IOException
+    {
+        Path temp = Files.createTempFile( file.getParent( ), file.getFileName( ).toString( ), ".tmp" );
+
+        try ( OutputStream out = Files.newOutputStream( temp ) )
+        {
+            properties.store( out, null );
+        }
+
+        Files.move( temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+    }
+
+    /**
+     * A shard claimed by a worker.  The shard stays locked until it is closed.
+     */
+    public class Shard implements Closeable
+    {
+        /**
+         * The shard index.
+         */
+        private final int index;
+
+        /**
+         * Locked channel of the result file.
+         */
+        private final FileChannel channel;
+
+        /**
+         * Number of cards of the shard that are done.
+         */
+        private int completed;
+
+        /**
+         * Instantiates a Shard and rolls its result file back to the last checkpoint.
+         *
+         * @param index   the shard index.
+         * @param channel locked channel of the result file.
+         * @throws IOException thrown if the checkpoint cannot be read or the file truncated.
+         */
+        Shard( int index, FileChannel channel ) throws IOException
+        {
+            this.index = index;
+            this.channel = channel;
+
+            Path checkpoint = getCheckpointFile( );
+            long bytes = 0;
+
+            if( Files.exists( checkpoint ) )
+            {
+                Properties properties = readProperties( checkpoint );
+                completed = Integer.parseInt( properties.getProperty( "cards" ) );
+                bytes = Long.parseLong( properties.getProperty( "bytes" ) );
+
+                log.info( "Resuming shard " + index + " after " + completed + " cards." );
+            }
+
+            // Drops results written after the last checkpoint, their cards are parsed again
+            channel.truncate( bytes );
+        }
+
+        /**
+         * Returns the shard index.
+         *
+         * @return the index.
+         */
+        public int getIndex( )
+        {
+            return index;
+        }
+
+        /**
+         * Returns the files of the shard that are not done yet.
+         *
+         * @return the remaining files, in order.
+         */
+        public List<Path> getRemainingFiles( )
+        {
+            return files.subList( Math.min( index * shardSize + completed, files.size( ) ),
+                Math.min( ( index + 1 ) * shardSize, files.size( ) ) );
+        }
+
+        /**
+         * Records that more cards are done.  The results of the cards must be flushed to the result
+         * file first.
+         *
+         * @param cards number of cards done since the last checkpoint.
+         * @throws IOException thrown if the checkpoint cannot be written.
+         */
+        public void checkpoint( int cards ) throws IOException
+        {
+            completed += cards;
+
+            Properties properties = new Properties( );
+            properties.setProperty( "cards", String.valueOf( completed ) );
+            properties.setProperty( "bytes", String.valueOf( channel.size( ) ) );
+            writeAtomically( getCheckpointFile( ), properties );
+        }
+
+        /**
+         * Marks the shard done.
+         *
+         * @throws IOException thrown if the marker cannot be moved.
+         */
+        public void complete( ) throws IOException
+        {
+            for ( String name : list( "running" ) )
+            {
+                if( name.startsWith( shardName( index ) + "@" ) )
+                {
+                    Files.move( directory.resolve( "running" ).resolve( name ),
+                        directory.resolve( "done" ).resolve( shardName( index ) ), StandardCopyOption.ATOMIC_MOVE );
+                }
+            }
+        }
+
+        /**
+         * Releases the shard.  A shard that is not complete is requeued by the next requeueAbandoned().
+         *
+         * @throws IOException thrown if the result file cannot be closed.
+         */
+        @Override
+        public void close( ) throws IOException
+        {
+            channel.close( );
+        }
+
+        /**
+         * Helper method that returns the checkpoint file of the shard.
+         *
+         * @return the checkpoint file.
+         */
+        private Path getCheckpointFile( )
+        {
+            return directory.resolve( "checkpoints" ).resolve( shardName( index ) + ".properties" );
+        }
+    }
+}
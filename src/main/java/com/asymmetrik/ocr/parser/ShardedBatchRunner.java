@@ -0,0 +1,426 @@
+package com.asymmetrik.ocr.parser;
+
+import com.asymmetrik.ocr.parser.impl.BusinessCardParser;
+import com.asymmetrik.ocr.parser.impl.BusinessCardParserFactory;
+import com.asymmetrik.ocr.parser.impl.ContactInfo;
+import com.asymmetrik.ocr.parser.output.JsonLinesResultWriter;
+import com.asymmetrik.ocr.parser.output.ResultWriter;
+import org.apache.log4j.Logger;
+
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+import javax.json.JsonValue;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Runs a batch in several worker processes that share a ShardQueue, and resumes it after a crash.
+ * <p>
+ * The coordinator creates the queue, or opens the one left by an earlier run, and starts worker
+ * JVMs with the same classpath and -D and -X options.  Every worker loads its own models, then
+ * claims shards until none are pending.  A worker parses its shard in chunks with
+ * getContactInfoBatch(), appends the results to the shard's result file and checkpoints after
+ * every chunk.  If the batch call fails, the chunk is parsed again one card at a time, and the
+ * cards that still fail are written as error records, so a bad card cannot stop the shard.  When a
+ * worker exits abnormally its shard is requeued and a new worker is started, up to
+ * shard.maxRestarts times.  Once every shard is done, the results are merged in input order into
+ * the output file, in the format given by its extension, see ResultWriter.open().  The cards that
+ * failed are logged and left out.
+ * <p>
+ * The runner is configured with the following properties:
+ * <ul>
+ * <li>shard.size - number of files per shard, 500 by default.</li>
+ * <li>shard.checkpointCards - number of cards per chunk and checkpoint, 50 by default.</li>
+ * <li>shard.maxRestarts - number of times crashed workers are replaced, 3 by default.</li>
+ * </ul>
+ */
+public class ShardedBatchRunner
+{
+    private static final Logger log = Logger.getLogger( ShardedBatchRunner.class );
+
+    /**
+     * Time between checks of the workers and the queue.
+     */
+    private static final long POLL_MILLIS = 500;
+
+    /**
+     * The work queue.
+     */
+    private final ShardQueue queue;
+
+    /**
+     * Number of worker processes.
+     */
+    private final int workers;
+
+    /**
+     * Instantiates a ShardedBatchRunner.
+     *
+     * @param queue   the work queue.
+     * @param workers number of worker processes, must be at least 1.
+     */
+    public ShardedBatchRunner( ShardQueue queue, int workers )
+    {
+        if( workers < 1 )
+        {
+            throw new IllegalArgumentException( "Worker count must be at least 1, was " + workers );
+        }
+
+        this.queue = queue;
+        this.workers = workers;
+    }
+
+    /**
+     * Worker process entry point.
+     *
+     * @param args the queue directory and the worker name.
+     */
+    public static void main( String[] args )
+    {
+        try
+        {
+            runWorker( ShardQueue.open( Paths.get( args[ 0 ] ) ), args[ 1 ], BusinessCardParserFactory.create( ),
+                Integer.parseInt( Configuration.getProperty( "shard.checkpointCards", "50" ) ) );
+        } catch ( IOException | RuntimeException e )
+        {
+            log.error( "Worker " + args[ 1 ] + " failed.", e );
+            System.exit( 1 );
+        }
+    }
+
+    /**
+     * Claims and parses shards until none are pending.
+     *
+     * @param queue              the work queue.
+     * @param workerId           name of the worker.
+     * @param businessCardParser parser for the cards.
+     * @param checkpointCards    number of cards per chunk and checkpoint.
+     * @return the number of cards parsed.
+     * @throws IOException thrown if the queue or a result file cannot be written.
+     */
+    public static int runWorker( ShardQueue queue, String workerId, BusinessCardParser businessCardParser, int checkpointCards ) throws IOException
+    {
+        int cards = 0;
+        ShardQueue.Shard shard;
+
+        while ( ( shard = queue.claim( workerId ) ) != null )
+        {
+            try ( ShardQueue.Shard claimed = shard;
+                  ResultWriter writer = new JsonLinesResultWriter( queue.getResultFile( shard.getIndex( ) ), true, false, Integer.MAX_VALUE, 0 ) )
+            {
+                List<Path> remaining = claimed.getRemainingFiles( );
+
+                for ( int from = 0; from < remaining.size( ); from += checkpointCards )
+                {
+                    List<Path> chunk = remaining.subList( from, Math.min( from + checkpointCards, remaining.size( ) ) );
+
+                    parseChunk( chunk, businessCardParser, writer );
+                    writer.flush( );
+                    claimed.checkpoint( chunk.size( ) );
+                    cards += chunk.size( );
+                }
+
+                claimed.complete( );
+                log.info( workerId + " finished shard " + claimed.getIndex( ) );
+            }
+        }
+
+        return cards;
+    }
+
+    /**
+     * Runs the workers until every shard is done.
+     *
+     * @throws IOException          thrown if the queue cannot be read or a worker cannot be started.
+     * @throws InterruptedException thrown if interrupted while waiting for the workers.
+     */
+    public void run( ) throws IOException, InterruptedException
+    {
+        try ( FileChannel channel = FileChannel.open( queue.getDirectory( ).resolve( "coordinator.lock" ),
+                  StandardOpenOption.CREATE, StandardOpenOption.WRITE );
+              FileLock lock = channel.tryLock( ) )
+        {
+            if( lock == null )
+            {
+                throw new IllegalStateException( "Another run is using the queue in " + queue.getDirectory( ) );
+            }
+
+            runLocked( );
+        }
+    }
+
+    /**
+     * Merges the shard results into one file, in input order.  The merged file is written next to
+     * the queue first and then moved over the output, so a crash never leaves a partial output.
+     * Cards that failed to parse are left out.
+     *
+     * @param output the output file, its extension picks the format.
+     * @return the number of records.
+     * @throws IOException thrown if a result file cannot be read or the output written.
+     */
+    public long merge( Path output ) throws IOException
+    {
+        String fileName = output.getFileName( ).toString( );
+        String extension = fileName.indexOf( '.' ) > -1 ? fileName.substring( fileName.indexOf( '.' ) ) : "";
+        Path merged = queue.getDirectory( ).resolve( "merged" + extension );
+        long records;
+        long failures = 0;
+
+        Files.deleteIfExists( merged );
+
+        try ( ResultWriter writer = ResultWriter.open( merged ) )
+        {
+            for ( int shard = 0; shard < queue.getShardCount( ); shard++ )
+            {
+                try ( BufferedReader reader = Files.newBufferedReader( queue.getResultFile( shard ), StandardCharsets.UTF_8 ) )
+                {
+                    String line;
+
+                    while ( ( line = reader.readLine( ) ) != null )
+                    {
+                        JsonObject record = readRecord( line );
+
+                        if( record.containsKey( "error" ) )
+                        {
+                            failures++;
+                        } else
+                        {
+                            writer.write( getString( record, "source" ), toContactInfo( record ) );
+                        }
+                    }
+                }
+            }
+
+            records = writer.getRecords( );
+        }
+
+        if( failures > 0 )
+        {
+            log.warn( "Left out " + failures + " cards that could not be parsed, see the shard results in " + queue.getDirectory( ) );
+        }
+
+        Path schema = Paths.get( merged + ".schema.json" );
+
+        if( Files.exists( schema ) )
+        {
+            Files.move( schema, Paths.get( output + ".schema.json" ), StandardCopyOption.REPLACE_EXISTING );
+        }
+
+        Files.move( merged, output, StandardCopyOption.REPLACE_EXISTING );
+
+        return records;
+    }
+
+    /**
+     * Helper method that runs the workers while holding the coordinator lock.
+     *
+     * @throws IOException          thrown if the queue cannot be read or a worker cannot be started.
+     * @throws InterruptedException thrown if interrupted while waiting for the workers.
+     */
+    private void runLocked( ) throws IOException, InterruptedException
+    {
+        int maxRestarts = Integer.parseInt( Configuration.getProperty( "shard.maxRestarts", "3" ) );
+        Process[] processes = new Process[ workers ];
+        int started = 0;
+        int restarts = 0;
+        int done = -1;
+
+        try
+        {
+            while ( true )
+            {
+                queue.requeueAbandoned( );
+
+                if( queue.getDoneCount( ) != done )
+                {
+                    done = queue.getDoneCount( );
+                    log.info( "Shards done: " + done + " of " + queue.getShardCount( ) );
+                }
+
+                if( done == queue.getShardCount( ) )
+                {
+                    return;
+                }
+
+                for ( int i = 0; i < workers; i++ )
+                {
+                    if( processes[ i ] != null && processes[ i ].isAlive( ) )
+                    {
+                        continue;
+                    }
+
+                    if( processes[ i ] != null && processes[ i ].exitValue( ) != 0 && ++restarts > maxRestarts )
+                    {
+                        throw new IllegalStateException( "Workers crashed more than shard.maxRestarts times, rerun to resume." );
+                    }
+
+                    processes[ i ] = queue.hasPending( ) ? startWorker( "worker-" + ++started ) : null;
+                }
+
+                Thread.sleep( POLL_MILLIS );
+            }
+        } finally
+        {
+            for ( Process process : processes )
+            {
+                if( process != null )
+                {
+                    process.destroy( );
+                }
+            }
+        }
+    }
+
+    /**
+     * Helper method that starts a worker JVM with the classpath and -D and -X options of this one.
+     *
+     * @param workerId name of the worker.
+     * @return the worker process.
+     * @throws IOException thrown if the process cannot be started.
+     */
+    private Process startWorker( String workerId ) throws IOException
+    {
+        List<String> command = new ArrayList<>( );
+        command.add( System.getProperty( "java.home" ) + File.separator + "bin" + File.separator + "java" );
+        command.addAll( ManagementFactory.getRuntimeMXBean( ).getInputArguments( ).stream( )
+            .filter( argument -> argument.startsWith( "-D" ) || argument.startsWith( "-X" ) )
+            .collect( Collectors.toList( ) ) );
+        command.add( "-cp" );
+        command.add( System.getProperty( "java.class.path" ) );
+        command.add( ShardedBatchRunner.class.getName( ) );
+        command.add( queue.getDirectory( ).toString( ) );
+        command.add( workerId );
+
+        log.info( "Starting " + workerId );
+
+        return new ProcessBuilder( command ).inheritIO( ).start( );
+    }
+
+    /**
+     * Helper method that parses a chunk of files with one batch call and writes the results.  Files
+     * that cannot be read are logged and left out, like in BatchProcessor.  If the batch call fails,
+     * the cards are parsed one at a time instead, and each card that fails is logged and written as
+     * an error record.
+     *
+     * @param chunk              the files.
+     * @param businessCardParser parser for the cards.
+     * @param writer             writer of the shard results.
+     * @throws IOException thrown if the results cannot be written.
+     */
+    private static void parseChunk( List<Path> chunk, BusinessCardParser businessCardParser, ResultWriter writer ) throws IOException
+    {
+        List<Path> readable = new ArrayList<>( chunk.size( ) );
+        List<String> documents = new ArrayList<>( chunk.size( ) );
+
+        for ( Path file : chunk )
+        {
+            try
+            {
+                documents.add( Files.readAllLines( file ).stream( ).collect( Collectors.joining( "\n" ) ) );
+                readable.add( file );
+            } catch ( IOException e )
+            {
+                log.error( "Unable to load file: " + file );
+            }
+        }
+
+        List<ContactInfo> results;
+
+        try
+        {
+            results = businessCardParser.getContactInfoBatch( documents );
+        } catch ( RuntimeException e )
+        {
+            log.error( "Unable to parse a chunk of " + documents.size( ) + " cards, parsing them one at a time.", e );
+            results = null;
+        }
+
+        for ( int i = 0; i < documents.size( ); i++ )
+        {
+            String source = readable.get( i ).toString( );
+
+            if( results != null )
+            {
+                writer.write( source, results.get( i ) );
+                continue;
+            }
+
+            try
+            {
+                writer.write( source, businessCardParser.getContactInfo( documents.get( i ) ) );
+            } catch ( RuntimeException e )
+            {
+                log.error( "Unable to parse file: " + source, e );
+                writer.writeError( source, "Unable to parse card: " + e );
+            }
+        }
+    }
+
+    /**
+     * Helper method that reads one record of a shard result file.
+     *
+     * @param line a JSON line.
+     * @return the record.
+     */
+    private static JsonObject readRecord( String line )
+    {
+        try ( JsonReader reader = Json.createReader( new StringReader( line ) ) )
+        {
+            return reader.readObject( );
+        }
+    }
+
+    /**
+     * Helper method that converts a record written by JsonLinesResultWriter back to a ContactInfo.
+     *
+     * @param record the record.
+     * @return the contact info.
+     */
+    private static ContactInfo toContactInfo( JsonObject record )
+    {
+        Map<String, String> extras = new LinkedHashMap<>( );
+        JsonObject extrasObject = record.getJsonObject( "extras" );
+
+        if( extrasObject != null )
+        {
+            for ( String field : extrasObject.keySet( ) )
+            {
+                extras.put( field, getString( extrasObject, field ) );
+            }
+        }
+
+        return new ContactInfo( getString( record, "name" ), getString( record, "phone" ), getString( record, "email" ),
+            extras, record.getBoolean( "degraded", false ) );
+    }
+
+    /**
+     * Helper method that returns a string member of a JSON object.
+     *
+     * @param object the object.
+     * @param name   the member name.
+     * @return the string, null if the member is missing or null.
+     */
+    private static String getString( JsonObject object, String name )
+    {
+        JsonValue value = object.get( name );
+
+        return value == null || value.getValueType( ) == JsonValue.ValueType.NULL ? null : object.getString( name );
+    }
+}
@@ -0,0 +1,488 @@
+package com.asymmetrik.ocr.parser;
+
+import com.asymmetrik.ocr.parser.impl.BusinessCardParser;
+import com.asymmetrik.ocr.parser.impl.ContactInfo;
+import com.asymmetrik.ocr.parser.impl.ModelRegistry;
+import org.apache.log4j.Logger;
+
+import javax.json.Json;
+import javax.json.JsonException;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+import javax.json.JsonReader;
+import javax.json.JsonString;
+import javax.json.JsonStructure;
+import javax.json.JsonValue;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Parses a newline delimited JSON (NDJSON) stream of business cards with a single, shared
+ * BusinessCardParser.
+ * <p>
+ * Every input line is one record, either a JSON string with the card text or a JSON object with the
+ * card text in the stream.textField property ("text" by default) and an optional identifier in the
+ * stream.idField property ("id" by default).  For every record one JSON object is written with the
+ * identifier, the line number and the parsed name, phone and email, or an error if the record could
+ * not be parsed.  A failed record never stops the stream.
+ * <p>
+ * Records are read one at a time and parsed on a worker pool.  At most window records are in flight;
+ * when the window is full the oldest record is waited for and written before the next one is read.
+ * Results are therefore written in input order and the memory used does not depend on the size of
+ * the input.
+ * <p>
+ * Cards from a MappedCardArchive, or any other Iterable of CharSequences, are parsed the same way.
+ */
+public class StreamingProcessor
+{
+    private static final Logger log = Logger.getLogger( StreamingProcessor.class );
+
+    /**
+     * Number of times the warm-up cards are parsed before the stream is timed.
+     */
+    private static final int WARM_UP_ITERATIONS = 10;
+
+    /**
+     * Parser shared by all of the workers.
+     */
+    private final BusinessCardParser businessCardParser;
+
+    /**
+     * Number of worker threads.
+     */
+    private final int threads;
+
+    /**
+     * Maximum number of records in flight.
+     */
+    private final int window;
+
+    /**
+     * Name of the record field that holds the card text.
+     */
+    private final String textField;
+
+    /**
+     * Name of the record field that holds the card identifier.
+     */
+    private final String idField;
+
+    /**
+     * Instantiates a StreamingProcessor with a window of four records per thread.
+     *
+     * @param businessCardParser BusinessCardParser shared by all of the workers.
+     * @param threads            number of worker threads, must be at least 1.
+     */
+    public StreamingProcessor( BusinessCardParser businessCardParser, int threads )
+    {
+        this( businessCardParser, threads, Integer.parseInt( Configuration.getProperty( "stream.window",
+            String.valueOf( threads * 4 ) ) ) );
+    }
+
+    /**
+     * Instantiates a StreamingProcessor.
+     *
+     * @param businessCardParser BusinessCardParser shared by all of the workers.
+     * @param threads            number of worker threads, must be at least 1.
+     * @param window             maximum number of records in flight, must be at least 1.
+     */
+    public StreamingProcessor( BusinessCardParser businessCardParser, int threads, int window )
+    {
+        if( threads < 1 )
+        {
+            throw new IllegalArgumentException( "Stream thread count must be at least 1, was " + threads );
+        }
+
+        if( window < 1 )
+        {
+            throw new IllegalArgumentException( "Stream window must be at least 1, was " + window );
+        }
+
+        this.businessCardParser = businessCardParser;
+        this.threads = threads;
+        this.window = window;
+        this.textField = Configuration.getProperty( "stream.textField", "text" );
+        this.idField = Configuration.getProperty( "stream.idField", "id" );
+    }
+
+    /**
+     * Parses every record of the input and writes one result line per record.
+     * <p>
+     * Blank lines are skipped.  Records that are not valid JSON, have no card text or make the
+     * parser throw are counted as failures and written with an error field.
+     *
+     * @param in  the NDJSON input.
+     * @param out where the NDJSON results are written.
+     * @return the number of records and failures and the elapsed time.
+     * @throws IOException thrown if the input cannot be read or the output cannot be written.
+     */
+    public StreamResult process( BufferedReader in, Writer out ) throws IOException
+    {
+        long[] lineNumber = { 0 };
+
+        return run( ( ) -> {
+            String line;
+
+            do
+            {
+                line = in.readLine( );
+                lineNumber[ 0 ]++;
+            } while ( line != null && line.trim( ).isEmpty( ) );
+
+            String record = line;
+            long recordLine = lineNumber[ 0 ];
+
+            return record == null ? null : ( ) -> parseRecord( record, recordLine );
+        }, out );
+    }
+
+    /**
+     * Parses every card of an archive and writes one result line per card, with the card's
+     * position in the archive in the "card" field.
+     * <p>
+     * The cards are handed to the parser as they are, so views over a memory mapped file are
+     * only copied where the parser needs a String.
+     *
+     * @param cards the cards, e.g. a MappedCardArchive.
+     * @param out   where the NDJSON results are written.
+     * @return the number of cards and failures and the elapsed time.
+     * @throws IOException thrown if the output cannot be written.
+     */
+    public StreamResult process( Iterable<? extends CharSequence> cards, Writer out ) throws IOException
+    {
+        Iterator<? extends CharSequence> iterator = cards.iterator( );
+        long[] cardNumber = { 0 };
+
+        return run( ( ) -> {
+            if( !iterator.hasNext( ) )
+            {
+                return null;
+            }
+
+            CharSequence card = iterator.next( );
+            long number = ++cardNumber[ 0 ];
+
+            return ( ) -> parseCard( Json.createObjectBuilder( ).add( "card", number ), card, "card " + number );
+        }, out );
+    }
+
+    /**
+     * Helper method that parses the records of a source on the worker pool, keeping at most window
+     * records in flight, and writes the results in source order.
+     *
+     * @param source the records to parse.
+     * @param out    where the NDJSON results are written.
+     * @return the number of records and failures and the elapsed time.
+     * @throws IOException thrown if the input cannot be read or the output cannot be written.
+     */
+    private StreamResult run( RecordSource source, Writer out ) throws IOException
+    {
+        ModelRegistry.warmUp( businessCardParser, WARM_UP_ITERATIONS );
+
+        ExecutorService executor = Executors.newFixedThreadPool( threads );
+        Deque<Future<JsonObject>> inFlight = new ArrayDeque<>( window );
+        long records = 0;
+        long failures = 0;
+        long start = System.nanoTime( );
+
+        try
+        {
+            Callable<JsonObject> record;
+
+            while ( ( record = source.next( ) ) != null )
+            {
+                if( inFlight.size( ) == window )
+                {
+                    failures += writeResult( inFlight.removeFirst( ), out );
+                }
+
+                inFlight.addLast( executor.submit( record ) );
+                records++;
+            }
+
+            while ( !inFlight.isEmpty( ) )
+            {
+                failures += writeResult( inFlight.removeFirst( ), out );
+            }
+
+            out.flush( );
+
+            return new StreamResult( records, failures, System.nanoTime( ) - start );
+        } finally
+        {
+            executor.shutdownNow( );
+        }
+    }
+
+    /**
+     * Helper method that parses a single record.
+     *
+     * @param record     the record line.
+     * @param lineNumber the line number of the record in the input.
+     * @return the result object.
+     */
+    private JsonObject parseRecord( String record, long lineNumber )
+    {
+        JsonObjectBuilder result = Json.createObjectBuilder( );
+        JsonValue id = null;
+        String document = null;
+
+        try ( JsonReader reader = Json.createReader( new StringReader( record ) ) )
+        {
+            JsonStructure structure = reader.read( );
+
+            if( structure instanceof JsonObject )
+            {
+                JsonObject object = ( JsonObject ) structure;
+                id = object.get( idField );
+                document = object.containsKey( textField ) && !object.isNull( textField ) ? object.getString( textField ) : null;
+            }
+        } catch ( JsonException | ClassCastException e )
+        {
+            document = readJsonString( record );
+        }
+
+        if( id != null )
+        {
+            result.add( "id", id );
+        }
+
+        result.add( "line", lineNumber );
+
+        if( document == null )
+        {
+            log.warn( "No card text found on line " + lineNumber + "." );
+            return result.add( "error", "No card text in field '" + textField + "'." ).build( );
+        }
+
+        return parseCard( result, document, "line " + lineNumber );
+    }
+
+    /**
+     * Helper method that parses the card text of a record.  A parser failure only fails the record:
+     * it is logged, and the result is written with an error field and counted as a failure.
+     *
+     * @param result      the result being built, with the record's identifier.
+     * @param card        the card text.
+     * @param description the record's position, for the log message.
+     * @return the result object.
+     */
+    private JsonObject parseCard( JsonObjectBuilder result, CharSequence card, String description )
+    {
+        ContactInfo contactInfo;
+
+        try
+        {
+            contactInfo = businessCardParser.getContactInfo( card );
+        } catch ( RuntimeException e )
+        {
+            log.warn( "Unable to parse the card on " + description + ".", e );
+            return result.add( "error", "Unable to parse card: " + e ).build( );
+        }
+
+        return toResult( result, contactInfo );
+    }
+
+    /**
+     * Helper method that adds the parsed fields to a result, with an extras object for the fields
+     * found by FieldExtractors like JsonLinesResultWriter.  Also used by the ParserServer so both
+     * write the same fields.
+     *
+     * @param result      the result being built.
+     * @param contactInfo the parsed contact info.
+     * @return the result object.
+     */
+    static JsonObject toResult( JsonObjectBuilder result, ContactInfo contactInfo )
+    {
+        addNullable( result, "name", contactInfo.getName( ) );
+        addNullable( result, "phone", contactInfo.getPhoneNumber( ) );
+        addNullable( result, "email", contactInfo.getEmailAddress( ) );
+
+        if( !contactInfo.getExtras( ).isEmpty( ) )
+        {
+            JsonObjectBuilder extras = Json.createObjectBuilder( );
+
+            for ( Map.Entry<String, String> extra : contactInfo.getExtras( ).entrySet( ) )
+            {
+                addNullable( extras, extra.getKey( ), extra.getValue( ) );
+            }
+
+            result.add( "extras", extras );
+        }
+
+        if( contactInfo.isDegraded( ) )
+        {
+            result.add( "degraded", true );
+        }
+
+        return result.build( );
+    }
+
+    /**
+     * Helper method that reads a record that is a bare JSON string.  JSON-P 1.0 can only read
+     * objects and arrays, so the string is wrapped in an array first.
+     *
+     * @param record the record line.
+     * @return the string, or null if the record is not a JSON string.
+     */
+    private static String readJsonString( String record )
+    {
+        try ( JsonReader reader = Json.createReader( new StringReader( "[" + record + "]" ) ) )
+        {
+            JsonValue value = reader.readArray( ).get( 0 );
+
+            return value instanceof JsonString ? ( ( JsonString ) value ).getString( ) : null;
+        } catch ( JsonException | IndexOutOfBoundsException e )
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Helper method that adds a string to the result, or JSON null if it is null.
+     *
+     * @param result the result being built.
+     * @param name   the field name.
+     * @param value  the field value.
+     */
+    private static void addNullable( JsonObjectBuilder result, String name, String value )
+    {
+        if( value == null )
+        {
+            result.addNull( name );
+        } else
+        {
+            result.add( name, value );
+        }
+    }
+
+    /**
+     * Helper method that waits for a result and writes it as one line.
+     *
+     * @param future the pending result.
+     * @param out    where the result is written.
+     * @return 1 if the record failed, 0 otherwise.
+     * @throws IOException thrown if the output cannot be written.
+     */
+    private static int writeResult( Future<JsonObject> future, Writer out ) throws IOException
+    {
+        JsonObject result;
+
+        try
+        {
+            result = future.get( );
+        } catch ( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+            throw new IllegalStateException( "Stream was interrupted.", e );
+        } catch ( ExecutionException e )
+        {
+            throw new IllegalStateException( "Error parsing stream.", e.getCause( ) );
+        }
+
+        out.write( result.toString( ) );
+        out.write( '\n' );
+
+        return result.containsKey( "error" ) ? 1 : 0;
+    }
+
+    /**
+     * A source of records to parse.
+     */
+    private interface RecordSource
+    {
+        /**
+         * Reads the next record.
+         *
+         * @return a task that parses the record, or null at the end of the input.
+         * @throws IOException thrown if the input cannot be read.
+         */
+        Callable<JsonObject> next( ) throws IOException;
+    }
+
+    /**
+     * Counts and timings of a streaming run.
+     */
+    public static class StreamResult
+    {
+        /**
+         * Number of records read.
+         */
+        private final long records;
+
+        /**
+         * Number of records written with an error field.
+         */
+        private final long failures;
+
+        /**
+         * Wall clock time of the run in nanoseconds.
+         */
+        private final long elapsedNanos;
+
+        /**
+         * Instantiates a StreamResult.
+         *
+         * @param records      number of records read.
+         * @param failures     number of records written with an error field.
+         * @param elapsedNanos wall clock time of the run in nanoseconds.
+         */
+        StreamResult( long records, long failures, long elapsedNanos )
+        {
+            this.records = records;
+            this.failures = failures;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * Returns the number of records read.
+         *
+         * @return the record count.
+         */
+        public long getRecords( )
+        {
+            return records;
+        }
+
+        /**
+         * Returns the number of records written with an error field.
+         *
+         * @return the failure count.
+         */
+        public long getFailures( )
+        {
+            return failures;
+        }
+
+        /**
+         * Returns the wall clock time of the run.
+         *
+         * @return elapsed time in nanoseconds.
+         */
+        public long getElapsedNanos( )
+        {
+            return elapsedNanos;
+        }
+
+        /**
+         * Returns the throughput of the run.
+         *
+         * @return parsed records per second.
+         */
+        public double getRecordsPerSecond( )
+        {
+            return elapsedNanos == 0 ? 0 : records / ( elapsedNanos / 1e9 );
+        }
+    }
+}
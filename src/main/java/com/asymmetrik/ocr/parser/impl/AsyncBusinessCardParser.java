@@ -0,0 +1,284 @@
+package com.asymmetrik.ocr.parser.impl;
+
+import com.asymmetrik.ocr.parser.Configuration;
+import org.apache.log4j.Logger;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A BusinessCardParser that also parses cards asynchronously.
+ * <p>
+ * Cards submitted with getContactInfoAsync() are parsed by another BusinessCardParser on an
+ * executor.  The number of cards in flight, running or waiting, is bounded by the queue capacity.
+ * When it is reached, submitting either blocks until a card finishes or fails fast with a
+ * RejectedExecutionException, so a burst of traffic cannot grow memory without bound.
+ * <p>
+ * On Java 21 and later the cards run on virtual threads unless async.virtualThreads is false.
+ * Otherwise a fixed pool of async.threads daemon platform threads is used.  The parsing itself is
+ * still bounded by the PipelinePool of the DefaultBusinessCardParser.
+ * <p>
+ * The parser is configured with the following properties in the config.properties file:
+ * <ul>
+ * <li>async.delegate.type - class of the parser that parses the cards when this parser is created
+ * by BusinessCardParserFactory, the DefaultBusinessCardParser by default.</li>
+ * <li>async.threads - number of platform threads, the number of available processors by default.</li>
+ * <li>async.queueCapacity - maximum number of cards in flight, 1000 by default.</li>
+ * <li>async.rejectWhenFull - fail instead of blocking when the queue is full, false by default.</li>
+ * <li>async.virtualThreads - use virtual threads where available, true by default.</li>
+ * </ul>
+ */
+public class AsyncBusinessCardParser implements BusinessCardParser, AutoCloseable
+{
+    private static final Logger log = Logger.getLogger( AsyncBusinessCardParser.class );
+
+    /**
+     * BusinessCardParser that parses the cards.
+     */
+    protected final BusinessCardParser delegate;
+
+    /**
+     * Executor the cards are parsed on.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * Permits for the cards in flight.
+     */
+    private final Semaphore inFlight;
+
+    /**
+     * Whether to fail instead of blocking when there are no permits left.
+     */
+    private final boolean rejectWhenFull;
+
+    /**
+     * Instantiates an AsyncBusinessCardParser configured by the async.* properties, that parses the
+     * cards with the parser set by async.delegate.type.
+     */
+    public AsyncBusinessCardParser( )
+    {
+        this( createDelegate( ) );
+    }
+
+    /**
+     * Instantiates an AsyncBusinessCardParser configured by the async.* properties.
+     *
+     * @param delegate BusinessCardParser that parses the cards.
+     */
+    public AsyncBusinessCardParser( BusinessCardParser delegate )
+    {
+        this( delegate, createExecutor( ),
+            Integer.parseInt( Configuration.getProperty( "async.queueCapacity", "1000" ) ),
+            Boolean.parseBoolean( Configuration.getProperty( "async.rejectWhenFull", "false" ) ) );
+    }
+
+    /**
+     * Instantiates an AsyncBusinessCardParser.
+     *
+     * @param delegate       BusinessCardParser that parses the cards.
+     * @param executor       executor the cards are parsed on, shut down by close().
+     * @param queueCapacity  maximum number of cards in flight.
+     * @param rejectWhenFull true to fail instead of blocking when the queue is full.
+     */
+    public AsyncBusinessCardParser( BusinessCardParser delegate, ExecutorService executor,
+                                    int queueCapacity, boolean rejectWhenFull )
+    {
+        if( queueCapacity < 1 )
+        {
+            throw new IllegalArgumentException( "Queue capacity must be at least 1, was " + queueCapacity );
+        }
+
+        this.delegate = delegate;
+        this.executor = executor;
+        this.inFlight = new Semaphore( queueCapacity );
+        this.rejectWhenFull = rejectWhenFull;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Parses the card on the calling thread.
+     */
+    public ContactInfo getContactInfo( String document )
+    {
+        return delegate.getContactInfo( document );
+    }
+
+    /**
+     * Parses the string representation of a business card asynchronously.
+     * <p>
+     * If the queue is full, this blocks until there is room, or returns a future that has failed
+     * with a RejectedExecutionException if async.rejectWhenFull is set.  If the calling thread is
+     * interrupted while it waits, its interrupt flag stays set and the returned future has failed
+     * with a CancellationException.
+     *
+     * @param document A string representation of a business card.
+     * @return A future that completes with the ContactInfo, or exceptionally if parsing failed.
+     */
+    public CompletableFuture<ContactInfo> getContactInfoAsync( String document )
+    {
+        CompletableFuture<ContactInfo> future = new CompletableFuture<>( );
+
+        try
+        {
+            if( !acquire( ) )
+            {
+                future.completeExceptionally( new RejectedExecutionException( "Parser queue is full." ) );
+                return future;
+            }
+        } catch ( CancellationException e )
+        {
+            future.completeExceptionally( e );
+            return future;
+        }
+
+        try
+        {
+            executor.execute( ( ) -> {
+                ContactInfo contactInfo = null;
+                Throwable failure = null;
+
+                try
+                {
+                    contactInfo = delegate.getContactInfo( document );
+                } catch ( Throwable t )
+                {
+                    failure = t;
+                } finally
+                {
+                    inFlight.release( );
+                }
+
+                // The permit is released first, so a caller that submits again once the future
+                // completes finds room in the queue.
+                if( failure != null )
+                {
+                    future.completeExceptionally( failure );
+                } else
+                {
+                    future.complete( contactInfo );
+                }
+            } );
+        } catch ( RejectedExecutionException e )
+        {
+            inFlight.release( );
+            future.completeExceptionally( e );
+        }
+
+        return future;
+    }
+
+    /**
+     * Returns the number of cards that can be submitted before the queue is full.
+     *
+     * @return the remaining capacity.
+     */
+    public int getRemainingCapacity( )
+    {
+        return inFlight.availablePermits( );
+    }
+
+    /**
+     * Stops accepting cards and waits for the cards in flight to finish.
+     */
+    @Override
+    public void close( )
+    {
+        executor.shutdown( );
+
+        try
+        {
+            if( !executor.awaitTermination( 1, TimeUnit.MINUTES ) )
+            {
+                log.warn( "Timed out waiting for in-flight cards to finish." );
+            }
+        } catch ( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+        }
+    }
+
+    /**
+     * Helper method that takes a permit for a card, blocking or failing when there are none left.
+     *
+     * @return true if a permit was taken, false if the queue is full and async.rejectWhenFull is set.
+     * @throws CancellationException thrown if the thread was interrupted while waiting, with the
+     *                               interrupt flag restored.
+     */
+    private boolean acquire( )
+    {
+        if( rejectWhenFull )
+        {
+            return inFlight.tryAcquire( );
+        }
+
+        try
+        {
+            inFlight.acquire( );
+            return true;
+        } catch ( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+
+            CancellationException cancelled = new CancellationException( "Interrupted while waiting for room in the parser queue." );
+            cancelled.initCause( e );
+            throw cancelled;
+        }
+    }
+
+    /**
+     * Helper method that creates the parser set by the async.delegate.type property.
+     *
+     * @return the delegate parser.
+     */
+    private static BusinessCardParser createDelegate( )
+    {
+        String delegateClasspath = Configuration.getProperty( "async.delegate.type",
+            DefaultBusinessCardParser.class.getName( ) );
+
+        if( delegateClasspath.equals( AsyncBusinessCardParser.class.getName( ) ) )
+        {
+            throw new IllegalArgumentException( "async.delegate.type cannot be the AsyncBusinessCardParser." );
+        }
+
+        return BusinessCardParserFactory.create( delegateClasspath );
+    }
+
+    /**
+     * Helper method that creates a virtual thread per task executor on Java 21 and later, or a fixed
+     * pool of daemon platform threads otherwise, so a parser that is never closed does not keep the
+     * JVM running.  The virtual thread executor is looked up reflectively so
+     * the project still builds for Java 8.
+     *
+     * @return the executor.
+     */
+    private static ExecutorService createExecutor( )
+    {
+        if( Boolean.parseBoolean( Configuration.getProperty( "async.virtualThreads", "true" ) ) )
+        {
+            try
+            {
+                return ( ExecutorService ) Executors.class.getMethod( "newVirtualThreadPerTaskExecutor" ).invoke( null );
+            } catch ( ReflectiveOperationException e )
+            {
+                log.debug( "Virtual threads are not available, using platform threads." );
+            }
+        }
+
+        AtomicInteger count = new AtomicInteger( );
+
+        return Executors.newFixedThreadPool( Integer.parseInt( Configuration.getProperty( "async.threads",
+            String.valueOf( Runtime.getRuntime( ).availableProcessors( ) ) ) ), runnable -> {
+            Thread thread = new Thread( runnable, "async-parser-" + count.incrementAndGet( ) );
+            thread.setDaemon( true );
+            return thread;
+        } );
+    }
+}
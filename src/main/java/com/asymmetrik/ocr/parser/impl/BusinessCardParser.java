@@ -1,11 +1,17 @@
 package com.asymmetrik.ocr.parser.impl;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Root interface for a BusinessCardParser
  * <p>
  * A BusinessCardParser is an object that can take in a string representation of a
  * business card, and extract the contact information, such as a person's name,
  * their phone number and their email address.
+ * <p>
+ * Implementations should be safe to call from many threads at once.  The parsers in
+ * this package are, so one instance can be shared by all of an application's threads.
  */
 public interface BusinessCardParser
 {
@@ -17,4 +23,39 @@ public interface BusinessCardParser
      * @return A ContactInfo object containing the extracted name, phone number and email address.
      */
     ContactInfo getContactInfo( String document );
+
+    /**
+     * Parses a business card held in any CharSequence, e.g. a view over a memory mapped file.
+     * <p>
+     * The default implementation copies the document into a String.  Parsers that can read
+     * a CharSequence directly override this to avoid the copy.
+     *
+     * @param document A character sequence representation of a business card.
+     * @return A ContactInfo object containing the extracted name, phone number and email address.
+     */
+    default ContactInfo getContactInfo( CharSequence document )
+    {
+        return getContactInfo( document.toString( ) );
+    }
+
+    /**
+     * Parses many business cards in one call.
+     * <p>
+     * The default implementation parses the cards one at a time.  Parsers that can share work
+     * between the cards override this.
+     *
+     * @param documents String representations of business cards.
+     * @return The ContactInfo of every card, in the same order as the documents.
+     */
+    default List<ContactInfo> getContactInfoBatch( List<String> documents )
+    {
+        List<ContactInfo> results = new ArrayList<>( documents.size( ) );
+
+        for ( String document : documents )
+        {
+            results.add( getContactInfo( document ) );
+        }
+
+        return results;
+    }
 }
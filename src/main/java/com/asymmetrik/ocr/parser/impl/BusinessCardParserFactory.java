@@ -11,25 +11,37 @@ public class BusinessCardParserFactory
     private static final Logger log = Logger.getLogger( BusinessCardParserFactory.class );
 
     /**
-     * Classpath reference for the BusinessCardParser that will be instantiated.
-     * <p>
-     * This can be changed by setting the businesscardparser.type property in the config.properties file.
+     * Classpath reference for the BusinessCardParser that is instantiated if the
+     * businesscardparser.type property is not set.
      */
-    private static String PARSER_CLASSPATH = Configuration.getProperty( "businesscardparser.type",
-        "com.asymmetrik.ocr.parser.impl.DefaultBusinessCardParser" );
+    private static final String DEFAULT_PARSER_CLASSPATH = "com.asymmetrik.ocr.parser.impl.DefaultBusinessCardParser";
 
     /**
      * Instantiates a new BusinessCardParser based on the businesscardparser.type property.
      * <p>
-     * If the property is not found, returns an instance of DefaultBusinessCardParser.
+     * The property is read on every call, so a reloaded configuration takes effect for the next
+     * parser.  If the property is not found, returns an instance of DefaultBusinessCardParser.
      *
      * @return an instance of BusinessCardParser
      */
     public static BusinessCardParser create( )
+    {
+        return create( Configuration.getProperty( "businesscardparser.type", DEFAULT_PARSER_CLASSPATH ).trim( ) );
+    }
+
+    /**
+     * Instantiates a new BusinessCardParser of the given class.
+     * <p>
+     * If the class cannot be instantiated, returns an instance of DefaultBusinessCardParser.
+     *
+     * @param parserClasspath fully qualified class name of the BusinessCardParser.
+     * @return an instance of BusinessCardParser
+     */
+    public static BusinessCardParser create( String parserClasspath )
     {
         try
         {
-            return ( BusinessCardParser ) Class.forName( PARSER_CLASSPATH ).newInstance( );
+            return ( BusinessCardParser ) Class.forName( parserClasspath ).newInstance( );
         } catch ( ClassNotFoundException | IllegalAccessException | InstantiationException e )
         {
             log.error( "Error instantiating BusinessCardParser.", e );
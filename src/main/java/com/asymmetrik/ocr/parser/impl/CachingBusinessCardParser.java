@@ -0,0 +1,740 @@
+package com.asymmetrik.ocr.parser.impl;
+
+import com.asymmetrik.ocr.parser.Configuration;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.StringJoiner;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A BusinessCardParser that caches the results of another BusinessCardParser.
+ * <p>
+ * Documents are keyed by the SHA-256 hash of their normalized text, where every line is trimmed,
+ * runs of whitespace are collapsed and blank lines are dropped, so re-sent cards that only differ
+ * in whitespace are parsed once.  Results are kept in a size bounded LRU map with an optional
+ * time to live.  If a cache directory is configured, results are also written to disk so they
+ * survive restarts.  A result keeps the time it was first parsed in both tiers, so reading it back
+ * from disk does not extend its time to live, and an expired file is deleted when it is read.
+ * The disk tier holds at most cache.maxDiskEntries results; when it grows past that, the oldest
+ * tenth of the results is deleted.
+ * <p>
+ * A batch looks every card up in the cache first and hands the misses to the delegate's
+ * getContactInfoBatch() in one call, so the delegate can still share work between them.
+ * <p>
+ * The cache is configured with the following properties in the config.properties file:
+ * <ul>
+ * <li>cache.delegate.type - BusinessCardParser that does the parsing, DefaultBusinessCardParser by default.</li>
+ * <li>cache.maxEntries - maximum number of results held in memory, 10000 by default.</li>
+ * <li>cache.ttlSeconds - time to live of a result, 0 (the default) for no expiry.</li>
+ * <li>cache.directory - directory of the on-disk tier, no disk tier if not set.</li>
+ * <li>cache.maxDiskEntries - maximum number of results held on disk, 100000 by default.</li>
+ * </ul>
+ */
+public class CachingBusinessCardParser implements BusinessCardParser
+{
+    private static final Logger log = Logger.getLogger( CachingBusinessCardParser.class );
+
+    /**
+     * Prefix of the on-disk properties that hold the fields found by FieldExtractors.
+     */
+    private static final String EXTRA_PREFIX = "extra.";
+
+    /**
+     * BusinessCardParser used on a cache miss.
+     */
+    protected final BusinessCardParser delegate;
+
+    /**
+     * Maximum number of results held in memory.
+     */
+    protected final int maxEntries;
+
+    /**
+     * Time to live of a result in milliseconds, 0 for no expiry.
+     */
+    protected final long ttlMillis;
+
+    /**
+     * Directory of the on-disk tier, null if there is no disk tier.
+     */
+    protected final Path directory;
+
+    /**
+     * Maximum number of results held on disk.
+     */
+    protected final int maxDiskEntries;
+
+    /**
+     * Number of results held on disk.
+     */
+    private final AtomicInteger diskEntries = new AtomicInteger( );
+
+    /**
+     * In-memory LRU tier.  Access is guarded by synchronizing on the map.
+     */
+    private final LinkedHashMap<String, CacheEntry> entries;
+
+    /**
+     * Number of results served from memory.
+     */
+    private final AtomicLong hits = new AtomicLong( );
+
+    /**
+     * Number of results served from the on-disk tier.
+     */
+    private final AtomicLong diskHits = new AtomicLong( );
+
+    /**
+     * Number of documents parsed by the delegate.
+     */
+    private final AtomicLong misses = new AtomicLong( );
+
+    /**
+     * Number of results removed from memory because the cache was full or they expired.
+     */
+    private final AtomicLong evictions = new AtomicLong( );
+
+    /**
+     * Number of results deleted from disk because the disk tier was full or they expired.
+     */
+    private final AtomicLong diskEvictions = new AtomicLong( );
+
+    /**
+     * Instantiates a CachingBusinessCardParser configured by the cache.* properties.
+     */
+    public CachingBusinessCardParser( )
+    {
+        this( createDelegate( ),
+            Integer.parseInt( Configuration.getProperty( "cache.maxEntries", "10000" ) ),
+            Long.parseLong( Configuration.getProperty( "cache.ttlSeconds", "0" ) ) * 1000,
+            getConfiguredDirectory( ),
+            Integer.parseInt( Configuration.getProperty( "cache.maxDiskEntries", "100000" ) ) );
+    }
+
+    /**
+     * Instantiates a CachingBusinessCardParser that holds at most 100000 results on disk.
+     *
+     * @param delegate   BusinessCardParser used on a cache miss.
+     * @param maxEntries maximum number of results held in memory.
+     * @param ttlMillis  time to live of a result in milliseconds, 0 for no expiry.
+     * @param directory  directory of the on-disk tier, null for no disk tier.
+     */
+    public CachingBusinessCardParser( BusinessCardParser delegate, int maxEntries, long ttlMillis, Path directory )
+    {
+        this( delegate, maxEntries, ttlMillis, directory, 100000 );
+    }
+
+    /**
+     * Instantiates a CachingBusinessCardParser.
+     *
+     * @param delegate       BusinessCardParser used on a cache miss.
+     * @param maxEntries     maximum number of results held in memory.
+     * @param ttlMillis      time to live of a result in milliseconds, 0 for no expiry.
+     * @param directory      directory of the on-disk tier, null for no disk tier.
+     * @param maxDiskEntries maximum number of results held on disk.
+     */
+    public CachingBusinessCardParser( BusinessCardParser delegate, int maxEntries, long ttlMillis, Path directory,
+                                      int maxDiskEntries )
+    {
+        if( maxEntries < 1 )
+        {
+            throw new IllegalArgumentException( "Cache size must be at least 1, was " + maxEntries );
+        }
+
+        if( maxDiskEntries < 1 )
+        {
+            throw new IllegalArgumentException( "Disk cache size must be at least 1, was " + maxDiskEntries );
+        }
+
+        this.delegate = delegate;
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.directory = directory;
+        this.maxDiskEntries = maxDiskEntries;
+        this.entries = new LinkedHashMap<String, CacheEntry>( 16, 0.75f, true )
+        {
+            @Override
+            protected boolean removeEldestEntry( Map.Entry<String, CacheEntry> eldest )
+            {
+                if( size( ) > CachingBusinessCardParser.this.maxEntries )
+                {
+                    evictions.incrementAndGet( );
+                    return true;
+                }
+
+                return false;
+            }
+        };
+
+        if( directory != null )
+        {
+            try
+            {
+                Files.createDirectories( directory );
+                diskEntries.set( listDiskEntries( ).size( ) );
+            } catch ( IOException e )
+            {
+                throw new IllegalStateException( "Unable to create cache directory: " + directory, e );
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Returns the cached result if there is one, otherwise parses the document with the
+     * delegate and caches the result.  Degraded results are not cached, the next call may have
+     * the time to parse the card fully.
+     */
+    public ContactInfo getContactInfo( String document )
+    {
+        return getContactInfo( document, createKey( document ) );
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The document is copied into a String for its cache key, and a miss is handed to the
+     * delegate as it is.
+     */
+    @Override
+    public ContactInfo getContactInfo( CharSequence document )
+    {
+        return getContactInfo( document, createKey( document.toString( ) ) );
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Cards found in the cache are not parsed again.  The other cards are parsed with one call to
+     * the delegate's getContactInfoBatch(), and cards with the same cache key are only parsed once.
+     */
+    @Override
+    public List<ContactInfo> getContactInfoBatch( List<String> documents )
+    {
+        ContactInfo[] results = new ContactInfo[ documents.size( ) ];
+        Map<String, List<Integer>> missIndexes = new LinkedHashMap<>( );
+        List<String> missDocuments = new ArrayList<>( );
+
+        for ( int i = 0; i < results.length; i++ )
+        {
+            String key = createKey( documents.get( i ) );
+            List<Integer> indexes = missIndexes.get( key );
+
+            if( indexes == null )
+            {
+                results[ i ] = lookup( key );
+
+                if( results[ i ] != null )
+                {
+                    continue;
+                }
+
+                indexes = new ArrayList<>( 1 );
+                missIndexes.put( key, indexes );
+                missDocuments.add( documents.get( i ) );
+            }
+
+            indexes.add( i );
+        }
+
+        if( !missDocuments.isEmpty( ) )
+        {
+            misses.addAndGet( missDocuments.size( ) );
+            List<ContactInfo> parsed = delegate.getContactInfoBatch( missDocuments );
+            int next = 0;
+
+            for ( Map.Entry<String, List<Integer>> miss : missIndexes.entrySet( ) )
+            {
+                ContactInfo contactInfo = parsed.get( next++ );
+                store( miss.getKey( ), contactInfo );
+
+                for ( int index : miss.getValue( ) )
+                {
+                    results[ index ] = contactInfo;
+                }
+            }
+        }
+
+        return Arrays.asList( results );
+    }
+
+    /**
+     * Helper method that returns the cached result of a document, or parses it with the delegate
+     * and caches the result.
+     *
+     * @param document the business card.
+     * @param key      the cache key of the document.
+     * @return the ContactInfo.
+     */
+    private ContactInfo getContactInfo( CharSequence document, String key )
+    {
+        ContactInfo contactInfo = lookup( key );
+
+        if( contactInfo != null )
+        {
+            return contactInfo;
+        }
+
+        misses.incrementAndGet( );
+        contactInfo = delegate.getContactInfo( document );
+        store( key, contactInfo );
+
+        return contactInfo;
+    }
+
+    /**
+     * Helper method that returns a cached result from memory, or from disk and then keeps it in
+     * memory, and counts the hit.
+     *
+     * @param key the cache key.
+     * @return the cached ContactInfo, null if there is none.
+     */
+    private ContactInfo lookup( String key )
+    {
+        ContactInfo contactInfo = getFromMemory( key );
+
+        if( contactInfo != null )
+        {
+            hits.incrementAndGet( );
+            return contactInfo;
+        }
+
+        CacheEntry diskEntry = readFromDisk( key );
+
+        if( diskEntry != null )
+        {
+            diskHits.incrementAndGet( );
+            putInMemory( key, diskEntry );
+            return diskEntry.contactInfo;
+        }
+
+        return null;
+    }
+
+    /**
+     * Helper method that caches a result in both tiers, unless it is degraded.
+     *
+     * @param key         the cache key.
+     * @param contactInfo the result.
+     */
+    private void store( String key, ContactInfo contactInfo )
+    {
+        if( !contactInfo.isDegraded( ) )
+        {
+            putInMemory( key, new CacheEntry( contactInfo, System.currentTimeMillis( ) ) );
+            writeToDisk( key, contactInfo );
+        }
+    }
+
+    /**
+     * Returns the number of results served from memory.
+     *
+     * @return the in-memory hit count.
+     */
+    public long getHits( )
+    {
+        return hits.get( );
+    }
+
+    /**
+     * Returns the number of results served from the on-disk tier.
+     *
+     * @return the disk hit count.
+     */
+    public long getDiskHits( )
+    {
+        return diskHits.get( );
+    }
+
+    /**
+     * Returns the number of documents that were parsed by the delegate.
+     *
+     * @return the miss count.
+     */
+    public long getMisses( )
+    {
+        return misses.get( );
+    }
+
+    /**
+     * Returns the number of results removed from memory, either because the cache
+     * was full or because they expired.
+     *
+     * @return the eviction count.
+     */
+    public long getEvictions( )
+    {
+        return evictions.get( );
+    }
+
+    /**
+     * Returns the number of results deleted from disk, either because the disk tier was full or
+     * because they expired.
+     *
+     * @return the disk eviction count.
+     */
+    public long getDiskEvictions( )
+    {
+        return diskEvictions.get( );
+    }
+
+    /**
+     * Returns the number of results currently held on disk.
+     *
+     * @return the on-disk size, 0 if there is no disk tier.
+     */
+    public int getDiskSize( )
+    {
+        return diskEntries.get( );
+    }
+
+    /**
+     * Returns the number of results currently held in memory.
+     *
+     * @return the in-memory size.
+     */
+    public int size( )
+    {
+        synchronized ( entries )
+        {
+            return entries.size( );
+        }
+    }
+
+    /**
+     * Normalizes the document and returns the hex encoded SHA-256 hash of the result.
+     *
+     * @param document A string representation of a business card.
+     * @return the cache key.
+     */
+    protected String createKey( String document )
+    {
+        StringJoiner normalized = new StringJoiner( "\n" );
+
+        for ( String line : document.split( "\\r?\\n" ) )
+        {
+            String collapsed = line.trim( ).replaceAll( "\\s+", " " );
+
+            if( !collapsed.isEmpty( ) )
+            {
+                normalized.add( collapsed );
+            }
+        }
+
+        try
+        {
+            byte[] hash = MessageDigest.getInstance( "SHA-256" ).digest( normalized.toString( ).getBytes( StandardCharsets.UTF_8 ) );
+            StringBuilder key = new StringBuilder( hash.length * 2 );
+
+            for ( byte b : hash )
+            {
+                key.append( Character.forDigit( ( b >> 4 ) & 0xF, 16 ) ).append( Character.forDigit( b & 0xF, 16 ) );
+            }
+
+            return key.toString( );
+        } catch ( NoSuchAlgorithmException e )
+        {
+            throw new IllegalStateException( "SHA-256 is not available.", e );
+        }
+    }
+
+    /**
+     * Helper method that returns an unexpired result from memory.
+     *
+     * @param key the cache key.
+     * @return the cached ContactInfo, null if there is none.
+     */
+    private ContactInfo getFromMemory( String key )
+    {
+        synchronized ( entries )
+        {
+            CacheEntry entry = entries.get( key );
+
+            if( entry == null )
+            {
+                return null;
+            }
+
+            if( isExpired( entry.createdMillis ) )
+            {
+                entries.remove( key );
+                evictions.incrementAndGet( );
+                return null;
+            }
+
+            return entry.contactInfo;
+        }
+    }
+
+    /**
+     * Helper method that adds a result to memory, evicting the least recently used result if full.
+     *
+     * @param key   the cache key.
+     * @param entry the result and the time it was parsed.
+     */
+    private void putInMemory( String key, CacheEntry entry )
+    {
+        synchronized ( entries )
+        {
+            entries.put( key, entry );
+        }
+    }
+
+    /**
+     * Helper method that reads an unexpired result from the on-disk tier.  The file's modification
+     * time is the time the result was parsed.  An expired file is deleted.
+     *
+     * @param key the cache key.
+     * @return the cached result, null if there is no disk tier or no unexpired result.
+     */
+    private CacheEntry readFromDisk( String key )
+    {
+        if( directory == null )
+        {
+            return null;
+        }
+
+        Path file = directory.resolve( key + ".properties" );
+
+        try
+        {
+            long createdMillis = Files.getLastModifiedTime( file ).toMillis( );
+
+            if( isExpired( createdMillis ) )
+            {
+                deleteDiskEntry( file );
+                return null;
+            }
+
+            Properties properties = new Properties( );
+
+            try ( InputStream in = Files.newInputStream( file ) )
+            {
+                properties.load( in );
+            }
+
+            Map<String, String> extras = new LinkedHashMap<>( );
+
+            for ( String name : properties.stringPropertyNames( ) )
+            {
+                if( name.startsWith( EXTRA_PREFIX ) )
+                {
+                    extras.put( name.substring( EXTRA_PREFIX.length( ) ), properties.getProperty( name ) );
+                }
+            }
+
+            return new CacheEntry( new ContactInfo( properties.getProperty( "name" ),
+                properties.getProperty( "phoneNumber" ),
+                properties.getProperty( "emailAddress" ),
+                extras ), createdMillis );
+        } catch ( IOException e )
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Helper method that writes a result to the on-disk tier.  The file is written to a temporary
+     * file first and then moved into place so readers never see a partial result.
+     *
+     * @param key         the cache key.
+     * @param contactInfo the result.
+     */
+    private void writeToDisk( String key, ContactInfo contactInfo )
+    {
+        if( directory == null )
+        {
+            return;
+        }
+
+        Properties properties = new Properties( );
+        setIfNotNull( properties, "name", contactInfo.getName( ) );
+        setIfNotNull( properties, "phoneNumber", contactInfo.getPhoneNumber( ) );
+        setIfNotNull( properties, "emailAddress", contactInfo.getEmailAddress( ) );
+
+        for ( Map.Entry<String, String> extra : contactInfo.getExtras( ).entrySet( ) )
+        {
+            setIfNotNull( properties, EXTRA_PREFIX + extra.getKey( ), extra.getValue( ) );
+        }
+
+        try
+        {
+            Path temp = Files.createTempFile( directory, key, ".tmp" );
+            Path file = directory.resolve( key + ".properties" );
+            boolean added = !Files.exists( file );
+
+            try ( OutputStream out = Files.newOutputStream( temp ) )
+            {
+                properties.store( out, null );
+            }
+
+            Files.move( temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+
+            if( added && diskEntries.incrementAndGet( ) > maxDiskEntries )
+            {
+                trimDisk( );
+            }
+        } catch ( IOException e )
+        {
+            log.error( "Unable to write cache entry to " + directory, e );
+        }
+    }
+
+    /**
+     * Helper method that deletes the oldest results from disk until a tenth of maxDiskEntries is
+     * free, so the directory is only listed once every maxDiskEntries / 10 new results.  Results
+     * are never refreshed on disk, so the oldest files are also the ones that expire first.
+     *
+     * @throws IOException thrown if the directory cannot be listed.
+     */
+    private synchronized void trimDisk( ) throws IOException
+    {
+        List<Path> files = listDiskEntries( );
+        int target = maxDiskEntries - maxDiskEntries / 10;
+
+        if( files.size( ) <= maxDiskEntries )
+        {
+            diskEntries.set( files.size( ) );
+            return;
+        }
+
+        Map<Path, Long> modified = new HashMap<>( );
+
+        for ( Path file : files )
+        {
+            modified.put( file, Files.getLastModifiedTime( file ).toMillis( ) );
+        }
+
+        files.sort( Comparator.comparing( modified::get ) );
+        diskEntries.set( files.size( ) );
+
+        for ( int i = 0; i < files.size( ) - target; i++ )
+        {
+            deleteDiskEntry( files.get( i ) );
+        }
+    }
+
+    /**
+     * Helper method that deletes a result from disk and counts the eviction.
+     *
+     * @param file the result file.
+     * @throws IOException thrown if the file cannot be deleted.
+     */
+    private void deleteDiskEntry( Path file ) throws IOException
+    {
+        if( Files.deleteIfExists( file ) )
+        {
+            diskEntries.decrementAndGet( );
+            diskEvictions.incrementAndGet( );
+        }
+    }
+
+    /**
+     * Helper method that lists the result files of the on-disk tier.
+     *
+     * @return the result files.
+     * @throws IOException thrown if the directory cannot be listed.
+     */
+    private List<Path> listDiskEntries( ) throws IOException
+    {
+        try ( Stream<Path> files = Files.list( directory ) )
+        {
+            return files.filter( file -> file.getFileName( ).toString( ).endsWith( ".properties" ) )
+                .collect( Collectors.toList( ) );
+        }
+    }
+
+    /**
+     * Helper method that checks whether a result created at the given time has expired.
+     *
+     * @param createdMillis creation time in milliseconds since the epoch.
+     * @return true if the time to live has passed.
+     */
+    private boolean isExpired( long createdMillis )
+    {
+        return ttlMillis > 0 && System.currentTimeMillis( ) - createdMillis > ttlMillis;
+    }
+
+    /**
+     * Helper method that sets a property, skipping null values.
+     *
+     * @param properties the properties to update.
+     * @param key        the property key.
+     * @param value      the property value, may be null.
+     */
+    private static void setIfNotNull( Properties properties, String key, String value )
+    {
+        if( value != null )
+        {
+            properties.setProperty( key, value );
+        }
+    }
+
+    /**
+     * Helper method that instantiates the parser set by the cache.delegate.type property.
+     *
+     * @return the delegate BusinessCardParser.
+     */
+    private static BusinessCardParser createDelegate( )
+    {
+        String delegateClasspath = Configuration.getProperty( "cache.delegate.type",
+            DefaultBusinessCardParser.class.getName( ) );
+
+        if( delegateClasspath.equals( CachingBusinessCardParser.class.getName( ) ) )
+        {
+            throw new IllegalArgumentException( "cache.delegate.type cannot be the CachingBusinessCardParser." );
+        }
+
+        return BusinessCardParserFactory.create( delegateClasspath );
+    }
+
+    /**
+     * Helper method that returns the directory set by the cache.directory property.
+     *
+     * @return the cache directory, null if it is not set.
+     */
+    private static Path getConfiguredDirectory( )
+    {
+        String directory = Configuration.getProperty( "cache.directory", "" ).trim( );
+
+        return directory.isEmpty( ) ? null : Paths.get( directory );
+    }
+
+    /**
+     * A cached result and the time it was created.
+     */
+    private static class CacheEntry
+    {
+        private final ContactInfo contactInfo;
+
+        private final long createdMillis;
+
+        CacheEntry( ContactInfo contactInfo, long createdMillis )
+        {
+            this.contactInfo = contactInfo;
+            this.createdMillis = createdMillis;
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package com.asymmetrik.ocr.parser.impl;
+
+import java.util.Arrays;
+
+/**
+ * The text of a business card with an index built in a single pass, shared by the name, phone and
+ * email extractors so the card is scanned once instead of once per field.
+ * <p>
+ * The index holds the start and end of every line, the number of digits on every line and the
+ * positions of every '@'.  Lines end at '\n', and a '\r' before it is not part of the line.  Digits
+ * are the characters Character.isDigit() accepts.
+ * <p>
+ * A CardDocument is also a CharSequence over the original text, so FieldExtractors receive it and
+ * can use the index.  It is immutable and can be read from several threads.
+ */
+public final class CardDocument implements CharSequence
+{
+    /**
+     * Line flag set if the line holds an '@'.
+     */
+    private static final int HAS_AT = 1;
+
+    /**
+     * Line flag set if the line holds a plus sign, which an international phone number starts with.
+     */
+    private static final int HAS_PLUS = 2;
+
+    /**
+     * The card text.
+     */
+    private final CharSequence text;
+
+    /**
+     * Start offset of every line.
+     */
+    private final int[] lineStarts;
+
+    /**
+     * End offset of every line, excluding the line break.
+     */
+    private final int[] lineEnds;
+
+    /**
+     * Number of digits on every line.
+     */
+    private final int[] lineDigits;
+
+    /**
+     * HAS_AT and HAS_PLUS flags of every line.
+     */
+    private final int[] lineFlags;
+
+    /**
+     * Offsets of every '@', in order.
+     */
+    private final int[] atPositions;
+
+    /**
+     * The text as a String, created on first use unless the text already is one.
+     */
+    private String string;
+
+    /**
+     * Instantiates a CardDocument and builds its index.
+     *
+     * @param text the card text.
+     */
+    private CardDocument( CharSequence text )
+    {
+        this.text = text;
+        this.string = text instanceof String ? ( String ) text : null;
+
+        int length = text.length( );
+        int lines = 0;
+        int[] starts = new int[ 16 ];
+        int[] ends = new int[ 16 ];
+        int[] digits = new int[ 16 ];
+        int[] flags = new int[ 16 ];
+        int[] ats = new int[ 4 ];
+        int atCount = 0;
+        int lineStart = 0;
+        int lineDigitCount = 0;
+        int lineFlag = 0;
+
+        for ( int i = 0; i <= length; i++ )
+        {
+            char c = i < length ? text.charAt( i ) : '\n';
+            boolean digit = c >= '0' && c <= '9' || c > 127 && Character.isDigit( c );
+
+            if( digit )
+            {
+                lineDigitCount++;
+            } else if( c == '@' )
+            {
+                ats = ensureCapacity( ats, atCount );
+                ats[ atCount++ ] = i;
+                lineFlag |= HAS_AT;
+            } else if( c == '+' || c == '\uFF0B' )
+            {
+                lineFlag |= HAS_PLUS;
+            } else if( c == '\n' )
+            {
+                starts = ensureCapacity( starts, lines );
+                ends = ensureCapacity( ends, lines );
+                digits = ensureCapacity( digits, lines );
+                flags = ensureCapacity( flags, lines );
+                starts[ lines ] = lineStart;
+                ends[ lines ] = i > lineStart && text.charAt( i - 1 ) == '\r' ? i - 1 : i;
+                digits[ lines ] = lineDigitCount;
+                flags[ lines ] = lineFlag;
+                lines++;
+
+                lineStart = i + 1;
+                lineDigitCount = 0;
+                lineFlag = 0;
+            }
+        }
+
+        this.lineStarts = Arrays.copyOf( starts, lines );
+        this.lineEnds = Arrays.copyOf( ends, lines );
+        this.lineDigits = Arrays.copyOf( digits, lines );
+        this.lineFlags = Arrays.copyOf( flags, lines );
+        this.atPositions = Arrays.copyOf( ats, atCount );
+    }
+
+    /**
+     * Returns the CardDocument of a text, building its index unless the text already is one.
+     *
+     * @param text the card text.
+     * @return the document.
+     */
+    public static CardDocument of( CharSequence text )
+    {
+        return text instanceof CardDocument ? ( CardDocument ) text : new CardDocument( text );
+    }
+
+    /**
+     * Returns the number of lines.  Text after the last line break is a line, so an empty card has
+     * one empty line.
+     *
+     * @return the line count.
+     */
+    public int getLineCount( )
+    {
+        return lineStarts.length;
+    }
+
+    /**
+     * Returns a line.
+     *
+     * @param line the line index.
+     * @return a view of the line, without the line break.
+     */
+    public CharSequence getLine( int line )
+    {
+        return text.subSequence( lineStarts[ line ], lineEnds[ line ] );
+    }
+
+    /**
+     * Returns the offset a line starts at.
+     *
+     * @param line the line index.
+     * @return the start offset.
+     */
+    public int getLineStart( int line )
+    {
+        return lineStarts[ line ];
+    }
+
+    /**
+     * Returns the offset a line ends at.
+     *
+     * @param line the line index.
+     * @return the end offset, excluding the line break.
+     */
+    public int getLineEnd( int line )
+    {
+        return lineEnds[ line ];
+    }
+
+    /**
+     * Returns the index of the line that holds an offset.
+     *
+     * @param offset the offset.
+     * @return the line index, a line break belongs to the line it ends.
+     */
+    public int getLineOf( int offset )
+    {
+        int line = Arrays.binarySearch( lineStarts, offset );
+
+        return line >= 0 ? line : -line - 2;
+    }
+
+    /**
+     * Returns the number of digits on a line.
+     *
+     * @param line the line index.
+     * @return the digit count.
+     */
+    public int getDigitCount( int line )
+    {
+        return lineDigits[ line ];
+    }
+
+    /**
+     * Returns whether a line holds an '@'.
+     *
+     * @param line the line index.
+     * @return true if the line holds an '@'.
+     */
+    public boolean hasAt( int line )
+    {
+        return ( lineFlags[ line ] & HAS_AT ) != 0;
+    }
+
+    /**
+     * Returns whether a line holds a plus sign.
+     *
+     * @param line the line index.
+     * @return true if the line holds a plus sign.
+     */
+    public boolean hasPlus( int line )
+    {
+        return ( lineFlags[ line ] & HAS_PLUS ) != 0;
+    }
+
+    /**
+     * Returns the position of the next '@'.
+     *
+     * @param from the offset to search from.
+     * @return the offset of the first '@' at or after from, -1 if there is none.
+     */
+    public int nextAt( int from )
+    {
+        int index = Arrays.binarySearch( atPositions, from );
+        index = index >= 0 ? index : -index - 1;
+
+        return index < atPositions.length ? atPositions[ index ] : -1;
+    }
+
+    /**
+     * Returns the first line that is not blank, to identify the card in log messages without
+     * copying all of it.
+     *
+     * @return the trimmed line, empty if every line is blank.
+     */
+    public String getFirstLine( )
+    {
+        for ( int line = 0; line < getLineCount( ); line++ )
+        {
+            String trimmed = getLine( line ).toString( ).trim( );
+
+            if( !trimmed.isEmpty( ) )
+            {
+                return trimmed;
+            }
+        }
+
+        return "";
+    }
+
+    @Override
+    public int length( )
+    {
+        return text.length( );
+    }
+
+    @Override
+    public char charAt( int index )
+    {
+        return text.charAt( index );
+    }
+
+    @Override
+    public CharSequence subSequence( int start, int end )
+    {
+        return text.subSequence( start, end );
+    }
+
+    /**
+     * Returns the text as a String.  The copy is made once, and not at all if the text is a String.
+     *
+     * @return the text.
+     */
+    @Override
+    public String toString( )
+    {
+        String result = string;
+
+        if( result == null )
+        {
+            result = text.toString( );
+            string = result;
+        }
+
+        return result;
+    }
+
+    /**
+     * Helper method that grows an array so it can hold an element at an index.
+     *
+     * @param array the array.
+     * @param index the index.
+     * @return the array, or a copy twice as large if it was full.
+     */
+    private static int[] ensureCapacity( int[] array, int index )
+    {
+        return index < array.length ? array : Arrays.copyOf( array, array.length * 2 );
+    }
+}
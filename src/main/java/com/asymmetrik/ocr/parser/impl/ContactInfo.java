@@ -1,12 +1,22 @@
 package com.asymmetrik.ocr.parser.impl;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
 import java.util.StringJoiner;
 
 /**
- * An immutable object for storing a name, email address and phone number as strings.
+ * An immutable object for storing a name, email address and phone number as strings, and the
+ * fields found by any FieldExtractors.
  */
 public class ContactInfo
 {
+    /**
+     * Line separator used by toString(), read once instead of on every call.
+     */
+    private static final String LINE_SEPARATOR = System.lineSeparator( );
+
     /**
      * Person's name.
      */
@@ -22,6 +32,16 @@ public class ContactInfo
      */
     protected String emailAddress;
 
+    /**
+     * Fields found by FieldExtractors, by field name.  Empty if there are none.
+     */
+    protected Map<String, String> extras;
+
+    /**
+     * Whether the result came from a fallback because parsing took too long.
+     */
+    protected boolean degraded;
+
     /**
      * Instantiates this instance of a ContactInfo object.
      *
@@ -32,10 +52,46 @@ public class ContactInfo
     public ContactInfo( String name,
                         String phoneNumber,
                         String emailAddress )
+    {
+        this( name, phoneNumber, emailAddress, Collections.emptyMap( ) );
+    }
+
+    /**
+     * Instantiates this instance of a ContactInfo object with additional fields.
+     *
+     * @param name         Person's name as a String.
+     * @param phoneNumber  Person's phone number as a String.
+     * @param emailAddress Person's email address as a String.
+     * @param extras       Fields found by FieldExtractors, by field name.  The map is copied.
+     */
+    public ContactInfo( String name,
+                        String phoneNumber,
+                        String emailAddress,
+                        Map<String, String> extras )
+    {
+        this( name, phoneNumber, emailAddress, extras, false );
+    }
+
+    /**
+     * Instantiates this instance of a ContactInfo object that may be degraded.
+     *
+     * @param name         Person's name as a String.
+     * @param phoneNumber  Person's phone number as a String.
+     * @param emailAddress Person's email address as a String.
+     * @param extras       Fields found by FieldExtractors, by field name.  The map is copied.
+     * @param degraded     true if a field came from a cheaper fallback because parsing took too long.
+     */
+    public ContactInfo( String name,
+                        String phoneNumber,
+                        String emailAddress,
+                        Map<String, String> extras,
+                        boolean degraded )
     {
         this.name = name;
         this.phoneNumber = phoneNumber;
         this.emailAddress = emailAddress;
+        this.extras = extras.isEmpty( ) ? Collections.emptyMap( ) : Collections.unmodifiableMap( new LinkedHashMap<>( extras ) );
+        this.degraded = degraded;
     }
 
     /**
@@ -68,6 +124,77 @@ public class ContactInfo
         return emailAddress;
     }
 
+    /**
+     * Returns the fields found by FieldExtractors.
+     *
+     * @return an unmodifiable map from field name to value, in the order the extractors were added.
+     */
+    public Map<String, String> getExtras( )
+    {
+        return extras;
+    }
+
+    /**
+     * Returns a field found by a FieldExtractor.
+     *
+     * @param field the field name.
+     * @return the value, null if the field was not found.
+     */
+    public String getExtra( String field )
+    {
+        return extras.get( field );
+    }
+
+    /**
+     * Returns whether a field came from a cheaper fallback because parsing took too long, e.g. a
+     * name guessed from capitalization when NER ran past its deadline.
+     *
+     * @return true if the result is degraded.
+     */
+    public boolean isDegraded( )
+    {
+        return degraded;
+    }
+
+    /**
+     * Two ContactInfo objects are equal if their name, phone number, email address and extras are equal and both are degraded or not.
+     *
+     * @param other the object to compare with.
+     * @return true if the objects hold the same contact information.
+     */
+    @Override
+    public boolean equals( Object other )
+    {
+        if( this == other )
+        {
+            return true;
+        }
+
+        if( other == null || getClass( ) != other.getClass( ) )
+        {
+            return false;
+        }
+
+        ContactInfo that = ( ContactInfo ) other;
+
+        return Objects.equals( name, that.name )
+            && Objects.equals( phoneNumber, that.phoneNumber )
+            && Objects.equals( emailAddress, that.emailAddress )
+            && extras.equals( that.extras )
+            && degraded == that.degraded;
+    }
+
+    /**
+     * Returns a hash code based on the name, phone number, email address, extras and degraded flag.
+     *
+     * @return the hash code.
+     */
+    @Override
+    public int hashCode( )
+    {
+        return Objects.hash( name, phoneNumber, emailAddress, extras, degraded );
+    }
+
     /**
      * Overriden to better format the string represetation
      *
@@ -75,10 +202,21 @@ public class ContactInfo
      */
     public String toString( )
     {
-        StringJoiner joiner = new StringJoiner( System.getProperty( "line.separator" ) );
+        StringJoiner joiner = new StringJoiner( LINE_SEPARATOR );
         joiner.add( "Name: " + name );
         joiner.add( "Phone: " + phoneNumber );
         joiner.add( "Email: " + emailAddress );
+
+        for ( Map.Entry<String, String> extra : extras.entrySet( ) )
+        {
+            joiner.add( extra.getKey( ) + ": " + extra.getValue( ) );
+        }
+
+        if( degraded )
+        {
+            joiner.add( "Degraded: true" );
+        }
+
         return joiner.toString( );
     }
 }
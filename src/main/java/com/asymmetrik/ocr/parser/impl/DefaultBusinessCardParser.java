@@ -1,36 +1,74 @@
 package com.asymmetrik.ocr.parser.impl;
 
+import com.asymmetrik.ocr.parser.Configuration;
 import com.google.i18n.phonenumbers.PhoneNumberMatch;
 import com.google.i18n.phonenumbers.PhoneNumberUtil;
 import edu.stanford.nlp.ling.CoreAnnotations;
 import edu.stanford.nlp.ling.CoreLabel;
 import edu.stanford.nlp.pipeline.Annotation;
-import edu.stanford.nlp.pipeline.StanfordCoreNLP;
 import edu.stanford.nlp.util.CoreMap;
-import edu.stanford.nlp.util.logging.RedwoodConfiguration;
+import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.StringJoiner;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 /**
  * The default implementation of a BusinessCardParser
  * <p>
  * This BusinessCardParser uses the Stanford CoreNLP library to identify a person's
  * name within the business card text.  The parser assumes that the business card
- * text will be formatted such that each sentence is on its own line.  Once the
- * text has been tokenized, split, parsed and tagged, the BusinessCardParser
- * traverses the tokens looking for ones that have been tagged as PERSON and returns
- * a compilation of PERSON tokens that are part of the same sentence.
+ * text will be formatted such that each sentence is on its own line.  A LineClassifier
+ * first sets aside the lines that hold a phone number, email address or street address and
+ * ranks the remaining lines.  The candidate lines are then annotated one at a time, and
+ * the PERSON tokens of the first line that contains any are returned.  If none does, the lines
+ * set aside are annotated together, since a name can share a line with a phone number or email
+ * address.  Common names that a NameGazetteer recognizes with confidence are returned without
+ * running NER at all.
  * <p>
  * Phone numbers are parsed with the libphonenumber library from Google.
  * <p>
- * Emails are parsed via regex.
+ * Emails are parsed with an EmailScanner, which matches the same addresses as
+ * an RFC 5322 regex in linear time.
  * <p>
- * The stanfordcorenlp.properties file contains the properties used by
- * the StanfordCoreNLP pipeline.
+ * Additional fields are found by FieldExtractors, loaded with a ServiceLoader or added with
+ * addFieldExtractor().  For a single card, the phone, email and additional fields are extracted
+ * on a shared executor while the name is parsed on the calling thread, unless extract.concurrent
+ * is false.
+ * <p>
+ * NER on a single card is bounded by name.deadlineMillis, once the first annotation has warmed up
+ * the pipeline.  A card that runs past it, usually long OCR garbage, gets a name guessed by
+ * LineClassifier.guessName() instead and is marked degraded.  Batches are not bounded.
+ * StanfordCoreNLP does not stop an abandoned annotation, so it keeps running in the background
+ * without its PipelinePool permit; while name.maxAbandoned of them are still running on the same
+ * PipelinePool, NER is skipped and names are guessed right away.
+ * <p>
+ * The properties used by the StanfordCoreNLP pipeline are selected with a
+ * PipelineProfile, see the corenlp.profile property in config.properties.
+ * <p>
+ * This class is thread-safe.  A single instance can be shared by any number of threads;
+ * the shared StanfordCoreNLP pipeline is thread-safe and a PipelinePool bounds how many threads
+ * annotate with it at once, and the line classifier, email scanner and libphonenumber do not
+ * keep any per-call state.
+ * <p>
+ * The time spent in every stage is recorded in the process-wide ParserMetrics, see metrics.enabled.
  */
 public class DefaultBusinessCardParser implements BusinessCardParser
 {
@@ -39,28 +77,152 @@ public class DefaultBusinessCardParser implements BusinessCardParser
     /**
      * Regex used to parse an email address.  This is an RFC 5322 compliant regex.
      */
-    protected static final String EMAIL_REGEX = "(?:[a-z0-9!#$%&'*+/=?^_`{|}~-]+(?:\\.[a-z0-9!#$%&'*+/=?^_`{|}~-]+)*|\"(?:[\\x01-\\x08\\x0b\\x0c\\x0e-\\x1f\\x21\\x23-\\x5b\\x5d-\\x7f]|\\\\[\\x01-\\x09\\x0b\\x0c\\x0e-\\x7f])*\")@(?:(?:[a-z0-9](?:[a-z0-9-]*[a-z0-9])?\\.)+[a-z0-9](?:[a-z0-9-]*[a-z0-9])?|\\[(?:(?:(2(5[0-5]|[0-4][0-9])|1[0-9][0-9]|[1-9]?[0-9]))\\.){3}(?:(2(5[0-5]|[0-4][0-9])|1[0-9][0-9]|[1-9]?[0-9])|[a-z0-9-]*[a-z0-9]:(?:[\\x01-\\x08\\x0b\\x0c\\x0e-\\x1f\\x21-\\x5a\\x53-\\x7f]|\\\\[\\x01-\\x09\\x0b\\x0c\\x0e-\\x7f])+)\\])";
+    protected static final String EMAIL_REGEX = EmailScanner.EMAIL_REGEX;
+
+    /**
+     * Characters of a name or email address per OCR error tolerated when reusing a name within a
+     * group of near-duplicate cards.
+     */
+    private static final int DUPLICATE_CHARS_PER_EDIT = 8;
+
+    /**
+     * Set by parseName() when it guesses the name on the calling thread, so getContactInfo() can
+     * mark the result degraded.
+     */
+    private static final ThreadLocal<Boolean> NAME_GUESSED = new ThreadLocal<>( );
+
+    /**
+     * Profile that selects the StanfordCoreNLP pipeline properties.
+     */
+    protected PipelineProfile profile;
+
+    /**
+     * Pool of Stanford CoreNLP pipelines used for name recognition, null until the first card
+     * that needs NER if pipeline.lazyLoad is true.
+     */
+    protected volatile PipelinePool pipelinePool;
 
     /**
-     * Stanford CoreNLP pipeline used for
+     * Scanner used for extracting the email address
      */
-    protected StanfordCoreNLP pipeline;
+    protected EmailScanner emailScanner;
 
     /**
-     * Regex Pattern object used for extracting the email address
+     * Ordered list of default regions used to find phone numbers, see the phone.regions property.
      */
-    protected Pattern emailPattern;
+    protected List<String> phoneRegions;
+
+    /**
+     * Classifier used to select the lines that are annotated when parsing the name.
+     */
+    protected LineClassifier lineClassifier;
+
+    /**
+     * Per-stage latencies and miss counts, null if metrics are turned off.
+     */
+    protected ParserMetrics metrics;
+
+    /**
+     * Lexicon used to recognize common names without NER, null if name.gazetteer.enabled is false.
+     */
+    protected NameGazetteer nameGazetteer;
+
+    /**
+     * Number of threads StanfordCoreNLP annotates a batch on.
+     */
+    protected int batchAnnotateThreads;
+
+    /**
+     * Groups near-duplicate cards of a batch, null if batch.dedup.enabled is false.
+     */
+    protected NearDuplicateGrouper nearDuplicateGrouper;
+
+    /**
+     * Extractors of the additional fields, in the order they were added.
+     */
+    protected List<FieldExtractor> fieldExtractors;
+
+    /**
+     * Executor the fields other than the name are extracted on, null to extract them on the
+     * calling thread.
+     */
+    protected ExecutorService fieldExecutor;
+
+    /**
+     * Longest time NER may spend on the lines of a single card in nanoseconds, 0 for no limit.
+     */
+    protected long nameDeadlineNanos;
+
+    /**
+     * Whether an annotation has finished.  The first one also initializes annotators lazily, so
+     * the deadline only applies after it.
+     */
+    private volatile boolean annotated;
+
+    /**
+     * Instantiates an instance of this DefaultBusinessCardParser with the PipelineProfile
+     * set by the corenlp.profile property.
+     */
+    public DefaultBusinessCardParser( )
+    {
+        this( PipelineProfile.fromConfiguration( ) );
+    }
 
     /**
      * Instantiates an instance of this DefaultBusinessCardParser.
      * <p>
-     * Initializes the Stanford CoreNLP pipeline and creates the Pattern object
-     * for email parsing.
+     * Creates the EmailScanner for email parsing.  The shared Stanford CoreNLP pipeline is looked
+     * up when the first card needs NER, or right away if pipeline.lazyLoad is false.
+     *
+     * @param profile profile that selects the StanfordCoreNLP pipeline properties.
      */
-    public DefaultBusinessCardParser( )
+    public DefaultBusinessCardParser( PipelineProfile profile )
+    {
+        this.profile = profile;
+
+        if( !Boolean.parseBoolean( Configuration.getProperty( "pipeline.lazyLoad", "true" ) ) )
+        {
+            pipelinePool = initializePipelinePool( );
+        }
+
+        emailScanner = new EmailScanner( );
+        lineClassifier = new LineClassifier( );
+        metrics = ParserMetrics.getDefault( );
+        nameGazetteer = Boolean.parseBoolean( Configuration.getProperty( "name.gazetteer.enabled", "true" ) )
+            ? NameGazetteer.getDefault( ) : null;
+        batchAnnotateThreads = Integer.parseInt( Configuration.getProperty( "batch.annotateThreads",
+            String.valueOf( Runtime.getRuntime( ).availableProcessors( ) ) ) );
+        nearDuplicateGrouper = Boolean.parseBoolean( Configuration.getProperty( "batch.dedup.enabled", "true" ) )
+            ? new NearDuplicateGrouper( Double.parseDouble( Configuration.getProperty( "batch.dedup.threshold", "0.6" ) ) ) : null;
+        phoneRegions = Arrays.asList( Configuration.getProperty( "phone.regions", "ZZ,US" ).trim( ).split( "\\s*,\\s*" ) );
+        nameDeadlineNanos = TimeUnit.MILLISECONDS.toNanos( Long.parseLong( Configuration.getProperty( "name.deadlineMillis", "5000" ) ) );
+        fieldExtractors = new CopyOnWriteArrayList<>( );
+        fieldExecutor = Boolean.parseBoolean( Configuration.getProperty( "extract.concurrent", "true" ) )
+            ? FieldExecutorHolder.INSTANCE : null;
+
+        for ( FieldExtractor extractor : FieldExtractor.loadAll( ) )
+        {
+            addFieldExtractor( extractor );
+        }
+    }
+
+    /**
+     * Adds an extractor of an additional field, found on every card parsed after this call.
+     *
+     * @param extractor the extractor.
+     * @throws IllegalArgumentException thrown if an extractor of the same field was already added.
+     */
+    public synchronized void addFieldExtractor( FieldExtractor extractor )
     {
-        pipeline = initializePipeline( );
-        emailPattern = Pattern.compile( EMAIL_REGEX );
+        for ( FieldExtractor added : fieldExtractors )
+        {
+            if( added.getField( ).equals( extractor.getField( ) ) )
+            {
+                throw new IllegalArgumentException( "A FieldExtractor for " + extractor.getField( ) + " was already added." );
+            }
+        }
+
+        fieldExtractors.add( extractor );
     }
 
     /**
@@ -68,42 +230,688 @@ public class DefaultBusinessCardParser implements BusinessCardParser
      */
     public ContactInfo getContactInfo( String document )
     {
-        return new ContactInfo( parseName( document ),
-                                  parsePhone( document ),
-                                  parseEmailAddress( document ) );
+        return getContactInfo( ( CharSequence ) document );
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The phone, email and additional field extractors are started on the fieldExecutor first, and
+     * the name is parsed with parseName() on the calling thread meanwhile, so a card takes about as
+     * long as its slowest field instead of the sum of all of them.  The document is indexed once as
+     * a CardDocument that all the extractors share, so it must be safe to read from several
+     * threads.  Only the name extractor needs a String for NER, so the document is copied at most
+     * once for it.
+     */
+    @Override
+    public ContactInfo getContactInfo( CharSequence text )
+    {
+        long start = System.nanoTime( );
+        CardDocument document = CardDocument.of( text );
+        CompletableFuture<String> phone = extractAsync( ( ) -> parsePhone( document ), ParserMetrics.Stage.PHONE );
+        CompletableFuture<String> email = extractAsync( ( ) -> parseEmailAddress( document ), ParserMetrics.Stage.EMAIL );
+        List<CompletableFuture<String>> extras = new ArrayList<>( fieldExtractors.size( ) );
+        List<FieldExtractor> extractors = new ArrayList<>( fieldExtractors );
+
+        for ( FieldExtractor extractor : extractors )
+        {
+            extras.add( extractAsync( ( ) -> extractField( extractor, document ), ParserMetrics.Stage.EXTRAS ) );
+        }
+
+        long nameStart = System.nanoTime( );
+        NAME_GUESSED.remove( );
+        String name = parseName( document );
+        boolean degraded = NAME_GUESSED.get( ) != null;
+        NAME_GUESSED.remove( );
+
+        if( metrics != null )
+        {
+            metrics.record( ParserMetrics.Stage.NAME, System.nanoTime( ) - nameStart );
+        }
+
+        Map<String, String> extraValues = extractors.isEmpty( ) ? Collections.emptyMap( ) : new LinkedHashMap<>( );
+
+        for ( int i = 0; i < extractors.size( ); i++ )
+        {
+            putIfNotNull( extraValues, extractors.get( i ).getField( ), join( extras.get( i ) ) );
+        }
+
+        ContactInfo contactInfo = new ContactInfo( name, join( phone ), join( email ), extraValues, degraded );
+
+        if( metrics != null )
+        {
+            if( degraded )
+            {
+                metrics.recordDegraded( );
+            }
+
+            metrics.recordCard( contactInfo, System.nanoTime( ) - start );
+        }
+
+        return contactInfo;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Every card is first scanned for its phone number, email address and name candidates, and the
+     * NameGazetteer resolves the names it is confident about.  Unless batch.dedup.enabled is false,
+     * the remaining cards are grouped with a NearDuplicateGrouper and only the first card of each
+     * group goes to NER.  The other cards of a group reuse its name if the name and the email
+     * address are also written on them, allowing for a few OCR errors; otherwise they go to NER too.
+     * <p>
+     * The name.deadlineMillis deadline does not apply, a batch annotates many cards in one call.
+     * Additional fields are extracted on the calling thread with the phone number and email address,
+     * the batch already keeps the annotate threads busy.
+     * <p>
+     * NER runs in rounds: each round annotates the next candidate line, or finally the lines the
+     * LineClassifier skipped, of every card that still has no name in one multi-threaded
+     * StanfordCoreNLP call, on batch.annotateThreads threads but no more than pipeline.poolSize,
+     * see PipelinePool.  Apart from names reused within a group of near-duplicates, the results are
+     * the same as parsing the cards one at a time.  The per-card and annotate latencies recorded in
+     * the metrics are the batch time divided evenly between the cards and lines.
+     * <p>
+     * parseName() is not called, so a subclass that overrides it must override this method too,
+     * for instance with the default BusinessCardParser loop over getContactInfo().
+     */
+    @Override
+    public List<ContactInfo> getContactInfoBatch( List<String> documents )
+    {
+        long start = System.nanoTime( );
+        int size = documents.size( );
+        String[] names = new String[ size ];
+        String[] phones = new String[ size ];
+        String[] emails = new String[ size ];
+        List<Map<String, String>> extras = new ArrayList<>( size );
+        List<List<String>> candidates = new ArrayList<>( size );
+        List<Integer> unresolved = new ArrayList<>( );
+        CardDocument[] cards = new CardDocument[ size ];
+
+        for ( int i = 0; i < size; i++ )
+        {
+            CardDocument document = CardDocument.of( documents.get( i ) );
+            cards[ i ] = document;
+
+            phones[ i ] = parsePhone( document );
+            emails[ i ] = parseEmailAddress( document );
+            extras.add( extractFields( document ) );
+            candidates.add( lineClassifier.rankNameCandidates( document ) );
+            names[ i ] = matchGazetteer( candidates.get( i ) );
+
+            if( names[ i ] == null )
+            {
+                unresolved.add( i );
+                candidates.set( i, withSkippedLines( candidates.get( i ), document ) );
+            }
+        }
+
+        if( nearDuplicateGrouper == null || unresolved.size( ) < 2 )
+        {
+            annotateNames( unresolved, candidates, names );
+        } else
+        {
+            List<String> unresolvedDocuments = new ArrayList<>( unresolved.size( ) );
+
+            for ( int i : unresolved )
+            {
+                unresolvedDocuments.add( documents.get( i ) );
+            }
+
+            int[] groups = nearDuplicateGrouper.group( unresolvedDocuments );
+            List<Integer> firsts = new ArrayList<>( );
+            List<Integer> duplicates = new ArrayList<>( );
+
+            for ( int j = 0; j < groups.length; j++ )
+            {
+                ( groups[ j ] == j ? firsts : duplicates ).add( unresolved.get( j ) );
+            }
+
+            annotateNames( firsts, candidates, names );
+
+            List<Integer> mismatched = new ArrayList<>( );
+
+            for ( int j = 0; j < groups.length; j++ )
+            {
+                int card = unresolved.get( j );
+                int first = unresolved.get( groups[ j ] );
+
+                if( card == first )
+                {
+                    continue;
+                }
+
+                if( isSameContact( names[ first ], emails[ first ], documents.get( card ), emails[ card ] ) )
+                {
+                    names[ card ] = names[ first ];
+                } else
+                {
+                    mismatched.add( card );
+                }
+            }
+
+            annotateNames( mismatched, candidates, names );
+
+            if( metrics != null )
+            {
+                metrics.recordDuplicateNames( duplicates.size( ) - mismatched.size( ) );
+            }
+        }
+
+        List<ContactInfo> results = new ArrayList<>( size );
+        long perCard = size == 0 ? 0 : ( System.nanoTime( ) - start ) / size;
+
+        for ( int i = 0; i < size; i++ )
+        {
+            if( names[ i ] == null )
+            {
+                logMiss( "name", cards[ i ] );
+            }
+
+            ContactInfo contactInfo = new ContactInfo( names[ i ], phones[ i ], emails[ i ], extras.get( i ) );
+            results.add( contactInfo );
+
+            if( metrics != null )
+            {
+                metrics.recordCard( contactInfo, perCard );
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * Helper method that starts extracting a field on the fieldExecutor, or extracts it right away
+     * if there is none.
+     *
+     * @param extraction extracts the field.
+     * @param stage      stage the extraction time is recorded as.
+     * @return the field, completed exceptionally if the extraction failed.
+     */
+    private CompletableFuture<String> extractAsync( Supplier<String> extraction, ParserMetrics.Stage stage )
+    {
+        if( fieldExecutor == null )
+        {
+            return CompletableFuture.completedFuture( timed( extraction, stage ) );
+        }
+
+        return CompletableFuture.supplyAsync( ( ) -> timed( extraction, stage ), fieldExecutor );
+    }
+
+    /**
+     * Helper method that extracts a field and records the time spent, if metrics are on.
+     *
+     * @param extraction extracts the field.
+     * @param stage      stage the extraction time is recorded as.
+     * @return the field.
+     */
+    private String timed( Supplier<String> extraction, ParserMetrics.Stage stage )
+    {
+        if( metrics == null )
+        {
+            return extraction.get( );
+        }
+
+        long start = System.nanoTime( );
+        String value = extraction.get( );
+        metrics.record( stage, System.nanoTime( ) - start );
+
+        return value;
+    }
+
+    /**
+     * Helper method that waits for a field, rethrowing what its extraction threw.
+     *
+     * @param field the field.
+     * @return the value.
+     */
+    private static String join( CompletableFuture<String> field )
+    {
+        try
+        {
+            return field.join( );
+        } catch ( CompletionException e )
+        {
+            if( e.getCause( ) instanceof RuntimeException )
+            {
+                throw ( RuntimeException ) e.getCause( );
+            }
+
+            if( e.getCause( ) instanceof Error )
+            {
+                throw ( Error ) e.getCause( );
+            }
+
+            throw e;
+        }
+    }
+
+    /**
+     * Helper method that runs every FieldExtractor on a card, on the calling thread.
+     *
+     * @param document the raw text of the business card.
+     * @return the values found, by field name.
+     */
+    private Map<String, String> extractFields( CharSequence document )
+    {
+        if( fieldExtractors.isEmpty( ) )
+        {
+            return Collections.emptyMap( );
+        }
+
+        Map<String, String> values = new LinkedHashMap<>( );
+
+        for ( FieldExtractor extractor : fieldExtractors )
+        {
+            putIfNotNull( values, extractor.getField( ), timed( ( ) -> extractField( extractor, document ), ParserMetrics.Stage.EXTRAS ) );
+        }
+
+        return values;
+    }
+
+    /**
+     * Helper method that runs a FieldExtractor.  A failing extractor is logged and treated as if
+     * the field was not found, so it cannot fail the whole card.
+     *
+     * @param extractor the extractor.
+     * @param document  the raw text of the business card.
+     * @return the value, null if none was found or the extractor failed.
+     */
+    private static String extractField( FieldExtractor extractor, CharSequence document )
+    {
+        try
+        {
+            return extractor.extract( document );
+        } catch ( RuntimeException e )
+        {
+            log.error( "FieldExtractor for " + extractor.getField( ) + " failed.", e );
+            return null;
+        }
+    }
+
+    /**
+     * Helper method that adds a field value, skipping null values.
+     *
+     * @param values the values by field name.
+     * @param field  the field name.
+     * @param value  the value, may be null.
+     */
+    private static void putIfNotNull( Map<String, String> values, String field, String value )
+    {
+        if( value != null )
+        {
+            values.put( field, value );
+        }
+    }
+
+    /**
+     * Helper method that finds the names of cards with NER, in rounds over their candidate lines.
+     *
+     * @param cards      indexes of the cards to annotate.
+     * @param candidates the lines to annotate for every card, see withSkippedLines().
+     * @param names      the names of every card, filled in for the given cards.
+     */
+    private void annotateNames( List<Integer> cards, List<List<String>> candidates, String[] names )
+    {
+        for ( int round = 0; ; round++ )
+        {
+            List<Integer> pending = new ArrayList<>( );
+            List<Annotation> annotations = new ArrayList<>( );
+
+            for ( int i : cards )
+            {
+                if( names[ i ] == null && round < candidates.get( i ).size( ) )
+                {
+                    pending.add( i );
+                    annotations.add( new Annotation( candidates.get( i ).get( round ) ) );
+                }
+            }
+
+            if( annotations.isEmpty( ) )
+            {
+                return;
+            }
+
+            long annotateStart = System.nanoTime( );
+            getPipelinePool( ).annotate( annotations, batchAnnotateThreads );
+            annotated = true;
+
+            if( metrics != null )
+            {
+                long perLine = ( System.nanoTime( ) - annotateStart ) / annotations.size( );
+
+                for ( int j = 0; j < annotations.size( ); j++ )
+                {
+                    metrics.record( ParserMetrics.Stage.ANNOTATE, perLine );
+                }
+            }
+
+            for ( int j = 0; j < annotations.size( ); j++ )
+            {
+                names[ pending.get( j ) ] = personTokens( annotations.get( j ) );
+            }
+        }
+    }
+
+    /**
+     * Helper method that checks whether a near-duplicate card can reuse the name of the first card
+     * of its group: the name must be written on the card, and the email addresses must match, both
+     * allowing for one OCR error per DUPLICATE_CHARS_PER_EDIT characters.
+     *
+     * @param name          name of the first card.
+     * @param email         email address of the first card, can be null.
+     * @param document      text of the near-duplicate card.
+     * @param documentEmail email address of the near-duplicate card, can be null.
+     * @return true if the name can be reused.
+     */
+    private static boolean isSameContact( String name, String email, String document, String documentEmail )
+    {
+        if( name == null || !NearDuplicateGrouper.matchesApproximately( document, name, name.length( ) / DUPLICATE_CHARS_PER_EDIT ) )
+        {
+            return false;
+        }
+
+        if( email == null || documentEmail == null )
+        {
+            return email == null && documentEmail == null;
+        }
+
+        int maxEdits = email.length( ) / DUPLICATE_CHARS_PER_EDIT;
+
+        return Math.abs( email.length( ) - documentEmail.length( ) ) <= maxEdits
+            && NearDuplicateGrouper.matchesApproximately( documentEmail, email, maxEdits );
     }
 
     /**
-     * Instantiates the StanfordCoreNLP pipeline object.
+     * Returns the pool of StanfordCoreNLP pipelines, looking it up on first use.  Cards whose name
+     * is found by the NameGazetteer never load the models.
      *
-     * @return the StanfordCoreNLP object
+     * @return the PipelinePool
      */
-    protected StanfordCoreNLP initializePipeline( )
+    protected PipelinePool getPipelinePool( )
     {
-        RedwoodConfiguration.current( ).clear( ).apply( );
+        PipelinePool pool = pipelinePool;
+
+        if( pool == null )
+        {
+            pool = initializePipelinePool( );
+            pipelinePool = pool;
+        }
 
-        StanfordCoreNLP pipeline = new StanfordCoreNLP( "stanfordcorenlp" );
+        return pool;
+    }
 
-        return pipeline;
+    /**
+     * Returns the pool of StanfordCoreNLP pipelines for the profile.
+     * <p>
+     * The pool is shared with every other parser that uses the same profile, see ModelRegistry.
+     *
+     * @return the PipelinePool
+     */
+    protected PipelinePool initializePipelinePool( )
+    {
+        return ModelRegistry.getPipelinePool( profile );
     }
 
     /**
      * Helper method for parsing a person's name from the business card string.
      * <p>
-     * This annotates the text and extracts the tokens or words that have a named
-     * entity recognition tag (NER) of "PERSON".  It returns the PERSON tokens from the
-     * first sentence or line that contains these tokens and does not look at any additional
-     * sentences.
+     * The candidate lines are first checked against the NameGazetteer, and a confident match is
+     * returned without running NER.  Otherwise the lines that could hold a name are annotated one
+     * at a time, most name-like first, and the tokens with a named entity recognition tag (NER) of
+     * "PERSON" are extracted.  It returns the PERSON tokens from the first line that contains these
+     * tokens and does not annotate any additional lines.  If no candidate line holds a name, the
+     * lines the LineClassifier skipped are annotated in one call, see LineClassifier.joinSkippedLines().
+     * If NER runs past name.deadlineMillis, or is skipped because name.maxAbandoned abandoned
+     * annotations are still running, the name guessed by LineClassifier.guessName() is returned
+     * instead, and getContactInfo() marks the result degraded.
+     * <p>
+     * getContactInfo() parses the name with this method, so a subclass may override it.  Batches
+     * resolve the names of all their cards together and do not call it.
+     *
+     * @param text the raw text of the business card, indexed unless it is a CardDocument already.
+     * @return The person's name, null if none is found.
+     */
+    protected String parseName( CharSequence text )
+    {
+        ParsedName name = findName( CardDocument.of( text ) );
+
+        if( name.degraded )
+        {
+            NAME_GUESSED.set( Boolean.TRUE );
+        }
+
+        return name.name;
+    }
+
+    /**
+     * Helper method that parses a person's name, see parseName(), and tells whether it was guessed
+     * because NER ran past its deadline.
      *
-     * @param text The raw text of the business card
+     * @param document the business card.
      * @return The person's name, null if none is found.
      */
-    protected String parseName( String text )
+    private ParsedName findName( CardDocument document )
+    {
+        List<String> candidates = lineClassifier.rankNameCandidates( document );
+        String gazetteerName = matchGazetteer( candidates );
+
+        if( gazetteerName != null )
+        {
+            return new ParsedName( gazetteerName, false );
+        }
+
+        List<String> lines = withSkippedLines( candidates, document );
+        long deadline = 0;
+
+        if( nameDeadlineNanos > 0 && annotated && !lines.isEmpty( ) )
+        {
+            // Loading the models is not counted against the deadline
+            getPipelinePool( );
+            deadline = System.nanoTime( ) + nameDeadlineNanos;
+        }
+
+        for ( String line : lines )
+        {
+            String name;
+
+            try
+            {
+                name = deadline == 0 ? annotateName( line ) : annotateName( line, deadline );
+            } catch ( TimeoutException e )
+            {
+                log.warn( "Name recognition " + e.getMessage( ) + ", guessing the name of the card starting with: "
+                    + document.getFirstLine( ) );
+
+                return new ParsedName( lineClassifier.guessName( candidates ), true );
+            }
+
+            if( name != null )
+            {
+                return new ParsedName( name, false );
+            }
+        }
+
+        logMiss( "name", document );
+
+        return new ParsedName( null, false );
+    }
+
+    /**
+     * Helper method that returns the lines to annotate for a name: the ranked candidate lines,
+     * followed by the lines the LineClassifier skipped, joined into one text.
+     *
+     * @param candidates the ranked name candidate lines.
+     * @param document   the business card.
+     * @return the lines, in the order they are annotated.
+     */
+    private List<String> withSkippedLines( List<String> candidates, CardDocument document )
+    {
+        String skipped = lineClassifier.joinSkippedLines( document );
+
+        if( skipped == null )
+        {
+            return candidates;
+        }
+
+        List<String> lines = new ArrayList<>( candidates.size( ) + 1 );
+        lines.addAll( candidates );
+        lines.add( skipped );
+
+        return lines;
+    }
+
+    /**
+     * Helper method that returns the first candidate line the NameGazetteer is confident about,
+     * counting the hit or miss if metrics are on.
+     *
+     * @param candidates the ranked name candidate lines.
+     * @return the name, null if the gazetteer is off or unsure of every line.
+     */
+    private String matchGazetteer( List<String> candidates )
+    {
+        if( nameGazetteer == null )
+        {
+            return null;
+        }
+
+        String name = null;
+
+        for ( Iterator<String> lines = candidates.iterator( ); name == null && lines.hasNext( ); )
+        {
+            name = nameGazetteer.match( lines.next( ) );
+        }
+
+        if( metrics != null )
+        {
+            metrics.recordGazetteer( name != null );
+        }
+
+        return name;
+    }
+
+    /**
+     * Helper method that annotates a single line and returns its PERSON tokens.
+     *
+     * @param line a line of the business card.
+     * @return the PERSON tokens joined by spaces, null if there are none.
+     */
+    protected String annotateName( String line )
+    {
+        Annotation document = new Annotation( line );
+        long start = System.nanoTime( );
+
+        getPipelinePool( ).annotate( document );
+        annotated = true;
+
+        if( metrics != null )
+        {
+            metrics.record( ParserMetrics.Stage.ANNOTATE, System.nanoTime( ) - start );
+        }
+
+        return personTokens( document );
+    }
+
+    /**
+     * Helper method that annotates a single line on another thread and returns its PERSON tokens,
+     * giving up at the deadline.
+     * <p>
+     * The PipelinePool permit is taken on the calling thread and given back when the annotation
+     * finishes or is abandoned.  An abandoned annotation is interrupted, but StanfordCoreNLP may
+     * keep running it to the end; the PipelinePool counts it until it does, and no annotation is
+     * started while the pool's maxAbandoned of them are running, so stuck cards cannot take up every
+     * permit and annotator thread.
+     *
+     * @param line     a line of the business card.
+     * @param deadline System.nanoTime() value after which the annotation is abandoned.
+     * @return the PERSON tokens joined by spaces, null if there are none.
+     * @throws TimeoutException thrown if the deadline passed or too many abandoned annotations are
+     *                          still running.
+     */
+    private String annotateName( String line, long deadline ) throws TimeoutException
     {
-        Annotation document = new Annotation( text );
+        long start = System.nanoTime( );
+
+        if( start >= deadline )
+        {
+            throw deadlineExceeded( );
+        }
+
+        PipelinePool pool = getPipelinePool( );
+        int abandoned = pool.getAbandoned( );
+
+        if( abandoned >= pool.getMaxAbandoned( ) )
+        {
+            throw new TimeoutException( "was skipped, " + abandoned + " abandoned annotations are still running" );
+        }
 
-        pipeline.annotate( document );
+        TimedAnnotation annotation = new TimedAnnotation( pool, new Annotation( line ) );
 
+        try
+        {
+            if( !pool.tryAcquire( deadline - start ) )
+            {
+                throw deadlineExceeded( );
+            }
+
+            try
+            {
+                pool.execute( annotation );
+
+                if( !annotation.await( deadline - System.nanoTime( ) ) )
+                {
+                    annotation.abandon( );
+                    throw deadlineExceeded( );
+                }
+            } finally
+            {
+                pool.release( );
+            }
+        } catch ( InterruptedException e )
+        {
+            annotation.abandon( );
+            Thread.currentThread( ).interrupt( );
+            throw new IllegalStateException( "Interrupted while annotating.", e );
+        }
+
+        if( annotation.failure instanceof RuntimeException )
+        {
+            throw ( RuntimeException ) annotation.failure;
+        } else if( annotation.failure instanceof Error )
+        {
+            throw ( Error ) annotation.failure;
+        } else if( annotation.failure != null )
+        {
+            throw new IllegalStateException( "Unable to annotate line: " + line, annotation.failure );
+        }
+
+        annotated = true;
+
+        if( metrics != null )
+        {
+            metrics.record( ParserMetrics.Stage.ANNOTATE, System.nanoTime( ) - start );
+        }
+
+        return personTokens( annotation.document );
+    }
+
+    /**
+     * Helper method that creates the exception thrown when NER runs past name.deadlineMillis.
+     *
+     * @return the exception.
+     */
+    private TimeoutException deadlineExceeded( )
+    {
+        return new TimeoutException( "took longer than " + TimeUnit.NANOSECONDS.toMillis( nameDeadlineNanos ) + " ms" );
+    }
+
+    /**
+     * Helper method that returns the PERSON tokens of the first sentence of an annotated line that has any.
+     *
+     * @param document an annotated line.
+     * @return the PERSON tokens joined by spaces, null if there are none.
+     */
+    protected String personTokens( Annotation document )
+    {
         List<CoreMap> sentences = document.get( CoreAnnotations.SentencesAnnotation.class );
 
         StringJoiner output = new StringJoiner( " " );
@@ -124,36 +932,96 @@ public class DefaultBusinessCardParser implements BusinessCardParser
             }
         }
 
-        log.warn( "Unable to parse name from text:\n" + text );
-
         return null;
     }
 
     /**
      * Parses the phone number from the business card text.
      * <p>
-     * First attempts to locate an international number, if none is found,
-     * attempts to locate a national U.S. number.
+     * The candidates are the lines with at least LineClassifier.MIN_PHONE_DIGITS digits, taken
+     * from the CardDocument index.  If there are none, libphonenumber is never called.  Otherwise
+     * the candidate lines are searched with each of the default regions in phoneRegions in order,
+     * so with the default configuration an international number is preferred over a national U.S.
+     * number.  That is one libphonenumber findNumbers() call per region and candidate line at
+     * most, stopping at the first number found.  With the unknown region "ZZ" only numbers that
+     * start with a plus sign can match, so lines without one are skipped for it.
      * <p>
-     * This method will not be able to find a local number from a region
-     * other than the U.S.
+     * getContactInfo() calls this method, so subclasses that change phone parsing override it
+     * rather than the deprecated String overload.
      *
-     * @param text raw text of the business card.
+     * @param text raw text of the business card, indexed unless it is a CardDocument already.
      * @return The phone number as a string of digits, including the country code if it was in the raw text.
      * Returns null if none is found.
      */
-    protected String parsePhone( String text )
+    protected String parsePhone( CharSequence text )
     {
-        String number = tryGetPhoneNumber( text, null );
+        CardDocument document = CardDocument.of( text );
+        List<Integer> candidates = findPhoneCandidateLines( document );
 
-        if( number == null )
+        for ( String region : phoneRegions )
         {
-            number = tryGetPhoneNumber( text, "US" );
+            boolean international = "ZZ".equals( region );
+
+            for ( int line : candidates )
+            {
+                if( international && !document.hasPlus( line ) )
+                {
+                    continue;
+                }
+
+                String number = tryGetPhoneNumber( document.getLine( line ), region );
+
+                if( number != null )
+                {
+                    return number;
+                }
+            }
         }
 
-        if( number == null ) log.warn( "Unable to parse phone number from text:\n" + text );
+        logMiss( "phone number", document );
+
+        return null;
+    }
+
+    /**
+     * Helper method that returns the lines of the text that contain enough digits to hold a phone number.
+     *
+     * @param text raw text of the business card.
+     * @return views of the candidate lines, in document order.
+     */
+    protected List<CharSequence> findPhoneCandidates( CharSequence text )
+    {
+        CardDocument document = CardDocument.of( text );
+        List<CharSequence> candidates = new ArrayList<>( );
+
+        for ( int line : findPhoneCandidateLines( document ) )
+        {
+            candidates.add( document.getLine( line ) );
+        }
 
-        return number == null ? null : number.replaceAll( "[^\\d]", "" );
+        return candidates;
+    }
+
+    /**
+     * Helper method that returns the indexes of the lines of a document that contain enough digits
+     * to hold a phone number.
+     *
+     * @param document the business card.
+     * @return the line indexes, in document order.
+     */
+    private static List<Integer> findPhoneCandidateLines( CardDocument document )
+    {
+        List<Integer> lines = new ArrayList<>( );
+
+        for ( int line = 0; line < document.getLineCount( ); line++ )
+        {
+            if( document.getDigitCount( line ) >= LineClassifier.MIN_PHONE_DIGITS )
+            {
+                lines.add( line );
+            }
+        }
+
+        return lines;
     }
 
     /**
@@ -162,16 +1030,29 @@ public class DefaultBusinessCardParser implements BusinessCardParser
      * Calls the libphonenumber PhoneNumberUtil.findNumbers() with the text and region code.
      *
      * @param text          Text to locate the phone number.
-     * @param defaultRegion Region code, can be null if the input is expected to contain an international number.
-     * @return The number found as a raw string, including any non digit characters.
+     * @param defaultRegion Region code, can be null or "ZZ" if the input is expected to contain an international number.
+     * @return The digits of the first number found, null if there is none.
      */
-    protected String tryGetPhoneNumber( String text, String defaultRegion )
+    protected String tryGetPhoneNumber( CharSequence text, String defaultRegion )
     {
-        Iterable<PhoneNumberMatch> matches = PhoneNumberUtil.getInstance( ).findNumbers( text, defaultRegion );
+        Iterator<PhoneNumberMatch> matches = PhoneNumberUtil.getInstance( ).findNumbers( text, defaultRegion ).iterator( );
 
-        if( matches.iterator( ).hasNext( ) )
+        if( matches.hasNext( ) )
         {
-            return matches.iterator( ).next( ).rawString( );
+            String rawString = matches.next( ).rawString( );
+            StringBuilder digits = new StringBuilder( rawString.length( ) );
+
+            for ( int i = 0; i < rawString.length( ); i++ )
+            {
+                char c = rawString.charAt( i );
+
+                if( c >= '0' && c <= '9' )
+                {
+                    digits.append( c );
+                }
+            }
+
+            return digits.toString( );
         }
 
         return null;
@@ -180,23 +1061,230 @@ public class DefaultBusinessCardParser implements BusinessCardParser
     /**
      * Parses the email address from the raw text of the business card.
      * <p>
-     * This method uses an RFC 5322 compliant regex to locate and extract
-     * the email address.
+     * This method uses an EmailScanner, which finds the same address as the RFC 5322
+     * compliant EMAIL_REGEX, to locate and extract the email address.  The scanner starts from
+     * the '@' positions in the CardDocument index.
+     * <p>
+     * getContactInfo() calls this method, so subclasses that change email parsing override it
+     * rather than the deprecated String overload.
      *
-     * @param text the raw text of the business card.
+     * @param text the raw text of the business card, indexed unless it is a CardDocument already.
      * @return The email address as a string.
      */
-    protected String parseEmailAddress( String text )
+    protected String parseEmailAddress( CharSequence text )
     {
-        Matcher matcher = emailPattern.matcher( text );
+        CardDocument document = CardDocument.of( text );
+        String emailAddress = emailScanner.find( document );
 
-        if( matcher.find( ) )
+        if( emailAddress != null )
         {
-            return matcher.group( 0 );
+            return emailAddress;
         }
 
-        log.warn( "Unable to parse email address from text:\n" + text );
+        logMiss( "email address", document );
 
         return null;
     }
+
+    /**
+     * Helper method that logs a field that could not be parsed.  The warning names the card by its
+     * first line, and the full text is only copied into a message at debug level.
+     *
+     * @param field    the field.
+     * @param document the business card.
+     */
+    private static void logMiss( String field, CardDocument document )
+    {
+        if( log.isEnabledFor( Level.WARN ) )
+        {
+            log.warn( "Unable to parse " + field + " from the card starting with: " + document.getFirstLine( ) );
+        }
+
+        if( log.isDebugEnabled( ) )
+        {
+            log.debug( "Card text:\n" + document );
+        }
+    }
+
+    /**
+     * Helper method that creates a factory of named daemon threads.
+     *
+     * @param prefix thread name prefix, followed by a sequence number.
+     * @return the thread factory.
+     */
+    private static ThreadFactory daemonThreads( String prefix )
+    {
+        AtomicInteger count = new AtomicInteger( );
+
+        return runnable -> {
+            Thread thread = new Thread( runnable, prefix + count.incrementAndGet( ) );
+            thread.setDaemon( true );
+            return thread;
+        };
+    }
+
+    /**
+     * A parsed name, and whether it was guessed because NER ran past its deadline.
+     */
+    private static class ParsedName
+    {
+        /**
+         * The name, null if none was found.
+         */
+        private final String name;
+
+        /**
+         * Whether the name was guessed.
+         */
+        private final boolean degraded;
+
+        ParsedName( String name, boolean degraded )
+        {
+            this.name = name;
+            this.degraded = degraded;
+        }
+    }
+
+    /**
+     * Holder of the executor shared by every DefaultBusinessCardParser, created on first use.
+     */
+    private static class FieldExecutorHolder
+    {
+        /**
+         * Fixed pool of extract.threads daemon threads, the number of available processors by default.
+         */
+        private static final ExecutorService INSTANCE = createExecutor( );
+
+        /**
+         * Helper method that creates the shared executor.
+         *
+         * @return the executor.
+         */
+        private static ExecutorService createExecutor( )
+        {
+            int threads = Integer.parseInt( Configuration.getProperty( "extract.threads",
+                String.valueOf( Runtime.getRuntime( ).availableProcessors( ) ) ) );
+
+            return Executors.newFixedThreadPool( threads, daemonThreads( "field-extractor-" ) );
+        }
+    }
+
+    /**
+     * An annotation of one line that runs on the executor of its PipelinePool and can be abandoned
+     * by the thread waiting for it.
+     */
+    private static class TimedAnnotation implements Runnable
+    {
+        /**
+         * Pool of the pipeline that annotates the line.  The waiting thread holds its permit, and
+         * the pool counts the annotation while it runs abandoned.
+         */
+        private final PipelinePool pool;
+
+        /**
+         * The line to annotate.
+         */
+        private final Annotation document;
+
+        /**
+         * Counted down when the annotation finishes.
+         */
+        private final CountDownLatch finished = new CountDownLatch( 1 );
+
+        /**
+         * Thread running the annotation, null before it starts and after it finishes.
+         */
+        private Thread runner;
+
+        /**
+         * Whether the annotation finished.
+         */
+        private boolean done;
+
+        /**
+         * Whether the waiting thread gave up on the annotation.
+         */
+        private boolean abandoned;
+
+        /**
+         * What the annotation threw, null if it succeeded.
+         */
+        private volatile Throwable failure;
+
+        TimedAnnotation( PipelinePool pool, Annotation document )
+        {
+            this.pool = pool;
+            this.document = document;
+        }
+
+        @Override
+        public void run( )
+        {
+            synchronized ( this )
+            {
+                if( abandoned )
+                {
+                    return;
+                }
+
+                runner = Thread.currentThread( );
+            }
+
+            try
+            {
+                pool.getPipeline( ).annotate( document );
+            } catch ( Throwable t )
+            {
+                failure = t;
+            } finally
+            {
+                synchronized ( this )
+                {
+                    runner = null;
+                    done = true;
+
+                    if( abandoned )
+                    {
+                        pool.removeAbandoned( );
+                    }
+                }
+
+                // An abandon() interrupt must not carry over to the next annotation on this thread
+                Thread.interrupted( );
+                finished.countDown( );
+            }
+        }
+
+        /**
+         * Waits for the annotation to finish.
+         *
+         * @param timeoutNanos longest time to wait in nanoseconds.
+         * @return true if it finished.
+         * @throws InterruptedException thrown if the thread is interrupted while waiting.
+         */
+        boolean await( long timeoutNanos ) throws InterruptedException
+        {
+            return finished.await( timeoutNanos, TimeUnit.NANOSECONDS );
+        }
+
+        /**
+         * Gives up on the annotation.  If it has not started it never will, and if it is running it
+         * is interrupted and counted as abandoned until it finishes.
+         */
+        synchronized void abandon( )
+        {
+            if( done || abandoned )
+            {
+                return;
+            }
+
+            abandoned = true;
+
+            if( runner != null )
+            {
+                pool.addAbandoned( );
+                runner.interrupt( );
+            }
+        }
+    }
 }
@@ -0,0 +1,372 @@
+package com.asymmetrik.ocr.parser.impl;
+
+/**
+ * Linear time scanner that finds the first email address in a piece of text.
+ * <p>
+ * The scanner accepts the same addresses as EMAIL_REGEX, an RFC 5322 regex, and returns the same
+ * match as Matcher.find() would.  Instead of trying the regex at every offset, it jumps from '@'
+ * to '@' and expands to the left for the local part and to the right for the domain.  A local part
+ * cannot contain '@', so every character is looked at a bounded number of times no matter how
+ * much punctuation the text holds, while the regex can backtrack badly on long runs of dots and
+ * symbols.
+ * <p>
+ * Like the regex, the scanner is case sensitive and only matches lower case addresses.
+ */
+public class EmailScanner
+{
+    /**
+     * Regex used to parse an email address.  This is an RFC 5322 compliant regex and the reference
+     * grammar for the scanner.
+     */
+    public static final String EMAIL_REGEX = "(?:[a-z0-9!#$%&'*+/=?^_`{|}~-]+(?:\\.[a-z0-9!#$%&'*+/=?^_`{|}~-]+)*|\"(?:[\\x01-\\x08\\x0b\\x0c\\x0e-\\x1f\\x21\\x23-\\x5b\\x5d-\\x7f]|\\\\[\\x01-\\x09\\x0b\\x0c\\x0e-\\x7f])*\")@(?:(?:[a-z0-9](?:[a-z0-9-]*[a-z0-9])?\\.)+[a-z0-9](?:[a-z0-9-]*[a-z0-9])?|\\[(?:(?:(2(5[0-5]|[0-4][0-9])|1[0-9][0-9]|[1-9]?[0-9]))\\.){3}(?:(2(5[0-5]|[0-4][0-9])|1[0-9][0-9]|[1-9]?[0-9])|[a-z0-9-]*[a-z0-9]:(?:[\\x01-\\x08\\x0b\\x0c\\x0e-\\x1f\\x21-\\x5a\\x53-\\x7f]|\\\\[\\x01-\\x09\\x0b\\x0c\\x0e-\\x7f])+)\\])";
+
+    /**
+     * Special characters allowed in an unquoted local part, besides lower case letters and digits.
+     */
+    private static final String ATEXT_SYMBOLS = "!#$%&'*+/=?^_`{|}~-";
+
+    /**
+     * Returns the first email address in the text.  If the text is a CardDocument, the scanner
+     * goes straight to the '@' positions and line ends in its index.
+     *
+     * @param text the text to scan.
+     * @return the email address, null if none is found.
+     */
+    public String find( CharSequence text )
+    {
+        int length = text.length( );
+        int matchStart = -1;
+        int matchEnd = -1;
+        int lineEnd = length;
+        CardDocument document = text instanceof CardDocument ? ( CardDocument ) text : null;
+
+        for ( int at = nextAt( text, document, 0 ); at > -1 && at < lineEnd; at = nextAt( text, document, at + 1 ) )
+        {
+            boolean quoted = at > 0 && text.charAt( at - 1 ) == '"';
+
+            // Once there is a match, only a quoted local part on the same line can start before it.
+            if( at + 1 >= length || ( matchStart > -1 && !quoted ) )
+            {
+                continue;
+            }
+
+            int start = quoted ? quotedLocalPartStart( text, at ) : dotAtomStart( text, at );
+
+            if( start < 0 || ( matchStart > -1 && start >= matchStart ) )
+            {
+                continue;
+            }
+
+            int end = text.charAt( at + 1 ) == '[' ? addressLiteralEnd( text, at + 1 ) : hostNameEnd( text, at + 1 );
+
+            if( end > -1 )
+            {
+                matchStart = start;
+                matchEnd = end;
+                if( document != null )
+                {
+                    lineEnd = document.getLineEnd( document.getLineOf( at ) );
+                } else
+                {
+                    lineEnd = indexOf( text, '\n', at );
+                    lineEnd = lineEnd < 0 ? length : lineEnd;
+                }
+            }
+        }
+
+        return matchStart < 0 ? null : text.subSequence( matchStart, matchEnd ).toString( );
+    }
+
+    /**
+     * Helper method that returns the index of the next '@', from the document index if there is one.
+     *
+     * @param text     the text to scan.
+     * @param document the text as a CardDocument, null if it is not one.
+     * @param from     index to start from.
+     * @return index of the next '@', -1 if there is none.
+     */
+    private static int nextAt( CharSequence text, CardDocument document, int from )
+    {
+        return document != null ? document.nextAt( from ) : indexOf( text, '@', from );
+    }
+
+    /**
+     * Helper method that returns the index of the next occurrence of a character.
+     *
+     * @param text the text to scan.
+     * @param c    the character to look for.
+     * @param from index to start from.
+     * @return index of the next occurrence, -1 if there is none.
+     */
+    private static int indexOf( CharSequence text, char c, int from )
+    {
+        for ( int i = from; i < text.length( ); i++ )
+        {
+            if( text.charAt( i ) == c )
+            {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Helper method that returns the leftmost start of a dot-atom local part that ends at the '@'.
+     * Dots are only allowed between atoms, so the local part starts after the last pair of dots.
+     *
+     * @param text the text to scan.
+     * @param at   index of the '@'.
+     * @return start of the local part, -1 if there is none.
+     */
+    private static int dotAtomStart( CharSequence text, int at )
+    {
+        int start = -1;
+
+        for ( int i = at - 1; i >= 0; i-- )
+        {
+            char c = text.charAt( i );
+
+            if( isAtext( c ) )
+            {
+                start = i;
+            } else if( c != '.' || start != i + 1 )
+            {
+                break;
+            }
+        }
+
+        return start;
+    }
+
+    /**
+     * Helper method that returns the leftmost start of a quoted local part that ends at the '@'.
+     * <p>
+     * Reading a quoted string forwards only ever has one choice: a backslash starts a quoted pair
+     * and any other allowed character stands alone.  Walking backwards from the closing quote, the
+     * method tracks whether reading from each position lands exactly on the closing quote.  A read
+     * moves one or two characters at a time, so once two positions in a row cannot reach the
+     * closing quote, nothing further to the left can either.
+     *
+     * @param text the text to scan.
+     * @param at   index of the '@', the character before it is the closing quote.
+     * @return index of the opening quote, -1 if there is no valid quoted string.
+     */
+    private static int quotedLocalPartStart( CharSequence text, int at )
+    {
+        int close = at - 1;
+        int start = -1;
+        boolean next = true;
+        boolean afterNext = false;
+
+        for ( int i = close - 1; i >= 0; i-- )
+        {
+            char c = text.charAt( i );
+
+            if( c == '"' && next )
+            {
+                start = i;
+            }
+
+            boolean reachesClose = c == '\\'
+                ? i + 1 < close && isQuotedPair( text.charAt( i + 1 ) ) && afterNext
+                : isQtext( c ) && next;
+
+            if( !reachesClose && !next )
+            {
+                break;
+            }
+
+            afterNext = next;
+            next = reachesClose;
+        }
+
+        return start;
+    }
+
+    /**
+     * Helper method that returns the end of a dotted host name.
+     * <p>
+     * The regex matches as many labels followed by a dot as it can, then one more label.  If there
+     * is no label after the last dot, it gives the last label back, so at least two labels are needed.
+     *
+     * @param text  the text to scan.
+     * @param start index of the first character after the '@'.
+     * @return index after the last character of the host name, -1 if there is none.
+     */
+    private static int hostNameEnd( CharSequence text, int start )
+    {
+        int length = text.length( );
+        int position = start;
+        int labels = 0;
+        int lastLabelEnd = -1;
+
+        while ( position < length && isLetterOrDigit( text.charAt( position ) ) )
+        {
+            int end = position;
+            int lastLetterOrDigit = position;
+
+            while ( end < length && ( isLetterOrDigit( text.charAt( end ) ) || text.charAt( end ) == '-' ) )
+            {
+                if( text.charAt( end ) != '-' )
+                {
+                    lastLetterOrDigit = end;
+                }
+
+                end++;
+            }
+
+            if( end < length && text.charAt( end ) == '.' && lastLetterOrDigit == end - 1 )
+            {
+                labels++;
+                lastLabelEnd = end;
+                position = end + 1;
+            } else
+            {
+                return labels > 0 ? lastLetterOrDigit + 1 : -1;
+            }
+        }
+
+        return labels > 1 ? lastLabelEnd : -1;
+    }
+
+    /**
+     * Helper method that returns the end of a bracketed address literal, either an IPv4 address
+     * or a tagged address such as [1.2.3.ipv6:...].
+     *
+     * @param text  the text to scan.
+     * @param start index of the opening bracket.
+     * @return index after the closing bracket, -1 if there is none.
+     */
+    private static int addressLiteralEnd( CharSequence text, int start )
+    {
+        int position = start + 1;
+
+        for ( int i = 0; i < 3; i++ )
+        {
+            int end = octetEnd( text, position, '.' );
+
+            if( end < 0 )
+            {
+                return -1;
+            }
+
+            position = end + 1;
+        }
+
+        int end = octetEnd( text, position, ']' );
+
+        if( end > -1 )
+        {
+            return end + 1;
+        }
+
+        return taggedLiteralEnd( text, position );
+    }
+
+    /**
+     * Helper method that matches a decimal octet from 0 to 255 followed by the terminator.
+     *
+     * @param text       the text to scan.
+     * @param start      index of the first digit.
+     * @param terminator character that must follow the octet.
+     * @return index of the terminator, -1 if there is no octet.
+     */
+    private static int octetEnd( CharSequence text, int start, char terminator )
+    {
+        int value = 0;
+
+        for ( int end = start; end < text.length( ) && end - start <= 3; end++ )
+        {
+            char c = text.charAt( end );
+
+            if( c == terminator && end > start )
+            {
+                return value <= 255 ? end : -1;
+            }
+
+            // Leading zeros are only allowed for the octet 0 itself.
+            if( c < '0' || c > '9' || ( end > start && value == 0 ) )
+            {
+                return -1;
+            }
+
+            value = value * 10 + ( c - '0' );
+        }
+
+        return -1;
+    }
+
+    /**
+     * Helper method that matches the tag, colon, content and closing bracket of a tagged address
+     * literal.  As in the regex, the content may hold any printable character including ']', so
+     * the literal ends at the last ']' of the content.
+     *
+     * @param text  the text to scan.
+     * @param start index of the first character of the tag.
+     * @return index after the closing bracket, -1 if there is none.
+     */
+    private static int taggedLiteralEnd( CharSequence text, int start )
+    {
+        int length = text.length( );
+        int colon = start;
+
+        while ( colon < length && ( isLetterOrDigit( text.charAt( colon ) ) || text.charAt( colon ) == '-' ) )
+        {
+            colon++;
+        }
+
+        if( colon == start || colon >= length || text.charAt( colon ) != ':' || text.charAt( colon - 1 ) == '-' )
+        {
+            return -1;
+        }
+
+        int lastBracket = -1;
+
+        for ( int i = colon + 1; i < length; i++ )
+        {
+            char c = text.charAt( i );
+
+            if( c == ']' && i > colon + 1 )
+            {
+                lastBracket = i;
+            }
+
+            if( c == '\\' && i + 1 < length && isQuotedPair( text.charAt( i + 1 ) ) && !isDtext( text.charAt( i + 1 ) ) )
+            {
+                i++;
+            } else if( !isDtext( c ) )
+            {
+                break;
+            }
+        }
+
+        return lastBracket > -1 ? lastBracket + 1 : -1;
+    }
+
+    private static boolean isLetterOrDigit( char c )
+    {
+        return ( c >= 'a' && c <= 'z' ) || ( c >= '0' && c <= '9' );
+    }
+
+    private static boolean isAtext( char c )
+    {
+        return isLetterOrDigit( c ) || ATEXT_SYMBOLS.indexOf( c ) > -1;
+    }
+
+    private static boolean isQtext( char c )
+    {
+        return ( c >= 0x01 && c <= 0x08 ) || c == 0x0b || c == 0x0c || ( c >= 0x0e && c <= 0x1f )
+            || c == 0x21 || ( c >= 0x23 && c <= 0x5b ) || ( c >= 0x5d && c <= 0x7f );
+    }
+
+    private static boolean isQuotedPair( char c )
+    {
+        return ( c >= 0x01 && c <= 0x09 ) || c == 0x0b || c == 0x0c || ( c >= 0x0e && c <= 0x7f );
+    }
+
+    private static boolean isDtext( char c )
+    {
+        return ( c >= 0x01 && c <= 0x08 ) || c == 0x0b || c == 0x0c || ( c >= 0x0e && c <= 0x1f ) || ( c >= 0x21 && c <= 0x7f );
+    }
+}
@@ -0,0 +1,69 @@
+package com.asymmetrik.ocr.parser.impl;
+
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+/**
+ * Extracts one additional field, such as a job title or company, from the text of a business card.
+ * <p>
+ * The DefaultBusinessCardParser runs every extractor next to its own name, phone and email
+ * extraction, and the values are returned by ContactInfo.getExtras() under the extractor's field.
+ * Extractors are found with a ServiceLoader: list the implementation classes in a
+ * META-INF/services/com.asymmetrik.ocr.parser.impl.FieldExtractor file on the classpath, or add
+ * them with DefaultBusinessCardParser.addFieldExtractor().
+ * <p>
+ * Implementations must be thread-safe, a single instance is called for every card and from many
+ * threads at once.
+ */
+public interface FieldExtractor
+{
+    /**
+     * Returns the name of the field, the key of its value in ContactInfo.getExtras().
+     *
+     * @return the field name, e.g. "title".
+     */
+    String getField( );
+
+    /**
+     * Extracts the field from a business card.
+     *
+     * @param document the raw text of the business card.  The DefaultBusinessCardParser passes a
+     *                 CardDocument, whose line, digit and '@' index saves the extractor a scan.
+     * @return the value, null if the card does not have one.
+     */
+    String extract( CharSequence document );
+
+    /**
+     * Loads the extractors registered with the ServiceLoader.  Extractors that cannot be
+     * instantiated are logged and skipped.
+     *
+     * @return the extractors, in classpath order.
+     */
+    static List<FieldExtractor> loadAll( )
+    {
+        List<FieldExtractor> extractors = new ArrayList<>( );
+
+        Iterator<FieldExtractor> iterator = ServiceLoader.load( FieldExtractor.class ).iterator( );
+
+        while ( true )
+        {
+            try
+            {
+                if( !iterator.hasNext( ) )
+                {
+                    return extractors;
+                }
+
+                extractors.add( iterator.next( ) );
+            } catch ( ServiceConfigurationError e )
+            {
+                Logger.getLogger( FieldExtractor.class ).error( "Error loading FieldExtractor.", e );
+            }
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.asymmetrik.ocr.parser.impl;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of latencies in nanoseconds.
+ * <p>
+ * Each power of two is split into four buckets, so a percentile is reported as the upper bound of
+ * its bucket and is at most 25% above the true value.  Recording is an array index computation and
+ * two atomic increments, cheap enough to leave on for every card.  The maximum is exact.
+ */
+public class LatencyHistogram implements LatencyHistogramMBean
+{
+    /**
+     * Number of bits of a value below its highest bit that select the bucket.
+     */
+    private static final int SUB_BUCKET_BITS = 2;
+
+    /**
+     * Number of buckets per power of two.
+     */
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * Number of buckets, enough for any positive long.
+     */
+    private static final int BUCKETS = ( 64 - SUB_BUCKET_BITS ) * SUB_BUCKETS;
+
+    /**
+     * Counts per bucket.
+     */
+    private final AtomicLongArray counts = new AtomicLongArray( BUCKETS );
+
+    /**
+     * Number of recorded latencies.
+     */
+    private final LongAdder count = new LongAdder( );
+
+    /**
+     * Sum of the recorded latencies.
+     */
+    private final LongAdder sum = new LongAdder( );
+
+    /**
+     * Largest recorded latency.
+     */
+    private final AtomicLong max = new AtomicLong( );
+
+    /**
+     * Records a latency.
+     *
+     * @param nanos the latency in nanoseconds, negative values are recorded as 0.
+     */
+    public void record( long nanos )
+    {
+        long value = Math.max( 0, nanos );
+
+        counts.incrementAndGet( bucketOf( value ) );
+        count.increment( );
+        sum.add( value );
+
+        long current = max.get( );
+
+        while ( value > current && !max.compareAndSet( current, value ) )
+        {
+            current = max.get( );
+        }
+    }
+
+    /**
+     * Returns a percentile of the recorded latencies.
+     *
+     * @param percentile the percentile, between 0 and 100.
+     * @return the upper bound of the bucket holding the percentile in nanoseconds, 0 if nothing is recorded.
+     */
+    public long getPercentileNanos( double percentile )
+    {
+        long[] snapshot = new long[ BUCKETS ];
+        long total = 0;
+
+        for ( int i = 0; i < BUCKETS; i++ )
+        {
+            snapshot[ i ] = counts.get( i );
+            total += snapshot[ i ];
+        }
+
+        long rank = Math.max( 1, ( long ) Math.ceil( percentile / 100 * total ) );
+        long cumulative = 0;
+
+        for ( int i = 0; i < BUCKETS; i++ )
+        {
+            cumulative += snapshot[ i ];
+
+            if( cumulative >= rank )
+            {
+                return Math.min( upperBoundOf( i ), max.get( ) );
+            }
+        }
+
+        return 0;
+    }
+
+    @Override
+    public long getCount( )
+    {
+        return count.sum( );
+    }
+
+    @Override
+    public double getMeanMicros( )
+    {
+        long n = count.sum( );
+
+        return n == 0 ? 0 : sum.sum( ) / ( double ) n / 1000;
+    }
+
+    @Override
+    public double getP50Micros( )
+    {
+        return getPercentileNanos( 50 ) / 1000.0;
+    }
+
+    @Override
+    public double getP99Micros( )
+    {
+        return getPercentileNanos( 99 ) / 1000.0;
+    }
+
+    @Override
+    public double getMaxMicros( )
+    {
+        return max.get( ) / 1000.0;
+    }
+
+    @Override
+    public void reset( )
+    {
+        for ( int i = 0; i < BUCKETS; i++ )
+        {
+            counts.set( i, 0 );
+        }
+
+        count.reset( );
+        sum.reset( );
+        max.set( 0 );
+    }
+
+    /**
+     * Returns a one line summary of the histogram.
+     *
+     * @return count, p50, p99 and max.
+     */
+    @Override
+    public String toString( )
+    {
+        return String.format( "n=%d p50=%.1fus p99=%.1fus max=%.1fus", getCount( ), getP50Micros( ), getP99Micros( ), getMaxMicros( ) );
+    }
+
+    /**
+     * Helper method that returns the bucket of a value.
+     *
+     * @param value a non-negative value.
+     * @return the bucket index.
+     */
+    private static int bucketOf( long value )
+    {
+        if( value < SUB_BUCKETS )
+        {
+            return ( int ) value;
+        }
+
+        int exponent = 63 - Long.numberOfLeadingZeros( value );
+        int subBucket = ( int ) ( value >>> ( exponent - SUB_BUCKET_BITS ) ) & ( SUB_BUCKETS - 1 );
+
+        return ( exponent - SUB_BUCKET_BITS + 1 ) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Helper method that returns the largest value of a bucket.
+     *
+     * @param bucket the bucket index.
+     * @return the upper bound of the bucket.
+     */
+    private static long upperBoundOf( int bucket )
+    {
+        if( bucket < SUB_BUCKETS )
+        {
+            return bucket;
+        }
+
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lower = ( long ) ( SUB_BUCKETS + bucket % SUB_BUCKETS ) << shift;
+
+        return lower + ( 1L << shift ) - 1;
+    }
+}
@@ -0,0 +1,47 @@
+package com.asymmetrik.ocr.parser.impl;
+
+/**
+ * JMX management interface of a LatencyHistogram.
+ */
+public interface LatencyHistogramMBean
+{
+    /**
+     * Returns the number of recorded latencies.
+     *
+     * @return the count.
+     */
+    long getCount( );
+
+    /**
+     * Returns the mean latency.
+     *
+     * @return the mean in microseconds.
+     */
+    double getMeanMicros( );
+
+    /**
+     * Returns the median latency.
+     *
+     * @return the 50th percentile in microseconds.
+     */
+    double getP50Micros( );
+
+    /**
+     * Returns the 99th percentile latency.
+     *
+     * @return the 99th percentile in microseconds.
+     */
+    double getP99Micros( );
+
+    /**
+     * Returns the largest latency.
+     *
+     * @return the maximum in microseconds.
+     */
+    double getMaxMicros( );
+
+    /**
+     * Clears the recorded latencies.
+     */
+    void reset( );
+}
@@ -0,0 +1,296 @@
+package com.asymmetrik.ocr.parser.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.StringJoiner;
+
+/**
+ * Cheap, rule based classifier for the lines of a business card.
+ * <p>
+ * The classifier runs before the StanfordCoreNLP pipeline so that lines that obviously hold a
+ * phone number, an email address or a street address are never sent through NER.  The remaining
+ * lines are ranked by how much they look like a person's name, so the most likely line is
+ * annotated first.  A name can share a line with a phone number or email address, so the skipped
+ * lines are still annotated, together, if no candidate line holds a name.
+ */
+public class LineClassifier
+{
+    /**
+     * The kinds of line found on a business card.
+     */
+    public enum LineType
+    {
+        PHONE, EMAIL, ADDRESS, NAME_CANDIDATE, OTHER
+    }
+
+    /**
+     * Minimum number of digits for a line to be considered a phone number.
+     */
+    protected static final int MIN_PHONE_DIGITS = 7;
+
+    /**
+     * Minimum score of a line guessed to be a name without NER: two to four title case words
+     * without job title or company words.
+     */
+    protected static final int MIN_GUESSED_NAME_SCORE = 4;
+
+    /**
+     * Labels that introduce a phone or fax number.
+     */
+    protected static final Set<String> PHONE_LABELS = new HashSet<>( Arrays.asList(
+        "tel", "tel.", "phone", "fax", "mobile", "cell", "office", "direct", "t", "f", "m", "p" ) );
+
+    /**
+     * Words that are common in addresses.
+     */
+    protected static final Set<String> ADDRESS_WORDS = new HashSet<>( Arrays.asList(
+        "street", "st", "st.", "road", "rd", "rd.", "avenue", "ave", "ave.", "boulevard", "blvd", "blvd.",
+        "drive", "dr.", "lane", "ln.", "suite", "ste", "ste.", "floor", "fl.", "box", "highway", "hwy", "parkway",
+        "pkwy", "court", "ct.", "plaza", "square", "building", "bldg" ) );
+
+    /**
+     * Words that are common in job titles and company names, but rarely in a person's name.
+     */
+    protected static final Set<String> TITLE_AND_COMPANY_WORDS = new HashSet<>( Arrays.asList(
+        "engineer", "developer", "manager", "director", "president", "officer", "analyst", "consultant",
+        "architect", "designer", "specialist", "associate", "assistant", "executive", "administrator",
+        "senior", "junior", "lead", "chief", "head", "vice", "software", "sales", "marketing", "account",
+        "technologies", "technology", "tech", "solutions", "systems", "security", "services", "group",
+        "partners", "consulting", "company", "corporation", "corp", "corp.", "inc", "inc.", "ltd", "ltd.",
+        "llc", "llp", "co.", "international", "decision", "&" ) );
+
+    /**
+     * Classifies a single line of a business card.
+     *
+     * @param line the line, without the line break.
+     * @return the LineType of the line.
+     */
+    public LineType classify( String line )
+    {
+        String trimmed = line.trim( );
+        int digits = 0;
+
+        for ( int i = 0; i < trimmed.length( ); i++ )
+        {
+            if( Character.isDigit( trimmed.charAt( i ) ) )
+            {
+                digits++;
+            }
+        }
+
+        return classify( trimmed, digits, trimmed.indexOf( '@' ) > -1 );
+    }
+
+    /**
+     * Helper method that classifies a line whose digits and '@' are already known, for example
+     * from a CardDocument.
+     *
+     * @param trimmed the trimmed line.
+     * @param digits  number of digits on the line.
+     * @param hasAt   whether the line holds an '@'.
+     * @return the LineType of the line.
+     */
+    private LineType classify( String trimmed, int digits, boolean hasAt )
+    {
+        if( trimmed.isEmpty( ) )
+        {
+            return LineType.OTHER;
+        }
+
+        if( hasAt )
+        {
+            return LineType.EMAIL;
+        }
+
+        String lower = trimmed.toLowerCase( Locale.ROOT );
+
+        if( lower.startsWith( "www." ) || lower.contains( "://" ) )
+        {
+            return LineType.OTHER;
+        }
+
+        String[] words = lower.split( "[\\s:]+" );
+
+        if( digits >= MIN_PHONE_DIGITS && ( PHONE_LABELS.contains( words[ 0 ] ) || isMostlyPhoneCharacters( trimmed ) ) )
+        {
+            return LineType.PHONE;
+        }
+
+        if( digits > 0 )
+        {
+            return LineType.ADDRESS;
+        }
+
+        for ( String word : words )
+        {
+            if( ADDRESS_WORDS.contains( word ) )
+            {
+                return LineType.ADDRESS;
+            }
+        }
+
+        return LineType.NAME_CANDIDATE;
+    }
+
+    /**
+     * Returns the NAME_CANDIDATE lines of the text, ordered from most to least name-like.
+     * Lines that score the same are kept in their original order.
+     *
+     * @param text raw text of the business card.
+     * @return the ranked candidate lines.
+     */
+    public List<String> rankNameCandidates( String text )
+    {
+        return rankNameCandidates( CardDocument.of( text ) );
+    }
+
+    /**
+     * Returns the NAME_CANDIDATE lines of a document, ordered from most to least name-like.
+     * The digit counts and '@' flags come from the document index, so lines with an '@' are
+     * classified without being copied.
+     *
+     * @param document the business card.
+     * @return the ranked candidate lines.
+     */
+    public List<String> rankNameCandidates( CardDocument document )
+    {
+        List<String> candidates = new ArrayList<>( );
+
+        for ( int line = 0; line < document.getLineCount( ); line++ )
+        {
+            if( document.hasAt( line ) )
+            {
+                continue;
+            }
+
+            String trimmed = document.getLine( line ).toString( ).trim( );
+
+            if( classify( trimmed, document.getDigitCount( line ), false ) == LineType.NAME_CANDIDATE )
+            {
+                candidates.add( trimmed );
+            }
+        }
+
+        // List.sort is stable, so equal scores keep the document order.
+        candidates.sort( Comparator.comparingInt( this::scoreNameCandidate ).reversed( ) );
+
+        return Collections.unmodifiableList( candidates );
+    }
+
+    /**
+     * Returns the lines that rankNameCandidates() skips and that are not blank: the phone, email,
+     * address and URL lines.  They are joined by line breaks, which the pipeline treats as
+     * sentence breaks, so they can be annotated in one call once no candidate line holds a name.
+     *
+     * @param document the business card.
+     * @return the trimmed lines in document order, null if there are none.
+     */
+    public String joinSkippedLines( CardDocument document )
+    {
+        StringJoiner lines = new StringJoiner( "\n" );
+
+        for ( int line = 0; line < document.getLineCount( ); line++ )
+        {
+            String trimmed = document.getLine( line ).toString( ).trim( );
+
+            if( !trimmed.isEmpty( ) && classify( trimmed, document.getDigitCount( line ), document.hasAt( line ) ) != LineType.NAME_CANDIDATE )
+            {
+                lines.add( trimmed );
+            }
+        }
+
+        return lines.length( ) == 0 ? null : lines.toString( );
+    }
+
+    /**
+     * Guesses the name without NER, from the capitalization and word count of the most name-like
+     * candidate line.  Much less accurate than NER, used when NER takes too long.
+     *
+     * @param rankedCandidates the candidate lines, as returned by rankNameCandidates().
+     * @return the most name-like line if it looks like a name, otherwise null.
+     */
+    public String guessName( List<String> rankedCandidates )
+    {
+        if( rankedCandidates.isEmpty( ) )
+        {
+            return null;
+        }
+
+        String line = rankedCandidates.get( 0 );
+
+        return scoreNameCandidate( line ) >= MIN_GUESSED_NAME_SCORE ? line.replaceAll( "\\s+", " " ) : null;
+    }
+
+    /**
+     * Scores how much a line looks like a person's name.
+     * <p>
+     * Two to four title case words score highest.  Lines in all capitals and lines with job
+     * title or company words are penalized.
+     *
+     * @param line a NAME_CANDIDATE line.
+     * @return the score, higher is more name-like.
+     */
+    protected int scoreNameCandidate( String line )
+    {
+        String[] words = line.trim( ).split( "\\s+" );
+        int score = 0;
+
+        if( words.length >= 2 && words.length <= 4 )
+        {
+            score += 2;
+        }
+
+        boolean titleCase = true;
+
+        for ( String word : words )
+        {
+            titleCase &= Character.isUpperCase( word.charAt( 0 ) ) && word.matches( "[\\p{L}.'-]+" );
+
+            if( TITLE_AND_COMPANY_WORDS.contains( word.toLowerCase( Locale.ROOT ) ) )
+            {
+                score -= 3;
+            }
+        }
+
+        if( titleCase )
+        {
+            score += 2;
+        }
+
+        if( line.equals( line.toUpperCase( Locale.ROOT ) ) )
+        {
+            score -= 1;
+        }
+
+        return score;
+    }
+
+    /**
+     * Helper method that checks whether a line is made up of digits and phone punctuation.
+     *
+     * @param line the trimmed line.
+     * @return true if at least 80% of the characters could belong to a phone number.
+     */
+    private static boolean isMostlyPhoneCharacters( String line )
+    {
+        int phoneCharacters = 0;
+
+        for ( int i = 0; i < line.length( ); i++ )
+        {
+            char c = line.charAt( i );
+
+            if( Character.isDigit( c ) || "+()-. /x".indexOf( c ) > -1 )
+            {
+                phoneCharacters++;
+            }
+        }
+
+        return phoneCharacters * 5 >= line.length( ) * 4;
+    }
+}
@@ -0,0 +1,252 @@
+package com.asymmetrik.ocr.parser.impl;
+
+import com.asymmetrik.ocr.parser.Configuration;
+import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+import edu.stanford.nlp.util.logging.RedwoodConfiguration;
+import org.apache.log4j.Logger;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide registry of loaded StanfordCoreNLP pipelines.
+ * <p>
+ * Loading a pipeline reads the NER model from disk, which takes seconds and hundreds of megabytes
+ * of heap.  Every parser that asks for the same PipelineProfile shares one pipeline, so the models
+ * are only loaded once per process no matter how many parsers are created.  The pipelines are safe
+ * to share, annotating does not change the loaded models.
+ * <p>
+ * Parsers annotate through a PipelinePool per profile, which bounds the concurrent annotate calls
+ * on the shared pipeline to the pipeline.poolSize property (the number of available processors by
+ * default), and the abandoned annotations still running to the name.maxAbandoned property.
+ */
+public final class ModelRegistry
+{
+    private static final Logger log = Logger.getLogger( ModelRegistry.class );
+
+    /**
+     * Business cards used to warm up a parser.  They cover the name, phone and email paths,
+     * including the paths taken when a field is missing.
+     */
+    private static final String[] WARM_UP_CARDS = {
+        "John Smith\nSoftware Developer\n(410) 555-1234\njsmith@foo.bar",
+        "Acme Corporation\nJane Doe\nDirector of Sales\n123 Main Street\nSpringfield, IL 62701\n"
+            + "Tel: +1 (217) 555-0142\nFax: +1 (217) 555-0143\njane.doe@acme.example.com",
+        "Welcome\nPlease come again" };
+
+    /**
+     * Loaded pipelines by profile.
+     */
+    private static final Map<PipelineProfile, LoadedPipeline> PIPELINES = new ConcurrentHashMap<>( );
+
+    /**
+     * Pipeline pools by profile.
+     */
+    private static final Map<PipelineProfile, PipelinePool> POOLS = new ConcurrentHashMap<>( );
+
+    private ModelRegistry( )
+    {
+    }
+
+    /**
+     * Returns the shared pipeline for a profile, loading it on first use.
+     *
+     * @param profile the PipelineProfile.
+     * @return the shared StanfordCoreNLP pipeline.
+     */
+    public static StanfordCoreNLP getPipeline( PipelineProfile profile )
+    {
+        return PIPELINES.computeIfAbsent( profile, ModelRegistry::load ).pipeline;
+    }
+
+    /**
+     * Returns the shared PipelinePool for a profile, loading the pipeline on first use.
+     *
+     * @param profile the PipelineProfile.
+     * @return the shared PipelinePool.
+     */
+    public static PipelinePool getPipelinePool( PipelineProfile profile )
+    {
+        String processors = String.valueOf( Runtime.getRuntime( ).availableProcessors( ) );
+
+        return POOLS.computeIfAbsent( profile, key -> new PipelinePool( getPipeline( key ),
+            Integer.parseInt( Configuration.getProperty( "pipeline.poolSize", processors ) ),
+            Integer.parseInt( Configuration.getProperty( "name.maxAbandoned", processors ) ) ) );
+    }
+
+    /**
+     * Loads the pipelines for the given profiles now rather than on first use.
+     *
+     * @param profiles the profiles to load.
+     */
+    public static void preload( PipelineProfile... profiles )
+    {
+        for ( PipelineProfile profile : profiles )
+        {
+            getPipeline( profile );
+        }
+    }
+
+    /**
+     * Runs a set of dummy business cards through the parser so the models are loaded and the
+     * parsing code is compiled by the JIT before real cards arrive.
+     * <p>
+     * The dummy cards must not end up in a cache or in the ParserMetrics, so wrapping parsers are
+     * unwrapped, and a DefaultBusinessCardParser is warmed up through a throwaway parser of the same
+     * profile that records no metrics; it shares the loaded pipeline with the real one.  Any other
+     * parser is warmed up as it is.
+     *
+     * @param parser     the parser to warm up.
+     * @param iterations number of times the dummy cards are parsed.
+     * @return the time the warm-up took in milliseconds.
+     */
+    public static long warmUp( BusinessCardParser parser, int iterations )
+    {
+        long start = System.nanoTime( );
+        parser = createWarmUpParser( parser );
+
+        for ( int i = 0; i < iterations; i++ )
+        {
+            for ( String card : WARM_UP_CARDS )
+            {
+                parser.getContactInfo( card );
+            }
+        }
+
+        long elapsedMillis = ( System.nanoTime( ) - start ) / 1000000;
+        log.info( "Warmed up parser with " + iterations * WARM_UP_CARDS.length + " cards in " + elapsedMillis + " ms." );
+
+        return elapsedMillis;
+    }
+
+    /**
+     * Helper method that returns the parser the dummy cards are run through in place of a parser.
+     *
+     * @param parser the parser to warm up.
+     * @return the parser that parses the dummy cards.
+     */
+    private static BusinessCardParser createWarmUpParser( BusinessCardParser parser )
+    {
+        if( parser instanceof CachingBusinessCardParser )
+        {
+            return createWarmUpParser( ( ( CachingBusinessCardParser ) parser ).delegate );
+        } else if( parser instanceof AsyncBusinessCardParser )
+        {
+            return createWarmUpParser( ( ( AsyncBusinessCardParser ) parser ).delegate );
+        } else if( parser instanceof ReloadingBusinessCardParser )
+        {
+            return createWarmUpParser( ( ( ReloadingBusinessCardParser ) parser ).getCurrent( ) );
+        } else if( parser instanceof DefaultBusinessCardParser )
+        {
+            DefaultBusinessCardParser throwaway = new DefaultBusinessCardParser( ( ( DefaultBusinessCardParser ) parser ).profile );
+            throwaway.metrics = null;
+            return throwaway;
+        }
+
+        return parser;
+    }
+
+    /**
+     * Returns how long it took to load the pipeline for a profile.
+     *
+     * @param profile the PipelineProfile.
+     * @return load time in milliseconds, -1 if the pipeline is not loaded.
+     */
+    public static long getLoadTimeMillis( PipelineProfile profile )
+    {
+        LoadedPipeline loaded = PIPELINES.get( profile );
+
+        return loaded == null ? -1 : loaded.loadTimeMillis;
+    }
+
+    /**
+     * Returns the heap used by the pipeline for a profile, measured as the growth of the used heap
+     * while it was loaded.  This is an estimate, other threads allocating at the same time are
+     * counted too.
+     *
+     * @param profile the PipelineProfile.
+     * @return resident model memory in bytes, -1 if the pipeline is not loaded.
+     */
+    public static long getModelMemoryBytes( PipelineProfile profile )
+    {
+        LoadedPipeline loaded = PIPELINES.get( profile );
+
+        return loaded == null ? -1 : loaded.memoryBytes;
+    }
+
+    /**
+     * Drops every loaded pipeline so its models can be garbage collected.  Parsers that already
+     * hold a pipeline keep using it.
+     */
+    public static void clear( )
+    {
+        POOLS.clear( );
+        PIPELINES.clear( );
+        StanfordCoreNLP.clearAnnotatorPool( );
+    }
+
+    /**
+     * Helper method that loads a pipeline and measures its load time and memory.
+     *
+     * @param profile the PipelineProfile.
+     * @return the loaded pipeline.
+     */
+    private static LoadedPipeline load( PipelineProfile profile )
+    {
+        RedwoodConfiguration.current( ).clear( ).apply( );
+
+        long usedBefore = usedMemory( );
+        long start = System.nanoTime( );
+
+        StanfordCoreNLP pipeline = new StanfordCoreNLP( profile.getProperties( ) );
+
+        long loadTimeMillis = ( System.nanoTime( ) - start ) / 1000000;
+        long memoryBytes = Math.max( 0, usedMemory( ) - usedBefore );
+
+        log.info( String.format( "Loaded %s pipeline in %d ms, approximately %d MB of models resident.",
+            profile, loadTimeMillis, memoryBytes / ( 1024 * 1024 ) ) );
+
+        return new LoadedPipeline( pipeline, loadTimeMillis, memoryBytes );
+    }
+
+    /**
+     * Helper method that returns the used heap after a garbage collection.
+     *
+     * @return used heap in bytes.
+     */
+    private static long usedMemory( )
+    {
+        Runtime runtime = Runtime.getRuntime( );
+        System.gc( );
+
+        return runtime.totalMemory( ) - runtime.freeMemory( );
+    }
+
+    /**
+     * A loaded pipeline and the cost of loading it.
+     */
+    private static class LoadedPipeline
+    {
+        /**
+         * The shared pipeline.
+         */
+        private final StanfordCoreNLP pipeline;
+
+        /**
+         * Time it took to load the pipeline in milliseconds.
+         */
+        private final long loadTimeMillis;
+
+        /**
+         * Growth of the used heap while the pipeline was loaded.
+         */
+        private final long memoryBytes;
+
+        LoadedPipeline( StanfordCoreNLP pipeline, long loadTimeMillis, long memoryBytes )
+        {
+            this.pipeline = pipeline;
+            this.loadTimeMillis = loadTimeMillis;
+            this.memoryBytes = memoryBytes;
+        }
+    }
+}
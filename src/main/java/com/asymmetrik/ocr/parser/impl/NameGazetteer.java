@@ -0,0 +1,350 @@
+package com.asymmetrik.ocr.parser.impl;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * A lexicon of given and family names used to recognize common names without running NER.
+ * <p>
+ * A line is a confident match when it is two to four title case words, the first word is a known
+ * given name, the last word is a known family name, and every word in between is a known name or
+ * an initial.  Family names that also end street and place names, like "Austin Park" or
+ * "Jordan Hill", are not trusted.  Anything else is left to the StanfordCoreNLP pipeline.
+ * <p>
+ * Each name list is packed into a single sorted char array with an offset per name and is searched
+ * with a case-insensitive binary search, so a lookup does not allocate and the lists take little
+ * more memory than their characters.  The bundled lists are in the names/ resource folder.
+ */
+public class NameGazetteer
+{
+    /**
+     * Resource with the bundled given names.
+     */
+    private static final String FIRST_NAMES = "names/first-names.txt";
+
+    /**
+     * Resource with the bundled family names.
+     */
+    private static final String LAST_NAMES = "names/last-names.txt";
+
+    /**
+     * Family names that are also the last word of many street and place names, in lower case.
+     */
+    private static final Set<String> PLACE_WORDS = new HashSet<>( Arrays.asList(
+        "street", "road", "lane", "drive", "avenue", "court", "place", "way", "park", "hill", "square",
+        "plaza", "parkway", "boulevard", "terrace", "heights", "circle" ) );
+
+    /**
+     * Given names.
+     */
+    private final PackedNames firstNames;
+
+    /**
+     * Family names.
+     */
+    private final PackedNames lastNames;
+
+    /**
+     * Instantiates a NameGazetteer with the bundled name lists.
+     */
+    public NameGazetteer( )
+    {
+        this( loadNames( FIRST_NAMES ), loadNames( LAST_NAMES ) );
+    }
+
+    /**
+     * Instantiates a NameGazetteer.
+     *
+     * @param firstNames the given names.
+     * @param lastNames  the family names.
+     */
+    public NameGazetteer( Collection<String> firstNames, Collection<String> lastNames )
+    {
+        this.firstNames = new PackedNames( firstNames );
+        this.lastNames = new PackedNames( lastNames );
+    }
+
+    /**
+     * Returns the shared NameGazetteer with the bundled name lists.
+     *
+     * @return the default gazetteer.
+     */
+    public static NameGazetteer getDefault( )
+    {
+        return DefaultHolder.INSTANCE;
+    }
+
+    /**
+     * Returns the name on the line if the gazetteer is confident it is a person's name.
+     *
+     * @param line a line of a business card.
+     * @return the name, without trailing commas, or null if the line is not a confident match.
+     */
+    public String match( String line )
+    {
+        String[] words = line.trim( ).split( "\\s+" );
+
+        if( words.length < 2 || words.length > 4 )
+        {
+            return null;
+        }
+
+        for ( int i = 0; i < words.length; i++ )
+        {
+            String word = words[ i ].endsWith( "," ) ? words[ i ].substring( 0, words[ i ].length( ) - 1 ) : words[ i ];
+
+            if( !isTitleCase( word ) )
+            {
+                return null;
+            }
+
+            boolean known;
+
+            if( i == 0 )
+            {
+                known = firstNames.contains( word );
+            } else if( i == words.length - 1 )
+            {
+                known = !PLACE_WORDS.contains( word.toLowerCase( Locale.ROOT ) ) && isLastName( word );
+            } else
+            {
+                known = isInitial( word ) || firstNames.contains( word ) || lastNames.contains( word );
+            }
+
+            if( !known )
+            {
+                return null;
+            }
+
+            words[ i ] = word;
+        }
+
+        return String.join( " ", words );
+    }
+
+    /**
+     * Returns whether a word is a known given name.
+     *
+     * @param word the word.
+     * @return true if it is in the given names list, ignoring case.
+     */
+    public boolean isFirstName( CharSequence word )
+    {
+        return firstNames.contains( word );
+    }
+
+    /**
+     * Returns whether a word is a known family name.  Every part of a hyphenated name must be known.
+     *
+     * @param word the word.
+     * @return true if it is in the family names list, ignoring case.
+     */
+    public boolean isLastName( String word )
+    {
+        if( lastNames.contains( word ) )
+        {
+            return true;
+        }
+
+        int hyphen = word.indexOf( '-' );
+
+        return hyphen > 0 && lastNames.contains( word.substring( 0, hyphen ) ) && isLastName( word.substring( hyphen + 1 ) );
+    }
+
+    /**
+     * Helper method that checks that a word starts with a capital and is otherwise letters,
+     * apostrophes, hyphens or a trailing period.  Words other than initials must have a lower
+     * case letter, so lines in all capitals are left to NER.
+     *
+     * @param word the word.
+     * @return true if the word is title case.
+     */
+    private static boolean isTitleCase( String word )
+    {
+        if( word.isEmpty( ) || !Character.isUpperCase( word.charAt( 0 ) ) )
+        {
+            return false;
+        }
+
+        boolean lowerCase = false;
+
+        for ( int i = 1; i < word.length( ); i++ )
+        {
+            char c = word.charAt( i );
+
+            if( !Character.isLetter( c ) && c != '\'' && c != '-' && !( c == '.' && i == word.length( ) - 1 ) )
+            {
+                return false;
+            }
+
+            lowerCase |= Character.isLowerCase( c );
+        }
+
+        return lowerCase || isInitial( word );
+    }
+
+    /**
+     * Helper method that checks whether a word is an initial, e.g. "J" or "J.".
+     *
+     * @param word a title case word.
+     * @return true if the word is an initial.
+     */
+    private static boolean isInitial( String word )
+    {
+        return word.length( ) == 1 || ( word.length( ) == 2 && word.charAt( 1 ) == '.' );
+    }
+
+    /**
+     * Helper method that reads a name list resource, skipping blank lines and # comments.
+     *
+     * @param resource the resource path.
+     * @return the names.
+     */
+    private static List<String> loadNames( String resource )
+    {
+        InputStream in = NameGazetteer.class.getClassLoader( ).getResourceAsStream( resource );
+
+        if( in == null )
+        {
+            throw new IllegalStateException( "Name list not found: " + resource );
+        }
+
+        List<String> names = new ArrayList<>( );
+
+        try ( BufferedReader reader = new BufferedReader( new InputStreamReader( in, StandardCharsets.UTF_8 ) ) )
+        {
+            String line;
+
+            while ( ( line = reader.readLine( ) ) != null )
+            {
+                line = line.trim( );
+
+                if( !line.isEmpty( ) && !line.startsWith( "#" ) )
+                {
+                    names.add( line );
+                }
+            }
+        } catch ( IOException e )
+        {
+            throw new UncheckedIOException( "Unable to read name list: " + resource, e );
+        }
+
+        return names;
+    }
+
+    /**
+     * A sorted set of lower case names packed into one char array.
+     */
+    private static class PackedNames
+    {
+        /**
+         * The names, concatenated in sorted order.
+         */
+        private final char[] chars;
+
+        /**
+         * Start of every name in chars, followed by the total length.
+         */
+        private final int[] offsets;
+
+        PackedNames( Collection<String> names )
+        {
+            TreeSet<String> sorted = new TreeSet<>( );
+
+            for ( String name : names )
+            {
+                sorted.add( name.toLowerCase( Locale.ROOT ) );
+            }
+
+            StringBuilder packed = new StringBuilder( );
+            offsets = new int[ sorted.size( ) + 1 ];
+            int i = 0;
+
+            for ( String name : sorted )
+            {
+                offsets[ i++ ] = packed.length( );
+                packed.append( name );
+            }
+
+            offsets[ i ] = packed.length( );
+            chars = packed.toString( ).toCharArray( );
+        }
+
+        /**
+         * Returns whether the set contains a word, ignoring case.
+         *
+         * @param word the word.
+         * @return true if the word is in the set.
+         */
+        boolean contains( CharSequence word )
+        {
+            int low = 0;
+            int high = offsets.length - 2;
+
+            while ( low <= high )
+            {
+                int mid = ( low + high ) >>> 1;
+                int comparison = compare( mid, word );
+
+                if( comparison < 0 )
+                {
+                    low = mid + 1;
+                } else if( comparison > 0 )
+                {
+                    high = mid - 1;
+                } else
+                {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        /**
+         * Helper method that compares a packed name with a word lower cased.
+         *
+         * @param index index of the packed name.
+         * @param word  the word.
+         * @return negative, zero or positive as the name is before, equal to or after the word.
+         */
+        private int compare( int index, CharSequence word )
+        {
+            int start = offsets[ index ];
+            int length = offsets[ index + 1 ] - start;
+            int common = Math.min( length, word.length( ) );
+
+            for ( int i = 0; i < common; i++ )
+            {
+                int difference = chars[ start + i ] - Character.toLowerCase( word.charAt( i ) );
+
+                if( difference != 0 )
+                {
+                    return difference;
+                }
+            }
+
+            return length - word.length( );
+        }
+    }
+
+    /**
+     * Holder of the shared instance, loaded on first use.
+     */
+    private static class DefaultHolder
+    {
+        private static final NameGazetteer INSTANCE = new NameGazetteer( );
+    }
+}
@@ -0,0 +1,321 @@
+package com.asymmetrik.ocr.parser.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Groups near-duplicate business cards, such as the same card scanned twice with different OCR
+ * noise, so the expensive parts of parsing only run once per group.
+ * <p>
+ * Each card is reduced to a MinHash signature over the character shingles of its lines, after
+ * lower casing and collapsing whitespace.  The fraction of equal signature values estimates the
+ * Jaccard similarity of the shingle sets.  Signatures are split into bands for locality sensitive
+ * hashing, so only cards that share a band are compared and grouping a batch takes close to
+ * linear time.  Cards whose estimated similarity reaches the threshold are put in the same group.
+ * <p>
+ * Cards from the same company share most of their lines, so a group only says two cards look
+ * alike.  Callers must check that a result can be shared before reusing it, see matchesApproximately().
+ */
+public class NearDuplicateGrouper
+{
+    /**
+     * Length of the character shingles.
+     */
+    private static final int SHINGLE_LENGTH = 4;
+
+    /**
+     * Number of MinHash values per signature.
+     */
+    private static final int SIGNATURE_SIZE = 64;
+
+    /**
+     * Number of signature values per LSH band.  With 16 bands of 4 rows, cards with a similarity of
+     * 0.8 share a band with a probability of over 99.9%, cards with 0.3 with under 13%.
+     */
+    private static final int BAND_ROWS = 4;
+
+    /**
+     * Minimum estimated Jaccard similarity of two cards in the same group.
+     */
+    private final double threshold;
+
+    /**
+     * Instantiates a NearDuplicateGrouper.
+     *
+     * @param threshold minimum estimated Jaccard similarity of two cards in the same group, between 0 and 1.
+     */
+    public NearDuplicateGrouper( double threshold )
+    {
+        if( threshold <= 0 || threshold > 1 )
+        {
+            throw new IllegalArgumentException( "Similarity threshold must be above 0 and at most 1, was " + threshold );
+        }
+
+        this.threshold = threshold;
+    }
+
+    /**
+     * Groups the documents.
+     *
+     * @param documents the documents.
+     * @return for every document, the index of the first document of its group, which is its own
+     * index if it is the first or has no near-duplicates.
+     */
+    public int[] group( List<? extends CharSequence> documents )
+    {
+        int size = documents.size( );
+        long[][] signatures = new long[ size ][ ];
+        int[] parents = new int[ size ];
+        Map<Long, List<Integer>> buckets = new HashMap<>( );
+
+        for ( int i = 0; i < size; i++ )
+        {
+            signatures[ i ] = signature( documents.get( i ) );
+            parents[ i ] = i;
+
+            for ( int band = 0; band < SIGNATURE_SIZE / BAND_ROWS; band++ )
+            {
+                List<Integer> bucket = buckets.computeIfAbsent( bandKey( signatures[ i ], band ), key -> new ArrayList<>( 2 ) );
+
+                for ( int other : bucket )
+                {
+                    if( find( parents, other ) != find( parents, i ) && similarity( signatures[ other ], signatures[ i ] ) >= threshold )
+                    {
+                        union( parents, other, i );
+                    }
+                }
+
+                bucket.add( i );
+            }
+        }
+
+        int[] representatives = new int[ size ];
+
+        for ( int i = 0; i < size; i++ )
+        {
+            representatives[ i ] = find( parents, i );
+        }
+
+        return representatives;
+    }
+
+    /**
+     * Computes the MinHash signature of a document.
+     *
+     * @param document the document.
+     * @return the signature, SIGNATURE_SIZE minimum hash values.
+     */
+    long[] signature( CharSequence document )
+    {
+        long[] signature = new long[ SIGNATURE_SIZE ];
+        Arrays.fill( signature, Long.MAX_VALUE );
+
+        StringBuilder line = new StringBuilder( );
+
+        for ( int i = 0; i <= document.length( ); i++ )
+        {
+            char c = i < document.length( ) ? document.charAt( i ) : '\n';
+
+            if( c == '\n' || c == '\r' )
+            {
+                addShingles( line, signature );
+                line.setLength( 0 );
+            } else if( Character.isWhitespace( c ) )
+            {
+                if( line.length( ) > 0 && line.charAt( line.length( ) - 1 ) != ' ' )
+                {
+                    line.append( ' ' );
+                }
+            } else
+            {
+                line.append( Character.toLowerCase( c ) );
+            }
+        }
+
+        return signature;
+    }
+
+    /**
+     * Estimates the Jaccard similarity of two documents from their signatures.
+     *
+     * @param first  signature of the first document.
+     * @param second signature of the second document.
+     * @return the fraction of equal signature values.
+     */
+    static double similarity( long[] first, long[] second )
+    {
+        int equal = 0;
+
+        for ( int i = 0; i < first.length; i++ )
+        {
+            equal += first[ i ] == second[ i ] ? 1 : 0;
+        }
+
+        return equal / ( double ) first.length;
+    }
+
+    /**
+     * Returns whether the text contains the pattern with at most maxEdits insertions, deletions or
+     * substitutions, ignoring case.  Used to check that a name or email address found on one card
+     * of a group is also written on another, allowing for OCR noise.
+     *
+     * @param text     the text.
+     * @param pattern  the pattern.
+     * @param maxEdits maximum number of edits.
+     * @return true if an approximate match is found.
+     */
+    public static boolean matchesApproximately( CharSequence text, CharSequence pattern, int maxEdits )
+    {
+        int m = pattern.length( );
+        int[] previous = new int[ m + 1 ];
+        int[] current = new int[ m + 1 ];
+
+        for ( int j = 0; j <= m; j++ )
+        {
+            previous[ j ] = j;
+        }
+
+        if( previous[ m ] <= maxEdits )
+        {
+            return true;
+        }
+
+        // Sellers' algorithm: edit distance where the match may start anywhere in the text
+        for ( int i = 1; i <= text.length( ); i++ )
+        {
+            char c = Character.toLowerCase( text.charAt( i - 1 ) );
+            current[ 0 ] = 0;
+
+            for ( int j = 1; j <= m; j++ )
+            {
+                int substitution = previous[ j - 1 ] + ( Character.toLowerCase( pattern.charAt( j - 1 ) ) == c ? 0 : 1 );
+                current[ j ] = Math.min( substitution, Math.min( previous[ j ], current[ j - 1 ] ) + 1 );
+            }
+
+            if( current[ m ] <= maxEdits )
+            {
+                return true;
+            }
+
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+
+        return false;
+    }
+
+    /**
+     * Helper method that adds the shingles of a normalized line to a signature.  Lines shorter than
+     * a shingle are added whole.
+     *
+     * @param line      the normalized line.
+     * @param signature the signature.
+     */
+    private static void addShingles( CharSequence line, long[] signature )
+    {
+        int length = line.length( );
+
+        if( length > 0 && line.charAt( length - 1 ) == ' ' )
+        {
+            length--;
+        }
+
+        if( length == 0 )
+        {
+            return;
+        }
+
+        for ( int start = 0; start <= Math.max( 0, length - SHINGLE_LENGTH ); start++ )
+        {
+            long hash = 0xcbf29ce484222325L;
+
+            for ( int i = start; i < Math.min( length, start + SHINGLE_LENGTH ); i++ )
+            {
+                hash = ( hash ^ line.charAt( i ) ) * 0x100000001b3L;
+            }
+
+            for ( int k = 0; k < SIGNATURE_SIZE; k++ )
+            {
+                long value = mix( hash + k * 0x9e3779b97f4a7c15L );
+
+                if( value < signature[ k ] )
+                {
+                    signature[ k ] = value;
+                }
+            }
+        }
+    }
+
+    /**
+     * Helper method that hashes the rows of a signature band into a bucket key.
+     *
+     * @param signature the signature.
+     * @param band      the band.
+     * @return the bucket key, different bands never share keys in practice.
+     */
+    private static long bandKey( long[] signature, int band )
+    {
+        long key = band;
+
+        for ( int i = band * BAND_ROWS; i < ( band + 1 ) * BAND_ROWS; i++ )
+        {
+            key = mix( key * 31 + signature[ i ] );
+        }
+
+        return key;
+    }
+
+    /**
+     * Helper method that scrambles the bits of a hash, the finalizer of MurmurHash3.
+     *
+     * @param value the value.
+     * @return the scrambled value.
+     */
+    private static long mix( long value )
+    {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb93e5fe73b53L;
+        value ^= value >>> 33;
+
+        return value;
+    }
+
+    /**
+     * Helper method that finds the root of a group, the lowest index in it.
+     *
+     * @param parents parent of every document.
+     * @param index   the document.
+     * @return the root.
+     */
+    private static int find( int[] parents, int index )
+    {
+        while ( parents[ index ] != index )
+        {
+            parents[ index ] = parents[ parents[ index ] ];
+            index = parents[ index ];
+        }
+
+        return index;
+    }
+
+    /**
+     * Helper method that merges the groups of two documents, keeping the lower root.
+     *
+     * @param parents parent of every document.
+     * @param first   a document.
+     * @param second  another document.
+     */
+    private static void union( int[] parents, int first, int second )
+    {
+        int firstRoot = find( parents, first );
+        int secondRoot = find( parents, second );
+
+        parents[ Math.max( firstRoot, secondRoot ) ] = Math.min( firstRoot, secondRoot );
+    }
+}
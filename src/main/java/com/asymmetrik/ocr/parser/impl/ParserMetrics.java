@@ -0,0 +1,382 @@
+package com.asymmetrik.ocr.parser.impl;
+
+import com.asymmetrik.ocr.parser.Configuration;
+import org.apache.log4j.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-stage latencies, throughput, per-field miss counts, the NameGazetteer hit rate and the names
+ * reused from near-duplicate batch cards of the DefaultBusinessCardParser.
+ * <p>
+ * Every stage of getContactInfo has a LatencyHistogram, the ANNOTATE stage records each NER
+ * annotate call of the NAME stage separately.  The counters are LongAdders and the histograms are
+ * lock-free, so recording costs a few System.nanoTime() calls and atomic increments per card.
+ * <p>
+ * The process-wide instance returned by getDefault() is registered with the platform MBeanServer
+ * under com.asymmetrik.ocr.parser:type=ParserMetrics, with one MBean per stage, and logs a summary
+ * every metrics.logIntervalSeconds seconds (60 by default, 0 to turn it off).  Setting
+ * metrics.enabled to false makes the parsers skip recording altogether.
+ */
+public class ParserMetrics implements ParserMetricsMBean
+{
+    private static final Logger log = Logger.getLogger( ParserMetrics.class );
+
+    /**
+     * JMX domain of the MBeans.
+     */
+    private static final String JMX_DOMAIN = "com.asymmetrik.ocr.parser";
+
+    /**
+     * The timed stages of parsing a card.
+     */
+    public enum Stage
+    {
+        TOTAL, NAME, ANNOTATE, PHONE, EMAIL, EXTRAS
+    }
+
+    /**
+     * Latencies by stage.
+     */
+    private final Map<Stage, LatencyHistogram> histograms = new EnumMap<>( Stage.class );
+
+    /**
+     * Number of parsed cards.
+     */
+    private final LongAdder cards = new LongAdder( );
+
+    /**
+     * Number of NER annotate calls.
+     */
+    private final LongAdder annotateCalls = new LongAdder( );
+
+    /**
+     * Number of cards without a name.
+     */
+    private final LongAdder nameMisses = new LongAdder( );
+
+    /**
+     * Number of cards without a phone number.
+     */
+    private final LongAdder phoneMisses = new LongAdder( );
+
+    /**
+     * Number of cards without an email address.
+     */
+    private final LongAdder emailMisses = new LongAdder( );
+
+    /**
+     * Number of cards whose name was found by the NameGazetteer.
+     */
+    private final LongAdder gazetteerHits = new LongAdder( );
+
+    /**
+     * Number of cards whose name was left to NER by the NameGazetteer.
+     */
+    private final LongAdder gazetteerMisses = new LongAdder( );
+
+    /**
+     * Number of batch cards whose name was reused from a near-duplicate card without NER.
+     */
+    private final LongAdder duplicateNames = new LongAdder( );
+
+    /**
+     * Number of cards whose name was guessed by a heuristic because NER ran past its deadline.
+     */
+    private final LongAdder degradedCards = new LongAdder( );
+
+    /**
+     * Time the metrics were created or reset.
+     */
+    private volatile long startNanos = System.nanoTime( );
+
+    /**
+     * Instantiates a ParserMetrics that is not registered with JMX.
+     */
+    public ParserMetrics( )
+    {
+        for ( Stage stage : Stage.values( ) )
+        {
+            histograms.put( stage, new LatencyHistogram( ) );
+        }
+    }
+
+    /**
+     * Returns the process-wide metrics shared by every DefaultBusinessCardParser, or null if
+     * metrics.enabled is false.
+     *
+     * @return the default metrics.
+     */
+    public static ParserMetrics getDefault( )
+    {
+        return DefaultHolder.INSTANCE;
+    }
+
+    /**
+     * Records the latency of a stage.
+     *
+     * @param stage the stage.
+     * @param nanos the latency in nanoseconds.
+     */
+    public void record( Stage stage, long nanos )
+    {
+        histograms.get( stage ).record( nanos );
+
+        if( stage == Stage.ANNOTATE )
+        {
+            annotateCalls.increment( );
+        }
+    }
+
+    /**
+     * Records a parsed card.
+     *
+     * @param contactInfo the result.
+     * @param nanos       the time it took to parse the card.
+     */
+    public void recordCard( ContactInfo contactInfo, long nanos )
+    {
+        histograms.get( Stage.TOTAL ).record( nanos );
+        cards.increment( );
+
+        if( contactInfo.getName( ) == null )
+        {
+            nameMisses.increment( );
+        }
+
+        if( contactInfo.getPhoneNumber( ) == null )
+        {
+            phoneMisses.increment( );
+        }
+
+        if( contactInfo.getEmailAddress( ) == null )
+        {
+            emailMisses.increment( );
+        }
+    }
+
+    /**
+     * Records whether the NameGazetteer fast path found a card's name.
+     *
+     * @param hit true if the name was found without NER.
+     */
+    public void recordGazetteer( boolean hit )
+    {
+        ( hit ? gazetteerHits : gazetteerMisses ).increment( );
+    }
+
+    /**
+     * Records batch cards whose name was reused from a near-duplicate card without NER.
+     *
+     * @param count number of cards.
+     */
+    public void recordDuplicateNames( long count )
+    {
+        duplicateNames.add( count );
+    }
+
+    /**
+     * Records a card whose name was guessed by a heuristic because NER ran past its deadline.
+     */
+    public void recordDegraded( )
+    {
+        degradedCards.increment( );
+    }
+
+    /**
+     * Returns the latencies of a stage.
+     *
+     * @param stage the stage.
+     * @return the histogram.
+     */
+    public LatencyHistogram getHistogram( Stage stage )
+    {
+        return histograms.get( stage );
+    }
+
+    @Override
+    public long getCards( )
+    {
+        return cards.sum( );
+    }
+
+    @Override
+    public double getCardsPerSecond( )
+    {
+        double seconds = ( System.nanoTime( ) - startNanos ) / 1e9;
+
+        return seconds <= 0 ? 0 : cards.sum( ) / seconds;
+    }
+
+    @Override
+    public long getAnnotateCalls( )
+    {
+        return annotateCalls.sum( );
+    }
+
+    @Override
+    public long getNameMisses( )
+    {
+        return nameMisses.sum( );
+    }
+
+    @Override
+    public long getPhoneMisses( )
+    {
+        return phoneMisses.sum( );
+    }
+
+    @Override
+    public long getEmailMisses( )
+    {
+        return emailMisses.sum( );
+    }
+
+    @Override
+    public long getGazetteerHits( )
+    {
+        return gazetteerHits.sum( );
+    }
+
+    @Override
+    public double getGazetteerHitRate( )
+    {
+        long hits = gazetteerHits.sum( );
+        long total = hits + gazetteerMisses.sum( );
+
+        return total == 0 ? 0 : hits / ( double ) total;
+    }
+
+    @Override
+    public long getDuplicateNames( )
+    {
+        return duplicateNames.sum( );
+    }
+
+    @Override
+    public long getDegradedCards( )
+    {
+        return degradedCards.sum( );
+    }
+
+    @Override
+    public void reset( )
+    {
+        for ( LatencyHistogram histogram : histograms.values( ) )
+        {
+            histogram.reset( );
+        }
+
+        cards.reset( );
+        annotateCalls.reset( );
+        nameMisses.reset( );
+        phoneMisses.reset( );
+        emailMisses.reset( );
+        gazetteerHits.reset( );
+        gazetteerMisses.reset( );
+        duplicateNames.reset( );
+        degradedCards.reset( );
+        startNanos = System.nanoTime( );
+    }
+
+    /**
+     * Returns a multi-line summary of the counters and the latency of every stage.
+     *
+     * @return the summary.
+     */
+    @Override
+    public String toString( )
+    {
+        StringBuilder summary = new StringBuilder( String.format(
+            "Parser metrics: %d cards, %.1f cards/sec, %d annotate calls, gazetteer hit rate %.1f%%, %d names reused from near-duplicates, %d degraded, misses name=%d phone=%d email=%d",
+            getCards( ), getCardsPerSecond( ), getAnnotateCalls( ), getGazetteerHitRate( ) * 100,
+            getDuplicateNames( ), getDegradedCards( ), getNameMisses( ), getPhoneMisses( ), getEmailMisses( ) ) );
+
+        for ( Stage stage : Stage.values( ) )
+        {
+            summary.append( "\n  " ).append( stage ).append( ": " ).append( histograms.get( stage ) );
+        }
+
+        return summary.toString( );
+    }
+
+    /**
+     * Registers the metrics and the stage histograms with the platform MBeanServer.
+     *
+     * @throws JMException thrown if the MBeans cannot be registered.
+     */
+    void register( ) throws JMException
+    {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer( );
+
+        server.registerMBean( this, new ObjectName( JMX_DOMAIN + ":type=ParserMetrics" ) );
+
+        for ( Stage stage : Stage.values( ) )
+        {
+            server.registerMBean( histograms.get( stage ), new ObjectName( JMX_DOMAIN
+                + ":type=ParserMetrics,stage=" + stage.name( ).toLowerCase( Locale.ROOT ) ) );
+        }
+    }
+
+    /**
+     * Holder of the process-wide instance, created on first use.
+     */
+    private static class DefaultHolder
+    {
+        private static final ParserMetrics INSTANCE = createDefault( );
+
+        /**
+         * Helper method that creates the process-wide instance, registers it with JMX and schedules
+         * the log summary.
+         *
+         * @return the metrics, null if they are turned off.
+         */
+        private static ParserMetrics createDefault( )
+        {
+            if( !Boolean.parseBoolean( Configuration.getProperty( "metrics.enabled", "true" ) ) )
+            {
+                return null;
+            }
+
+            ParserMetrics metrics = new ParserMetrics( );
+
+            try
+            {
+                metrics.register( );
+            } catch ( JMException e )
+            {
+                log.warn( "Unable to register parser metrics with JMX.", e );
+            }
+
+            long interval = Long.parseLong( Configuration.getProperty( "metrics.logIntervalSeconds", "60" ) );
+
+            if( interval > 0 )
+            {
+                ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor( runnable -> {
+                    Thread thread = new Thread( runnable, "parser-metrics" );
+                    thread.setDaemon( true );
+                    return thread;
+                } );
+
+                scheduler.scheduleAtFixedRate( ( ) -> {
+                    if( metrics.getCards( ) > 0 )
+                    {
+                        log.info( metrics );
+                    }
+                }, interval, interval, TimeUnit.SECONDS );
+            }
+
+            return metrics;
+        }
+    }
+}
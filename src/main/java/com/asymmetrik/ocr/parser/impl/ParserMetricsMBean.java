@@ -0,0 +1,85 @@
+package com.asymmetrik.ocr.parser.impl;
+
+/**
+ * JMX management interface of the ParserMetrics counters.  The per-stage latencies are
+ * registered as separate LatencyHistogram MBeans.
+ */
+public interface ParserMetricsMBean
+{
+    /**
+     * Returns the number of parsed cards.
+     *
+     * @return the card count.
+     */
+    long getCards( );
+
+    /**
+     * Returns the average throughput since the metrics were created or reset.
+     *
+     * @return cards per second.
+     */
+    double getCardsPerSecond( );
+
+    /**
+     * Returns the number of lines sent to the NER annotator.
+     *
+     * @return the annotate call count.
+     */
+    long getAnnotateCalls( );
+
+    /**
+     * Returns the number of cards without a name.
+     *
+     * @return the name miss count.
+     */
+    long getNameMisses( );
+
+    /**
+     * Returns the number of cards without a phone number.
+     *
+     * @return the phone miss count.
+     */
+    long getPhoneMisses( );
+
+    /**
+     * Returns the number of cards without an email address.
+     *
+     * @return the email miss count.
+     */
+    long getEmailMisses( );
+
+    /**
+     * Returns the number of cards whose name was found by the NameGazetteer without NER.
+     *
+     * @return the gazetteer hit count.
+     */
+    long getGazetteerHits( );
+
+    /**
+     * Returns the share of cards whose name was found by the NameGazetteer without NER.
+     *
+     * @return the hit rate, between 0 and 1.
+     */
+    double getGazetteerHitRate( );
+
+    /**
+     * Returns the number of batch cards whose name was reused from a near-duplicate card, each
+     * saving at least one NER annotate call.
+     *
+     * @return the reused name count.
+     */
+    long getDuplicateNames( );
+
+    /**
+     * Returns the number of cards whose name was guessed by a heuristic because NER ran past the
+     * name.deadlineMillis deadline.
+     *
+     * @return the degraded card count.
+     */
+    long getDegradedCards( );
+
+    /**
+     * Clears the counters and latencies.
+     */
+    void reset( );
+}
@@ -0,0 +1,266 @@
+package com.asymmetrik.ocr.parser.impl;
+
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounds the number of concurrent annotate calls on the shared StanfordCoreNLP pipeline of one
+ * PipelineProfile.
+ * <p>
+ * There is a single pipeline.  StanfordCoreNLP annotators are thread-safe and keep no per-call
+ * state, which is what StanfordCoreNLP's own multi-threaded annotate relies on, so any number of
+ * threads may annotate with the same pipeline.  Separate StanfordCoreNLP instances built from the
+ * same properties would get the same annotators from its annotator pool, so they would not isolate
+ * anything.  The pool only holds a Semaphore of maxSize permits: at most maxSize threads annotate
+ * at once, counting every thread of a batch annotation, and further callers wait for permits so
+ * the processors are not oversubscribed.
+ * <p>
+ * Annotations that run with a deadline take their permit with tryAcquire() and give it back when
+ * they give up, so an abandoned annotation that is still running does not hold a permit.  They run
+ * on the pool's own executor, which has a thread per permit and one per abandoned annotation that
+ * may still be running.  The pool counts its abandoned annotations, and callers stop starting new
+ * ones once maxAbandoned of them are running, so the executor always has a free thread.
+ */
+public class PipelinePool
+{
+    /**
+     * The shared pipeline.
+     */
+    private final StanfordCoreNLP pipeline;
+
+    /**
+     * Maximum number of concurrent annotate calls.
+     */
+    private final int maxSize;
+
+    /**
+     * One permit per annotate call that may run.
+     */
+    private final Semaphore permits;
+
+    /**
+     * Number of abandoned annotations still running at which no more are started.
+     */
+    private final int maxAbandoned;
+
+    /**
+     * Number of abandoned annotations that are still running.
+     */
+    private final AtomicInteger abandoned = new AtomicInteger( );
+
+    /**
+     * Executor the annotations with a deadline run on, created on first use.
+     */
+    private volatile ExecutorService executor;
+
+    /**
+     * Instantiates a PipelinePool that allows as many abandoned annotations as permits.
+     *
+     * @param pipeline the loaded pipeline for the profile.
+     * @param maxSize  maximum number of concurrent annotate calls, must be at least 1.
+     */
+    public PipelinePool( StanfordCoreNLP pipeline, int maxSize )
+    {
+        this( pipeline, maxSize, maxSize );
+    }
+
+    /**
+     * Instantiates a PipelinePool.
+     *
+     * @param pipeline     the loaded pipeline for the profile.
+     * @param maxSize      maximum number of concurrent annotate calls, must be at least 1.
+     * @param maxAbandoned number of abandoned annotations still running at which no more are
+     *                     started, must be at least 1.
+     */
+    public PipelinePool( StanfordCoreNLP pipeline, int maxSize, int maxAbandoned )
+    {
+        if( maxSize < 1 )
+        {
+            throw new IllegalArgumentException( "Pipeline pool size must be at least 1, was " + maxSize );
+        }
+
+        if( maxAbandoned < 1 )
+        {
+            throw new IllegalArgumentException( "name.maxAbandoned must be at least 1, was " + maxAbandoned );
+        }
+
+        this.pipeline = pipeline;
+        this.maxSize = maxSize;
+        this.permits = new Semaphore( maxSize, true );
+        this.maxAbandoned = maxAbandoned;
+    }
+
+    /**
+     * Annotates the document once a permit is available.
+     *
+     * @param document the document to annotate.
+     */
+    public void annotate( Annotation document )
+    {
+        acquire( 1 );
+
+        try
+        {
+            pipeline.annotate( document );
+        } finally
+        {
+            permits.release( );
+        }
+    }
+
+    /**
+     * Annotates many documents with StanfordCoreNLP's multi-threaded batch annotation.  Every
+     * annotating thread counts against the bound: the call takes one permit per thread, and uses
+     * at most maxSize threads.  Returns once every document is annotated.
+     *
+     * @param documents the documents to annotate.
+     * @param threads   number of threads StanfordCoreNLP annotates the documents on, lowered to maxSize.
+     */
+    public void annotate( Iterable<Annotation> documents, int threads )
+    {
+        int granted = Math.max( 1, Math.min( threads, maxSize ) );
+
+        acquire( granted );
+
+        try
+        {
+            pipeline.annotate( documents, granted );
+        } finally
+        {
+            permits.release( granted );
+        }
+    }
+
+    /**
+     * Returns the maximum number of concurrent annotate calls.
+     *
+     * @return the pool size.
+     */
+    public int getMaxSize( )
+    {
+        return maxSize;
+    }
+
+    /**
+     * Returns the number of abandoned annotations still running at which no more are started.
+     *
+     * @return the limit.
+     */
+    public int getMaxAbandoned( )
+    {
+        return maxAbandoned;
+    }
+
+    /**
+     * Returns the number of abandoned annotations that are still running.
+     *
+     * @return the number of abandoned annotations.
+     */
+    public int getAbandoned( )
+    {
+        return abandoned.get( );
+    }
+
+    /**
+     * Returns the shared pipeline, for callers that hold a permit taken with tryAcquire().
+     *
+     * @return the pipeline.
+     */
+    StanfordCoreNLP getPipeline( )
+    {
+        return pipeline;
+    }
+
+    /**
+     * Waits up to a timeout for a permit.  The caller gives it back with release() once its
+     * annotate call is finished or abandoned.
+     *
+     * @param timeoutNanos longest time to wait in nanoseconds.
+     * @return true if a permit was taken.
+     * @throws InterruptedException thrown if the thread is interrupted while waiting.
+     */
+    boolean tryAcquire( long timeoutNanos ) throws InterruptedException
+    {
+        return permits.tryAcquire( timeoutNanos, TimeUnit.NANOSECONDS );
+    }
+
+    /**
+     * Gives back a permit taken with tryAcquire().
+     */
+    void release( )
+    {
+        permits.release( );
+    }
+
+    /**
+     * Runs an annotation with a deadline on the pool's executor.  Its idle threads exit after a
+     * minute, so a pool that is replaced does not keep them.
+     *
+     * @param annotation the annotation.
+     */
+    void execute( Runnable annotation )
+    {
+        if( executor == null )
+        {
+            synchronized ( this )
+            {
+                if( executor == null )
+                {
+                    int threads = maxSize + maxAbandoned;
+                    AtomicInteger count = new AtomicInteger( );
+                    ThreadPoolExecutor created = new ThreadPoolExecutor( threads, threads, 1, TimeUnit.MINUTES,
+                        new LinkedBlockingQueue<>( ), runnable -> {
+                        Thread thread = new Thread( runnable, "name-annotator-" + count.incrementAndGet( ) );
+                        thread.setDaemon( true );
+                        return thread;
+                    } );
+                    created.allowCoreThreadTimeOut( true );
+                    executor = created;
+                }
+            }
+        }
+
+        executor.execute( annotation );
+    }
+
+    /**
+     * Counts an annotation that was abandoned while it was running.
+     */
+    void addAbandoned( )
+    {
+        abandoned.incrementAndGet( );
+    }
+
+    /**
+     * Stops counting an abandoned annotation once it has finished.
+     */
+    void removeAbandoned( )
+    {
+        abandoned.decrementAndGet( );
+    }
+
+    /**
+     * Helper method that waits for permits.  The Semaphore is fair, so a batch waiting for several
+     * permits is not overtaken indefinitely by single annotations.
+     *
+     * @param count number of permits.
+     */
+    private void acquire( int count )
+    {
+        try
+        {
+            permits.acquire( count );
+        } catch ( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+            throw new IllegalStateException( "Interrupted while waiting for a pipeline.", e );
+        }
+    }
+}
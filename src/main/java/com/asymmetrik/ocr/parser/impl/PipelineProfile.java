@@ -0,0 +1,110 @@
+package com.asymmetrik.ocr.parser.impl;
+
+import com.asymmetrik.ocr.parser.Configuration;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+/**
+ * Named StanfordCoreNLP pipeline configurations.
+ * <p>
+ * Each profile maps to a properties file on the classpath.  The DefaultBusinessCardParser only
+ * reads the NER tags, so the cheaper profiles drop the annotators that do not contribute to them.
+ * <ul>
+ * <li>ACCURATE - tokenize, ssplit, pos, lemma, ner, parse (stanfordcorenlp.properties)</li>
+ * <li>FAST - tokenize, ssplit, pos, ner without SUTime or the numeric classifiers
+ * (stanfordcorenlp-fast.properties)</li>
+ * <li>MINIMAL - tokenize, ssplit, ner without SUTime or the numeric classifiers
+ * (stanfordcorenlp-minimal.properties)</li>
+ * </ul>
+ * When the models.path property is set, the model files named by the *.model properties are read
+ * from that directory instead of the classpath, so the CoreNLP models jar does not have to be
+ * bundled.  Only the MINIMAL profile runs with nothing but the NER model, the other profiles also
+ * need the default POS tagger and parser models under the same relative paths.
+ */
+public enum PipelineProfile
+{
+    ACCURATE( "stanfordcorenlp" ),
+    FAST( "stanfordcorenlp-fast" ),
+    MINIMAL( "stanfordcorenlp-minimal" );
+
+    /**
+     * Name of the properties file, without the .properties extension.
+     */
+    private final String propertiesName;
+
+    /**
+     * Instantiates a PipelineProfile.
+     *
+     * @param propertiesName name of the properties file, without the .properties extension.
+     */
+    PipelineProfile( String propertiesName )
+    {
+        this.propertiesName = propertiesName;
+    }
+
+    /**
+     * Returns the name of the properties file used by the StanfordCoreNLP pipeline.
+     *
+     * @return properties file name, without the .properties extension.
+     */
+    public String getPropertiesName( )
+    {
+        return propertiesName;
+    }
+
+    /**
+     * Returns the properties of the StanfordCoreNLP pipeline, with the model paths resolved
+     * against the models.path property if it is set.
+     *
+     * @return the pipeline properties.
+     */
+    public Properties getProperties( )
+    {
+        String resource = propertiesName + ".properties";
+        Properties properties = new Properties( );
+
+        try ( InputStream in = PipelineProfile.class.getClassLoader( ).getResourceAsStream( resource ) )
+        {
+            if( in == null )
+            {
+                throw new IllegalStateException( "Pipeline properties not found: " + resource );
+            }
+
+            properties.load( in );
+        } catch ( IOException e )
+        {
+            throw new UncheckedIOException( "Unable to read pipeline properties: " + resource, e );
+        }
+
+        String modelsPath = Configuration.getProperty( "models.path", "" ).trim( );
+
+        if( !modelsPath.isEmpty( ) )
+        {
+            for ( String key : properties.stringPropertyNames( ) )
+            {
+                if( key.endsWith( ".model" ) )
+                {
+                    properties.setProperty( key, Paths.get( modelsPath, properties.getProperty( key ).trim( ) ).toString( ) );
+                }
+            }
+        }
+
+        return properties;
+    }
+
+    /**
+     * Returns the profile set by the corenlp.profile property in the config.properties file.
+     * <p>
+     * If the property is not found, returns ACCURATE.
+     *
+     * @return the configured PipelineProfile.
+     */
+    public static PipelineProfile fromConfiguration( )
+    {
+        return valueOf( Configuration.getProperty( "corenlp.profile", "accurate" ).trim( ).toUpperCase( ) );
+    }
+}
@@ -0,0 +1,277 @@
+package com.asymmetrik.ocr.parser.impl;
+
+import com.asymmetrik.ocr.parser.Configuration;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * A BusinessCardParser that swaps in a new parser when the configuration changes, without
+ * dropping requests.
+ * <p>
+ * reload() reads the configuration again.  If anything changed, a new parser is created by the
+ * BusinessCardParserFactory and warmed up on the calling thread while the current parser keeps
+ * serving, then it is swapped in atomically.  Calls that already started finish on the parser they
+ * started on, the old parser is simply no longer handed out.  If the new parser cannot be created
+ * or warmed up, the current parser is kept.
+ * <p>
+ * When the configuration is read from an external file (see Configuration.getFile()), watch()
+ * starts a daemon thread that reloads whenever the file is modified.  Changes to models.path,
+ * pipeline.poolSize or name.maxAbandoned clear the ModelRegistry, so the new parser loads its
+ * models again; other changes reuse the models that are already loaded.
+ * <p>
+ * The parser is configured with the following properties:
+ * <ul>
+ * <li>config.reload.warmUpIterations - warm-up passes before a new parser is swapped in, 1 by default.</li>
+ * <li>config.reload.debounceMillis - quiet time after a file change before reloading, 500 by default.</li>
+ * </ul>
+ */
+public class ReloadingBusinessCardParser implements BusinessCardParser, AutoCloseable
+{
+    private static final Logger log = Logger.getLogger( ReloadingBusinessCardParser.class );
+
+    /**
+     * Properties that change the loaded pipelines, so the ModelRegistry is cleared when they change.
+     */
+    private static final List<String> PIPELINE_PROPERTIES = Arrays.asList( "models.path", "pipeline.poolSize", "name.maxAbandoned" );
+
+    /**
+     * The parser that serves new calls.
+     */
+    private final AtomicReference<BusinessCardParser> current;
+
+    /**
+     * Creates the new parser on reload.
+     */
+    private final Supplier<BusinessCardParser> parserSupplier;
+
+    /**
+     * Watches the configuration file, null until watch() is called.
+     */
+    private WatchService watchService;
+
+    /**
+     * Instantiates a ReloadingBusinessCardParser that creates its parsers with the BusinessCardParserFactory.
+     *
+     * @param initial the parser that serves calls until the first reload.
+     */
+    public ReloadingBusinessCardParser( BusinessCardParser initial )
+    {
+        this( initial, BusinessCardParserFactory::create );
+    }
+
+    /**
+     * Instantiates a ReloadingBusinessCardParser.
+     *
+     * @param initial        the parser that serves calls until the first reload.
+     * @param parserSupplier creates the new parser on reload, after the configuration is read again.
+     */
+    public ReloadingBusinessCardParser( BusinessCardParser initial, Supplier<BusinessCardParser> parserSupplier )
+    {
+        this.current = new AtomicReference<>( initial );
+        this.parserSupplier = parserSupplier;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ContactInfo getContactInfo( String document )
+    {
+        return current.get( ).getContactInfo( document );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ContactInfo getContactInfo( CharSequence document )
+    {
+        return current.get( ).getContactInfo( document );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<ContactInfo> getContactInfoBatch( List<String> documents )
+    {
+        return current.get( ).getContactInfoBatch( documents );
+    }
+
+    /**
+     * Returns the parser that serves new calls.
+     *
+     * @return the current parser.
+     */
+    public BusinessCardParser getCurrent( )
+    {
+        return current.get( );
+    }
+
+    /**
+     * Reads the configuration again and, if it changed, builds, warms up and swaps in a new parser.
+     *
+     * @return true if a new parser was swapped in.
+     */
+    public synchronized boolean reload( )
+    {
+        Set<String> changed;
+
+        try
+        {
+            changed = Configuration.reload( );
+        } catch ( IOException e )
+        {
+            log.error( "Unable to reload configuration, keeping the current parser.", e );
+            return false;
+        }
+
+        if( changed.isEmpty( ) )
+        {
+            return false;
+        }
+
+        if( changed.stream( ).anyMatch( PIPELINE_PROPERTIES::contains ) )
+        {
+            ModelRegistry.clear( );
+        }
+
+        BusinessCardParser parser;
+
+        try
+        {
+            parser = parserSupplier.get( );
+            ModelRegistry.warmUp( parser, Integer.parseInt( Configuration.getProperty( "config.reload.warmUpIterations", "1" ) ) );
+        } catch ( RuntimeException e )
+        {
+            log.error( "Unable to create a parser for the new configuration, keeping the current parser.", e );
+            return false;
+        }
+
+        current.set( parser );
+        log.info( "Swapped in " + parser.getClass( ).getSimpleName( ) + " for the new configuration." );
+
+        return true;
+    }
+
+    /**
+     * Starts a daemon thread that reloads whenever the external configuration file is modified.
+     *
+     * @throws IOException           thrown if the file cannot be watched.
+     * @throws IllegalStateException thrown if there is no external configuration file.
+     */
+    public synchronized void watch( ) throws IOException
+    {
+        Path file = Configuration.getFile( );
+
+        if( file == null )
+        {
+            throw new IllegalStateException( "Set the config.file system property to watch the configuration." );
+        }
+
+        if( watchService != null )
+        {
+            return;
+        }
+
+        Path directory = file.toAbsolutePath( ).getParent( );
+        watchService = FileSystems.getDefault( ).newWatchService( );
+        directory.register( watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY );
+
+        Thread thread = new Thread( ( ) -> watchLoop( watchService, file.getFileName( ) ), "config-watcher" );
+        thread.setDaemon( true );
+        thread.start( );
+
+        log.info( "Watching " + file + " for configuration changes." );
+    }
+
+    /**
+     * Stops watching the configuration file.  The current parser keeps serving.
+     */
+    @Override
+    public synchronized void close( )
+    {
+        if( watchService != null )
+        {
+            try
+            {
+                watchService.close( );
+            } catch ( IOException e )
+            {
+                log.debug( "Error closing configuration watcher." );
+            }
+
+            watchService = null;
+        }
+    }
+
+    /**
+     * Helper method that waits for changes to the configuration file and reloads after they settle.
+     *
+     * @param service  the watch service.
+     * @param fileName name of the configuration file in the watched directory.
+     */
+    private void watchLoop( WatchService service, Path fileName )
+    {
+        long debounceMillis = Long.parseLong( Configuration.getProperty( "config.reload.debounceMillis", "500" ) );
+
+        try
+        {
+            while ( true )
+            {
+                WatchKey key = service.take( );
+                boolean modified = false;
+
+                for ( WatchEvent<?> event : key.pollEvents( ) )
+                {
+                    modified |= fileName.equals( event.context( ) );
+                }
+
+                key.reset( );
+
+                if( modified )
+                {
+                    // Editors often write a file in several steps, wait until they are done
+                    Thread.sleep( debounceMillis );
+                    drain( service );
+                    reload( );
+                }
+            }
+        } catch ( ClosedWatchServiceException e )
+        {
+            log.debug( "Configuration watcher closed." );
+        } catch ( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+        }
+    }
+
+    /**
+     * Helper method that discards the events that arrived while waiting for a change to settle.
+     *
+     * @param service the watch service.
+     */
+    private static void drain( WatchService service )
+    {
+        WatchKey key;
+
+        while ( ( key = service.poll( ) ) != null )
+        {
+            key.pollEvents( );
+            key.reset( );
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.asymmetrik.ocr.parser.output;
+
+import com.asymmetrik.ocr.parser.impl.ContactInfo;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Writes results as RFC 4180 CSV with the columns source, name, phone and email.  Missing values
+ * are empty, and values with commas, quotes or line breaks are quoted.  The header row is only
+ * written to a new file.
+ */
+public class CsvResultWriter extends ResultWriter
+{
+    /**
+     * Header row, in the column order of the records.
+     */
+    static final String HEADER = "source,name,phone,email\r\n";
+
+    /**
+     * Opens a CSV result writer.
+     *
+     * @param path        the output file.
+     * @param append      true to append to an existing file, false to replace it.
+     * @param gzip        true to compress the output with gzip.
+     * @param flushChars  number of buffered characters that triggers a flush.
+     * @param flushMillis longest time records stay buffered in milliseconds, 0 to only flush on size.
+     * @throws IOException thrown if the file cannot be opened.
+     */
+    public CsvResultWriter( Path path, boolean append, boolean gzip, int flushChars, long flushMillis ) throws IOException
+    {
+        super( path, append, gzip, flushChars, flushMillis );
+    }
+
+    @Override
+    protected void appendHeader( StringBuilder out )
+    {
+        out.append( HEADER );
+    }
+
+    @Override
+    protected void appendRecord( StringBuilder out, String source, ContactInfo contactInfo )
+    {
+        appendField( out, source ).append( ',' );
+        appendField( out, contactInfo.getName( ) ).append( ',' );
+        appendField( out, contactInfo.getPhoneNumber( ) ).append( ',' );
+        appendField( out, contactInfo.getEmailAddress( ) ).append( "\r\n" );
+    }
+
+    /**
+     * Helper method that appends a field, quoting it if needed.
+     *
+     * @param out   the buffer.
+     * @param value the value, null for an empty field.
+     * @return the buffer.
+     */
+    private static StringBuilder appendField( StringBuilder out, String value )
+    {
+        if( value == null )
+        {
+            return out;
+        }
+
+        boolean quote = false;
+
+        for ( int i = 0; i < value.length( ) && !quote; i++ )
+        {
+            char c = value.charAt( i );
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+
+        if( !quote )
+        {
+            return out.append( value );
+        }
+
+        out.append( '"' );
+
+        for ( int i = 0; i < value.length( ); i++ )
+        {
+            char c = value.charAt( i );
+
+            if( c == '"' )
+            {
+                out.append( '"' );
+            }
+
+            out.append( c );
+        }
+
+        return out.append( '"' );
+    }
+}
@@ -0,0 +1,136 @@
+package com.asymmetrik.ocr.parser.output;
+
+import com.asymmetrik.ocr.parser.impl.ContactInfo;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Writes results as JSON lines, one object per card with the fields source, name, phone and email,
+ * an extras object with the fields found by FieldExtractors if there are any, and degraded set to
+ * true for degraded results.  A card that could not be parsed is written as an object with the
+ * fields source and error.
+ * Missing values are written as null.  The objects are written directly into the buffer instead of
+ * being built with javax.json, which saves an object tree per card.
+ */
+public class JsonLinesResultWriter extends ResultWriter
+{
+    /**
+     * Hexadecimal digits for escaping control characters.
+     */
+    private static final char[] HEX = "0123456789abcdef".toCharArray( );
+
+    /**
+     * Opens a JSON lines result writer.
+     *
+     * @param path        the output file.
+     * @param append      true to append to an existing file, false to replace it.
+     * @param gzip        true to compress the output with gzip.
+     * @param flushChars  number of buffered characters that triggers a flush.
+     * @param flushMillis longest time records stay buffered in milliseconds, 0 to only flush on size.
+     * @throws IOException thrown if the file cannot be opened.
+     */
+    public JsonLinesResultWriter( Path path, boolean append, boolean gzip, int flushChars, long flushMillis ) throws IOException
+    {
+        super( path, append, gzip, flushChars, flushMillis );
+    }
+
+    @Override
+    protected void appendRecord( StringBuilder out, String source, ContactInfo contactInfo )
+    {
+        out.append( "{\"source\":" );
+        appendString( out, source );
+        out.append( ",\"name\":" );
+        appendString( out, contactInfo.getName( ) );
+        out.append( ",\"phone\":" );
+        appendString( out, contactInfo.getPhoneNumber( ) );
+        out.append( ",\"email\":" );
+        appendString( out, contactInfo.getEmailAddress( ) );
+
+        if( !contactInfo.getExtras( ).isEmpty( ) )
+        {
+            char separator = '{';
+            out.append( ",\"extras\":" );
+
+            for ( Map.Entry<String, String> extra : contactInfo.getExtras( ).entrySet( ) )
+            {
+                out.append( separator );
+                appendString( out, extra.getKey( ) );
+                out.append( ':' );
+                appendString( out, extra.getValue( ) );
+                separator = ',';
+            }
+
+            out.append( '}' );
+        }
+
+        if( contactInfo.isDegraded( ) )
+        {
+            out.append( ",\"degraded\":true" );
+        }
+
+        out.append( "}\n" );
+    }
+
+    @Override
+    protected void appendError( StringBuilder out, String source, String error )
+    {
+        out.append( "{\"source\":" );
+        appendString( out, source );
+        out.append( ",\"error\":" );
+        appendString( out, error );
+        out.append( "}\n" );
+    }
+
+    /**
+     * Helper method that appends a JSON string, or null.
+     *
+     * @param out   the buffer.
+     * @param value the value.
+     */
+    private static void appendString( StringBuilder out, String value )
+    {
+        if( value == null )
+        {
+            out.append( "null" );
+            return;
+        }
+
+        out.append( '"' );
+
+        for ( int i = 0; i < value.length( ); i++ )
+        {
+            char c = value.charAt( i );
+
+            switch ( c )
+            {
+                case '"':
+                    out.append( "\\\"" );
+                    break;
+                case '\\':
+                    out.append( "\\\\" );
+                    break;
+                case '\n':
+                    out.append( "\\n" );
+                    break;
+                case '\r':
+                    out.append( "\\r" );
+                    break;
+                case '\t':
+                    out.append( "\\t" );
+                    break;
+                default:
+                    if( c < 0x20 )
+                    {
+                        out.append( "\\u00" ).append( HEX[ c >> 4 ] ).append( HEX[ c & 0xF ] );
+                    } else
+                    {
+                        out.append( c );
+                    }
+            }
+        }
+
+        out.append( '"' );
+    }
+}
@@ -0,0 +1,307 @@
+package com.asymmetrik.ocr.parser.output;
+
+import com.asymmetrik.ocr.parser.Configuration;
+import com.asymmetrik.ocr.parser.impl.ContactInfo;
+import org.apache.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes parsing results to a file, one record per card.
+ * <p>
+ * Records are collected in a buffer and written when it holds output.flushBytes characters
+ * (64 KB by default), and at least every output.flushMillis milliseconds (1000 by default, 0 to
+ * only flush on size), so a reader tailing the file sees results without waiting for the run to
+ * end.  Files can be opened for appending, in which case the header is only written to a new file.
+ * When gzip is on, each run appends a new gzip member, and concatenated members are a valid gzip
+ * file.
+ * <p>
+ * Use open() to pick the format from the file extension.  Writes are synchronized, so one writer
+ * can be shared by many worker threads.
+ */
+public abstract class ResultWriter implements Closeable, Flushable
+{
+    private static final Logger log = Logger.getLogger( ResultWriter.class );
+
+    /**
+     * Resource holding the JSON schema of a result record.
+     */
+    public static final String SCHEMA_RESOURCE = "schema/contact-info.schema.json";
+
+    /**
+     * Daemon thread that flushes the writers on time.
+     */
+    private static final ScheduledExecutorService FLUSHER = Executors.newSingleThreadScheduledExecutor( runnable -> {
+        Thread thread = new Thread( runnable, "result-writer-flush" );
+        thread.setDaemon( true );
+        return thread;
+    } );
+
+    /**
+     * The file being written.
+     */
+    private final Writer writer;
+
+    /**
+     * Records that have not been written to the file yet.
+     */
+    private final StringBuilder buffer = new StringBuilder( );
+
+    /**
+     * Number of buffered characters that triggers a flush.
+     */
+    private final int flushChars;
+
+    /**
+     * Scheduled time based flush, null if only flushing on size.
+     */
+    private final ScheduledFuture<?> scheduledFlush;
+
+    /**
+     * Number of records written.
+     */
+    private long records;
+
+    /**
+     * Opens a result writer.
+     *
+     * @param path        the output file.
+     * @param append      true to append to an existing file, false to replace it.
+     * @param gzip        true to compress the output with gzip.
+     * @param flushChars  number of buffered characters that triggers a flush.
+     * @param flushMillis longest time records stay buffered in milliseconds, 0 to only flush on size.
+     * @throws IOException thrown if the file cannot be opened.
+     */
+    protected ResultWriter( Path path, boolean append, boolean gzip, int flushChars, long flushMillis ) throws IOException
+    {
+        boolean newFile = !append || !Files.exists( path ) || Files.size( path ) == 0;
+        OutputStream out = append
+            ? Files.newOutputStream( path, StandardOpenOption.CREATE, StandardOpenOption.APPEND )
+            : Files.newOutputStream( path );
+
+        if( gzip )
+        {
+            out = new GZIPOutputStream( out, 8192, true );
+        }
+
+        this.writer = new OutputStreamWriter( out, StandardCharsets.UTF_8 );
+        this.flushChars = flushChars;
+
+        if( newFile )
+        {
+            appendHeader( buffer );
+        }
+
+        scheduledFlush = flushMillis > 0
+            ? FLUSHER.scheduleWithFixedDelay( this::flushQuietly, flushMillis, flushMillis, TimeUnit.MILLISECONDS )
+            : null;
+    }
+
+    /**
+     * Opens a writer for the format given by the file extension, appending to existing files.
+     * <ul>
+     * <li>.csv - CsvResultWriter</li>
+     * <li>.jsonl, .ndjson - JsonLinesResultWriter</li>
+     * <li>anything else - TextResultWriter, which replaces the file like earlier versions.</li>
+     * </ul>
+     * A trailing .gz, or the output.gzip property, turns on gzip.  The JSON schema of the records
+     * is written next to CSV and JSON lines files as &lt;file&gt;.schema.json.
+     *
+     * @param path the output file.
+     * @return the writer.
+     * @throws IOException thrown if the file cannot be opened.
+     */
+    public static ResultWriter open( Path path ) throws IOException
+    {
+        String fileName = path.getFileName( ).toString( ).toLowerCase( Locale.ROOT );
+        boolean gzip = fileName.endsWith( ".gz" ) || Boolean.parseBoolean( Configuration.getProperty( "output.gzip", "false" ) );
+        String baseName = fileName.endsWith( ".gz" ) ? fileName.substring( 0, fileName.length( ) - 3 ) : fileName;
+        int flushChars = Integer.parseInt( Configuration.getProperty( "output.flushBytes", "65536" ) );
+        long flushMillis = Long.parseLong( Configuration.getProperty( "output.flushMillis", "1000" ) );
+
+        if( baseName.endsWith( ".csv" ) )
+        {
+            writeSchema( path );
+            return new CsvResultWriter( path, true, gzip, flushChars, flushMillis );
+        }
+
+        if( baseName.endsWith( ".jsonl" ) || baseName.endsWith( ".ndjson" ) )
+        {
+            writeSchema( path );
+            return new JsonLinesResultWriter( path, true, gzip, flushChars, flushMillis );
+        }
+
+        return new TextResultWriter( path, false, gzip, flushChars, flushMillis );
+    }
+
+    /**
+     * Writes the result for one card.
+     *
+     * @param source      where the card came from, e.g. its file, null if unknown.
+     * @param contactInfo the parsed contact info.
+     * @throws IOException thrown if the buffer cannot be flushed.
+     */
+    public synchronized void write( String source, ContactInfo contactInfo ) throws IOException
+    {
+        appendRecord( buffer, source, contactInfo );
+        records++;
+
+        if( buffer.length( ) >= flushChars )
+        {
+            flush( );
+        }
+    }
+
+    /**
+     * Writes a card that could not be parsed.  Only JsonLinesResultWriter records it, other
+     * formats leave the card out.  It is not counted as a record.
+     *
+     * @param source where the card came from, e.g. its file, null if unknown.
+     * @param error  why the card could not be parsed.
+     * @throws IOException thrown if the buffer cannot be flushed.
+     */
+    public synchronized void writeError( String source, String error ) throws IOException
+    {
+        appendError( buffer, source, error );
+
+        if( buffer.length( ) >= flushChars )
+        {
+            flush( );
+        }
+    }
+
+    /**
+     * Returns the number of records written.
+     *
+     * @return the record count.
+     */
+    public synchronized long getRecords( )
+    {
+        return records;
+    }
+
+    /**
+     * Writes the buffered records to the file.
+     *
+     * @throws IOException thrown if the file cannot be written.
+     */
+    @Override
+    public synchronized void flush( ) throws IOException
+    {
+        if( buffer.length( ) > 0 )
+        {
+            writer.append( buffer );
+            buffer.setLength( 0 );
+        }
+
+        writer.flush( );
+    }
+
+    /**
+     * Writes the buffered records and closes the file.
+     *
+     * @throws IOException thrown if the file cannot be written.
+     */
+    @Override
+    public synchronized void close( ) throws IOException
+    {
+        if( scheduledFlush != null )
+        {
+            scheduledFlush.cancel( false );
+        }
+
+        try
+        {
+            flush( );
+        } finally
+        {
+            writer.close( );
+        }
+    }
+
+    /**
+     * Appends the header of a new file to the buffer.  Writes nothing by default.
+     *
+     * @param out the buffer.
+     */
+    protected void appendHeader( StringBuilder out )
+    {
+    }
+
+    /**
+     * Appends one record to the buffer.
+     *
+     * @param out         the buffer.
+     * @param source      where the card came from, null if unknown.
+     * @param contactInfo the parsed contact info.
+     */
+    protected abstract void appendRecord( StringBuilder out, String source, ContactInfo contactInfo );
+
+    /**
+     * Appends a card that could not be parsed to the buffer.  Writes nothing by default.
+     *
+     * @param out    the buffer.
+     * @param source where the card came from, null if unknown.
+     * @param error  why the card could not be parsed.
+     */
+    protected void appendError( StringBuilder out, String source, String error )
+    {
+    }
+
+    /**
+     * Helper method for the scheduled flush, which logs errors instead of throwing them.
+     */
+    private void flushQuietly( )
+    {
+        try
+        {
+            flush( );
+        } catch ( IOException e )
+        {
+            log.error( "Unable to flush results.", e );
+        }
+    }
+
+    /**
+     * Helper method that writes the record schema next to the output file, unless it is already there.
+     *
+     * @param path the output file.
+     * @throws IOException thrown if the schema cannot be written.
+     */
+    private static void writeSchema( Path path ) throws IOException
+    {
+        Path schema = Paths.get( path.toString( ) + ".schema.json" );
+
+        if( Files.exists( schema ) )
+        {
+            return;
+        }
+
+        try ( InputStream in = ResultWriter.class.getClassLoader( ).getResourceAsStream( SCHEMA_RESOURCE ) )
+        {
+            if( in == null )
+            {
+                throw new IOException( "Schema resource not found: " + SCHEMA_RESOURCE );
+            }
+
+            Files.copy( in, schema );
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.asymmetrik.ocr.parser.output;
+
+import com.asymmetrik.ocr.parser.impl.ContactInfo;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Writes results in the human readable format of ContactInfo.toString(), preceded by a
+ * "File:" line when the source is known and followed by a blank line.
+ */
+public class TextResultWriter extends ResultWriter
+{
+    /**
+     * Line separator of the platform, matching ContactInfo.toString().
+     */
+    private static final String LINE_SEPARATOR = System.lineSeparator( );
+
+    /**
+     * Opens a text result writer.
+     *
+     * @param path        the output file.
+     * @param append      true to append to an existing file, false to replace it.
+     * @param gzip        true to compress the output with gzip.
+     * @param flushChars  number of buffered characters that triggers a flush.
+     * @param flushMillis longest time records stay buffered in milliseconds, 0 to only flush on size.
+     * @throws IOException thrown if the file cannot be opened.
+     */
+    public TextResultWriter( Path path, boolean append, boolean gzip, int flushChars, long flushMillis ) throws IOException
+    {
+        super( path, append, gzip, flushChars, flushMillis );
+    }
+
+    @Override
+    protected void appendRecord( StringBuilder out, String source, ContactInfo contactInfo )
+    {
+        if( source != null )
+        {
+            out.append( "File: " ).append( source ).append( LINE_SEPARATOR );
+        }
+
+        out.append( contactInfo ).append( LINE_SEPARATOR ).append( LINE_SEPARATOR );
+    }
+}
@@ -0,0 +1,135 @@
+package com.asymmetrik.ocr.parser;
+
+import com.asymmetrik.ocr.parser.impl.BusinessCardParser;
+import com.asymmetrik.ocr.parser.impl.ContactInfo;
+import org.apache.log4j.ConsoleAppender;
+import org.apache.log4j.Logger;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Enumeration;
+
+/**
+ * Test class that contains unit tests for the command line Application.
+ * <p>
+ * A stub parser that returns the first line of the card as the name is used so the tests do not
+ * load the models.
+ */
+public class ApplicationTests
+{
+    /**
+     * Folder for the input files.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder( );
+
+    /**
+     * Standard output before the test.
+     */
+    private final PrintStream systemOut = System.out;
+
+    /**
+     * Standard error before the test.
+     */
+    private final PrintStream systemErr = System.err;
+
+    /**
+     * Stub parser that fails on cards starting with "Broken".
+     */
+    private final BusinessCardParser stub = document -> {
+        if( document.startsWith( "Broken" ) )
+        {
+            throw new IllegalStateException( "Parser failed" );
+        }
+
+        return new ContactInfo( document.split( "\n" )[ 0 ], null, null );
+    };
+
+    /**
+     * Restores standard output and error, and points the console log back at standard output.
+     */
+    @After
+    public void tearDown( )
+    {
+        System.setOut( systemOut );
+        System.setErr( systemErr );
+
+        Enumeration<?> appenders = Logger.getRootLogger( ).getAllAppenders( );
+
+        while ( appenders.hasMoreElements( ) )
+        {
+            Object appender = appenders.nextElement( );
+
+            if( appender instanceof ConsoleAppender )
+            {
+                ( ( ConsoleAppender ) appender ).setTarget( ConsoleAppender.SYSTEM_OUT );
+                ( ( ConsoleAppender ) appender ).activateOptions( );
+            }
+        }
+    }
+
+    /**
+     * Tests that streaming to standard output writes nothing but the JSON result lines, and that
+     * the log goes to standard error.
+     *
+     * @throws Exception thrown if the input cannot be written.
+     */
+    @Test
+    public void testStreamToStandardOutputIsOnlyJson( ) throws Exception
+    {
+        Path input = Files.write( folder.getRoot( ).toPath( ).resolve( "cards.ndjson" ), Arrays.asList(
+            "{\"id\":1,\"text\":\"Jane Doe\\nAcme\"}", "not json", "\"Broken card\"", "\"John Smith\"" ) );
+        ByteArrayOutputStream out = new ByteArrayOutputStream( );
+        ByteArrayOutputStream err = new ByteArrayOutputStream( );
+
+        System.setOut( new PrintStream( out, true, "UTF-8" ) );
+        System.setErr( new PrintStream( err, true, "UTF-8" ) );
+
+        Application.run( new String[]{ "-s", input.toString( ), "-t", "2" }, ( ) -> stub );
+
+        String[] lines = new String( out.toByteArray( ), StandardCharsets.UTF_8 ).split( "\n" );
+
+        Assert.assertEquals( 4, lines.length );
+
+        for ( String line : lines )
+        {
+            try ( JsonReader reader = Json.createReader( new StringReader( line ) ) )
+            {
+                Assert.assertTrue( line, reader.readObject( ) instanceof JsonObject );
+            }
+        }
+
+        Assert.assertTrue( new String( err.toByteArray( ), StandardCharsets.UTF_8 ).contains( "Parsed 4 records (2 failed)" ) );
+    }
+
+    /**
+     * Tests that a sharded batch does not create a parser, since its workers load the models.
+     *
+     * @throws Exception thrown if the input cannot be written.
+     */
+    @Test
+    public void testShardedBatchDoesNotCreateParser( ) throws Exception
+    {
+        Path cards = folder.newFolder( "cards" ).toPath( );
+        Files.write( cards.resolve( "card.txt" ), "Jane Doe".getBytes( StandardCharsets.UTF_8 ) );
+
+        Application.run( new String[]{ "-b", cards.toString( ), "-w", "none", "-q", folder.getRoot( ) + "/queue" }, ( ) -> {
+            throw new AssertionError( "A parser was created for a sharded batch." );
+        } );
+
+        Assert.assertTrue( Files.exists( folder.getRoot( ).toPath( ).resolve( "queue/manifest.txt" ) ) );
+    }
+}
@@ -0,0 +1,174 @@
+package com.asymmetrik.ocr.parser;
+
+import com.asymmetrik.ocr.parser.impl.AsyncBusinessCardParser;
+import com.asymmetrik.ocr.parser.impl.BusinessCardParser;
+import com.asymmetrik.ocr.parser.impl.BusinessCardParserFactory;
+import com.asymmetrik.ocr.parser.impl.ContactInfo;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Test class that contains unit tests for the AsyncBusinessCardParser.
+ * <p>
+ * A stub parser that waits on a latch is used as the delegate so the tests control when cards finish.
+ */
+public class AsyncBusinessCardParserTests
+{
+    /**
+     * Released to let the stub parser finish.
+     */
+    private final CountDownLatch release = new CountDownLatch( 1 );
+
+    /**
+     * Stub parser that returns the document as the name once the latch is released.
+     */
+    private final BusinessCardParser stub = document -> {
+        try
+        {
+            release.await( );
+        } catch ( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+        }
+
+        return new ContactInfo( document, null, null );
+    };
+
+    /**
+     * Tests that the futures complete with the delegate's results.
+     *
+     * @throws Exception thrown if a future fails.
+     */
+    @Test
+    public void testFuturesComplete( ) throws Exception
+    {
+        try ( AsyncBusinessCardParser parser = new AsyncBusinessCardParser( stub, Executors.newFixedThreadPool( 2 ), 10, false ) )
+        {
+            CompletableFuture<ContactInfo> first = parser.getContactInfoAsync( "A" );
+            CompletableFuture<ContactInfo> second = parser.getContactInfoAsync( "B" );
+
+            release.countDown( );
+
+            Assert.assertEquals( "A", first.get( 5, TimeUnit.SECONDS ).getName( ) );
+            Assert.assertEquals( "B", second.get( 5, TimeUnit.SECONDS ).getName( ) );
+        }
+    }
+
+    /**
+     * Tests that cards are rejected once the queue is full and accepted again once it drains.
+     *
+     * @throws Exception thrown if a future fails.
+     */
+    @Test
+    public void testRejectWhenFull( ) throws Exception
+    {
+        try ( AsyncBusinessCardParser parser = new AsyncBusinessCardParser( stub, Executors.newFixedThreadPool( 1 ), 2, true ) )
+        {
+            CompletableFuture<ContactInfo> first = parser.getContactInfoAsync( "A" );
+            parser.getContactInfoAsync( "B" );
+            CompletableFuture<ContactInfo> rejected = parser.getContactInfoAsync( "C" );
+
+            try
+            {
+                rejected.get( );
+                Assert.fail( "Expected the third card to be rejected." );
+            } catch ( ExecutionException e )
+            {
+                Assert.assertTrue( e.getCause( ) instanceof RejectedExecutionException );
+            }
+
+            release.countDown( );
+            first.get( 5, TimeUnit.SECONDS );
+
+            Assert.assertEquals( "D", parser.getContactInfoAsync( "D" ).get( 5, TimeUnit.SECONDS ).getName( ) );
+        }
+    }
+
+    /**
+     * Tests that submitting blocks while the queue is full.
+     *
+     * @throws Exception thrown if a future fails.
+     */
+    @Test
+    public void testBlockWhenFull( ) throws Exception
+    {
+        try ( AsyncBusinessCardParser parser = new AsyncBusinessCardParser( stub, Executors.newFixedThreadPool( 1 ), 1, false ) )
+        {
+            parser.getContactInfoAsync( "A" );
+
+            CompletableFuture<CompletableFuture<ContactInfo>> blocked =
+                CompletableFuture.supplyAsync( ( ) -> parser.getContactInfoAsync( "B" ) );
+
+            Thread.sleep( 100 );
+            Assert.assertFalse( blocked.isDone( ) );
+            Assert.assertEquals( 0, parser.getRemainingCapacity( ) );
+
+            release.countDown( );
+
+            Assert.assertEquals( "B", blocked.get( 5, TimeUnit.SECONDS ).get( 5, TimeUnit.SECONDS ).getName( ) );
+        }
+    }
+
+    /**
+     * Tests that a submitter interrupted while the queue is full keeps its interrupt flag and gets a
+     * cancelled future rather than a rejection.
+     *
+     * @throws Exception thrown if the submitting thread does not finish.
+     */
+    @Test
+    public void testInterruptedWhileBlocked( ) throws Exception
+    {
+        try ( AsyncBusinessCardParser parser = new AsyncBusinessCardParser( stub, Executors.newFixedThreadPool( 1 ), 1, false ) )
+        {
+            parser.getContactInfoAsync( "A" );
+
+            AtomicReference<CompletableFuture<ContactInfo>> result = new AtomicReference<>( );
+            AtomicBoolean interrupted = new AtomicBoolean( );
+            Thread submitter = new Thread( ( ) -> {
+                result.set( parser.getContactInfoAsync( "B" ) );
+                interrupted.set( Thread.currentThread( ).isInterrupted( ) );
+            } );
+
+            submitter.start( );
+            Thread.sleep( 100 );
+            submitter.interrupt( );
+            submitter.join( 5000 );
+
+            Assert.assertTrue( interrupted.get( ) );
+
+            try
+            {
+                result.get( ).get( );
+                Assert.fail( "Expected the interrupted card to be cancelled." );
+            } catch ( CancellationException e )
+            {
+                Assert.assertTrue( e.getCause( ) instanceof InterruptedException );
+            }
+
+            release.countDown( );
+        }
+    }
+
+    /**
+     * Tests that the BusinessCardParserFactory can create the parser from the configuration.
+     */
+    @Test
+    public void testCreatedByFactory( )
+    {
+        BusinessCardParser parser = BusinessCardParserFactory.create( AsyncBusinessCardParser.class.getName( ) );
+
+        Assert.assertTrue( parser instanceof AsyncBusinessCardParser );
+
+        ( ( AsyncBusinessCardParser ) parser ).close( );
+    }
+}
@@ -0,0 +1,48 @@
+package com.asymmetrik.ocr.parser;
+
+import com.asymmetrik.ocr.parser.impl.BusinessCardParser;
+import com.asymmetrik.ocr.parser.impl.BusinessCardParserFactory;
+import com.asymmetrik.ocr.parser.impl.ContactInfo;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Test class that checks that getContactInfoBatch returns the same results as parsing the cards
+ * one at a time.
+ */
+public class BatchParsingTests
+{
+    /**
+     * Cards that take the gazetteer path, the NER path, several NER rounds and no name at all.
+     */
+    private static final List<String> CARDS = Arrays.asList(
+        "Mike Smith\nSenior Software Engineer\n(410)555-1234\nmsmith@asymmetrik.com",
+        "Foobar Technologies\nAnalytic Developer\nLisa Haung\n1234 Sentry Road\nColumbia, MD 12345\nTel: 410-555-1234\nlisa.haung@foobartech.com",
+        "Welcome Aboard\nPlease Call\nArthur Wilson\n+1 (703) 555-1259\nawilson@abctech.com",
+        "Thank you for your order\n555-0199",
+        "" );
+
+    /**
+     * Tests that the batch results equal the one-at-a-time results, in order.
+     */
+    @Test
+    public void testBatchMatchesSingleCards( )
+    {
+        BusinessCardParser parser = BusinessCardParserFactory.create( );
+        List<ContactInfo> expected = new ArrayList<>( );
+
+        for ( String card : CARDS )
+        {
+            expected.add( parser.getContactInfo( card ) );
+        }
+
+        Assert.assertEquals( expected, parser.getContactInfoBatch( CARDS ) );
+        Assert.assertEquals( "Lisa Haung", expected.get( 1 ).getName( ) );
+        Assert.assertEquals( Collections.emptyList( ), parser.getContactInfoBatch( Collections.emptyList( ) ) );
+    }
+}
@@ -0,0 +1,89 @@
+package com.asymmetrik.ocr.parser;
+
+import com.asymmetrik.ocr.parser.impl.BusinessCardParser;
+import com.asymmetrik.ocr.parser.impl.ContactInfo;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Test class that contains unit tests for the BatchProcessor.
+ * <p>
+ * A stub parser that returns the first line of the card as the name is used so the tests do not
+ * load the models.
+ */
+public class BatchProcessorTests
+{
+    /**
+     * Folder for the cards.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder( );
+
+    /**
+     * Stub parser that fails on cards starting with "Broken".
+     */
+    private final BusinessCardParser stub = document -> {
+        if( document.startsWith( "Broken" ) )
+        {
+            throw new IllegalStateException( "Parser failed" );
+        }
+
+        return new ContactInfo( document.split( "\n" )[ 0 ], null, null );
+    };
+
+    /**
+     * Tests that directories, glob patterns and file lists are expanded to sorted files.
+     *
+     * @throws IOException thrown if the cards cannot be written.
+     */
+    @Test
+    public void testResolveInputs( ) throws IOException
+    {
+        Path directory = folder.newFolder( "cards" ).toPath( );
+        Path b = Files.write( directory.resolve( "b.txt" ), "Card B".getBytes( ) );
+        Path a = Files.write( directory.resolve( "a.txt" ), "Card A".getBytes( ) );
+        Path c = Files.write( directory.resolve( "c.csv" ), "Card C".getBytes( ) );
+        Path list = Files.write( folder.getRoot( ).toPath( ).resolve( "list.txt" ),
+            Arrays.asList( b.toString( ), "", "  " + a.toString( ), b.toString( ) ) );
+
+        Assert.assertEquals( Arrays.asList( a, b, c ), BatchProcessor.resolveInputs( directory.toString( ) ) );
+        Assert.assertEquals( Arrays.asList( a, b ), BatchProcessor.resolveInputs( directory + "/*.txt" ) );
+        Assert.assertEquals( Arrays.asList( b, a, b ), BatchProcessor.resolveInputs( "@" + list ) );
+    }
+
+    /**
+     * Tests that a card that cannot be read or parsed is counted as a failure without losing the
+     * other results, and that a file listed twice is returned twice.
+     *
+     * @throws IOException thrown if the cards cannot be written.
+     */
+    @Test
+    public void testFailuresAndDuplicates( ) throws IOException
+    {
+        Path directory = folder.newFolder( "cards" ).toPath( );
+        Path good = Files.write( directory.resolve( "good.txt" ), "Jane Doe\nAcme".getBytes( ) );
+        Path broken = Files.write( directory.resolve( "broken.txt" ), "Broken card".getBytes( ) );
+        Path missing = directory.resolve( "missing.txt" );
+
+        BatchProcessor.BatchResult result = new BatchProcessor( stub, 2 ).process( Arrays.asList( good, broken, missing, good ) );
+        List<Map.Entry<Path, ContactInfo>> results = result.getResults( );
+
+        Assert.assertEquals( 2, result.getFailures( ) );
+        Assert.assertEquals( 2, results.size( ) );
+
+        for ( Map.Entry<Path, ContactInfo> entry : results )
+        {
+            Assert.assertEquals( good, entry.getKey( ) );
+            Assert.assertEquals( "Jane Doe", entry.getValue( ).getName( ) );
+        }
+    }
+}
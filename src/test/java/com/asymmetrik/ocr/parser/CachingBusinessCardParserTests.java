@@ -0,0 +1,242 @@
+package com.asymmetrik.ocr.parser;
+
+import com.asymmetrik.ocr.parser.impl.BusinessCardParser;
+import com.asymmetrik.ocr.parser.impl.CachingBusinessCardParser;
+import com.asymmetrik.ocr.parser.impl.ContactInfo;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test class that contains unit tests for the CachingBusinessCardParser.
+ * <p>
+ * A stub parser that counts its calls is used as the delegate so the tests do not load any models.
+ */
+public class CachingBusinessCardParserTests
+{
+    /**
+     * Folder used for the on-disk tier.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder( );
+
+    /**
+     * Number of calls made to the stub parser.
+     */
+    private final AtomicInteger calls = new AtomicInteger( );
+
+    /**
+     * Stub parser that returns the first line of the document as the name.
+     */
+    private final BusinessCardParser stub = document -> {
+        calls.incrementAndGet( );
+        return new ContactInfo( document.trim( ).split( "\n" )[ 0 ].trim( ), "4105551234", "jsmith@foo.bar" );
+    };
+
+    /**
+     * Tests that documents that only differ in whitespace share a cache entry.
+     */
+    @Test
+    public void testHitOnNormalizedDocument( )
+    {
+        CachingBusinessCardParser parser = new CachingBusinessCardParser( stub, 10, 0, null );
+
+        ContactInfo first = parser.getContactInfo( "John Smith\nSoftware Developer" );
+        ContactInfo second = parser.getContactInfo( "  John   Smith \r\n\nSoftware\tDeveloper\n" );
+
+        Assert.assertSame( first, second );
+        Assert.assertEquals( 1, calls.get( ) );
+        Assert.assertEquals( 1, parser.getHits( ) );
+        Assert.assertEquals( 1, parser.getMisses( ) );
+    }
+
+    /**
+     * Tests that the least recently used entry is evicted when the cache is full.
+     */
+    @Test
+    public void testLruEviction( )
+    {
+        CachingBusinessCardParser parser = new CachingBusinessCardParser( stub, 2, 0, null );
+
+        parser.getContactInfo( "A" );
+        parser.getContactInfo( "B" );
+        parser.getContactInfo( "A" );
+        parser.getContactInfo( "C" );
+
+        Assert.assertEquals( 1, parser.getEvictions( ) );
+        Assert.assertEquals( 2, parser.size( ) );
+
+        parser.getContactInfo( "A" );
+        Assert.assertEquals( 3, calls.get( ) );
+
+        parser.getContactInfo( "B" );
+        Assert.assertEquals( 4, calls.get( ) );
+    }
+
+    /**
+     * Tests that expired entries are parsed again.
+     *
+     * @throws InterruptedException thrown if the test is interrupted while waiting for the entry to expire.
+     */
+    @Test
+    public void testTtlExpiry( ) throws InterruptedException
+    {
+        CachingBusinessCardParser parser = new CachingBusinessCardParser( stub, 10, 20, null );
+
+        parser.getContactInfo( "A" );
+        Thread.sleep( 50 );
+        parser.getContactInfo( "A" );
+
+        Assert.assertEquals( 2, calls.get( ) );
+        Assert.assertEquals( 1, parser.getEvictions( ) );
+    }
+
+    /**
+     * Tests that results written to the on-disk tier are served by a new instance.
+     *
+     * @throws IOException thrown if the temporary folder cannot be created.
+     */
+    @Test
+    public void testDiskTierSurvivesRestart( ) throws IOException
+    {
+        Path directory = folder.newFolder( "cache" ).toPath( );
+
+        new CachingBusinessCardParser( stub, 10, 0, directory ).getContactInfo( "John Smith" );
+
+        CachingBusinessCardParser restarted = new CachingBusinessCardParser( stub, 10, 0, directory );
+        ContactInfo contactInfo = restarted.getContactInfo( "John Smith" );
+
+        Assert.assertEquals( 1, calls.get( ) );
+        Assert.assertEquals( 1, restarted.getDiskHits( ) );
+        Assert.assertEquals( "John Smith", contactInfo.getName( ) );
+        Assert.assertEquals( "4105551234", contactInfo.getPhoneNumber( ) );
+        Assert.assertEquals( "jsmith@foo.bar", contactInfo.getEmailAddress( ) );
+    }
+
+    /**
+     * Tests that a result read from disk keeps its original time to live in memory, and that an
+     * expired file is deleted when it is read.
+     *
+     * @throws IOException          thrown if the cache files cannot be read or written.
+     * @throws InterruptedException thrown if the test is interrupted while waiting for the entry to expire.
+     */
+    @Test
+    public void testDiskTierKeepsTtl( ) throws IOException, InterruptedException
+    {
+        Path directory = folder.newFolder( "cache" ).toPath( );
+        long ttlMillis = 60000;
+
+        new CachingBusinessCardParser( stub, 10, ttlMillis, directory ).getContactInfo( "John Smith" );
+
+        File[] files = directory.toFile( ).listFiles( );
+        Assert.assertEquals( 1, files.length );
+        Path file = files[ 0 ].toPath( );
+
+        // Parsed almost a full time to live ago, so it expires while held in memory
+        Files.setLastModifiedTime( file, FileTime.fromMillis( System.currentTimeMillis( ) - ttlMillis + 200 ) );
+
+        CachingBusinessCardParser restarted = new CachingBusinessCardParser( stub, 10, ttlMillis, directory );
+        restarted.getContactInfo( "John Smith" );
+
+        Assert.assertEquals( 1, restarted.getDiskHits( ) );
+
+        Thread.sleep( 400 );
+        restarted.getContactInfo( "John Smith" );
+
+        Assert.assertEquals( 0, restarted.getHits( ) );
+        Assert.assertEquals( 1, restarted.getMisses( ) );
+
+        // Age the rewritten file past the time to live.  Degraded results are not cached, so the
+        // file is not written again after it is deleted.
+        Files.setLastModifiedTime( file, FileTime.fromMillis( System.currentTimeMillis( ) - ttlMillis - 1000 ) );
+
+        BusinessCardParser degraded = document -> new ContactInfo( document, null, null, Collections.emptyMap( ), true );
+        CachingBusinessCardParser expired = new CachingBusinessCardParser( degraded, 10, ttlMillis, directory );
+        expired.getContactInfo( "John Smith" );
+
+        Assert.assertEquals( 0, expired.getDiskHits( ) );
+        Assert.assertFalse( Files.exists( file ) );
+    }
+
+    /**
+     * Tests that a batch hands only the uncached cards to the delegate's batch method, once per
+     * cache key, and returns the results in order.
+     */
+    @Test
+    public void testBatchForwardsMisses( )
+    {
+        List<List<String>> batches = new ArrayList<>( );
+        BusinessCardParser batchStub = new BusinessCardParser( )
+        {
+            @Override
+            public ContactInfo getContactInfo( String document )
+            {
+                throw new AssertionError( "Cards of a batch must be parsed with getContactInfoBatch()." );
+            }
+
+            @Override
+            public List<ContactInfo> getContactInfoBatch( List<String> documents )
+            {
+                batches.add( documents );
+                List<ContactInfo> results = new ArrayList<>( );
+
+                for ( String document : documents )
+                {
+                    results.add( stub.getContactInfo( document ) );
+                }
+
+                return results;
+            }
+        };
+        CachingBusinessCardParser parser = new CachingBusinessCardParser( batchStub, 10, 0, null );
+
+        parser.getContactInfoBatch( Collections.singletonList( "John Smith" ) );
+        List<ContactInfo> results = parser.getContactInfoBatch( Arrays.asList( "Jane Doe", "John Smith", " Jane  Doe", "Ann Lee" ) );
+
+        Assert.assertEquals( Arrays.asList( Collections.singletonList( "John Smith" ), Arrays.asList( "Jane Doe", "Ann Lee" ) ), batches );
+        Assert.assertEquals( "Jane Doe", results.get( 0 ).getName( ) );
+        Assert.assertEquals( "John Smith", results.get( 1 ).getName( ) );
+        Assert.assertSame( results.get( 0 ), results.get( 2 ) );
+        Assert.assertEquals( "Ann Lee", results.get( 3 ).getName( ) );
+        Assert.assertEquals( 1, parser.getHits( ) );
+        Assert.assertEquals( 3, parser.getMisses( ) );
+    }
+
+    /**
+     * Tests that the disk tier deletes its oldest results once it holds more than its limit.
+     *
+     * @throws IOException thrown if the cache directory cannot be listed.
+     */
+    @Test
+    public void testDiskTierIsBounded( ) throws IOException
+    {
+        Path directory = folder.newFolder( "cache" ).toPath( );
+        CachingBusinessCardParser parser = new CachingBusinessCardParser( stub, 100, 0, directory, 10 );
+
+        for ( int i = 0; i < 10; i++ )
+        {
+            parser.getContactInfo( "Card " + i );
+        }
+
+        Assert.assertEquals( 10, parser.getDiskSize( ) );
+
+        parser.getContactInfo( "Card 10" );
+
+        Assert.assertEquals( 9, parser.getDiskSize( ) );
+        Assert.assertEquals( 2, parser.getDiskEvictions( ) );
+        Assert.assertEquals( 9, directory.toFile( ).list( ).length );
+        Assert.assertEquals( 9, new CachingBusinessCardParser( stub, 100, 0, directory, 10 ).getDiskSize( ) );
+    }
+}
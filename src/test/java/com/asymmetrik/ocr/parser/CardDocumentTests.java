@@ -0,0 +1,68 @@
+package com.asymmetrik.ocr.parser;
+
+import com.asymmetrik.ocr.parser.impl.CardDocument;
+import com.asymmetrik.ocr.parser.impl.EmailScanner;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test class that contains unit tests for the CardDocument index.
+ */
+public class CardDocumentTests
+{
+    /**
+     * Tests the line offsets, digit counts and flags, with Windows and Unix line breaks.
+     */
+    @Test
+    public void testLines( )
+    {
+        CardDocument document = CardDocument.of( "Lisa Haung\r\nTel: +1 410-555-1234\n\nlisa@foobartech.com" );
+
+        Assert.assertEquals( 4, document.getLineCount( ) );
+        Assert.assertEquals( "Lisa Haung", document.getLine( 0 ).toString( ) );
+        Assert.assertEquals( "Tel: +1 410-555-1234", document.getLine( 1 ).toString( ) );
+        Assert.assertEquals( "", document.getLine( 2 ).toString( ) );
+        Assert.assertEquals( 11, document.getDigitCount( 1 ) );
+        Assert.assertTrue( document.hasPlus( 1 ) );
+        Assert.assertFalse( document.hasAt( 1 ) );
+        Assert.assertTrue( document.hasAt( 3 ) );
+        Assert.assertEquals( 0, document.getLineOf( 11 ) );
+        Assert.assertEquals( 1, document.getLineOf( 12 ) );
+        Assert.assertEquals( 3, document.getLineOf( document.length( ) - 1 ) );
+        Assert.assertEquals( "Lisa Haung", document.getFirstLine( ) );
+        Assert.assertSame( document, CardDocument.of( document ) );
+    }
+
+    /**
+     * Tests the '@' index.
+     */
+    @Test
+    public void testPositions( )
+    {
+        CardDocument document = CardDocument.of( "a@b 12 x345\n@" );
+
+        Assert.assertEquals( 1, document.nextAt( 0 ) );
+        Assert.assertEquals( 12, document.nextAt( 2 ) );
+        Assert.assertEquals( -1, document.nextAt( 13 ) );
+    }
+
+    /**
+     * Tests that the EmailScanner finds the same address with and without the index.
+     */
+    @Test
+    public void testEmailScanner( )
+    {
+        EmailScanner scanner = new EmailScanner( );
+        String[] texts = {
+            "Lisa Haung\nlisa.haung@foobartech.com",
+            "@ twitter\nnot@\nmail: \"john doe\"@example.com x@y.org",
+            "a@b.c\r\n\"q\"@d.e",
+            "no address here"
+        };
+
+        for ( String text : texts )
+        {
+            Assert.assertEquals( scanner.find( text ), scanner.find( CardDocument.of( text ) ) );
+        }
+    }
+}
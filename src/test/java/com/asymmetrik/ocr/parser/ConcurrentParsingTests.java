@@ -0,0 +1,151 @@
+package com.asymmetrik.ocr.parser;
+
+import com.asymmetrik.ocr.parser.impl.BusinessCardParser;
+import com.asymmetrik.ocr.parser.impl.BusinessCardParserFactory;
+import com.asymmetrik.ocr.parser.impl.ContactInfo;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+/**
+ * Stress test that shares one BusinessCardParser between many threads and checks that every
+ * result is identical to the single-threaded result.
+ */
+public class ConcurrentParsingTests
+{
+    /**
+     * Example test file paths.
+     */
+    private static final String[] EXAMPLE_PATHS = {
+        "examples/example1.txt", "examples/example2.txt", "examples/example3.txt" };
+
+    /**
+     * Number of times each thread parses every example.
+     */
+    private static final int ITERATIONS = 10;
+
+    /**
+     * Parser shared by all of the threads.
+     */
+    private static BusinessCardParser parser;
+
+    /**
+     * Text of the example files.
+     */
+    private static List<String> documents;
+
+    /**
+     * Results of parsing the examples on a single thread.
+     */
+    private static List<ContactInfo> expected;
+
+    /**
+     * Loads the examples and parses them on a single thread.
+     *
+     * @throws IOException Thrown if an example file is not found.
+     */
+    @BeforeClass
+    public static void setUp( ) throws IOException
+    {
+        parser = BusinessCardParserFactory.create( );
+        documents = new ArrayList<>( );
+        expected = new ArrayList<>( );
+
+        for ( String path : EXAMPLE_PATHS )
+        {
+            String document = loadExampleFile( path );
+            documents.add( document );
+            expected.add( parser.getContactInfo( document ) );
+        }
+    }
+
+    /**
+     * Tests that results parsed by several threads at once are identical to the single-threaded
+     * results.  Throughput is measured by the JMH benchmarks, not here.
+     *
+     * @throws Exception thrown if a parsing thread fails.
+     */
+    @Test
+    public void testConcurrentResultsAreIdentical( ) throws Exception
+    {
+        parseConcurrently( Math.max( 4, Runtime.getRuntime( ).availableProcessors( ) ) );
+    }
+
+    /**
+     * Helper method that parses the examples on the given number of threads and checks the results.
+     * The threads start together so their calls overlap.
+     *
+     * @param threads number of threads.
+     * @throws Exception thrown if a parsing thread fails.
+     */
+    private static void parseConcurrently( int threads ) throws Exception
+    {
+        ExecutorService executor = Executors.newFixedThreadPool( threads );
+        List<Future<List<ContactInfo>>> futures = new ArrayList<>( );
+        CountDownLatch ready = new CountDownLatch( threads );
+
+        try
+        {
+            for ( int t = 0; t < threads; t++ )
+            {
+                futures.add( executor.submit( ( ) -> {
+                    List<ContactInfo> results = new ArrayList<>( );
+
+                    ready.countDown( );
+                    ready.await( );
+
+                    for ( int i = 0; i < ITERATIONS; i++ )
+                    {
+                        for ( String document : documents )
+                        {
+                            results.add( parser.getContactInfo( document ) );
+                        }
+                    }
+
+                    return results;
+                } ) );
+            }
+
+            for ( Future<List<ContactInfo>> future : futures )
+            {
+                List<ContactInfo> results = future.get( );
+
+                for ( int i = 0; i < results.size( ); i++ )
+                {
+                    Assert.assertEquals( expected.get( i % expected.size( ) ), results.get( i ) );
+                }
+            }
+        } finally
+        {
+            executor.shutdownNow( );
+        }
+    }
+
+    /**
+     * Helper function that loads the example text files.
+     *
+     * @param fileName File path to example file.
+     * @return The text of the example file.
+     * @throws IOException thrown if the example text file is not found.
+     */
+    private static String loadExampleFile( String fileName ) throws IOException
+    {
+        ClassLoader classLoader = Thread.currentThread( ).getContextClassLoader( );
+        InputStream inStream = classLoader.getResourceAsStream( fileName );
+        BufferedReader reader = new BufferedReader( new InputStreamReader( inStream ) );
+
+        return reader.lines( ).collect( Collectors.joining( "\n" ) );
+    }
+}
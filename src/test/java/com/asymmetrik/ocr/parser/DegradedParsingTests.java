@@ -0,0 +1,209 @@
+package com.asymmetrik.ocr.parser;
+
+import com.asymmetrik.ocr.parser.impl.CachingBusinessCardParser;
+import com.asymmetrik.ocr.parser.impl.ContactInfo;
+import com.asymmetrik.ocr.parser.impl.DefaultBusinessCardParser;
+import com.asymmetrik.ocr.parser.impl.LineClassifier;
+import com.asymmetrik.ocr.parser.impl.ModelRegistry;
+import com.asymmetrik.ocr.parser.impl.ParserMetrics;
+import com.asymmetrik.ocr.parser.impl.PipelinePool;
+import com.asymmetrik.ocr.parser.impl.PipelineProfile;
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test class that contains unit tests for the fallback used when NER runs past its deadline.
+ */
+public class DegradedParsingTests
+{
+    /**
+     * A card whose name is only found by NER.
+     */
+    private static final String CARD = "Foobar Technologies\nAnalytic Developer\nLisa Haung\n1234 Sentry Road\n"
+        + "Columbia, MD 12345\nTel: 410-555-1234\nlisa.haung@foobartech.com";
+
+    /**
+     * Released to let the annotations of "Stuck" lines finish.
+     */
+    private static volatile CountDownLatch unstick = new CountDownLatch( 0 );
+
+    /**
+     * Tests that the heuristic only guesses title case lines without job title or company words.
+     */
+    @Test
+    public void testGuessName( )
+    {
+        LineClassifier classifier = new LineClassifier( );
+
+        Assert.assertEquals( "Lisa Haung", classifier.guessName( classifier.rankNameCandidates( CARD ) ) );
+        Assert.assertNull( classifier.guessName( classifier.rankNameCandidates( "ASYMMETRIK LTD\nSoftware Engineer" ) ) );
+    }
+
+    /**
+     * Tests that a card that runs past the deadline gets a guessed name, is marked degraded and
+     * counted, and still has its phone number and email address.
+     */
+    @Test
+    public void testDeadline( )
+    {
+        ParserMetrics metrics = ParserMetrics.getDefault( );
+        long degraded = metrics.getDegradedCards( );
+
+        ContactInfo contactInfo = new ExpiredParser( ).getContactInfo( CARD );
+
+        Assert.assertTrue( contactInfo.isDegraded( ) );
+        Assert.assertEquals( "Lisa Haung", contactInfo.getName( ) );
+        Assert.assertEquals( "4105551234", contactInfo.getPhoneNumber( ) );
+        Assert.assertEquals( "lisa.haung@foobartech.com", contactInfo.getEmailAddress( ) );
+        Assert.assertEquals( degraded + 1, metrics.getDegradedCards( ) );
+    }
+
+    /**
+     * Tests that getContactInfo() parses the name with an overridden parseName(), and that a name
+     * guessed by the parseName() it overrides still marks the result degraded.
+     */
+    @Test
+    public void testParseNameOverride( )
+    {
+        ContactInfo contactInfo = new ExpiredParser( )
+        {
+            @Override
+            protected String parseName( CharSequence text )
+            {
+                String name = super.parseName( text );
+
+                return name == null ? null : name.toUpperCase( );
+            }
+        }.getContactInfo( CARD );
+
+        Assert.assertEquals( "LISA HAUNG", contactInfo.getName( ) );
+        Assert.assertTrue( contactInfo.isDegraded( ) );
+    }
+
+    /**
+     * Tests that degraded results are not cached.
+     */
+    @Test
+    public void testDegradedNotCached( )
+    {
+        CachingBusinessCardParser parser = new CachingBusinessCardParser( new ExpiredParser( ), 10, 0, null );
+
+        parser.getContactInfo( CARD );
+        parser.getContactInfo( CARD );
+
+        Assert.assertEquals( 2, parser.getMisses( ) );
+        Assert.assertEquals( 0, parser.size( ) );
+    }
+
+    /**
+     * Tests that an annotation that keeps running after its deadline does not hold up the cards
+     * after it, and that NER is skipped once name.maxAbandoned annotations are stuck.
+     */
+    @Test
+    public void testAbandonedAnnotationDoesNotStarve( )
+    {
+        unstick = new CountDownLatch( 1 );
+
+        try
+        {
+            StuckParser parser = new StuckParser( );
+
+            Assert.assertTrue( parser.getContactInfo( "Stuck Person\nTel: 410-555-1234" ).isDegraded( ) );
+
+            ContactInfo next = parser.getContactInfo( CARD );
+
+            Assert.assertFalse( next.isDegraded( ) );
+            Assert.assertEquals( "Lisa Haung", next.getName( ) );
+
+            Assert.assertTrue( parser.getContactInfo( "Stuck Person\nTel: 410-555-1234" ).isDegraded( ) );
+
+            long start = System.nanoTime( );
+
+            Assert.assertTrue( parser.getContactInfo( CARD ).isDegraded( ) );
+            Assert.assertTrue( System.nanoTime( ) - start < parser.getNameDeadlineNanos( ) );
+        } finally
+        {
+            unstick.countDown( );
+        }
+    }
+
+    /**
+     * A parser whose NER deadline has always passed.  The deadline does not apply to the first
+     * annotation, so the constructor parses a warm-up card.
+     */
+    private static class ExpiredParser extends DefaultBusinessCardParser
+    {
+        ExpiredParser( )
+        {
+            nameDeadlineNanos = 1;
+
+            Assert.assertFalse( getContactInfo( "Analytic Developer\nTel: 410-555-9876" ).isDegraded( ) );
+        }
+    }
+
+    /**
+     * A parser with a pool of one permit and at most two abandoned annotations, whose pipeline
+     * blocks on lines that contain "Stuck" until the unstick latch is released, ignoring interrupts
+     * the way a slow StanfordCoreNLP annotator does.  Other lines are annotated by the shared
+     * pipeline.
+     */
+    private static class StuckParser extends DefaultBusinessCardParser
+    {
+        StuckParser( )
+        {
+            nameDeadlineNanos = TimeUnit.SECONDS.toNanos( 2 );
+
+            Assert.assertFalse( getContactInfo( "Analytic Developer\nTel: 410-555-9876" ).isDegraded( ) );
+        }
+
+        /**
+         * Returns the NER deadline.
+         *
+         * @return the deadline in nanoseconds.
+         */
+        long getNameDeadlineNanos( )
+        {
+            return nameDeadlineNanos;
+        }
+
+        @Override
+        protected PipelinePool initializePipelinePool( )
+        {
+            StanfordCoreNLP shared = ModelRegistry.getPipeline( PipelineProfile.fromConfiguration( ) );
+            Properties properties = new Properties( );
+            properties.setProperty( "annotators", "tokenize" );
+
+            return new PipelinePool( new StanfordCoreNLP( properties, false )
+            {
+                @Override
+                public void annotate( Annotation document )
+                {
+                    if( !document.toString( ).contains( "Stuck" ) )
+                    {
+                        shared.annotate( document );
+                        return;
+                    }
+
+                    boolean released = false;
+
+                    while ( !released )
+                    {
+                        try
+                        {
+                            released = unstick.await( 10, TimeUnit.SECONDS );
+                        } catch ( InterruptedException e )
+                        {
+                            // Keep running like an annotator that does not check for interrupts
+                        }
+                    }
+                }
+            }, 1, 2 );
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.asymmetrik.ocr.parser;
+
+import com.asymmetrik.ocr.parser.impl.EmailScanner;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Test class that checks the EmailScanner against the EMAIL_REGEX it replaces, and that its running
+ * time stays bounded on adversarial input.
+ */
+public class EmailScannerTests
+{
+    /**
+     * The reference regex.
+     */
+    private static final Pattern EMAIL_PATTERN = Pattern.compile( EmailScanner.EMAIL_REGEX );
+
+    /**
+     * Alphabets used to generate random input.  They are weighted towards the characters that are
+     * significant to the email grammar: dots, quotes, backslashes and address literals.
+     */
+    private static final String[] ALPHABETS = { "ab1-.@@..__\"\\[]:0925 \nAB!#", "a.@-b\"\\", "a@.[]:1.2\\\t " };
+
+    /**
+     * Scanner under test.
+     */
+    private final EmailScanner scanner = new EmailScanner( );
+
+    /**
+     * Tests hand picked inputs, including the example cards and address literals.
+     */
+    @Test
+    public void testKnownInputs( )
+    {
+        List<String> inputs = Arrays.asList(
+            "ASYMMETRIK LTD\nMike Smith\n(410)555-1234\nmsmith@asymmetrik.com",
+            "Phone: 410-555-1234\nlisa.haung@foobartech.com",
+            "Fax: +1 (703) 555-1200\nawilson@abctech.com",
+            "no address here",
+            "MSmith@Asymmetrik.com",
+            "..a..b.c@d.e.",
+            "a@b",
+            "a@b.",
+            "a@b.c-",
+            "a@b.c-.d",
+            "a@b-c.d-e.f",
+            "a.@b.com x@y.org",
+            "\"john smith\"@example.com",
+            "\"john\"@example.com",
+            "\"\"@example.com",
+            "user@[192.168.0.1]",
+            "user@[256.1.1.1]",
+            "user@[01.1.1.1]",
+            "user@[1.2.3.ipv6:ff::1]",
+            "user@[1.2.3.4:x]]]",
+            "user@@example.com",
+            "a@b@c.com",
+            "\"a\\\"b\"@example.com",
+            "x@y.z \"a x@y.z\"@example.com" );
+
+        for ( String input : inputs )
+        {
+            Assert.assertEquals( input, findWithRegex( input ), scanner.find( input ) );
+        }
+    }
+
+    /**
+     * Tests that the scanner agrees with the regex on random inputs.
+     */
+    @Test
+    public void testRandomInputsMatchRegex( )
+    {
+        Random random = new Random( 42 );
+
+        for ( int i = 0; i < 30000; i++ )
+        {
+            String alphabet = ALPHABETS[ i % ALPHABETS.length ];
+            StringBuilder input = new StringBuilder( );
+            int length = random.nextInt( 60 );
+
+            for ( int j = 0; j < length; j++ )
+            {
+                input.append( alphabet.charAt( random.nextInt( alphabet.length( ) ) ) );
+            }
+
+            Assert.assertEquals( input.toString( ), findWithRegex( input ), scanner.find( input ) );
+        }
+    }
+
+    /**
+     * Tests that adversarial inputs of a million characters are scanned quickly.  These are the
+     * long runs of dots, symbols and quotes that make the regex backtrack.
+     */
+    @Test( timeout = 5000 )
+    public void testAdversarialInputsAreLinear( )
+    {
+        List<String> inputs = Arrays.asList(
+            repeat( "a.", 500000 ) + "@",
+            repeat( ".", 999999 ) + "@",
+            repeat( "@", 1000000 ),
+            repeat( "!#$%&", 200000 ) + "@" + repeat( "-.", 100000 ),
+            "a@" + repeat( "b.", 500000 ),
+            "a@" + repeat( "b-", 500000 ),
+            repeat( "a@b", 333333 ),
+            repeat( "\"@", 500000 ),
+            repeat( "\\\"@", 333333 ),
+            "a@b.c" + repeat( "\"@", 500000 ),
+            "\"" + repeat( "a", 999997 ) + "\"@",
+            "a@[1.2.3.x:" + repeat( "\\", 1000000 ) );
+
+        for ( String input : inputs )
+        {
+            scanner.find( input );
+        }
+    }
+
+    /**
+     * Helper method that finds the first match of the reference regex.
+     *
+     * @param text the text to search.
+     * @return the first match, null if there is none.
+     */
+    private static String findWithRegex( CharSequence text )
+    {
+        Matcher matcher = EMAIL_PATTERN.matcher( text );
+
+        return matcher.find( ) ? matcher.group( 0 ) : null;
+    }
+
+    /**
+     * Helper method that repeats a string.
+     *
+     * @param value the string to repeat.
+     * @param count number of repetitions.
+     * @return the repeated string.
+     */
+    private static String repeat( String value, int count )
+    {
+        StringBuilder builder = new StringBuilder( value.length( ) * count );
+
+        for ( int i = 0; i < count; i++ )
+        {
+            builder.append( value );
+        }
+
+        return builder.toString( );
+    }
+}
@@ -0,0 +1,122 @@
+package com.asymmetrik.ocr.parser;
+
+import com.asymmetrik.ocr.parser.impl.ContactInfo;
+import com.asymmetrik.ocr.parser.impl.DefaultBusinessCardParser;
+import com.asymmetrik.ocr.parser.impl.FieldExtractor;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Test class that contains unit tests for additional fields found by FieldExtractors.
+ */
+public class FieldExtractorTests
+{
+    /**
+     * A card with a job title.
+     */
+    private static final String CARD = "ASYMMETRIK LTD\nMike Smith\nSenior Software Engineer\n(410)555-1234\nmsmith@asymmetrik.com";
+
+    /**
+     * Tests that the extras are returned with the built-in fields of a single card.
+     */
+    @Test
+    public void testSingleCard( )
+    {
+        DefaultBusinessCardParser parser = new DefaultBusinessCardParser( );
+        parser.addFieldExtractor( new TitleExtractor( ) );
+
+        ContactInfo contactInfo = parser.getContactInfo( CARD );
+
+        Assert.assertEquals( "Mike Smith", contactInfo.getName( ) );
+        Assert.assertEquals( "4105551234", contactInfo.getPhoneNumber( ) );
+        Assert.assertEquals( "msmith@asymmetrik.com", contactInfo.getEmailAddress( ) );
+        Assert.assertEquals( "Senior Software Engineer", contactInfo.getExtra( "title" ) );
+        Assert.assertTrue( contactInfo.toString( ).endsWith( "title: Senior Software Engineer" ) );
+    }
+
+    /**
+     * Tests that a batch returns the same extras as parsing the cards one at a time, and that a
+     * card without the field has no extra for it.
+     */
+    @Test
+    public void testBatch( )
+    {
+        DefaultBusinessCardParser parser = new DefaultBusinessCardParser( );
+        parser.addFieldExtractor( new TitleExtractor( ) );
+        String withoutTitle = CARD.replace( "Senior Software Engineer\n", "" );
+
+        List<ContactInfo> results = parser.getContactInfoBatch( Arrays.asList( CARD, withoutTitle ) );
+
+        Assert.assertEquals( parser.getContactInfo( CARD ), results.get( 0 ) );
+        Assert.assertTrue( results.get( 1 ).getExtras( ).isEmpty( ) );
+    }
+
+    /**
+     * Tests that a failing extractor leaves out its field without failing the card, and that a
+     * field can only be extracted once.
+     */
+    @Test
+    public void testFailingExtractor( )
+    {
+        DefaultBusinessCardParser parser = new DefaultBusinessCardParser( );
+        parser.addFieldExtractor( new FieldExtractor( )
+        {
+            @Override
+            public String getField( )
+            {
+                return "company";
+            }
+
+            @Override
+            public String extract( CharSequence document )
+            {
+                throw new IllegalStateException( "Broken extractor" );
+            }
+        } );
+
+        ContactInfo contactInfo = parser.getContactInfo( CARD );
+
+        Assert.assertEquals( "Mike Smith", contactInfo.getName( ) );
+        Assert.assertNull( contactInfo.getExtra( "company" ) );
+
+        try
+        {
+            parser.addFieldExtractor( new TitleExtractor( ) );
+            parser.addFieldExtractor( new TitleExtractor( ) );
+            Assert.fail( "Expected the second title extractor to be rejected." );
+        } catch ( IllegalArgumentException e )
+        {
+            Assert.assertTrue( e.getMessage( ).contains( "title" ) );
+        }
+    }
+
+    /**
+     * Finds the first line that ends with a common job title word.
+     */
+    private static class TitleExtractor implements FieldExtractor
+    {
+        /**
+         * A line ending with a job title word.
+         */
+        private static final Pattern TITLE = Pattern.compile( "(?m)^.*\\b(Engineer|Developer|Manager|Director)\\s*$" );
+
+        @Override
+        public String getField( )
+        {
+            return "title";
+        }
+
+        @Override
+        public String extract( CharSequence document )
+        {
+            Matcher matcher = TITLE.matcher( document );
+
+            return matcher.find( ) ? matcher.group( ).trim( ) : null;
+        }
+    }
+}
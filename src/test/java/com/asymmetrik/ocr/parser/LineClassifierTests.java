@@ -0,0 +1,49 @@
+package com.asymmetrik.ocr.parser;
+
+import com.asymmetrik.ocr.parser.impl.LineClassifier;
+import com.asymmetrik.ocr.parser.impl.LineClassifier.LineType;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+/**
+ * Test class that contains unit tests for the LineClassifier.
+ */
+public class LineClassifierTests
+{
+    /**
+     * Classifier under test.
+     */
+    private final LineClassifier classifier = new LineClassifier( );
+
+    /**
+     * Tests that phone, fax, email and address lines are recognized.
+     */
+    @Test
+    public void testClassify( )
+    {
+        Assert.assertEquals( LineType.PHONE, classifier.classify( "(410)555-1234" ) );
+        Assert.assertEquals( LineType.PHONE, classifier.classify( "Phone: 410-555-1234" ) );
+        Assert.assertEquals( LineType.PHONE, classifier.classify( "Fax: +1 (703) 555-1200" ) );
+        Assert.assertEquals( LineType.EMAIL, classifier.classify( "lisa.haung@foobartech.com" ) );
+        Assert.assertEquals( LineType.ADDRESS, classifier.classify( "1234 Sentry Road" ) );
+        Assert.assertEquals( LineType.ADDRESS, classifier.classify( "Columbia, MD 12345" ) );
+        Assert.assertEquals( LineType.ADDRESS, classifier.classify( "Suite 229" ) );
+        Assert.assertEquals( LineType.NAME_CANDIDATE, classifier.classify( "Arthur Wilson" ) );
+        Assert.assertEquals( LineType.OTHER, classifier.classify( "   " ) );
+    }
+
+    /**
+     * Tests that the person's name is ranked ahead of the company and job title lines.
+     */
+    @Test
+    public void testRankNameCandidates( )
+    {
+        String text = "Foobar Technologies\nAnalytic Developer\nLisa Haung\n1234 Sentry Road\n"
+            + "Columbia, MD 12345\nPhone: 410-555-1234\nlisa.haung@foobartech.com";
+
+        Assert.assertEquals( Arrays.asList( "Lisa Haung", "Foobar Technologies", "Analytic Developer" ),
+            classifier.rankNameCandidates( text ) );
+    }
+}
@@ -0,0 +1,113 @@
+package com.asymmetrik.ocr.parser;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Test class that contains unit tests for the MappedCardArchive.
+ */
+public class MappedCardArchiveTests
+{
+    /**
+     * Folder for the archive files.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder( );
+
+    /**
+     * Tests that cards are split on delimiter lines, with line breaks, blank cards and non-ASCII
+     * text handled, for region sizes that force the cards across region boundaries.
+     *
+     * @throws IOException thrown if the archive cannot be written or read.
+     */
+    @Test
+    public void testCardBoundaries( ) throws IOException
+    {
+        Path file = write( "John Smith\n(410)555-1234\n---\r\n\n---\nJane Doe\r\njane@foo.com\r\n---\nJos\u00e9 N\u00fa\u00f1ez\n---\nLast Card" );
+        List<String> expected = Arrays.asList( "John Smith\n(410)555-1234", "Jane Doe\r\njane@foo.com", "Jos\u00e9 N\u00fa\u00f1ez", "Last Card" );
+
+        for ( int regionSize : new int[] { 1 << 20, 40, 30 } )
+        {
+            Assert.assertEquals( "region size " + regionSize, expected, readAll( file, regionSize ) );
+        }
+    }
+
+    /**
+     * Tests that ASCII cards are views over the mapping that slice without copying.
+     *
+     * @throws IOException thrown if the archive cannot be written or read.
+     */
+    @Test
+    public void testAsciiCardsAreViews( ) throws IOException
+    {
+        Path file = write( "---\nJohn Smith\njsmith@foo.com\n" );
+
+        try ( MappedCardArchive archive = new MappedCardArchive( file, "---", 1 << 20 ) )
+        {
+            CharSequence card = archive.iterator( ).next( );
+
+            Assert.assertTrue( card instanceof ByteBufferCharSequence );
+            Assert.assertTrue( card.subSequence( 11, 25 ) instanceof ByteBufferCharSequence );
+            Assert.assertEquals( "jsmith@foo.com", card.subSequence( 11, 25 ).toString( ) );
+        }
+    }
+
+    /**
+     * Tests that a card larger than a region is reported.
+     *
+     * @throws IOException thrown if the archive cannot be written or read.
+     */
+    @Test( expected = IllegalStateException.class )
+    public void testCardLargerThanRegion( ) throws IOException
+    {
+        readAll( write( "A card that is much longer than the region\n---\nB" ), 16 );
+    }
+
+    /**
+     * Helper method that writes an archive file.
+     *
+     * @param text the archive text.
+     * @return the archive file.
+     * @throws IOException thrown if the file cannot be written.
+     */
+    private Path write( String text ) throws IOException
+    {
+        Path file = folder.newFile( ).toPath( );
+        Files.write( file, text.getBytes( StandardCharsets.UTF_8 ) );
+
+        return file;
+    }
+
+    /**
+     * Helper method that reads every card of an archive.
+     *
+     * @param file       the archive file.
+     * @param regionSize maximum size of a mapped region.
+     * @return the cards as Strings.
+     * @throws IOException thrown if the archive cannot be read.
+     */
+    private static List<String> readAll( Path file, int regionSize ) throws IOException
+    {
+        List<String> cards = new ArrayList<>( );
+
+        try ( MappedCardArchive archive = new MappedCardArchive( file, "---", regionSize ) )
+        {
+            for ( CharSequence card : archive )
+            {
+                cards.add( card.toString( ) );
+            }
+        }
+
+        return cards;
+    }
+}
@@ -0,0 +1,52 @@
+package com.asymmetrik.ocr.parser;
+
+import com.asymmetrik.ocr.parser.impl.PipelineProfile;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.file.Paths;
+import java.util.Properties;
+
+/**
+ * Test class that contains unit tests for reading the pipeline models from an external path.
+ */
+public class ModelsPathTests
+{
+    /**
+     * NER model named in the pipeline properties files.
+     */
+    private static final String NER_MODEL = "edu/stanford/nlp/models/ner/english.muc.7class.distsim.crf.ser.gz";
+
+    /**
+     * Clears the system property override after each test.
+     */
+    @After
+    public void clearModelsPath( )
+    {
+        System.clearProperty( "models.path" );
+    }
+
+    /**
+     * Tests that the model paths are read from the classpath by default.
+     */
+    @Test
+    public void testClasspathModels( )
+    {
+        Assert.assertEquals( NER_MODEL, PipelineProfile.MINIMAL.getProperties( ).getProperty( "ner.model" ) );
+    }
+
+    /**
+     * Tests that a models.path system property resolves the model paths against it, leaving the other properties alone.
+     */
+    @Test
+    public void testExternalModels( )
+    {
+        System.setProperty( "models.path", "/opt/models" );
+
+        Properties properties = PipelineProfile.MINIMAL.getProperties( );
+
+        Assert.assertEquals( Paths.get( "/opt/models", NER_MODEL ).toString( ), properties.getProperty( "ner.model" ) );
+        Assert.assertEquals( "tokenize, ssplit, ner", properties.getProperty( "annotators" ) );
+    }
+}
@@ -0,0 +1,61 @@
+package com.asymmetrik.ocr.parser;
+
+import com.asymmetrik.ocr.parser.impl.BusinessCardParser;
+import com.asymmetrik.ocr.parser.impl.BusinessCardParserFactory;
+import com.asymmetrik.ocr.parser.impl.CardDocument;
+import com.asymmetrik.ocr.parser.impl.ContactInfo;
+import com.asymmetrik.ocr.parser.impl.LineClassifier;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Test class that contains unit tests for names that share a line with a phone number or email
+ * address, which the LineClassifier does not make name candidates.
+ */
+public class NameFallbackTests
+{
+    /**
+     * Card whose name is on the phone number line.
+     */
+    private static final String PHONE_CARD = "Acme Widgets Corp\nJohn Smith 410-555-1234";
+
+    /**
+     * Card whose name is on the email address line.
+     */
+    private static final String EMAIL_CARD = "Software Engineer\nJane Doe, jdoe@example.com";
+
+    /**
+     * Tests that the skipped lines are joined in document order, without blank lines.
+     */
+    @Test
+    public void testJoinSkippedLines( )
+    {
+        LineClassifier classifier = new LineClassifier( );
+
+        Assert.assertEquals( "John Smith 410-555-1234", classifier.joinSkippedLines( CardDocument.of( PHONE_CARD ) ) );
+        Assert.assertEquals( "Tel: 410-555-1234\nj@x.com", classifier.joinSkippedLines( CardDocument.of( "Tel: 410-555-1234\n\nJane\n j@x.com " ) ) );
+        Assert.assertNull( classifier.joinSkippedLines( CardDocument.of( "Jane Doe\nAcme" ) ) );
+    }
+
+    /**
+     * Tests that a name that shares a line with a phone number or email address is found, one card
+     * at a time and in a batch.
+     */
+    @Test
+    public void testNameOnSkippedLine( )
+    {
+        BusinessCardParser parser = BusinessCardParserFactory.create( );
+
+        Assert.assertEquals( "John Smith", parser.getContactInfo( PHONE_CARD ).getName( ) );
+        Assert.assertEquals( "Jane Doe", parser.getContactInfo( EMAIL_CARD ).getName( ) );
+        Assert.assertEquals( "4105551234", parser.getContactInfo( PHONE_CARD ).getPhoneNumber( ) );
+
+        List<ContactInfo> batch = parser.getContactInfoBatch( Arrays.asList( PHONE_CARD, EMAIL_CARD ) );
+
+        Assert.assertEquals( "John Smith", batch.get( 0 ).getName( ) );
+        Assert.assertEquals( "Jane Doe", batch.get( 1 ).getName( ) );
+    }
+}
@@ -0,0 +1,49 @@
+package com.asymmetrik.ocr.parser;
+
+import com.asymmetrik.ocr.parser.impl.NameGazetteer;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test class that contains unit tests for the NameGazetteer.
+ */
+public class NameGazetteerTests
+{
+    /**
+     * The gazetteer with the bundled name lists.
+     */
+    private final NameGazetteer gazetteer = NameGazetteer.getDefault( );
+
+    /**
+     * Tests lines the gazetteer should be confident about.
+     */
+    @Test
+    public void testConfidentMatches( )
+    {
+        Assert.assertEquals( "Mike Smith", gazetteer.match( "Mike Smith" ) );
+        Assert.assertEquals( "Arthur Wilson", gazetteer.match( "  Arthur Wilson " ) );
+        Assert.assertEquals( "John J. Smith", gazetteer.match( "John J. Smith" ) );
+        Assert.assertEquals( "Mary Anne Lee", gazetteer.match( "Mary Anne Lee," ) );
+        Assert.assertEquals( "Sarah Jones-Smith", gazetteer.match( "Sarah Jones-Smith" ) );
+        Assert.assertEquals( "Kevin O'Brien", gazetteer.match( "Kevin O'Brien" ) );
+    }
+
+    /**
+     * Tests lines the gazetteer should leave to NER.
+     */
+    @Test
+    public void testUnsureLines( )
+    {
+        Assert.assertNull( "unknown family name", gazetteer.match( "Lisa Haung" ) );
+        Assert.assertNull( "single word", gazetteer.match( "Smith" ) );
+        Assert.assertNull( "company", gazetteer.match( "Smith Software" ) );
+        Assert.assertNull( "company suffix", gazetteer.match( "Jordan Taylor Associates" ) );
+        Assert.assertNull( "all capitals", gazetteer.match( "MIKE SMITH" ) );
+        Assert.assertNull( "lower case", gazetteer.match( "mike smith" ) );
+        Assert.assertNull( "too many words", gazetteer.match( "Mike John Paul Mark Smith" ) );
+        Assert.assertNull( "digits", gazetteer.match( "Mike Smith3" ) );
+        Assert.assertNull( "street", gazetteer.match( "Grant Lane" ) );
+        Assert.assertNull( "place", gazetteer.match( "Austin Park" ) );
+        Assert.assertNull( "place", gazetteer.match( "Jordan Hill" ) );
+    }
+}
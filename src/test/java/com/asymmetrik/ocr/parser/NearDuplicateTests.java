@@ -0,0 +1,75 @@
+package com.asymmetrik.ocr.parser;
+
+import com.asymmetrik.ocr.parser.impl.BusinessCardParserFactory;
+import com.asymmetrik.ocr.parser.impl.ContactInfo;
+import com.asymmetrik.ocr.parser.impl.NearDuplicateGrouper;
+import com.asymmetrik.ocr.parser.impl.ParserMetrics;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Test class that contains unit tests for grouping near-duplicate cards in a batch.
+ */
+public class NearDuplicateTests
+{
+    /**
+     * A card whose name is only found by NER.
+     */
+    private static final String CARD = "Foobar Technologies\nAnalytic Developer\nLisa Haung\n1234 Sentry Road\n"
+        + "Columbia, MD 12345\nTel: 410-555-1234\nlisa.haung@foobartech.com";
+
+    /**
+     * The same card scanned again with OCR errors.
+     */
+    private static final String RESCAN = "Foobar Techno1ogies\nAnalytic  Deve1oper\nLisa Haung\n1234 Sentry Raad\n"
+        + "Co1umbia, MD 12345\nTel: 410-555-1234\nlisa.haung@foobartech.com";
+
+    /**
+     * A colleague's card from the same company.
+     */
+    private static final String COLLEAGUE = "Foobar Technologies\nSenior Analytic Developer\nYusuf Okonkwo\n1234 Sentry Road\n"
+        + "Columbia, MD 12345\nTel: 410-555-9876\nyusuf.okonkwo@foobartech.com";
+
+    /**
+     * Tests that a rescan is grouped with the original card and a colleague's card is not.
+     */
+    @Test
+    public void testGrouping( )
+    {
+        int[] groups = new NearDuplicateGrouper( 0.7 ).group( Arrays.asList( CARD, COLLEAGUE, RESCAN, CARD ) );
+
+        Assert.assertArrayEquals( new int[] { 0, 1, 0, 0 }, groups );
+    }
+
+    /**
+     * Tests the approximate matching used to check that a name can be reused.
+     */
+    @Test
+    public void testMatchesApproximately( )
+    {
+        Assert.assertTrue( NearDuplicateGrouper.matchesApproximately( RESCAN, "lisa haung", 0 ) );
+        Assert.assertTrue( NearDuplicateGrouper.matchesApproximately( "Lisa Haunq", "Lisa Haung", 1 ) );
+        Assert.assertFalse( NearDuplicateGrouper.matchesApproximately( COLLEAGUE, "Lisa Haung", 1 ) );
+    }
+
+    /**
+     * Tests that a batch reuses the name of a near-duplicate and still reads each card's own phone number.
+     */
+    @Test
+    public void testBatchReusesName( )
+    {
+        String rescanWithNewPhone = RESCAN.replace( "410-555-1234", "410-555-4321" );
+        ParserMetrics metrics = ParserMetrics.getDefault( );
+        long duplicateNames = metrics.getDuplicateNames( );
+
+        List<ContactInfo> results = BusinessCardParserFactory.create( ).getContactInfoBatch( Arrays.asList( CARD, COLLEAGUE, rescanWithNewPhone ) );
+
+        Assert.assertEquals( "Lisa Haung", results.get( 2 ).getName( ) );
+        Assert.assertEquals( "4105554321", results.get( 2 ).getPhoneNumber( ) );
+        Assert.assertNotEquals( "Lisa Haung", results.get( 1 ).getName( ) );
+        Assert.assertEquals( duplicateNames + 1, metrics.getDuplicateNames( ) );
+    }
+}
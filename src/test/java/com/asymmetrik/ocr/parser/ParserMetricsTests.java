@@ -0,0 +1,107 @@
+package com.asymmetrik.ocr.parser;
+
+import com.asymmetrik.ocr.parser.impl.BusinessCardParserFactory;
+import com.asymmetrik.ocr.parser.impl.CachingBusinessCardParser;
+import com.asymmetrik.ocr.parser.impl.ContactInfo;
+import com.asymmetrik.ocr.parser.impl.DefaultBusinessCardParser;
+import com.asymmetrik.ocr.parser.impl.LatencyHistogram;
+import com.asymmetrik.ocr.parser.impl.ModelRegistry;
+import com.asymmetrik.ocr.parser.impl.ParserMetrics;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Test class that contains unit tests for the LatencyHistogram and ParserMetrics.
+ */
+public class ParserMetricsTests
+{
+    /**
+     * Tests that the percentiles are within the 25% bucket resolution and the maximum is exact.
+     */
+    @Test
+    public void testHistogramPercentiles( )
+    {
+        LatencyHistogram histogram = new LatencyHistogram( );
+
+        for ( int micros = 1; micros <= 1000; micros++ )
+        {
+            histogram.record( micros * 1000L );
+        }
+
+        Assert.assertEquals( 1000, histogram.getCount( ) );
+        Assert.assertEquals( 500.5, histogram.getMeanMicros( ), 0.01 );
+        Assert.assertEquals( 1000.0, histogram.getMaxMicros( ), 0.0 );
+        Assert.assertTrue( histogram.getP50Micros( ) >= 500 && histogram.getP50Micros( ) <= 625 );
+        Assert.assertTrue( histogram.getP99Micros( ) >= 990 && histogram.getP99Micros( ) <= 1000 );
+
+        histogram.reset( );
+
+        Assert.assertEquals( 0, histogram.getCount( ) );
+        Assert.assertEquals( 0, histogram.getPercentileNanos( 50 ) );
+    }
+
+    /**
+     * Tests the card and miss counters.
+     */
+    @Test
+    public void testMissCounters( )
+    {
+        ParserMetrics metrics = new ParserMetrics( );
+
+        metrics.recordCard( new ContactInfo( "Jane Doe", null, null ), 1000 );
+        metrics.recordCard( new ContactInfo( null, "4105551234", null ), 1000 );
+        metrics.record( ParserMetrics.Stage.ANNOTATE, 500 );
+
+        Assert.assertEquals( 2, metrics.getCards( ) );
+        Assert.assertEquals( 1, metrics.getNameMisses( ) );
+        Assert.assertEquals( 1, metrics.getPhoneMisses( ) );
+        Assert.assertEquals( 2, metrics.getEmailMisses( ) );
+        Assert.assertEquals( 1, metrics.getAnnotateCalls( ) );
+        Assert.assertEquals( 2, metrics.getHistogram( ParserMetrics.Stage.TOTAL ).getCount( ) );
+    }
+
+    /**
+     * Tests that the default parser records into the default metrics and that they are registered with JMX.
+     *
+     * @throws Exception thrown if the MBean cannot be read.
+     */
+    @Test
+    public void testDefaultParserIsInstrumented( ) throws Exception
+    {
+        ParserMetrics metrics = ParserMetrics.getDefault( );
+        long cards = metrics.getCards( );
+        long annotateCalls = metrics.getAnnotateCalls( );
+
+        BusinessCardParserFactory.create( ).getContactInfo( "Lisa Haung\n(410) 555-1234\nlisa@foo.bar" );
+
+        Assert.assertEquals( cards + 1, metrics.getCards( ) );
+        Assert.assertTrue( metrics.getAnnotateCalls( ) > annotateCalls );
+        Assert.assertEquals( metrics.getCards( ), ManagementFactory.getPlatformMBeanServer( )
+            .getAttribute( new ObjectName( "com.asymmetrik.ocr.parser:type=ParserMetrics" ), "Cards" ) );
+        Assert.assertTrue( ManagementFactory.getPlatformMBeanServer( )
+            .isRegistered( new ObjectName( "com.asymmetrik.ocr.parser:type=ParserMetrics,stage=annotate" ) ) );
+    }
+
+    /**
+     * Tests that warming up a cached DefaultBusinessCardParser neither caches the dummy cards nor
+     * counts them in the process-wide metrics.
+     */
+    @Test
+    public void testWarmUpLeavesNoTrace( )
+    {
+        ParserMetrics metrics = ParserMetrics.getDefault( );
+        CachingBusinessCardParser parser = new CachingBusinessCardParser( new DefaultBusinessCardParser( ), 10, 0, null );
+        long cards = metrics.getCards( );
+        long annotateCalls = metrics.getAnnotateCalls( );
+
+        ModelRegistry.warmUp( parser, 2 );
+
+        Assert.assertEquals( 0, parser.size( ) );
+        Assert.assertEquals( 0, parser.getMisses( ) );
+        Assert.assertEquals( cards, metrics.getCards( ) );
+        Assert.assertEquals( annotateCalls, metrics.getAnnotateCalls( ) );
+    }
+}
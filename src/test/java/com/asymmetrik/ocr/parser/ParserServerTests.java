@@ -0,0 +1,179 @@
+package com.asymmetrik.ocr.parser;
+
+import com.asymmetrik.ocr.parser.impl.AsyncBusinessCardParser;
+import com.asymmetrik.ocr.parser.impl.BusinessCardParser;
+import com.asymmetrik.ocr.parser.impl.ContactInfo;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test class that contains unit tests for the ParserServer.
+ * <p>
+ * A stub parser that returns the first line of the card as the name is used so the tests do not
+ * load the models.
+ */
+public class ParserServerTests
+{
+    /**
+     * The server under test, on a free port.
+     */
+    private static ParserServer server;
+
+    /**
+     * Number of cards parsed by the stub parser.
+     */
+    private static final AtomicInteger parsed = new AtomicInteger( );
+
+    /**
+     * Starts the server with the stub parser.
+     *
+     * @throws IOException thrown if the server cannot be started.
+     */
+    @BeforeClass
+    public static void setUp( ) throws IOException
+    {
+        BusinessCardParser stub = document -> {
+            parsed.incrementAndGet( );
+            return new ContactInfo( document.split( "\n" )[ 0 ], null, null );
+        };
+
+        server = new ParserServer( stub, new AsyncBusinessCardParser( stub, Executors.newFixedThreadPool( 2 ), 10, false ), 0, 2 );
+        server.start( );
+    }
+
+    /**
+     * Stops the server.
+     */
+    @AfterClass
+    public static void tearDown( )
+    {
+        server.close( );
+    }
+
+    /**
+     * Tests the single card endpoint.
+     *
+     * @throws IOException thrown if the request fails.
+     */
+    @Test
+    public void testParse( ) throws IOException
+    {
+        Response response = request( "POST", "/parse", "Jane Doe\nAcme" );
+
+        Assert.assertEquals( 200, response.status );
+        Assert.assertEquals( "{\"name\":\"Jane Doe\",\"phone\":null,\"email\":null}", response.body );
+    }
+
+    /**
+     * Tests that the batch endpoint returns the results in request order.
+     *
+     * @throws IOException thrown if the request fails.
+     */
+    @Test
+    public void testParseBatch( ) throws IOException
+    {
+        Response response = request( "POST", "/parse/batch", "[\"A\\nx\",\"B\",\"C\"]" );
+
+        Assert.assertEquals( 200, response.status );
+        Assert.assertEquals( "[{\"name\":\"A\",\"phone\":null,\"email\":null},"
+            + "{\"name\":\"B\",\"phone\":null,\"email\":null},"
+            + "{\"name\":\"C\",\"phone\":null,\"email\":null}]", response.body );
+    }
+
+    /**
+     * Tests the error responses.
+     *
+     * @throws IOException thrown if the request fails.
+     */
+    @Test
+    public void testErrors( ) throws IOException
+    {
+        Assert.assertEquals( 400, request( "POST", "/parse/batch", "{\"text\":\"A\"}" ).status );
+        Assert.assertEquals( 400, request( "POST", "/parse/batch", "not json" ).status );
+        Assert.assertEquals( 405, request( "GET", "/parse", null ).status );
+        Assert.assertEquals( 404, request( "POST", "/parse/other", "A" ).status );
+        Assert.assertEquals( 200, request( "GET", "/health", null ).status );
+    }
+
+    /**
+     * Tests that a batch with an element that is not a string is rejected before any of its cards
+     * is parsed.
+     *
+     * @throws IOException thrown if the request fails.
+     */
+    @Test
+    public void testInvalidBatchIsNotParsed( ) throws IOException
+    {
+        int before = parsed.get( );
+
+        Assert.assertEquals( 400, request( "POST", "/parse/batch", "[\"A\",\"B\",1]" ).status );
+        Assert.assertEquals( 200, request( "POST", "/parse/batch", "[\"C\"]" ).status );
+        Assert.assertEquals( before + 1, parsed.get( ) );
+    }
+
+    /**
+     * Helper method that sends a request to the server.
+     *
+     * @param method the HTTP method.
+     * @param path   the request path.
+     * @param body   the request body, null for none.
+     * @return the response.
+     * @throws IOException thrown if the request fails.
+     */
+    private static Response request( String method, String path, String body ) throws IOException
+    {
+        HttpURLConnection connection = ( HttpURLConnection ) new URL( "http://localhost:" + server.getPort( ) + path ).openConnection( );
+        connection.setRequestMethod( method );
+
+        if( body != null )
+        {
+            connection.setDoOutput( true );
+
+            try ( OutputStream out = connection.getOutputStream( ) )
+            {
+                out.write( body.getBytes( StandardCharsets.UTF_8 ) );
+            }
+        }
+
+        int status = connection.getResponseCode( );
+        InputStream in = status < 400 ? connection.getInputStream( ) : connection.getErrorStream( );
+        ByteArrayOutputStream response = new ByteArrayOutputStream( );
+        byte[] buffer = new byte[ 1024 ];
+        int read;
+
+        while ( ( read = in.read( buffer ) ) != -1 )
+        {
+            response.write( buffer, 0, read );
+        }
+
+        return new Response( status, new String( response.toByteArray( ), StandardCharsets.UTF_8 ) );
+    }
+
+    /**
+     * A response status and body.
+     */
+    private static class Response
+    {
+        private final int status;
+
+        private final String body;
+
+        Response( int status, String body )
+        {
+            this.status = status;
+            this.body = body;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.asymmetrik.ocr.parser;
+
+import com.asymmetrik.ocr.parser.impl.DefaultBusinessCardParser;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test class that contains unit tests for the phone number extraction of the
+ * DefaultBusinessCardParser.  Phone numbers are parsed without NER, so no models are loaded.
+ */
+public class PhoneParsingTests
+{
+    /**
+     * Card with a national U.S. number before an international number.
+     */
+    private static final String CARD = "(410)555-1234\n+44 20 7946 0958";
+
+    /**
+     * Clears the phone.regions system property.
+     */
+    @After
+    public void tearDown( )
+    {
+        System.clearProperty( "phone.regions" );
+    }
+
+    /**
+     * Tests that the regions are tried in the order of the phone.regions property.
+     */
+    @Test
+    public void testRegions( )
+    {
+        Assert.assertEquals( "442079460958", new PhoneParser( ).parse( CARD ) );
+
+        System.setProperty( "phone.regions", "US" );
+
+        Assert.assertEquals( "4105551234", new PhoneParser( ).parse( CARD ) );
+    }
+
+    /**
+     * Tests that libphonenumber is not called for cards without a line of enough digits, and that
+     * the "ZZ" region is only tried on lines with a plus sign.
+     */
+    @Test
+    public void testCandidateLines( )
+    {
+        PhoneParser parser = new PhoneParser( );
+
+        Assert.assertNull( parser.parse( "Jane Doe\nSuite 229\nColumbia, MD 12345" ) );
+        Assert.assertEquals( 0, parser.calls );
+
+        Assert.assertEquals( "4105551234", parser.parse( "Jane Doe\nSuite 229\n(410)555-1234" ) );
+        Assert.assertEquals( 1, parser.calls );
+    }
+
+    /**
+     * A parser that exposes parsePhone() and counts the libphonenumber searches.
+     */
+    private static class PhoneParser extends DefaultBusinessCardParser
+    {
+        /**
+         * Number of tryGetPhoneNumber() calls.
+         */
+        private int calls;
+
+        /**
+         * Parses the phone number of a card.
+         *
+         * @param text the card text.
+         * @return the phone number, null if none is found.
+         */
+        String parse( String text )
+        {
+            return parsePhone( text );
+        }
+
+        @Override
+        protected String tryGetPhoneNumber( CharSequence text, String defaultRegion )
+        {
+            calls++;
+            return super.tryGetPhoneNumber( text, defaultRegion );
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.asymmetrik.ocr.parser;
+
+import com.asymmetrik.ocr.parser.impl.ContactInfo;
+import com.asymmetrik.ocr.parser.impl.DefaultBusinessCardParser;
+import com.asymmetrik.ocr.parser.impl.ModelRegistry;
+import com.asymmetrik.ocr.parser.impl.PipelineProfile;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.stream.Collectors;
+
+/**
+ * Test class that compares the names extracted with each PipelineProfile against the
+ * expected names of the example business cards.
+ * <p>
+ * The NameGazetteer would resolve two of the three names without NER, so it is turned off and
+ * every name is found by the profile's pipeline.
+ */
+@RunWith( Parameterized.class )
+public class PipelineProfileTests
+{
+    /**
+     * Example test file paths.
+     */
+    private static final String[] EXAMPLE_PATHS = {
+        "examples/example1.txt", "examples/example2.txt", "examples/example3.txt" };
+
+    /**
+     * Expected names for the example test files.
+     */
+    private static final String[] EXPECTED_NAMES = { "Mike Smith", "Lisa Haung", "Arthur Wilson" };
+
+    /**
+     * Profile used to parse the example file.
+     */
+    @Parameterized.Parameter
+    public PipelineProfile profile;
+
+    /**
+     * Path to the example file.
+     */
+    @Parameterized.Parameter( 1 )
+    public String path;
+
+    /**
+     * Actual ContactInfo parameter.
+     */
+    @Parameterized.Parameter( 2 )
+    public ContactInfo actual;
+
+    /**
+     * Expected name parameter.
+     */
+    @Parameterized.Parameter( 3 )
+    public String expected;
+
+    /**
+     * Parses the example files with every profile.
+     * <p>
+     * Each profile loads its own NER model, so the model registry is cleared before moving
+     * on to the next profile.
+     *
+     * @return A Collection of profile, path, parsed ContactInfo and expected name arrays.
+     * @throws IOException Thrown if the example file is not found.
+     */
+    @Parameterized.Parameters( name = "{0} {1}" )
+    public static Collection<Object[]> data( ) throws IOException
+    {
+        Collection<Object[]> data = new ArrayList<>( );
+
+        for ( PipelineProfile profile : PipelineProfile.values( ) )
+        {
+            DefaultBusinessCardParser parser = new NerOnlyParser( profile );
+
+            for ( int i = 0; i < EXAMPLE_PATHS.length; i++ )
+            {
+                data.add( new Object[]{ profile, EXAMPLE_PATHS[ i ],
+                    parser.getContactInfo( loadExampleFile( EXAMPLE_PATHS[ i ] ) ), EXPECTED_NAMES[ i ] } );
+            }
+
+            ModelRegistry.clear( );
+        }
+
+        return data;
+    }
+
+    /**
+     * Helper function that loads the example text files.
+     *
+     * @param fileName File path to example file.
+     * @return The text of the example file.
+     * @throws IOException thrown if the example text file is not found.
+     */
+    private static String loadExampleFile( String fileName ) throws IOException
+    {
+        ClassLoader classLoader = Thread.currentThread( ).getContextClassLoader( );
+        InputStream inStream = classLoader.getResourceAsStream( fileName );
+        BufferedReader reader = new BufferedReader( new InputStreamReader( inStream ) );
+
+        return reader.lines( ).collect( Collectors.joining( "\n" ) );
+    }
+
+    /**
+     * Tests for if the person's name is equal to the expected value.
+     */
+    @Test
+    public void testName( )
+    {
+        Assert.assertEquals( expected, actual.getName( ) );
+    }
+
+    /**
+     * A parser that finds every name with NER.
+     */
+    private static class NerOnlyParser extends DefaultBusinessCardParser
+    {
+        NerOnlyParser( PipelineProfile profile )
+        {
+            super( profile );
+            nameGazetteer = null;
+        }
+    }
+}
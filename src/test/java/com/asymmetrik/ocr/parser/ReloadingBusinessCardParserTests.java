@@ -0,0 +1,172 @@
+package com.asymmetrik.ocr.parser;
+
+import com.asymmetrik.ocr.parser.impl.BusinessCardParser;
+import com.asymmetrik.ocr.parser.impl.BusinessCardParserFactory;
+import com.asymmetrik.ocr.parser.impl.ContactInfo;
+import com.asymmetrik.ocr.parser.impl.ReloadingBusinessCardParser;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test class that contains unit tests for reloading the configuration and swapping parsers.
+ */
+public class ReloadingBusinessCardParserTests
+{
+    /**
+     * Released to let calls to the FirstParser finish.
+     */
+    private static volatile CountDownLatch release = new CountDownLatch( 0 );
+
+    /**
+     * Counted down when a call to the FirstParser starts.
+     */
+    private static volatile CountDownLatch started = new CountDownLatch( 0 );
+
+    /**
+     * Folder for the configuration file.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder( );
+
+    /**
+     * The external configuration file.
+     */
+    private Path configFile;
+
+    /**
+     * Points the configuration at a file that selects the FirstParser.
+     *
+     * @throws IOException thrown if the file cannot be written.
+     */
+    @Before
+    public void setUp( ) throws IOException
+    {
+        configFile = folder.getRoot( ).toPath( ).resolve( "config.properties" );
+        writeConfig( FirstParser.class );
+        System.setProperty( "config.file", configFile.toString( ) );
+        Configuration.reload( );
+    }
+
+    /**
+     * Goes back to the bundled configuration.
+     *
+     * @throws IOException thrown if the configuration cannot be read.
+     */
+    @After
+    public void tearDown( ) throws IOException
+    {
+        release.countDown( );
+        System.clearProperty( "config.file" );
+        Configuration.reload( );
+    }
+
+    /**
+     * Tests that a reload swaps in the new parser for new calls while a call in flight finishes on the old one.
+     *
+     * @throws Exception thrown if the call in flight fails.
+     */
+    @Test
+    public void testReloadSwapsParser( ) throws Exception
+    {
+        ReloadingBusinessCardParser parser = new ReloadingBusinessCardParser( BusinessCardParserFactory.create( ) );
+
+        Assert.assertFalse( parser.reload( ) );
+
+        release = new CountDownLatch( 1 );
+        started = new CountDownLatch( 1 );
+        CompletableFuture<ContactInfo> inFlight = CompletableFuture.supplyAsync( ( ) -> parser.getContactInfo( "card" ) );
+
+        Assert.assertTrue( started.await( 10, TimeUnit.SECONDS ) );
+
+        writeConfig( SecondParser.class );
+
+        Assert.assertTrue( parser.reload( ) );
+        Assert.assertEquals( "second", parser.getContactInfo( "card" ).getName( ) );
+
+        release.countDown( );
+
+        Assert.assertEquals( "first", inFlight.get( 10, TimeUnit.SECONDS ).getName( ) );
+    }
+
+    /**
+     * Tests that modifying the watched configuration file swaps the parser.
+     *
+     * @throws Exception thrown if the file cannot be watched or written.
+     */
+    @Test
+    public void testWatchReloads( ) throws Exception
+    {
+        try ( ReloadingBusinessCardParser parser = new ReloadingBusinessCardParser( BusinessCardParserFactory.create( ) ) )
+        {
+            parser.watch( );
+            writeConfig( SecondParser.class );
+
+            long deadline = System.currentTimeMillis( ) + 30000;
+
+            while ( !( parser.getCurrent( ) instanceof SecondParser ) && System.currentTimeMillis( ) < deadline )
+            {
+                Thread.sleep( 50 );
+            }
+
+            Assert.assertEquals( "second", parser.getContactInfo( "card" ).getName( ) );
+        }
+    }
+
+    /**
+     * Helper method that writes a configuration file selecting a parser.
+     *
+     * @param parserClass the parser class.
+     * @throws IOException thrown if the file cannot be written.
+     */
+    private void writeConfig( Class<? extends BusinessCardParser> parserClass ) throws IOException
+    {
+        Files.write( configFile, ( "businesscardparser.type=" + parserClass.getName( ) + "\n"
+            + "config.reload.debounceMillis=50\n" ).getBytes( StandardCharsets.UTF_8 ) );
+    }
+
+    /**
+     * A parser that signals the started latch and returns "first" once the release latch is released.
+     */
+    public static class FirstParser implements BusinessCardParser
+    {
+        @Override
+        public ContactInfo getContactInfo( String document )
+        {
+            started.countDown( );
+
+            try
+            {
+                release.await( );
+            } catch ( InterruptedException e )
+            {
+                Thread.currentThread( ).interrupt( );
+            }
+
+            return new ContactInfo( "first", null, null );
+        }
+    }
+
+    /**
+     * A parser that returns "second".
+     */
+    public static class SecondParser implements BusinessCardParser
+    {
+        @Override
+        public ContactInfo getContactInfo( String document )
+        {
+            return new ContactInfo( "second", null, null );
+        }
+    }
+}
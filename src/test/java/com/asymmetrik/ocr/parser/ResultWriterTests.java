@@ -0,0 +1,102 @@
+package com.asymmetrik.ocr.parser;
+
+import com.asymmetrik.ocr.parser.impl.ContactInfo;
+import com.asymmetrik.ocr.parser.output.ResultWriter;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Test class that contains unit tests for the ResultWriter formats.
+ */
+public class ResultWriterTests
+{
+    /**
+     * Folder for the output files.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder( );
+
+    /**
+     * Tests that CSV output is quoted, appended to on a second run without a second header, and has a schema.
+     *
+     * @throws IOException thrown if the output cannot be written or read.
+     */
+    @Test
+    public void testCsvAppends( ) throws IOException
+    {
+        Path file = folder.getRoot( ).toPath( ).resolve( "results.csv" );
+
+        try ( ResultWriter writer = ResultWriter.open( file ) )
+        {
+            writer.write( "a.txt", new ContactInfo( "Smith, John", "4105551234", null ) );
+        }
+
+        try ( ResultWriter writer = ResultWriter.open( file ) )
+        {
+            writer.write( "b.txt", new ContactInfo( "Jane \"JD\" Doe", null, "jane@foo.com" ) );
+        }
+
+        List<String> lines = Files.readAllLines( file, StandardCharsets.UTF_8 );
+
+        Assert.assertEquals( 3, lines.size( ) );
+        Assert.assertEquals( "source,name,phone,email", lines.get( 0 ) );
+        Assert.assertEquals( "a.txt,\"Smith, John\",4105551234,", lines.get( 1 ) );
+        Assert.assertEquals( "b.txt,\"Jane \"\"JD\"\" Doe\",,jane@foo.com", lines.get( 2 ) );
+        Assert.assertTrue( Files.exists( file.resolveSibling( "results.csv.schema.json" ) ) );
+    }
+
+    /**
+     * Tests that gzip JSON lines output escapes values and can be read back across two appended gzip members.
+     *
+     * @throws IOException thrown if the output cannot be written or read.
+     */
+    @Test
+    public void testGzipJsonLines( ) throws IOException
+    {
+        Path file = folder.getRoot( ).toPath( ).resolve( "results.jsonl.gz" );
+
+        for ( int run = 0; run < 2; run++ )
+        {
+            try ( ResultWriter writer = ResultWriter.open( file ) )
+            {
+                writer.write( "card\\" + run, new ContactInfo( "Line\nBreak", null, "a@b.c" ) );
+            }
+        }
+
+        List<String> lines;
+
+        try ( BufferedReader reader = new BufferedReader( new InputStreamReader(
+            new GZIPInputStream( Files.newInputStream( file ) ), StandardCharsets.UTF_8 ) ) )
+        {
+            lines = reader.lines( ).collect( Collectors.toList( ) );
+        }
+
+        Assert.assertEquals( 2, lines.size( ) );
+
+        try ( JsonReader reader = Json.createReader( new StringReader( lines.get( 1 ) ) ) )
+        {
+            JsonObject record = reader.readObject( );
+
+            Assert.assertEquals( "card\\1", record.getString( "source" ) );
+            Assert.assertEquals( "Line\nBreak", record.getString( "name" ) );
+            Assert.assertTrue( record.isNull( "phone" ) );
+            Assert.assertEquals( "a@b.c", record.getString( "email" ) );
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.asymmetrik.ocr.parser;
+
+import com.asymmetrik.ocr.parser.impl.BusinessCardParser;
+import com.asymmetrik.ocr.parser.impl.ContactInfo;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test class that contains unit tests for the ShardQueue and the ShardedBatchRunner workers.
+ * <p>
+ * The workers run in this process with a stub parser, so the tests do not load any models or
+ * start any JVMs.
+ */
+public class ShardedBatchRunnerTests
+{
+    /**
+     * Folder for the cards and the queue.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder( );
+
+    /**
+     * Number of cards parsed by the stub parser.
+     */
+    private final AtomicInteger calls = new AtomicInteger( );
+
+    /**
+     * Stub parser that returns the first line of the document as the name.
+     */
+    private final BusinessCardParser stub = document -> {
+        calls.incrementAndGet( );
+        return new ContactInfo( document.split( "\n" )[ 0 ], "4105551234", null );
+    };
+
+    /**
+     * Tests that two workers never claim the same shard.
+     *
+     * @throws IOException thrown if the queue cannot be written.
+     */
+    @Test
+    public void testClaim( ) throws IOException
+    {
+        ShardQueue queue = ShardQueue.createOrOpen( folder.newFolder( "queue" ).toPath( ), createCards( 3 ), 2 );
+
+        try ( ShardQueue.Shard first = queue.claim( "a" );
+              ShardQueue.Shard second = queue.claim( "b" ) )
+        {
+            Assert.assertEquals( 0, first.getIndex( ) );
+            Assert.assertEquals( 1, second.getIndex( ) );
+            Assert.assertEquals( 1, second.getRemainingFiles( ).size( ) );
+            Assert.assertNull( queue.claim( "c" ) );
+            Assert.assertEquals( 0, queue.requeueAbandoned( ) );
+        }
+
+        Assert.assertEquals( 2, queue.requeueAbandoned( ) );
+    }
+
+    /**
+     * Tests that a run that crashes halfway through a shard resumes from its last checkpoint,
+     * without parsing a card or writing a result twice.
+     *
+     * @throws IOException thrown if the queue cannot be written.
+     */
+    @Test
+    public void testResumeAfterCrash( ) throws IOException
+    {
+        Path directory = folder.newFolder( "queue" ).toPath( );
+        List<Path> cards = createCards( 5 );
+        BusinessCardParser crashing = document -> {
+            if( document.startsWith( "Card 3" ) )
+            {
+                throw new OutOfMemoryError( "Worker crashed" );
+            }
+
+            return stub.getContactInfo( document );
+        };
+
+        try
+        {
+            ShardedBatchRunner.runWorker( ShardQueue.createOrOpen( directory, cards, 2 ), "first", crashing, 1 );
+            Assert.fail( "Expected the worker to crash." );
+        } catch ( OutOfMemoryError e )
+        {
+            Assert.assertEquals( 3, calls.get( ) );
+        }
+
+        ShardQueue queue = ShardQueue.createOrOpen( directory, new ArrayList<>( ), 100 );
+
+        Assert.assertEquals( 1, queue.getDoneCount( ) );
+        Assert.assertEquals( 1, queue.requeueAbandoned( ) );
+        Assert.assertEquals( 2, ShardedBatchRunner.runWorker( queue, "second", stub, 1 ) );
+        Assert.assertEquals( 5, calls.get( ) );
+        Assert.assertEquals( 3, queue.getDoneCount( ) );
+
+        Path output = folder.getRoot( ).toPath( ).resolve( "results.csv" );
+        Assert.assertEquals( 5, new ShardedBatchRunner( queue, 1 ).merge( output ) );
+
+        List<String> lines = Files.readAllLines( output );
+        Assert.assertEquals( 6, lines.size( ) );
+
+        for ( int i = 0; i < cards.size( ); i++ )
+        {
+            Assert.assertEquals( cards.get( i ) + ",Card " + i + ",4105551234,", lines.get( i + 1 ) );
+        }
+    }
+
+    /**
+     * Tests that a card that makes the batch call fail is written as an error record, that the
+     * other cards of its chunk are still parsed, and that the shard is finished.
+     *
+     * @throws IOException thrown if the queue cannot be written.
+     */
+    @Test
+    public void testFailingCard( ) throws IOException
+    {
+        List<Path> cards = createCards( 4 );
+        ShardQueue queue = ShardQueue.createOrOpen( folder.newFolder( "queue" ).toPath( ), cards, 4 );
+        BusinessCardParser failing = document -> {
+            if( document.startsWith( "Card 1" ) )
+            {
+                throw new IllegalStateException( "Parser failed" );
+            }
+
+            return stub.getContactInfo( document );
+        };
+
+        Assert.assertEquals( 4, ShardedBatchRunner.runWorker( queue, "worker", failing, 2 ) );
+        Assert.assertEquals( 1, queue.getDoneCount( ) );
+
+        List<String> records = Files.readAllLines( queue.getResultFile( 0 ) );
+
+        Assert.assertEquals( 4, records.size( ) );
+        Assert.assertTrue( records.get( 1 ).contains( "\"error\":\"Unable to parse card: java.lang.IllegalStateException: Parser failed\"" ) );
+
+        Path output = folder.getRoot( ).toPath( ).resolve( "results.csv" );
+        Assert.assertEquals( 3, new ShardedBatchRunner( queue, 1 ).merge( output ) );
+        Assert.assertEquals( cards.get( 2 ) + ",Card 2,4105551234,", Files.readAllLines( output ).get( 2 ) );
+    }
+
+    /**
+     * Helper method that writes card files.
+     *
+     * @param count number of cards.
+     * @return the files, named so they sort in order.
+     * @throws IOException thrown if a file cannot be written.
+     */
+    private List<Path> createCards( int count ) throws IOException
+    {
+        Path directory = folder.newFolder( "cards" ).toPath( );
+        List<Path> cards = new ArrayList<>( );
+
+        for ( int i = 0; i < count; i++ )
+        {
+            cards.add( Files.write( directory.resolve( "card" + i + ".txt" ), ( "Card " + i + "\n(410)555-1234" ).getBytes( ) ) );
+        }
+
+        return cards;
+    }
+}
@@ -0,0 +1,148 @@
+package com.asymmetrik.ocr.parser;
+
+import com.asymmetrik.ocr.parser.impl.BusinessCardParser;
+import com.asymmetrik.ocr.parser.impl.ContactInfo;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Test class that contains unit tests for the StreamingProcessor.
+ * <p>
+ * A stub parser that returns the first line of the card as the name is used so the tests do not
+ * load the models.
+ */
+public class StreamingProcessorTests
+{
+    /**
+     * Stub parser that takes a random amount of time so results finish out of order, and throws for
+     * cards that start with "Broken".
+     */
+    private final BusinessCardParser stub = document -> {
+        try
+        {
+            Thread.sleep( ThreadLocalRandom.current( ).nextInt( 5 ) );
+        } catch ( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+        }
+
+        if( document.startsWith( "Broken" ) )
+        {
+            throw new IllegalStateException( "Broken card" );
+        }
+
+        return new ContactInfo( document.split( "\n" )[ 0 ], null, null );
+    };
+
+    /**
+     * Tests that results are written in input order with a window smaller than the input.
+     *
+     * @throws Exception thrown if the stream fails.
+     */
+    @Test
+    public void testResultsAreInInputOrder( ) throws Exception
+    {
+        StringBuilder input = new StringBuilder( );
+
+        for ( int i = 0; i < 200; i++ )
+        {
+            input.append( "{\"id\":" ).append( i ).append( ",\"text\":\"Card " ).append( i ).append( "\\nLine\"}\n" );
+        }
+
+        StringWriter out = new StringWriter( );
+        StreamingProcessor.StreamResult result = new StreamingProcessor( stub, 4, 8 )
+            .process( new BufferedReader( new StringReader( input.toString( ) ) ), out );
+
+        String[] lines = out.toString( ).split( "\n" );
+
+        Assert.assertEquals( 200, result.getRecords( ) );
+        Assert.assertEquals( 0, result.getFailures( ) );
+        Assert.assertEquals( 200, lines.length );
+
+        for ( int i = 0; i < lines.length; i++ )
+        {
+            Assert.assertEquals( "{\"id\":" + i + ",\"line\":" + ( i + 1 ) + ",\"name\":\"Card " + i
+                + "\",\"phone\":null,\"email\":null}", lines[ i ] );
+        }
+    }
+
+    /**
+     * Tests bare string records, blank lines and records without card text.
+     *
+     * @throws Exception thrown if the stream fails.
+     */
+    @Test
+    public void testRecordTypes( ) throws Exception
+    {
+        String input = "\"Jane Doe\\nAcme\"\n\n{\"id\":\"x\"}\nnot json\n";
+
+        StringWriter out = new StringWriter( );
+        StreamingProcessor.StreamResult result = new StreamingProcessor( stub, 2, 2 )
+            .process( new BufferedReader( new StringReader( input ) ), out );
+
+        String[] lines = out.toString( ).split( "\n" );
+
+        Assert.assertEquals( 3, result.getRecords( ) );
+        Assert.assertEquals( 2, result.getFailures( ) );
+        Assert.assertEquals( "{\"line\":1,\"name\":\"Jane Doe\",\"phone\":null,\"email\":null}", lines[ 0 ] );
+        Assert.assertTrue( lines[ 1 ].startsWith( "{\"id\":\"x\",\"line\":3,\"error\":" ) );
+        Assert.assertTrue( lines[ 2 ].startsWith( "{\"line\":4,\"error\":" ) );
+    }
+
+    /**
+     * Tests that a card the parser throws on is written with an error field and counted as a
+     * failure, and that the records after it are still parsed.
+     *
+     * @throws Exception thrown if the stream fails.
+     */
+    @Test
+    public void testParserFailureDoesNotStopStream( ) throws Exception
+    {
+        String input = "{\"id\":1,\"text\":\"Jane Doe\"}\n{\"id\":2,\"text\":\"Broken\"}\n\"John Smith\"\n";
+
+        StringWriter out = new StringWriter( );
+        StreamingProcessor.StreamResult result = new StreamingProcessor( stub, 2, 1 )
+            .process( new BufferedReader( new StringReader( input ) ), out );
+
+        String[] lines = out.toString( ).split( "\n" );
+
+        Assert.assertEquals( 3, result.getRecords( ) );
+        Assert.assertEquals( 1, result.getFailures( ) );
+        Assert.assertEquals( 3, lines.length );
+        Assert.assertEquals( "{\"id\":2,\"line\":2,\"error\":\"Unable to parse card: java.lang.IllegalStateException: Broken card\"}", lines[ 1 ] );
+        Assert.assertEquals( "{\"line\":3,\"name\":\"John Smith\",\"phone\":null,\"email\":null}", lines[ 2 ] );
+
+        StringWriter archiveOut = new StringWriter( );
+        result = new StreamingProcessor( stub, 2, 1 ).process( Arrays.asList( "Broken", "Jane Doe" ), archiveOut );
+
+        Assert.assertEquals( 1, result.getFailures( ) );
+        Assert.assertEquals( "{\"card\":2,\"name\":\"Jane Doe\",\"phone\":null,\"email\":null}",
+            archiveOut.toString( ).split( "\n" )[ 1 ] );
+    }
+
+    /**
+     * Tests that the fields found by FieldExtractors are written as an extras object, followed by
+     * the degraded flag.
+     *
+     * @throws Exception thrown if the stream fails.
+     */
+    @Test
+    public void testExtras( ) throws Exception
+    {
+        BusinessCardParser withTitle = document -> new ContactInfo( document, null, null,
+            Collections.singletonMap( "title", "Software Engineer" ), true );
+
+        StringWriter out = new StringWriter( );
+        new StreamingProcessor( withTitle, 1, 1 ).process( Collections.singletonList( "Jane Doe" ), out );
+
+        Assert.assertEquals( "{\"card\":1,\"name\":\"Jane Doe\",\"phone\":null,\"email\":null,"
+            + "\"extras\":{\"title\":\"Software Engineer\"},\"degraded\":true}\n", out.toString( ) );
+    }
+}